@@ -4,6 +4,10 @@
 package com.cburch.hex;
 
 public interface HexModelListener {
+	/**
+	 * Reports a change to a range of the model. The old values are null when
+	 * the model has not kept them.
+	 */
 	public void bytesChanged(HexModel source, long start, long numBytes, int[] oldValues);
 
 	public void metainfoChanged(HexModel source);
@@ -89,6 +89,65 @@ class MinimizedTab extends AnalyzerTab {
 		}
 	}
 
+	private static class MinimizerModel extends AbstractListModel<Object> implements ComboBoxModel<Object> {
+		private static final long serialVersionUID = 1L;
+
+		private static final int[] MINIMIZERS = { AnalyzerModel.MINIMIZER_AUTOMATIC, AnalyzerModel.MINIMIZER_EXACT,
+				AnalyzerModel.MINIMIZER_HEURISTIC };
+
+		static int getMinimizerIndex(int choice) {
+			for (int i = 0; i < MINIMIZERS.length; i++) {
+				if (MINIMIZERS[i] == choice)
+					return i;
+			}
+			return 0;
+		}
+
+		private String[] choices;
+		private int selected;
+
+		private MinimizerModel() {
+			selected = 0;
+			choices = new String[MINIMIZERS.length];
+			localeChanged();
+		}
+
+		@Override
+		public Object getElementAt(int index) {
+			return choices[index];
+		}
+
+		int getSelectedMinimizer() {
+			return MINIMIZERS[selected];
+		}
+
+		@Override
+		public Object getSelectedItem() {
+			return choices[selected];
+		}
+
+		@Override
+		public int getSize() {
+			return choices.length;
+		}
+
+		void localeChanged() {
+			choices[0] = Strings.get("minimizerAutomatic");
+			choices[1] = Strings.get("minimizerExact");
+			choices[2] = Strings.get("minimizerHeuristic");
+			fireContentsChanged(this, 0, choices.length);
+		}
+
+		@Override
+		public void setSelectedItem(Object value) {
+			for (int i = 0; i < choices.length; i++) {
+				if (choices[i].equals(value)) {
+					selected = i;
+				}
+			}
+		}
+	}
+
 	private class MyListener implements OutputExpressionsListener, ActionListener, ItemListener {
 		@Override
 		public void actionPerformed(ActionEvent event) {
@@ -116,6 +175,9 @@ class MinimizedTab extends AnalyzerTab {
 				String output = getCurrentVariable();
 				FormatModel model = (FormatModel) formatChoice.getModel();
 				outputExprs.setMinimizedFormat(output, model.getSelectedFormat());
+			} else if (event.getSource() == minimizerChoice) {
+				MinimizerModel model = (MinimizerModel) minimizerChoice.getModel();
+				outputExprs.setMinimizer(model.getSelectedMinimizer());
 			} else {
 				updateTab();
 			}
@@ -131,6 +193,8 @@ class MinimizedTab extends AnalyzerTab {
 	private KarnaughMapPanel karnaughMap;
 	private JLabel formatLabel = new JLabel();
 	private JComboBox<?> formatChoice = new JComboBox<Object>(new FormatModel());
+	private JLabel minimizerLabel = new JLabel();
+	private JComboBox<?> minimizerChoice = new JComboBox<Object>(new MinimizerModel());
 	private ExpressionView minimizedExpr = new ExpressionView();
 	private JButton setAsExpr = new JButton();
 
@@ -147,6 +211,8 @@ class MinimizedTab extends AnalyzerTab {
 		karnaughMap.addMouseListener(new TruthTableMouseListener());
 		setAsExpr.addActionListener(myListener);
 		formatChoice.addItemListener(myListener);
+		minimizerChoice.setSelectedIndex(MinimizerModel.getMinimizerIndex(outputExprs.getMinimizer()));
+		minimizerChoice.addItemListener(myListener);
 
 		JPanel buttons = new JPanel(new GridLayout(1, 1));
 		buttons.add(setAsExpr);
@@ -162,6 +228,7 @@ class MinimizedTab extends AnalyzerTab {
 		gc.gridy = 0;
 		addRow(gb, gc, selector.getLabel(), selector.getComboBox());
 		addRow(gb, gc, formatLabel, formatChoice);
+		addRow(gb, gc, minimizerLabel, minimizerChoice);
 
 		gc.weightx = 0.0;
 		gc.gridx = 0;
@@ -213,6 +280,8 @@ class MinimizedTab extends AnalyzerTab {
 		setAsExpr.setText(Strings.get("minimizedSetButton"));
 		formatLabel.setText(Strings.get("minimizedFormat"));
 		((FormatModel) formatChoice.getModel()).localeChanged();
+		minimizerLabel.setText(Strings.get("minimizedMinimizer"));
+		((MinimizerModel) minimizerChoice.getModel()).localeChanged();
 	}
 
 	@Override
@@ -9,12 +9,19 @@ import com.cburch.logisim.circuit.Circuit;
 import com.cburch.logisim.proj.Project;
 
 public class AnalyzerModel {
-	public static final int MAX_INPUTS = 12;
+	public static final int MAX_INPUTS = 20;
 	public static final int MAX_OUTPUTS = 12;
 
 	public static final int FORMAT_SUM_OF_PRODUCTS = 0;
 	public static final int FORMAT_PRODUCT_OF_SUMS = 1;
 
+	public static final int MINIMIZER_AUTOMATIC = 0;
+	public static final int MINIMIZER_EXACT = 1;
+	public static final int MINIMIZER_HEURISTIC = 2;
+
+	// the most inputs for which MINIMIZER_AUTOMATIC uses the exact minimizer
+	public static final int MAX_EXACT_INPUTS = 12;
+
 	private VariableList inputs = new VariableList(MAX_INPUTS);
 	private VariableList outputs = new VariableList(MAX_OUTPUTS);
 	private TruthTable table;
@@ -0,0 +1,270 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.analyze.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A heuristic two-level minimizer in the style of Espresso, for functions with
+ * too many inputs for the exact method in <code>Implicant</code>. Rather than
+ * generating every prime implicant, it repeatedly expands each cube of a
+ * cover as far as the OFF-set allows, discards cubes that the others make
+ * redundant, and reduces the survivors so that the next expansion can head in
+ * a different direction, stopping once a pass no longer lowers the cost. The
+ * ON- and OFF-sets are held as bitmaps of rows, and a cube is a pair of masks
+ * as in <code>Implicant</code>: bits of <code>unknowns</code> mark free
+ * variables and <code>values</code> gives the rest.
+ */
+class Espresso {
+	private static class Cube {
+		int unknowns;
+		int values;
+
+		Cube(int unknowns, int values) {
+			this.unknowns = unknowns;
+			this.values = values;
+		}
+	}
+
+	private static final Comparator<Cube> SMALLEST_FIRST = new Comparator<Cube>() {
+		@Override
+		public int compare(Cube a, Cube b) {
+			return Integer.bitCount(a.unknowns) - Integer.bitCount(b.unknowns);
+		}
+	};
+
+	private static final int MAX_PASSES = 8;
+
+	static List<Implicant> computeMinimal(int format, AnalyzerModel model, String variable) {
+		TruthTable table = model.getTruthTable();
+		int column = model.getOutputs().indexOf(variable);
+		if (column < 0)
+			return Collections.emptyList();
+
+		Entry desired = format == AnalyzerModel.FORMAT_SUM_OF_PRODUCTS ? Entry.ONE : Entry.ZERO;
+		Entry undesired = desired == Entry.ONE ? Entry.ZERO : Entry.ONE;
+		PackedColumn values = table.getPackedColumn(column);
+		long[] on = values.getRows(desired);
+		long[] off = values.getRows(undesired);
+		if (isEmpty(on) && isEmpty(off))
+			return null;
+
+		Espresso espresso = new Espresso(table.getInputColumnCount(), on, off);
+		List<Cube> cover = espresso.minimize();
+		ArrayList<Implicant> ret = new ArrayList<Implicant>(cover.size());
+		for (Cube cube : cover) {
+			ret.add(new Implicant(cube.unknowns, cube.values));
+		}
+		Collections.sort(ret);
+		return ret;
+	}
+
+	private static boolean isEmpty(long[] rows) {
+		for (int i = 0; i < rows.length; i++) {
+			if (rows[i] != 0)
+				return false;
+		}
+		return true;
+	}
+
+	// returns the rows of a 64-row word that a cube covers
+	private static long lowMask(int unknowns, int values) {
+		long ret = 1L << (values & 63);
+		for (int bits = unknowns & 63; bits != 0; bits &= bits - 1) {
+			ret |= ret << Integer.lowestOneBit(bits);
+		}
+		return ret;
+	}
+
+	private int inputs;
+	private long[] on;
+	private long[] off;
+	private int[] counts; // the number of cubes covering each row
+
+	private Espresso(int inputs, long[] on, long[] off) {
+		this.inputs = inputs;
+		this.on = on;
+		this.off = off;
+		this.counts = new int[1 << inputs];
+	}
+
+	private void addCounts(Cube cube, int delta) {
+		int free = cube.unknowns;
+		int sub = 0;
+		do {
+			counts[cube.values | sub] += delta;
+			sub = (sub - free) & free;
+		} while (sub != 0);
+	}
+
+	// returns the number of rows in both the cube and the bitmap
+	private int countRows(long[] rows, int unknowns, int values) {
+		long mask = lowMask(unknowns, values);
+		int high = unknowns & ~63;
+		int base = values & ~63;
+		int ret = 0;
+		int sub = 0;
+		do {
+			ret += Long.bitCount(rows[(base | sub) >>> 6] & mask);
+			sub = (sub - high) & high;
+		} while (sub != 0);
+		return ret;
+	}
+
+	private int getCost(List<Cube> cover) {
+		int ret = 0;
+		for (Cube cube : cover) {
+			ret += inputs + 1 + inputs - Integer.bitCount(cube.unknowns);
+		}
+		return ret;
+	}
+
+	/**
+	 * Raises the cube's fixed variables one at a time, each time choosing the
+	 * one whose other half reaches the most ON rows without touching the
+	 * OFF-set.
+	 */
+	private void expand(Cube cube) {
+		int all = (1 << inputs) - 1;
+		while (true) {
+			int best = 0;
+			int bestCount = -1;
+			for (int fixed = all & ~cube.unknowns; fixed != 0; fixed &= fixed - 1) {
+				int bit = Integer.lowestOneBit(fixed);
+				int otherHalf = cube.values ^ bit;
+				if (intersects(off, cube.unknowns, otherHalf))
+					continue;
+				int count = countRows(on, cube.unknowns, otherHalf);
+				if (count > bestCount) {
+					best = bit;
+					bestCount = count;
+				}
+			}
+			if (bestCount < 0)
+				return;
+			cube.unknowns |= best;
+			cube.values &= ~best;
+		}
+	}
+
+	private boolean intersects(long[] rows, int unknowns, int values) {
+		long mask = lowMask(unknowns, values);
+		int high = unknowns & ~63;
+		int base = values & ~63;
+		int sub = 0;
+		do {
+			if ((rows[(base | sub) >>> 6] & mask) != 0)
+				return true;
+			sub = (sub - high) & high;
+		} while (sub != 0);
+		return false;
+	}
+
+	// removes cubes whose ON rows are all covered by other cubes
+	private void irredundant(List<Cube> cover) {
+		Collections.sort(cover, SMALLEST_FIRST);
+		for (int i = 0; i < cover.size(); i++) {
+			Cube cube = cover.get(i);
+			if (isRedundant(cube)) {
+				addCounts(cube, -1);
+				cover.remove(i);
+				i--;
+			}
+		}
+	}
+
+	private boolean isOn(int row) {
+		return (on[row >>> 6] & (1L << row)) != 0;
+	}
+
+	private boolean isRedundant(Cube cube) {
+		int free = cube.unknowns;
+		int sub = 0;
+		do {
+			int row = cube.values | sub;
+			if (counts[row] < 2 && isOn(row))
+				return false;
+			sub = (sub - free) & free;
+		} while (sub != 0);
+		return true;
+	}
+
+	private List<Cube> minimize() {
+		// build an initial cover by expanding each ON row not yet covered
+		ArrayList<Cube> cover = new ArrayList<Cube>();
+		int rows = 1 << inputs;
+		for (int row = 0; row < rows; row++) {
+			if (isOn(row) && counts[row] == 0) {
+				Cube cube = new Cube(0, row);
+				expand(cube);
+				addCounts(cube, 1);
+				cover.add(cube);
+			}
+		}
+		irredundant(cover);
+
+		List<Cube> best = copy(cover);
+		int bestCost = getCost(best);
+		for (int pass = 0; pass < MAX_PASSES; pass++) {
+			Collections.sort(cover, Collections.reverseOrder(SMALLEST_FIRST));
+			for (int i = 0; i < cover.size(); i++) {
+				Cube cube = cover.get(i);
+				addCounts(cube, -1);
+				if (!reduce(cube)) {
+					cover.remove(i);
+					i--;
+					continue;
+				}
+				expand(cube);
+				addCounts(cube, 1);
+			}
+			irredundant(cover);
+
+			int cost = getCost(cover);
+			if (cost >= bestCost)
+				break;
+			best = copy(cover);
+			bestCost = cost;
+		}
+		return best;
+	}
+
+	private List<Cube> copy(List<Cube> cover) {
+		ArrayList<Cube> ret = new ArrayList<Cube>(cover.size());
+		for (Cube cube : cover) {
+			ret.add(new Cube(cube.unknowns, cube.values));
+		}
+		return ret;
+	}
+
+	/**
+	 * Shrinks the cube, which is not itself counted, to the smallest cube
+	 * containing the ON rows that no other cube covers. Returns false if there
+	 * are none, so that the cube may be dropped.
+	 */
+	private boolean reduce(Cube cube) {
+		int and = -1;
+		int or = 0;
+		boolean found = false;
+		int free = cube.unknowns;
+		int sub = 0;
+		do {
+			int row = cube.values | sub;
+			if (counts[row] == 0 && isOn(row)) {
+				and &= row;
+				or |= row;
+				found = true;
+			}
+			sub = (sub - free) & free;
+		} while (sub != 0);
+		if (!found)
+			return false;
+		cube.unknowns = and ^ or;
+		cube.values = and;
+		return true;
+	}
+}
@@ -4,6 +4,7 @@
 package com.cburch.logisim.analyze.model;
 
 import java.util.HashSet;
+import java.util.Map;
 
 public abstract class Expression {
 	static interface IntVisitor {
@@ -110,6 +111,47 @@ public abstract class Expression {
 		return (ret & 1) != 0;
 	}
 
+	/**
+	 * Evaluates the expression for 32 assignments at once: bit <i>i</i> of
+	 * each variable's value gives that variable's value in assignment <i>i</i>,
+	 * and bit <i>i</i> of the result gives the expression's value there.
+	 * Variables that are absent are 0.
+	 */
+	int evaluateSlice(final Map<String, Integer> values) {
+		return visit(new IntVisitor() {
+			@Override
+			public int visitAnd(Expression a, Expression b) {
+				return a.visit(this) & b.visit(this);
+			}
+
+			@Override
+			public int visitConstant(int value) {
+				return value == 0 ? 0 : -1;
+			}
+
+			@Override
+			public int visitNot(Expression a) {
+				return ~a.visit(this);
+			}
+
+			@Override
+			public int visitOr(Expression a, Expression b) {
+				return a.visit(this) | b.visit(this);
+			}
+
+			@Override
+			public int visitVariable(String name) {
+				Integer value = values.get(name);
+				return value == null ? 0 : value.intValue();
+			}
+
+			@Override
+			public int visitXor(Expression a, Expression b) {
+				return a.visit(this) ^ b.visit(this);
+			}
+		});
+	}
+
 	public abstract int getPrecedence();
 
 	public boolean isCircular() {
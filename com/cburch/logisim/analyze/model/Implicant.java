@@ -232,7 +232,7 @@ public class Implicant implements Comparable<Implicant> {
 
 	private int values;
 
-	private Implicant(int unknowns, int values) {
+	Implicant(int unknowns, int values) {
 		this.unknowns = unknowns;
 		this.values = values;
 	}
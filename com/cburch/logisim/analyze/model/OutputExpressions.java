@@ -4,7 +4,6 @@
 package com.cburch.logisim.analyze.model;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -128,7 +127,7 @@ public class OutputExpressions {
 			try {
 				List<Implicant> oldImplicants = minimalImplicants;
 				Expression oldMinExpr = minimalExpr;
-				minimalImplicants = Implicant.computeMinimal(format, model, output);
+				minimalImplicants = computeMinimal(format, output);
 				minimalExpr = Implicant.toExpression(format, model, minimalImplicants);
 				boolean minChanged = !implicantsSame(oldImplicants, minimalImplicants);
 
@@ -136,11 +135,11 @@ public class OutputExpressions {
 					// see whether the expression is still consistent with the
 					// truth table
 					TruthTable table = model.getTruthTable();
-					Entry[] outputColumn = computeColumn(model.getTruthTable(), expr);
+					PackedColumn outputColumn = computeColumn(model.getTruthTable(), expr);
 					int outputIndex = model.getOutputs().indexOf(output);
 
-					Entry[] currentColumn = table.getOutputColumn(outputIndex);
-					if (!columnsMatch(currentColumn, outputColumn) || isAllUndefined(outputColumn) || formatChanged) {
+					PackedColumn currentColumn = table.getPackedColumn(outputIndex);
+					if (!currentColumn.agrees(outputColumn) || outputColumn.isAllUndefined() || formatChanged) {
 						// if not, then we need to change the expression to
 						// maintain consistency
 						boolean exprChanged = expr != oldMinExpr || minChanged;
@@ -214,7 +213,7 @@ public class OutputExpressions {
 			exprString = newExprString;
 
 			if (expr != minimalExpr) { // for efficiency to avoid recomputation
-				Entry[] values = computeColumn(model.getTruthTable(), expr);
+				PackedColumn values = computeColumn(model.getTruthTable(), expr);
 				int outputColumn = model.getOutputs().indexOf(output);
 				updatingTable = true;
 				try {
@@ -235,33 +234,29 @@ public class OutputExpressions {
 		}
 	}
 
-	private static boolean columnsMatch(Entry[] a, Entry[] b) {
-		if (a.length != b.length)
-			return false;
-		for (int i = 0; i < a.length; i++) {
-			if (a[i] != b[i]) {
-				boolean bothDefined = (a[i] == Entry.ZERO || a[i] == Entry.ONE)
-						&& (b[i] == Entry.ZERO || b[i] == Entry.ONE);
-				if (bothDefined)
-					return false;
-			}
-		}
-		return true;
-	}
-
-	private static Entry[] computeColumn(TruthTable table, Expression expr) {
+	private static PackedColumn computeColumn(TruthTable table, Expression expr) {
 		int rows = table.getRowCount();
 		int cols = table.getInputColumnCount();
-		Entry[] values = new Entry[rows];
-		if (expr == null) {
-			Arrays.fill(values, Entry.DONT_CARE);
-		} else {
-			Assignments assn = new Assignments();
-			for (int i = 0; i < rows; i++) {
-				for (int j = 0; j < cols; j++) {
-					assn.put(table.getInputHeader(j), TruthTable.isInputSet(i, j, cols));
+		if (expr == null)
+			return new PackedColumn(rows, Entry.DONT_CARE);
+
+		// evaluate the expression for 32 rows at a time
+		PackedColumn values = new PackedColumn(rows, Entry.ZERO);
+		HashMap<String, Integer> slice = new HashMap<String, Integer>();
+		for (int base = 0; base < rows; base += 32) {
+			int lanes = Math.min(32, rows - base);
+			for (int j = 0; j < cols; j++) {
+				int bits = 0;
+				for (int k = 0; k < lanes; k++) {
+					if (TruthTable.isInputSet(base + k, j, cols))
+						bits |= 1 << k;
 				}
-				values[i] = expr.evaluate(assn) ? Entry.ONE : Entry.ZERO;
+				slice.put(table.getInputHeader(j), Integer.valueOf(bits));
+			}
+			int result = expr.evaluateSlice(slice);
+			for (int k = 0; k < lanes; k++) {
+				if ((result & (1 << k)) != 0)
+					values.set(base + k, Entry.ONE);
 			}
 		}
 		return values;
@@ -287,14 +282,6 @@ public class OutputExpressions {
 		}
 	}
 
-	private static boolean isAllUndefined(Entry[] a) {
-		for (int i = 0; i < a.length; i++) {
-			if (a[i] == Entry.ZERO || a[i] == Entry.ONE)
-				return false;
-		}
-		return true;
-	}
-
 	private MyListener myListener = new MyListener();
 
 	private AnalyzerModel model;
@@ -305,6 +292,8 @@ public class OutputExpressions {
 
 	private boolean updatingTable = false;
 
+	private int minimizer = AnalyzerModel.MINIMIZER_AUTOMATIC;
+
 	public OutputExpressions(AnalyzerModel model) {
 		this.model = model;
 		model.getInputs().addVariableListListener(myListener);
@@ -312,6 +301,19 @@ public class OutputExpressions {
 		model.getTruthTable().addTruthTableListener(myListener);
 	}
 
+	private List<Implicant> computeMinimal(int format, String output) {
+		boolean heuristic;
+		if (minimizer == AnalyzerModel.MINIMIZER_AUTOMATIC) {
+			heuristic = model.getInputs().size() > AnalyzerModel.MAX_EXACT_INPUTS;
+		} else {
+			heuristic = minimizer == AnalyzerModel.MINIMIZER_HEURISTIC;
+		}
+		if (heuristic)
+			return Espresso.computeMinimal(format, model, output);
+		else
+			return Implicant.computeMinimal(format, model, output);
+	}
+
 	//
 	// listener methods
 	//
@@ -367,6 +369,10 @@ public class OutputExpressions {
 		return getOutputData(output, true).getMinimizedFormat();
 	}
 
+	public int getMinimizer() {
+		return minimizer;
+	}
+
 	private OutputData getOutputData(String output, boolean create) {
 		if (output == null)
 			throw new IllegalArgumentException("null output name");
@@ -416,4 +422,13 @@ public class OutputExpressions {
 			invalidate(output, true);
 		}
 	}
+
+	public void setMinimizer(int value) {
+		if (minimizer != value) {
+			minimizer = value;
+			for (OutputData data : outputData.values()) {
+				data.invalidate(false, false);
+			}
+		}
+	}
 }
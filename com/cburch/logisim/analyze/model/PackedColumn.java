@@ -0,0 +1,176 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.analyze.model;
+
+import java.util.HashMap;
+
+/**
+ * One output column of a truth table, holding two bits per row in an array of
+ * longs so that a table with twenty inputs still takes only 256K per column.
+ * The low bit of each pair gives the value and the high bit says that the
+ * value is undefined: 00 is 0, 01 is 1, 10 is don't-care, and 11 is an error.
+ * Errors other than <code>Entry.BUS_ERROR</code> are rare, so they are
+ * remembered separately.
+ */
+public class PackedColumn {
+	private static final long LOW_BITS = 0x5555555555555555L;
+
+	private static final int ZERO_CODE = 0;
+	private static final int ONE_CODE = 1;
+	private static final int DONT_CARE_CODE = 2;
+	private static final int ERROR_CODE = 3;
+
+	private static int encode(Entry value) {
+		if (value == Entry.ZERO)
+			return ZERO_CODE;
+		else if (value == Entry.ONE)
+			return ONE_CODE;
+		else if (value == Entry.DONT_CARE)
+			return DONT_CARE_CODE;
+		else
+			return ERROR_CODE;
+	}
+
+	private int size;
+	private long[] codes;
+	private HashMap<Integer, Entry> errors = null;
+
+	public PackedColumn(Entry[] values) {
+		this(values.length, Entry.DONT_CARE);
+		for (int i = 0; i < values.length; i++) {
+			set(i, values[i]);
+		}
+	}
+
+	public PackedColumn(int size, Entry fill) {
+		this.size = size;
+		this.codes = new long[(size + 31) / 32];
+		int code = encode(fill);
+		if (code != ZERO_CODE) {
+			long word = code * LOW_BITS;
+			for (int i = 0; i < codes.length; i++) {
+				codes[i] = word;
+			}
+			if (code == ERROR_CODE && fill != Entry.BUS_ERROR) {
+				for (int i = 0; i < size; i++) {
+					setError(i, fill);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns whether the two columns have no row where both are defined but
+	 * differ.
+	 */
+	public boolean agrees(PackedColumn other) {
+		if (other.size != size)
+			return false;
+		for (int i = 0; i < codes.length; i++) {
+			long a = codes[i];
+			long b = other.codes[i];
+			long defined = ~(a >>> 1) & ~(b >>> 1) & getRowMask(i);
+			if (((a ^ b) & defined) != 0)
+				return false;
+		}
+		return true;
+	}
+
+	public PackedColumn copy() {
+		PackedColumn ret = new PackedColumn(size, Entry.ZERO);
+		System.arraycopy(codes, 0, ret.codes, 0, codes.length);
+		if (errors != null)
+			ret.errors = new HashMap<Integer, Entry>(errors);
+		return ret;
+	}
+
+	public Entry get(int row) {
+		int code = (int) (codes[row >> 5] >>> ((row & 31) << 1)) & 3;
+		switch (code) {
+		case ZERO_CODE:
+			return Entry.ZERO;
+		case ONE_CODE:
+			return Entry.ONE;
+		case DONT_CARE_CODE:
+			return Entry.DONT_CARE;
+		default:
+			if (errors != null) {
+				Entry ret = errors.get(Integer.valueOf(row));
+				if (ret != null)
+					return ret;
+			}
+			return Entry.BUS_ERROR;
+		}
+	}
+
+	// returns the low bits of the pairs in the given word that hold rows
+	private long getRowMask(int word) {
+		int rows = size - (word << 5);
+		return rows >= 32 ? LOW_BITS : LOW_BITS & ((1L << (rows << 1)) - 1);
+	}
+
+	/**
+	 * Returns a bitmap with one bit per row, set for those rows holding the
+	 * given value. Errors of every kind are reported as
+	 * <code>Entry.BUS_ERROR</code>.
+	 */
+	long[] getRows(Entry value) {
+		int code = encode(value);
+		long want = code * LOW_BITS;
+		long[] ret = new long[(size + 63) / 64];
+		for (int i = 0; i < codes.length; i++) {
+			long diff = codes[i] ^ want;
+			long match = ~(diff | (diff >>> 1)) & LOW_BITS;
+			// gather the 32 match bits at the even positions into one int
+			long bits = 0;
+			for (int j = 0; match != 0; j++, match >>>= 2) {
+				bits |= (match & 1) << j;
+			}
+			ret[i >> 1] |= bits << ((i & 1) << 5);
+		}
+		int extra = size & 63;
+		if (extra != 0)
+			ret[ret.length - 1] &= (1L << extra) - 1;
+		return ret;
+	}
+
+	/** Returns whether no row is defined as 0 or 1. */
+	public boolean isAllUndefined() {
+		for (int i = 0; i < codes.length; i++) {
+			if ((~(codes[i] >>> 1) & getRowMask(i)) != 0)
+				return false;
+		}
+		return true;
+	}
+
+	public void set(int row, Entry value) {
+		int code = encode(value);
+		int word = row >> 5;
+		int shift = (row & 31) << 1;
+		codes[word] = (codes[word] & ~(3L << shift)) | ((long) code << shift);
+		if (code == ERROR_CODE && value != Entry.BUS_ERROR) {
+			setError(row, value);
+		} else if (errors != null) {
+			errors.remove(Integer.valueOf(row));
+		}
+	}
+
+	private void setError(int row, Entry value) {
+		if (errors == null)
+			errors = new HashMap<Integer, Entry>();
+		errors.put(Integer.valueOf(row), value);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public Entry[] toArray() {
+		Entry[] ret = new Entry[size];
+		for (int i = 0; i < size; i++) {
+			ret[i] = get(i);
+		}
+		return ret;
+	}
+}
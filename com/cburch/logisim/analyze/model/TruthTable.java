@@ -4,7 +4,6 @@
 package com.cburch.logisim.analyze.model;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -14,31 +13,32 @@ public class TruthTable {
 		private void inputsChanged(VariableListEvent event) {
 			int action = event.getType();
 			if (action == VariableListEvent.ADD) {
-				for (Map.Entry<String, Entry[]> curEntry : outputColumns.entrySet()) {
+				for (Map.Entry<String, PackedColumn> curEntry : outputColumns.entrySet()) {
 					String output = curEntry.getKey();
-					Entry[] column = curEntry.getValue();
-					Entry[] newColumn = new Entry[2 * column.length];
-					for (int i = 0; i < column.length; i++) {
-						newColumn[2 * i] = column[i];
-						newColumn[2 * i + 1] = column[i];
+					PackedColumn column = curEntry.getValue();
+					PackedColumn newColumn = new PackedColumn(2 * column.size(), DEFAULT_ENTRY);
+					for (int i = 0; i < column.size(); i++) {
+						Entry e = column.get(i);
+						newColumn.set(2 * i, e);
+						newColumn.set(2 * i + 1, e);
 					}
 					outputColumns.put(output, newColumn);
 				}
 			} else if (action == VariableListEvent.REMOVE) {
 				int index = ((Integer) event.getData()).intValue();
-				for (Map.Entry<String, Entry[]> curEntry : outputColumns.entrySet()) {
+				for (Map.Entry<String, PackedColumn> curEntry : outputColumns.entrySet()) {
 					String output = curEntry.getKey();
-					Entry[] column = curEntry.getValue();
-					Entry[] newColumn = removeInput(column, index);
+					PackedColumn column = curEntry.getValue();
+					PackedColumn newColumn = removeInput(column, index);
 					outputColumns.put(output, newColumn);
 				}
 			} else if (action == VariableListEvent.MOVE) {
 				int delta = ((Integer) event.getData()).intValue();
 				int newIndex = model.getInputs().indexOf(event.getVariable());
-				for (Map.Entry<String, Entry[]> curEntry : outputColumns.entrySet()) {
+				for (Map.Entry<String, PackedColumn> curEntry : outputColumns.entrySet()) {
 					String output = curEntry.getKey();
-					Entry[] column = curEntry.getValue();
-					Entry[] newColumn = moveInput(column, newIndex - delta, newIndex);
+					PackedColumn column = curEntry.getValue();
+					PackedColumn newColumn = moveInput(column, newIndex - delta, newIndex);
 					outputColumns.put(output, newColumn);
 				}
 			}
@@ -54,29 +54,29 @@ public class TruthTable {
 			fireStructureChanged(event);
 		}
 
-		private Entry[] moveInput(Entry[] old, int oldIndex, int newIndex) {
+		private PackedColumn moveInput(PackedColumn old, int oldIndex, int newIndex) {
 			int inputs = model.getInputs().size();
 			oldIndex = inputs - 1 - oldIndex;
 			newIndex = inputs - 1 - newIndex;
-			Entry[] ret = new Entry[old.length];
-			int sameMask = (old.length - 1) ^ ((1 << (1 + Math.max(oldIndex, newIndex))) - 1)
+			PackedColumn ret = new PackedColumn(old.size(), DEFAULT_ENTRY);
+			int sameMask = (old.size() - 1) ^ ((1 << (1 + Math.max(oldIndex, newIndex))) - 1)
 					^ ((1 << Math.min(oldIndex, newIndex)) - 1); // bits that
 																	// don't
 																	// change
 			int moveMask = 1 << oldIndex; // bit that moves
 			int moveDist = Math.abs(newIndex - oldIndex);
 			boolean moveLeft = newIndex > oldIndex;
-			int blockMask = (old.length - 1) ^ sameMask ^ moveMask; // bits that
+			int blockMask = (old.size() - 1) ^ sameMask ^ moveMask; // bits that
 																	// move by
 																	// one
-			for (int i = 0; i < old.length; i++) {
+			for (int i = 0; i < old.size(); i++) {
 				int j; // new index
 				if (moveLeft) {
 					j = (i & sameMask) | ((i & moveMask) << moveDist) | ((i & blockMask) >> 1);
 				} else {
 					j = (i & sameMask) | ((i & moveMask) >> moveDist) | ((i & blockMask) << 1);
 				}
-				ret[j] = old[i];
+				ret.set(j, old.get(i));
 			}
 			return ret;
 		}
@@ -88,7 +88,7 @@ public class TruthTable {
 			} else if (action == VariableListEvent.REMOVE) {
 				outputColumns.remove(event.getVariable());
 			} else if (action == VariableListEvent.REPLACE) {
-				Entry[] column = outputColumns.remove(event.getVariable());
+				PackedColumn column = outputColumns.remove(event.getVariable());
 				if (column != null) {
 					int index = ((Integer) event.getData()).intValue();
 					String newVariable = model.getOutputs().get(index);
@@ -97,16 +97,16 @@ public class TruthTable {
 			}
 		}
 
-		private Entry[] removeInput(Entry[] old, int index) {
+		private PackedColumn removeInput(PackedColumn old, int index) {
 			int oldInputCount = model.getInputs().size() + 1;
-			Entry[] ret = new Entry[old.length / 2];
+			PackedColumn ret = new PackedColumn(old.size() / 2, DEFAULT_ENTRY);
 			int j = 0;
 			int mask = 1 << (oldInputCount - 1 - index);
-			for (int i = 0; i < old.length; i++) {
+			for (int i = 0; i < old.size(); i++) {
 				if ((i & mask) == 0) {
-					Entry e0 = old[i];
-					Entry e1 = old[i | mask];
-					ret[j] = (e0 == e1 ? e0 : Entry.DONT_CARE);
+					Entry e0 = old.get(i);
+					Entry e1 = old.get(i | mask);
+					ret.set(j, e0 == e1 ? e0 : Entry.DONT_CARE);
 					j++;
 				}
 			}
@@ -124,7 +124,7 @@ public class TruthTable {
 	private List<TruthTableListener> listeners = new ArrayList<TruthTableListener>();
 	private AnalyzerModel model;
 
-	private HashMap<String, Entry[]> outputColumns = new HashMap<String, Entry[]>();
+	private HashMap<String, PackedColumn> outputColumns = new HashMap<String, PackedColumn>();
 
 	public TruthTable(AnalyzerModel model) {
 		this.model = model;
@@ -176,19 +176,7 @@ public class TruthTable {
 	}
 
 	public Entry[] getOutputColumn(int column) {
-		int outputs = model.getOutputs().size();
-		if (column < 0 || column >= outputs) {
-			throw new IllegalArgumentException("index: " + column + " size: " + outputs);
-		}
-
-		String outputName = model.getOutputs().get(column);
-		Entry[] columnData = outputColumns.get(outputName);
-		if (columnData == null) {
-			columnData = new Entry[getRowCount()];
-			Arrays.fill(columnData, DEFAULT_ENTRY);
-			outputColumns.put(outputName, columnData);
-		}
-		return columnData;
+		return getPackedColumn(column).toArray();
 	}
 
 	public int getOutputColumnCount() {
@@ -201,12 +189,12 @@ public class TruthTable {
 			return Entry.DONT_CARE;
 		} else {
 			String outputName = model.getOutputs().get(column);
-			Entry[] columnData = outputColumns.get(outputName);
+			PackedColumn columnData = outputColumns.get(outputName);
 			if (columnData == null)
 				return DEFAULT_ENTRY;
-			if (row < 0 || row >= columnData.length)
+			if (row < 0 || row >= columnData.size())
 				return Entry.DONT_CARE;
-			return columnData[row];
+			return columnData.get(row);
 		}
 	}
 
@@ -218,6 +206,26 @@ public class TruthTable {
 		return model.getOutputs().indexOf(output);
 	}
 
+	/**
+	 * Returns the packed form of an output column. The caller should not
+	 * modify it; use <code>setOutputEntry</code> or
+	 * <code>setOutputColumn</code> instead.
+	 */
+	public PackedColumn getPackedColumn(int column) {
+		int outputs = model.getOutputs().size();
+		if (column < 0 || column >= outputs) {
+			throw new IllegalArgumentException("index: " + column + " size: " + outputs);
+		}
+
+		String outputName = model.getOutputs().get(column);
+		PackedColumn columnData = outputColumns.get(outputName);
+		if (columnData == null) {
+			columnData = new PackedColumn(getRowCount(), DEFAULT_ENTRY);
+			outputColumns.put(outputName, columnData);
+		}
+		return columnData;
+	}
+
 	public int getRowCount() {
 		int sz = model.getInputs().size();
 		return 1 << sz;
@@ -228,7 +236,11 @@ public class TruthTable {
 	}
 
 	public void setOutputColumn(int column, Entry[] values) {
-		if (values != null && values.length != getRowCount()) {
+		setOutputColumn(column, values == null ? null : new PackedColumn(values));
+	}
+
+	public void setOutputColumn(int column, PackedColumn values) {
+		if (values != null && values.size() != getRowCount()) {
 			throw new IllegalArgumentException("argument to setOutputColumn is wrong length");
 		}
 
@@ -238,7 +250,7 @@ public class TruthTable {
 		}
 
 		String outputName = model.getOutputs().get(column);
-		Entry[] oldValues = outputColumns.get(outputName);
+		PackedColumn oldValues = outputColumns.get(outputName);
 		if (oldValues == values)
 			return;
 		else if (values == null)
@@ -259,19 +271,18 @@ public class TruthTable {
 		}
 
 		String outputName = model.getOutputs().get(column);
-		Entry[] columnData = outputColumns.get(outputName);
+		PackedColumn columnData = outputColumns.get(outputName);
 
 		if (columnData == null) {
 			if (value == DEFAULT_ENTRY)
 				return;
-			columnData = new Entry[getRowCount()];
+			columnData = new PackedColumn(getRowCount(), DEFAULT_ENTRY);
 			outputColumns.put(outputName, columnData);
-			Arrays.fill(columnData, DEFAULT_ENTRY);
-			columnData[row] = value;
+			columnData.set(row, value);
 		} else {
-			if (columnData[row] == value)
+			if (columnData.get(row) == value)
 				return;
-			columnData[row] = value;
+			columnData.set(row, value);
 		}
 
 		fireCellsChanged(column);
@@ -17,16 +17,21 @@ import com.cburch.logisim.analyze.model.AnalyzerModel;
 import com.cburch.logisim.analyze.model.Entry;
 import com.cburch.logisim.analyze.model.Expression;
 import com.cburch.logisim.analyze.model.Expressions;
+import com.cburch.logisim.analyze.model.PackedColumn;
 import com.cburch.logisim.analyze.model.TruthTable;
 import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.ComponentFactory;
+import com.cburch.logisim.comp.EndData;
 import com.cburch.logisim.data.Direction;
 import com.cburch.logisim.data.Location;
 import com.cburch.logisim.data.Value;
+import com.cburch.logisim.file.Options;
 import com.cburch.logisim.instance.Instance;
 import com.cburch.logisim.instance.InstanceState;
 import com.cburch.logisim.instance.StdAttr;
 import com.cburch.logisim.proj.Project;
 import com.cburch.logisim.std.wiring.Pin;
+import com.cburch.logisim.std.wiring.Tunnel;
 
 public class Analyze {
 	private static class ExpressionMap extends HashMap<Location, Expression> {
@@ -146,52 +151,227 @@ public class Analyze {
 
 		int inputCount = inputPins.size();
 		int rowCount = 1 << inputCount;
-		Entry[][] columns = new Entry[outputPins.size()][rowCount];
+		PackedColumn[] columns = computeTableBitSliced(proj, circuit, inputPins, outputPins);
+		if (columns == null) {
+			// simulate each row in a fresh state
+			columns = new PackedColumn[outputPins.size()];
+			for (int j = 0; j < columns.length; j++) {
+				columns[j] = new PackedColumn(rowCount, Entry.DONT_CARE);
+			}
+			for (int i = 0; i < rowCount; i++) {
+				CircuitState circuitState = new CircuitState(proj, circuit);
+				for (int j = 0; j < inputCount; j++) {
+					Instance pin = inputPins.get(j);
+					InstanceState pinState = circuitState.getInstanceState(pin);
+					boolean value = TruthTable.isInputSet(i, j, inputCount);
+					Pin.FACTORY.setValue(pinState, value ? Value.TRUE : Value.FALSE);
+				}
+
+				Propagator prop = circuitState.getPropagator();
+				prop.propagate();
+				/*
+				 * TODO for the SimulatorPrototype class do { prop.step(); } while
+				 * (prop.isPending());
+				 */
+				// TODO: Search for circuit state
+
+				if (prop.isOscillating()) {
+					for (int j = 0; j < columns.length; j++) {
+						columns[j].set(i, Entry.OSCILLATE_ERROR);
+					}
+				} else {
+					for (int j = 0; j < columns.length; j++) {
+						Instance pin = outputPins.get(j);
+						InstanceState pinState = circuitState.getInstanceState(pin);
+						Entry out;
+						Value outValue = Pin.FACTORY.getValue(pinState).get(0);
+						if (outValue == Value.TRUE)
+							out = Entry.ONE;
+						else if (outValue == Value.FALSE)
+							out = Entry.ZERO;
+						else if (outValue == Value.ERROR)
+							out = Entry.BUS_ERROR;
+						else
+							out = Entry.DONT_CARE;
+						columns[j].set(i, out);
+					}
+				}
+			}
+		}
+
+		model.setVariables(inputNames, outputNames);
+		for (int i = 0; i < columns.length; i++) {
+			model.getTruthTable().setOutputColumn(i, columns[i]);
+		}
+	}
+
+	/**
+	 * Computes the truth table 64 rows at a time, holding the value of each net
+	 * in three words as described for <code>BitSliceEvaluator</code>. Returns
+	 * null if the circuit has anything this can't handle: a component without
+	 * such an evaluator, a multi-bit or multiply-driven net, or a cycle.
+	 */
+	static PackedColumn[] computeTableBitSliced(Project proj, Circuit circuit, ArrayList<Instance> inputPins,
+			ArrayList<Instance> outputPins) {
+		Object onUndefined = proj.getOptions().getAttributeSet().getValue(Options.ATTR_GATE_UNDEFINED);
+		if (onUndefined.equals(Options.GATE_UNDEFINED_ERROR))
+			return null;
+
+		HashSet<Component> inputComps = new HashSet<Component>();
+		for (Instance pin : inputPins) {
+			inputComps.add(Instance.getComponentFor(pin));
+		}
+
+		// give all points of a net the same words, initially UNKNOWN
+		HashMap<Object, long[]> nets = new HashMap<Object, long[]>();
+		HashMap<Location, long[]> values = new HashMap<Location, long[]>();
+		HashMap<long[], Component> drivers = new HashMap<long[], Component>();
+		HashMap<Component, BitSliceEvaluator> evaluators = new HashMap<Component, BitSliceEvaluator>();
+		for (Component comp : circuit.getNonWires()) {
+			ComponentFactory factory = comp.getFactory();
+			if (factory instanceof Tunnel || comp.getEnds().isEmpty())
+				continue;
+			if (factory instanceof Pin) {
+				if (Pin.FACTORY.isInputPin(Instance.getInstanceFor(comp)) && !inputComps.contains(comp))
+					return null;
+			} else {
+				BitSliceEvaluator evaluator = (BitSliceEvaluator) comp.getFeature(BitSliceEvaluator.class);
+				if (evaluator == null)
+					return null;
+				evaluators.put(comp, evaluator);
+			}
+
+			for (EndData end : comp.getEnds()) {
+				if (end.getWidth().getWidth() > 1)
+					return null;
+				Location loc = end.getLocation();
+				if (!circuit.isConnected(loc, comp))
+					continue;
+				Object key = loc;
+				WireBundle bundle = circuit.wires.getWireBundle(loc);
+				if (bundle != null) {
+					bundle = bundle.find();
+					if (!bundle.isValid() || bundle.getWidth().getWidth() > 1)
+						return null;
+					key = bundle;
+				}
+				long[] value = nets.get(key);
+				if (value == null) {
+					value = new long[] { 0, -1L, 0 };
+					nets.put(key, value);
+				}
+				values.put(loc, value);
+
+				if (end.getType() == EndData.OUTPUT_ONLY) {
+					if (drivers.put(value, comp) != null)
+						return null;
+				} else if (end.getType() != EndData.INPUT_ONLY) {
+					return null;
+				}
+			}
+		}
+
+		// order the evaluators so that each follows those driving its inputs
+		HashMap<Component, ArrayList<Component>> successors = new HashMap<Component, ArrayList<Component>>();
+		HashMap<Component, Integer> pending = new HashMap<Component, Integer>();
+		ArrayList<Component> ready = new ArrayList<Component>();
+		for (Component comp : evaluators.keySet()) {
+			int count = 0;
+			for (EndData end : comp.getEnds()) {
+				if (end.getType() != EndData.INPUT_ONLY)
+					continue;
+				Component driver = drivers.get(values.get(end.getLocation()));
+				if (driver != null && evaluators.containsKey(driver)) {
+					ArrayList<Component> succ = successors.get(driver);
+					if (succ == null) {
+						succ = new ArrayList<Component>();
+						successors.put(driver, succ);
+					}
+					succ.add(comp);
+					count++;
+				}
+			}
+			if (count == 0)
+				ready.add(comp);
+			else
+				pending.put(comp, Integer.valueOf(count));
+		}
+		ArrayList<BitSliceEvaluator> order = new ArrayList<BitSliceEvaluator>();
+		while (!ready.isEmpty()) {
+			Component comp = ready.remove(ready.size() - 1);
+			order.add(evaluators.get(comp));
+			ArrayList<Component> succ = successors.get(comp);
+			if (succ != null) {
+				for (Component next : succ) {
+					int count = pending.get(next).intValue() - 1;
+					if (count == 0) {
+						pending.remove(next);
+						ready.add(next);
+					} else {
+						pending.put(next, Integer.valueOf(count));
+					}
+				}
+			}
+		}
+		if (!pending.isEmpty())
+			return null; // the circuit has a cycle
+
+		int inputCount = inputPins.size();
+		int rowCount = 1 << inputCount;
+		long[][] inputValues = new long[inputCount][];
+		for (int j = 0; j < inputCount; j++) {
+			inputValues[j] = values.get(inputPins.get(j).getLocation());
+		}
+		long[][] outputValues = new long[outputPins.size()][];
+		for (int j = 0; j < outputValues.length; j++) {
+			outputValues[j] = values.get(outputPins.get(j).getLocation());
+		}
 
-		for (int i = 0; i < rowCount; i++) {
-			CircuitState circuitState = new CircuitState(proj, circuit);
+		PackedColumn[] columns = new PackedColumn[outputPins.size()];
+		for (int j = 0; j < columns.length; j++) {
+			columns[j] = new PackedColumn(rowCount, Entry.DONT_CARE);
+		}
+		for (int base = 0; base < rowCount; base += 64) {
+			int lanes = Math.min(64, rowCount - base);
 			for (int j = 0; j < inputCount; j++) {
-				Instance pin = inputPins.get(j);
-				InstanceState pinState = circuitState.getInstanceState(pin);
-				boolean value = TruthTable.isInputSet(i, j, inputCount);
-				Pin.FACTORY.setValue(pinState, value ? Value.TRUE : Value.FALSE);
+				long[] value = inputValues[j];
+				if (value == null)
+					continue;
+				long bits = 0;
+				for (int k = 0; k < lanes; k++) {
+					if (TruthTable.isInputSet(base + k, j, inputCount))
+						bits |= 1L << k;
+				}
+				value[0] = bits;
+				value[1] = 0;
+				value[2] = 0;
 			}
 
-			Propagator prop = circuitState.getPropagator();
-			prop.propagate();
-			/*
-			 * TODO for the SimulatorPrototype class do { prop.step(); } while
-			 * (prop.isPending());
-			 */
-			// TODO: Search for circuit state
-
-			if (prop.isOscillating()) {
-				for (int j = 0; j < columns.length; j++) {
-					columns[j][i] = Entry.OSCILLATE_ERROR;
+			try {
+				for (BitSliceEvaluator evaluator : order) {
+					evaluator.evaluate(values);
 				}
-			} else {
-				for (int j = 0; j < columns.length; j++) {
-					Instance pin = outputPins.get(j);
-					InstanceState pinState = circuitState.getInstanceState(pin);
+			} catch (UnsupportedOperationException e) {
+				return null;
+			}
+
+			for (int j = 0; j < columns.length; j++) {
+				long[] value = outputValues[j];
+				for (int k = 0; k < lanes; k++) {
 					Entry out;
-					Value outValue = Pin.FACTORY.getValue(pinState).get(0);
-					if (outValue == Value.TRUE)
-						out = Entry.ONE;
-					else if (outValue == Value.FALSE)
-						out = Entry.ZERO;
-					else if (outValue == Value.ERROR)
+					if (value == null || (value[1] >>> k & 1) != 0)
+						out = Entry.DONT_CARE;
+					else if ((value[2] >>> k & 1) != 0)
 						out = Entry.BUS_ERROR;
+					else if ((value[0] >>> k & 1) != 0)
+						out = Entry.ONE;
 					else
-						out = Entry.DONT_CARE;
-					columns[j][i] = out;
+						out = Entry.ZERO;
+					columns[j].set(base + k, out);
 				}
 			}
 		}
-
-		model.setVariables(inputNames, outputNames);
-		for (int i = 0; i < columns.length; i++) {
-			model.getTruthTable().setOutputColumn(i, columns[i]);
-		}
+		return columns;
 	}
 
 	// computes outputs of affected components
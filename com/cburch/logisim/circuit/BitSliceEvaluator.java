@@ -0,0 +1,24 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.circuit;
+
+import java.util.Map;
+
+import com.cburch.logisim.data.Location;
+
+public interface BitSliceEvaluator {
+	/**
+	 * Evaluates a one-bit combinational component for 64 rows of a truth table
+	 * at once. The parameter maps each connected point to an array of three
+	 * words: bit <i>i</i> of the first word is set if the point is TRUE in row
+	 * <i>i</i>, of the second if it is UNKNOWN, and of the third if it is an
+	 * ERROR; a row with none of these is FALSE. Points to which nothing else is
+	 * connected are absent. The method should read the words at its inputs and
+	 * overwrite the words at its outputs.
+	 *
+	 * If the component cannot be evaluated this way, it throws
+	 * <code>UnsupportedOperationException</code>.
+	 */
+	public void evaluate(Map<Location, long[]> values);
+}
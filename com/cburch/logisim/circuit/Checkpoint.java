@@ -0,0 +1,293 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.circuit;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import com.cburch.logisim.circuit.Propagator.SetData;
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.instance.Checkpointable;
+
+/**
+ * Saves and restores the simulation state of a tree of
+ * <code>CircuitState</code>s: the values at points, the causes behind them,
+ * the data of components that are <code>Checkpointable</code>, and the events
+ * still pending in the propagator. Component data of other kinds is created
+ * afresh on restoring, as after a reset.
+ *
+ * A checkpoint is a deflated stream. Each state is written before its
+ * substates, and events name their state by its position in that order.
+ * Components are named by factory and location, so a checkpoint survives
+ * the file being saved and reopened, but parts naming components that no
+ * longer exist are skipped. Both methods must be called on the simulator's
+ * thread, between steps of the propagation.
+ */
+public class Checkpoint {
+	private static final int MAGIC = 0x4C474350; // "LGCP"
+	private static final int VERSION = 2;
+
+	private static final int KIND_SUBSTATE = 0;
+	private static final int KIND_DATA = 1;
+
+	public static void read(CircuitState root, InputStream in) throws IOException {
+		new Checkpoint().readRoot(root, in);
+	}
+
+	public static void write(CircuitState root, OutputStream out) throws IOException {
+		new Checkpoint().writeRoot(root, out);
+	}
+
+	private HashMap<Circuit, HashMap<String, Component>> components = new HashMap<Circuit, HashMap<String, Component>>();
+	private ArrayList<CircuitState> states = new ArrayList<CircuitState>();
+	private IdentityHashMap<CircuitState, Integer> stateIds = new IdentityHashMap<CircuitState, Integer>();
+
+	private Checkpoint() {
+	}
+
+	private String getKey(String factory, int x, int y) {
+		return factory + " " + x + " " + y;
+	}
+
+	private void readRoot(CircuitState root, InputStream in) throws IOException {
+		DataInputStream data = new DataInputStream(new BufferedInputStream(new InflaterInputStream(in)));
+		if (data.readInt() != MAGIC)
+			throw new IOException(Strings.get("checkpointFormatError"));
+		if (data.readInt() != VERSION)
+			throw new IOException(Strings.get("checkpointVersionError"));
+		String name = data.readUTF();
+		if (!name.equals(root.getCircuit().getName()))
+			throw new IOException(Strings.get("checkpointCircuitError", name));
+		int ticks = data.readInt();
+
+		// start from a reset simulation, so that each component has created
+		// the data that the checkpoint overwrites
+		Propagator prop = root.getPropagator();
+		prop.reset();
+		prop.propagate();
+
+		readState(root, data);
+		prop.clearPendingEvents();
+		int events = data.readInt();
+		for (int i = 0; i < events; i++) {
+			int id = data.readInt();
+			int delay = data.readInt();
+			Location loc = readLocation(data);
+			CircuitState state = id >= 0 && id < states.size() ? states.get(id) : null;
+			Component cause = readComponent(state, data);
+			Value val = data.readBoolean() ? Value.read(data) : null;
+			if (state != null && cause != null)
+				prop.addCheckpointEvent(state, delay, loc, cause, val);
+		}
+		prop.setTickCount(ticks);
+	}
+
+	private Component readComponent(CircuitState state, DataInputStream in) throws IOException {
+		String factory = in.readUTF();
+		int x = in.readInt();
+		int y = in.readInt();
+		if (state == null)
+			return null;
+		Circuit circuit = state.getCircuit();
+		HashMap<String, Component> map = components.get(circuit);
+		if (map == null) {
+			map = new HashMap<String, Component>();
+			for (Component comp : circuit.getNonWires()) {
+				Location loc = comp.getLocation();
+				String key = getKey(comp.getFactory().getName(), loc.getX(), loc.getY());
+				if (!map.containsKey(key))
+					map.put(key, comp);
+			}
+			components.put(circuit, map);
+		}
+		return map.get(getKey(factory, x, y));
+	}
+
+	private Location readLocation(DataInputStream in) throws IOException {
+		int x = in.readInt();
+		return Location.create(x, in.readInt());
+	}
+
+	// reads a state saved by writeState; when the state is null, because
+	// its subcircuit no longer exists, the data is read and ignored
+	private void readState(CircuitState state, DataInputStream in) throws IOException {
+		states.add(state);
+		String name = in.readUTF();
+		if (state != null && !name.equals(state.getCircuit().getName()))
+			state = null;
+
+		HashMap<Location, Value> values = new HashMap<Location, Value>();
+		int count = in.readInt();
+		for (int i = 0; i < count; i++) {
+			Location loc = readLocation(in);
+			values.put(loc, Value.read(in));
+		}
+
+		HashMap<Location, SetData> causes = new HashMap<Location, SetData>();
+		count = in.readInt();
+		for (int i = 0; i < count; i++) {
+			Location loc = readLocation(in);
+			SetData head = null;
+			for (int j = in.readInt(); j > 0; j--) {
+				Component cause = readComponent(state, in);
+				Value val = Value.read(in);
+				if (cause != null) {
+					SetData data = state.getPropagator().createCheckpointCause(state, loc, cause, val);
+					if (head == null) {
+						head = data;
+					} else {
+						data.next = head.next;
+						head.next = data;
+					}
+				}
+			}
+			if (head != null)
+				causes.put(loc, head);
+		}
+
+		count = in.readInt();
+		for (int i = 0; i < count; i++) {
+			Component comp = readComponent(state, in);
+			Object data = comp == null ? null : state.getData(comp);
+			int kind = in.readByte();
+			if (kind == KIND_SUBSTATE) {
+				readState(data instanceof CircuitState ? (CircuitState) data : null, in);
+			} else {
+				int length = in.readInt();
+				if (data instanceof Checkpointable) {
+					byte[] buf = new byte[length];
+					in.readFully(buf);
+					try {
+						((Checkpointable) data).readCheckpoint(new DataInputStream(new ByteArrayInputStream(buf)));
+					} catch (IOException e) {
+						// the component no longer matches its saved data
+						// (a memory of a different size, say), so it keeps
+						// its reset data
+					}
+				} else {
+					in.readFully(new byte[length]);
+				}
+			}
+		}
+
+		if (state != null) {
+			state.restoreValues(values, causes);
+		}
+	}
+
+	private void writeRoot(CircuitState root, OutputStream out) throws IOException {
+		DeflaterOutputStream deflater = new DeflaterOutputStream(out);
+		DataOutputStream data = new DataOutputStream(new BufferedOutputStream(deflater));
+		Propagator prop = root.getPropagator();
+		data.writeInt(MAGIC);
+		data.writeInt(VERSION);
+		data.writeUTF(root.getCircuit().getName());
+		data.writeInt(prop.getTickCount());
+
+		writeState(root, data);
+
+		// events for states outside the tree, or without a cause, are
+		// not written
+		ArrayList<SetData> events = new ArrayList<SetData>();
+		for (SetData event : prop.getPendingEvents()) {
+			if (event.cause != null && stateIds.containsKey(event.state))
+				events.add(event);
+		}
+		data.writeInt(events.size());
+		int clock = prop.getClock();
+		for (SetData event : events) {
+			data.writeInt(stateIds.get(event.state).intValue());
+			data.writeInt(event.time - clock);
+			writeLocation(data, event.loc);
+			writeComponent(data, event.cause);
+			data.writeBoolean(event.val != null);
+			if (event.val != null)
+				event.val.write(data);
+		}
+		data.flush();
+		deflater.finish();
+	}
+
+	private void writeComponent(DataOutputStream out, Component comp) throws IOException {
+		out.writeUTF(comp.getFactory().getName());
+		writeLocation(out, comp.getLocation());
+	}
+
+	private void writeLocation(DataOutputStream out, Location loc) throws IOException {
+		out.writeInt(loc.getX());
+		out.writeInt(loc.getY());
+	}
+
+	private void writeState(CircuitState state, DataOutputStream out) throws IOException {
+		stateIds.put(state, Integer.valueOf(states.size()));
+		states.add(state);
+		out.writeUTF(state.getCircuit().getName());
+
+		HashMap<Location, Value> values = state.getStoredValues();
+		out.writeInt(values.size());
+		for (Map.Entry<Location, Value> entry : values.entrySet()) {
+			writeLocation(out, entry.getKey());
+			entry.getValue().write(out);
+		}
+
+		HashMap<Location, SetData> causes = state.getStoredCauses();
+		out.writeInt(causes.size());
+		for (Map.Entry<Location, SetData> entry : causes.entrySet()) {
+			SetData head = entry.getValue();
+			writeLocation(out, entry.getKey());
+			int count = 0;
+			for (SetData cur = head; cur != null; cur = cur.next) {
+				if (cur.cause != null)
+					count++;
+			}
+			out.writeInt(count);
+			for (SetData cur = head; cur != null; cur = cur.next) {
+				if (cur.cause != null) {
+					writeComponent(out, cur.cause);
+					cur.val.write(out);
+				}
+			}
+		}
+
+		ArrayList<Component> saved = new ArrayList<Component>();
+		for (Component comp : state.getCircuit().getNonWires()) {
+			Object data = state.getData(comp);
+			if (data instanceof CircuitState || data instanceof Checkpointable)
+				saved.add(comp);
+		}
+		out.writeInt(saved.size());
+		ByteArrayOutputStream buf = new ByteArrayOutputStream();
+		for (Component comp : saved) {
+			Object data = state.getData(comp);
+			writeComponent(out, comp);
+			if (data instanceof CircuitState) {
+				out.writeByte(KIND_SUBSTATE);
+				writeState((CircuitState) data, out);
+			} else {
+				out.writeByte(KIND_DATA);
+				buf.reset();
+				DataOutputStream bufData = new DataOutputStream(buf);
+				((Checkpointable) data).writeCheckpoint(bufData);
+				bufData.flush();
+				out.writeInt(buf.size());
+				buf.writeTo(out);
+			}
+		}
+	}
+}
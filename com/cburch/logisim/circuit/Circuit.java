@@ -4,9 +4,12 @@
 package com.cburch.logisim.circuit;
 
 import java.awt.Graphics;
+import java.awt.Rectangle;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -14,6 +17,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.cburch.logisim.circuit.appear.CircuitAppearance;
 import com.cburch.logisim.comp.Component;
@@ -22,6 +26,8 @@ import com.cburch.logisim.comp.ComponentEvent;
 import com.cburch.logisim.comp.ComponentFactory;
 import com.cburch.logisim.comp.ComponentListener;
 import com.cburch.logisim.comp.EndData;
+import com.cburch.logisim.data.AttributeEvent;
+import com.cburch.logisim.data.AttributeListener;
 import com.cburch.logisim.data.AttributeSet;
 import com.cburch.logisim.data.BitWidth;
 import com.cburch.logisim.data.Bounds;
@@ -31,6 +37,24 @@ import com.cburch.logisim.util.CollectionUtil;
 import com.cburch.logisim.util.EventSourceWeakSupport;
 
 public class Circuit {
+	// added to each clock's attributes as the clock is added, on the thread
+	// editing the circuit, so that the states hear of changed durations
+	private class ClockListener implements AttributeListener {
+		@Override
+		public void attributeListChanged(AttributeEvent e) {
+		}
+
+		@Override
+		public void attributeValueChanged(AttributeEvent e) {
+			if (e.getAttribute() != Clock.ATTR_HIGH && e.getAttribute() != Clock.ATTR_LOW)
+				return;
+			for (Component clock : clocks) {
+				if (clock.getAttributeSet() == e.getSource())
+					fireEvent(CircuitEvent.ACTION_CHANGE, clock);
+			}
+		}
+	}
+
 	private class EndChangedTransaction extends CircuitTransaction {
 		private Component comp;
 		private Map<Location, EndData> toRemove;
@@ -68,6 +92,7 @@ public class Circuit {
 	private class MyComponentListener implements ComponentListener {
 		@Override
 		public void componentInvalidated(ComponentEvent e) {
+			invalidateBounds(e.getSource());
 			fireEvent(CircuitEvent.ACTION_INVALIDATE, e.getSource());
 		}
 
@@ -79,6 +104,7 @@ public class Circuit {
 			HashMap<Location, EndData> toAdd = toMap(e.getData());
 			EndChangedTransaction xn = new EndChangedTransaction(comp, toRemove, toAdd);
 			locker.execute(xn);
+			invalidateBounds(comp);
 			fireEvent(CircuitEvent.ACTION_INVALIDATE, comp);
 		}
 
@@ -107,6 +133,7 @@ public class Circuit {
 	}
 
 	private MyComponentListener myComponentListener = new MyComponentListener();
+	private ClockListener clockListener = new ClockListener();
 	private CircuitAppearance appearance;
 	private AttributeSet staticAttrs;
 	private SubcircuitFactory subcircuitFactory;
@@ -116,6 +143,24 @@ public class Circuit {
 	// wires
 	CircuitWires wires = new CircuitWires();
 	// wires is package-protected for CircuitState and Analyze only.
+	final ComponentIndex componentIndex = new ComponentIndex(); // for CircuitState
+
+	// orders components by their numbers, which stay fixed while they are in
+	// the circuit
+	private final Comparator<Component> drawOrder = new Comparator<Component>() {
+		@Override
+		public int compare(Component a, Component b) {
+			int ia = componentIndex.get(a);
+			int ib = componentIndex.get(b);
+			return ia < ib ? -1 : (ia == ib ? 0 : 1);
+		}
+	};
+	private ComponentGrid grid = new ComponentGrid(); // of comps
+	// guards grid, which every thread drawing or hit-testing brings up to date
+	private final Object gridLock = new Object();
+	// components whose bounds may have changed since grid last saw them;
+	// this is filled from the simulator's threads as well
+	private Set<Component> staleBounds = ConcurrentHashMap.newKeySet();
 	private ArrayList<Component> clocks = new ArrayList<Component>();
 	private CircuitLocker locker;
 
@@ -149,8 +194,13 @@ public class Circuit {
 		context.setGraphics(g_copy);
 		wires.draw(context, hidden);
 
+		// only the components meeting the clip need drawing
+		Collection<Component> toDraw = comps;
+		Rectangle clip = g.getClipBounds();
+		if (clip != null)
+			toDraw = queryGrid(Bounds.create(clip));
 		if (hidden == null || hidden.size() == 0) {
-			for (Component c : comps) {
+			for (Component c : toDraw) {
 				Graphics g_new = g.create();
 				context.setGraphics(g_new);
 				g_copy.dispose();
@@ -159,7 +209,7 @@ public class Circuit {
 				c.draw(context);
 			}
 		} else {
-			for (Component c : comps) {
+			for (Component c : toDraw) {
 				if (!hidden.contains(c)) {
 					Graphics g_new = g.create();
 					context.setGraphics(g_new);
@@ -180,7 +230,9 @@ public class Circuit {
 		g_copy.dispose();
 	}
 
-	private void fireEvent(CircuitEvent event) {
+	void fireEvent(CircuitEvent event) {
+		if (ParallelPropagation.deferEvent(this, event))
+			return;
 		for (CircuitListener l : listeners) {
 			l.circuitChanged(event);
 		}
@@ -192,7 +244,7 @@ public class Circuit {
 
 	public Collection<Component> getAllContaining(Location pt) {
 		HashSet<Component> ret = new HashSet<Component>();
-		for (Component comp : getComponents()) {
+		for (Component comp : getCandidates(Bounds.create(pt))) {
 			if (comp.contains(pt))
 				ret.add(comp);
 		}
@@ -201,7 +253,7 @@ public class Circuit {
 
 	public Collection<Component> getAllContaining(Location pt, Graphics g) {
 		HashSet<Component> ret = new HashSet<Component>();
-		for (Component comp : getComponents()) {
+		for (Component comp : getCandidates(Bounds.create(pt))) {
 			if (comp.contains(pt, g))
 				ret.add(comp);
 		}
@@ -210,7 +262,7 @@ public class Circuit {
 
 	public Collection<Component> getAllWithin(Bounds bds) {
 		HashSet<Component> ret = new HashSet<Component>();
-		for (Component comp : getComponents()) {
+		for (Component comp : getCandidates(bds)) {
 			if (bds.contains(comp.getBounds()))
 				ret.add(comp);
 		}
@@ -219,7 +271,7 @@ public class Circuit {
 
 	public Collection<Component> getAllWithin(Bounds bds, Graphics g) {
 		HashSet<Component> ret = new HashSet<Component>();
-		for (Component comp : getComponents()) {
+		for (Component comp : getCandidates(bds)) {
 			if (bds.contains(comp.getBounds(g)))
 				ret.add(comp);
 		}
@@ -299,6 +351,13 @@ public class Circuit {
 		return Bounds.create(xMin, yMin, xMax - xMin, yMax - yMin);
 	}
 
+	// Returns the components and wires whose bounds may meet the region.
+	private Collection<Component> getCandidates(Bounds bds) {
+		ArrayList<Component> ret = new ArrayList<Component>(queryGrid(bds));
+		ret.addAll(wires.getWiresNear(bds));
+		return ret;
+	}
+
 	public Collection<Circuit> getCircuitsUsingThis() {
 		return circuitsUsingThis.values();
 	}
@@ -315,6 +374,36 @@ public class Circuit {
 		return wires.points.getComponents(loc);
 	}
 
+	/**
+	 * Takes the circuit as it is now for drawing later, perhaps on another
+	 * thread. This must be called on the thread editing the circuit.
+	 */
+	public CircuitDrawing getDrawing() {
+		CircuitWires.BundleMap bmap = wires.getBundleMap();
+		Wire[] ws = wires.getWires().toArray(new Wire[0]);
+		boolean[] wsValid = new boolean[ws.length];
+		for (int i = 0; i < ws.length; i++) {
+			wsValid[i] = bmap.getBundleAt(ws[i].e0).isValid();
+		}
+		ArrayList<Location> junctions = new ArrayList<Location>();
+		for (Location loc : wires.points.getSplitLocations()) {
+			if (wires.points.getComponentCount(loc) > 2 && bmap.getBundleAt(loc) != null)
+				junctions.add(loc);
+		}
+		boolean[] junctionsValid = new boolean[junctions.size()];
+		for (int i = 0; i < junctionsValid.length; i++) {
+			junctionsValid[i] = bmap.getBundleAt(junctions.get(i)).isValid();
+		}
+		Component[] cs = comps.toArray(new Component[0]);
+		Arrays.sort(cs, drawOrder);
+		Bounds[] bounds = new Bounds[cs.length];
+		for (int i = 0; i < cs.length; i++) {
+			bounds[i] = ComponentGrid.getIndexBounds(cs[i]);
+		}
+		return new CircuitDrawing(bmap.isValid(), ws, wsValid, junctions.toArray(new Location[0]),
+				junctionsValid, cs, bounds);
+	}
+
 	public Component getExclusive(Location loc) {
 		return wires.points.getExclusive(loc);
 	}
@@ -390,6 +479,10 @@ public class Circuit {
 		return false;
 	}
 
+	void invalidateBounds(Component c) {
+		staleBounds.add(c);
+	}
+
 	void mutatorAdd(Component c) {
 		locker.checkForWritePermission("add");
 
@@ -405,11 +498,17 @@ public class Circuit {
 			boolean added = comps.add(c);
 			if (!added)
 				return;
+			Bounds bds = ComponentGrid.getIndexBounds(c);
+			synchronized (gridLock) {
+				grid.add(c, bds);
+			}
+			componentIndex.add(c);
 
 			wires.add(c);
 			ComponentFactory factory = c.getFactory();
 			if (factory instanceof Clock) {
 				clocks.add(c);
+				c.getAttributeSet().addAttributeListener(clockListener);
 			} else if (factory instanceof SubcircuitFactory) {
 				SubcircuitFactory subcirc = (SubcircuitFactory) factory;
 				subcirc.getSubcircuit().circuitsUsingThis.put(c, this);
@@ -425,6 +524,13 @@ public class Circuit {
 		Set<Component> oldComps = comps;
 		comps = new HashSet<Component>();
 		wires = new CircuitWires();
+		synchronized (gridLock) {
+			grid = new ComponentGrid();
+			staleBounds.clear();
+		}
+		for (Component clock : clocks) {
+			clock.getAttributeSet().removeAttributeListener(clockListener);
+		}
 		clocks.clear();
 		for (Component comp : oldComps) {
 			if (comp.getFactory() instanceof SubcircuitFactory) {
@@ -433,6 +539,7 @@ public class Circuit {
 			}
 		}
 		fireEvent(CircuitEvent.ACTION_CLEAR, oldComps);
+		componentIndex.clear();
 	}
 
 	void mutatorRemove(Component c) {
@@ -443,9 +550,13 @@ public class Circuit {
 		} else {
 			wires.remove(c);
 			comps.remove(c);
+			synchronized (gridLock) {
+				grid.remove(c);
+			}
 			ComponentFactory factory = c.getFactory();
 			if (factory instanceof Clock) {
 				clocks.remove(c);
+				c.getAttributeSet().removeAttributeListener(clockListener);
 			} else if (factory instanceof SubcircuitFactory) {
 				SubcircuitFactory subcirc = (SubcircuitFactory) factory;
 				subcirc.getSubcircuit().circuitsUsingThis.remove(c);
@@ -453,12 +564,50 @@ public class Circuit {
 			c.removeComponentListener(myComponentListener);
 		}
 		fireEvent(CircuitEvent.ACTION_REMOVE, c);
+		// the states have set the component's data aside by now
+		if (!(c instanceof Wire))
+			componentIndex.remove(c);
+	}
+
+	// brings the grid up to date and queries it; the result is the caller's
+	private Collection<Component> queryGrid(Bounds bds) {
+		synchronized (gridLock) {
+			if (!staleBounds.isEmpty()) {
+				Iterator<Component> it = staleBounds.iterator();
+				while (it.hasNext()) {
+					Component c = it.next();
+					it.remove();
+					grid.update(c, ComponentGrid.getIndexBounds(c));
+				}
+			}
+			return grid.query(bds);
+		}
 	}
 
 	public void removeCircuitListener(CircuitListener what) {
 		listeners.remove(what);
 	}
 
+	/**
+	 * Runs the action holding the circuit's read lock, through a read-only
+	 * transaction, so that no edit changes the circuit while the action reads
+	 * its structure.
+	 */
+	void runReadLocked(final Runnable action) {
+		CircuitTransaction xn = new CircuitTransaction() {
+			@Override
+			protected Map<Circuit, Integer> getAccessedCircuits() {
+				return Collections.singletonMap(Circuit.this, READ_ONLY);
+			}
+
+			@Override
+			protected void run(CircuitMutator mutator) {
+				action.run();
+			}
+		};
+		xn.execute();
+	}
+
 	//
 	// action methods
 	//
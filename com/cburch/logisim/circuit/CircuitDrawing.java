@@ -0,0 +1,99 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.circuit;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Rectangle;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.ComponentDrawContext;
+import com.cburch.logisim.data.Bounds;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.util.GraphicsUtil;
+
+/**
+ * The wires, junctions and components of a circuit as they were when taken,
+ * for drawing on another thread while the circuit goes on being edited, as an
+ * export does. Drawing reads nothing of the circuit but the values in its
+ * state. Overlapping components are drawn in one fixed order whatever the
+ * clip, so that a circuit drawn in pieces matches one drawn whole.
+ */
+public final class CircuitDrawing {
+	private final boolean widthsValid; // false if the circuit has width errors
+	private final Wire[] wires;
+	private final boolean[] wiresValid; // whether each wire's bundle is
+	private final Location[] junctions;
+	private final boolean[] junctionsValid;
+	private final Component[] comps;
+	private final Bounds[] bounds; // of comps, labels included
+
+	CircuitDrawing(boolean widthsValid, Wire[] wires, boolean[] wiresValid, Location[] junctions,
+			boolean[] junctionsValid, Component[] comps, Bounds[] bounds) {
+		this.widthsValid = widthsValid;
+		this.wires = wires;
+		this.wiresValid = wiresValid;
+		this.junctions = junctions;
+		this.junctionsValid = junctionsValid;
+		this.comps = comps;
+		this.bounds = bounds;
+	}
+
+	public void draw(ComponentDrawContext context) {
+		Graphics g = context.getGraphics();
+		Rectangle clipRect = g.getClipBounds();
+		Bounds clip = clipRect == null ? null : Bounds.create(clipRect).expand(5);
+
+		Graphics g_copy = g.create();
+		context.setGraphics(g_copy);
+		GraphicsUtil.switchToWidth(g_copy, Wire.WIDTH);
+		for (int i = 0; i < wires.length; i++) {
+			Wire w = wires[i];
+			if (clip == null || meets(w.getBounds(), clip)) {
+				setColor(context, g_copy, w.e0, wiresValid[i]);
+				g_copy.drawLine(w.e0.getX(), w.e0.getY(), w.e1.getX(), w.e1.getY());
+			}
+		}
+		for (int i = 0; i < junctions.length; i++) {
+			Location loc = junctions[i];
+			if (clip == null || clip.contains(loc)) {
+				setColor(context, g_copy, loc, junctionsValid[i]);
+				g_copy.fillOval(loc.getX() - 4, loc.getY() - 4, 8, 8);
+			}
+		}
+
+		for (int i = 0; i < comps.length; i++) {
+			if (clip == null || meets(bounds[i], clip)) {
+				Graphics g_new = g.create();
+				context.setGraphics(g_new);
+				g_copy.dispose();
+				g_copy = g_new;
+
+				comps[i].draw(context);
+			}
+		}
+		context.setGraphics(g);
+		g_copy.dispose();
+	}
+
+	private boolean meets(Bounds a, Bounds b) {
+		return a.getX() <= b.getX() + b.getWidth() && b.getX() <= a.getX() + a.getWidth()
+				&& a.getY() <= b.getY() + b.getHeight() && b.getY() <= a.getY() + a.getHeight();
+	}
+
+	// colors the wire or junction at the point as CircuitWires.draw would
+	private void setColor(ComponentDrawContext context, Graphics g, Location loc, boolean valid) {
+		if (!valid) {
+			g.setColor(Value.WIDTH_ERROR_COLOR);
+		} else if (context.getShowState()) {
+			if (!widthsValid)
+				g.setColor(Value.NIL_COLOR);
+			else
+				g.setColor(context.getCircuitState().getValue(loc).getColor());
+		} else {
+			g.setColor(Color.BLACK);
+		}
+	}
+}
@@ -128,6 +128,7 @@ class CircuitMutatorImpl implements CircuitMutator {
 			Object oldValue = attrs.getValue(a);
 			log.add(CircuitChange.set(circuit, comp, attr, oldValue, newValue));
 			attrs.setValue(a, newValue);
+			circuit.invalidateBounds(comp);
 		}
 	}
 
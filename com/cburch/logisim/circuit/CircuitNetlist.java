@@ -0,0 +1,247 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.circuit;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.data.Value;
+
+/**
+ * An immutable, integer-indexed compilation of the connection points and wire
+ * bundles of a circuit. Each point gets a dense index, and each bundle and
+ * wire thread of the bundle map another, so that a {@link CircuitState} in
+ * compiled mode can keep its values, causes and thread values in arrays and
+ * propagate through wires without looking anything up by location.
+ *
+ * For each point the netlist records the components (other than wires and
+ * splitters) that must be marked dirty when the value there changes, and the
+ * bundle it lies in. For each bundle it records the points it hits, its pull
+ * value, and its threads; for each thread, the bundles it runs through and at
+ * which bit. Only the entry points, where a component names a point by its
+ * location, need the netlist's table from locations to indices.
+ *
+ * A netlist is compiled once per structure of a circuit and shared by all
+ * states simulating that circuit, including every instance of it as a
+ * subcircuit. CircuitWires compiles a new one after the structure changes.
+ */
+class CircuitNetlist {
+	private static final Component[] NO_COMPONENTS = new Component[0];
+	private static final int[] NO_INDICES = new int[0];
+
+	static CircuitNetlist build(CircuitPoints circuitPoints, CircuitWires.BundleMap map) {
+		Set<Location> locs = circuitPoints.getSplitLocations();
+		Location[] points = locs.toArray(new Location[locs.size()]);
+		Component[][] listeners = new Component[points.length][];
+		ArrayList<Component> found = new ArrayList<Component>();
+		for (int i = 0; i < points.length; i++) {
+			found.clear();
+			for (Component comp : circuitPoints.getComponents(points[i])) {
+				if (!(comp instanceof Wire) && !(comp instanceof Splitter)) {
+					found.add(comp);
+				}
+			}
+			listeners[i] = found.isEmpty() ? NO_COMPONENTS : found.toArray(new Component[found.size()]);
+		}
+		CircuitNetlist ret = new CircuitNetlist(points, listeners);
+		ret.compileBundles(map);
+		return ret;
+	}
+
+	private static int hash(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	private static long pack(int x, int y) {
+		return ((long) x << 32) | (y & 0xFFFFFFFFL);
+	}
+
+	private static int[] toArray(ArrayList<Integer> list) {
+		if (list.isEmpty())
+			return NO_INDICES;
+		int[] ret = new int[list.size()];
+		for (int i = 0; i < ret.length; i++) {
+			ret[i] = list.get(i).intValue();
+		}
+		return ret;
+	}
+
+	private final Location[] points;
+	private final Component[][] listeners;
+	// open-addressed table from packed (x,y) to index + 1; 0 marks empty
+	private final long[] keys;
+	private final int[] slots;
+	private final int mask;
+
+	// the bundle of each point, or -1 where no wire or tunnel meets
+	private int[] bundleOf;
+	private int[][] bundleNodes;
+	private Value[] bundlePulls;
+	private int[][] bundleThreads; // null for bundles that are invalid
+	private int[][] threadBundles;
+	private int[][] threadBits;
+
+	private CircuitNetlist(Location[] points, Component[][] listeners) {
+		this.points = points;
+		this.listeners = listeners;
+		int capacity = 16;
+		while (capacity < 2 * points.length)
+			capacity <<= 1;
+		keys = new long[capacity];
+		slots = new int[capacity];
+		mask = capacity - 1;
+		for (int i = 0; i < points.length; i++) {
+			long key = pack(points[i].getX(), points[i].getY());
+			int j = hash(key) & mask;
+			while (slots[j] != 0) {
+				j = (j + 1) & mask;
+			}
+			keys[j] = key;
+			slots[j] = i + 1;
+		}
+	}
+
+	private void compileBundles(CircuitWires.BundleMap map) {
+		IdentityHashMap<WireBundle, Integer> bundleIds = new IdentityHashMap<WireBundle, Integer>();
+		IdentityHashMap<WireThread, Integer> threadIds = new IdentityHashMap<WireThread, Integer>();
+		ArrayList<WireBundle> bundles = new ArrayList<WireBundle>();
+		ArrayList<WireThread> threads = new ArrayList<WireThread>();
+
+		bundleOf = new int[points.length];
+		for (int i = 0; i < points.length; i++) {
+			WireBundle b = map.getBundleAt(points[i]);
+			bundleOf[i] = b == null ? -1 : getId(bundleIds, bundles, b);
+		}
+
+		// bundles and threads are numbered as they are first met, and
+		// threads may lead to bundles that no point of the netlist lies in
+		ArrayList<int[]> bundleThreadList = new ArrayList<int[]>();
+		int nextThread = 0;
+		while (bundleThreadList.size() < bundles.size()) {
+			WireBundle bundle = bundles.get(bundleThreadList.size());
+			WireThread[] th = bundle.threads;
+			if (!bundle.isValid() || th == null) {
+				bundleThreadList.add(null);
+			} else {
+				int[] ids = new int[th.length];
+				for (int i = 0; i < th.length; i++) {
+					ids[i] = getId(threadIds, threads, th[i]);
+				}
+				bundleThreadList.add(ids);
+			}
+			for (; nextThread < threads.size(); nextThread++) {
+				for (CircuitWires.ThreadBundle tb : threads.get(nextThread).getBundles()) {
+					getId(bundleIds, bundles, tb.b);
+				}
+			}
+		}
+
+		ArrayList<Integer> found = new ArrayList<Integer>();
+		bundleNodes = new int[bundles.size()][];
+		bundlePulls = new Value[bundles.size()];
+		bundleThreads = bundleThreadList.toArray(new int[bundles.size()][]);
+		for (int b = 0; b < bundles.size(); b++) {
+			WireBundle bundle = bundles.get(b);
+			found.clear();
+			if (bundle.points != null) {
+				for (Location p : bundle.points) {
+					int i = getIndex(p);
+					if (i >= 0)
+						found.add(Integer.valueOf(i));
+				}
+			}
+			bundleNodes[b] = toArray(found);
+			bundlePulls[b] = bundle.getPullValue();
+		}
+
+		threadBundles = new int[threads.size()][];
+		threadBits = new int[threads.size()][];
+		for (int t = 0; t < threads.size(); t++) {
+			ArrayList<CircuitWires.ThreadBundle> tbs = new ArrayList<CircuitWires.ThreadBundle>(
+					threads.get(t).getBundles());
+			int[] bs = new int[tbs.size()];
+			int[] bits = new int[tbs.size()];
+			for (int i = 0; i < bs.length; i++) {
+				bs[i] = bundleIds.get(tbs.get(i).b).intValue();
+				bits[i] = tbs.get(i).loc;
+			}
+			threadBundles[t] = bs;
+			threadBits[t] = bits;
+		}
+	}
+
+	private <E> int getId(IdentityHashMap<E, Integer> ids, ArrayList<E> list, E obj) {
+		Integer ret = ids.get(obj);
+		if (ret == null) {
+			ret = Integer.valueOf(list.size());
+			ids.put(obj, ret);
+			list.add(obj);
+		}
+		return ret.intValue();
+	}
+
+	/** Returns the bundle at the point, or -1 if no wire or tunnel meets it. */
+	int getBundle(int index) {
+		return bundleOf[index];
+	}
+
+	int getBundleCount() {
+		return bundleNodes.length;
+	}
+
+	int[] getBundleNodes(int bundle) {
+		return bundleNodes[bundle];
+	}
+
+	Value getBundlePull(int bundle) {
+		return bundlePulls[bundle];
+	}
+
+	/** Returns the threads of the bundle, or null if the bundle is invalid. */
+	int[] getBundleThreads(int bundle) {
+		return bundleThreads[bundle];
+	}
+
+	/** Returns the index of the given point, or -1 if it isn't in the netlist. */
+	int getIndex(Location loc) {
+		long key = pack(loc.getX(), loc.getY());
+		int j = hash(key) & mask;
+		while (true) {
+			int slot = slots[j];
+			if (slot == 0)
+				return -1;
+			if (keys[j] == key)
+				return slot - 1;
+			j = (j + 1) & mask;
+		}
+	}
+
+	Component[] getListeners(int index) {
+		return listeners[index];
+	}
+
+	Location getPoint(int index) {
+		return points[index];
+	}
+
+	int getThreadCount() {
+		return threadBundles.length;
+	}
+
+	int[] getThreadBits(int thread) {
+		return threadBits[thread];
+	}
+
+	int[] getThreadBundles(int thread) {
+		return threadBundles[thread];
+	}
+
+	int size() {
+		return points.length;
+	}
+}
@@ -3,17 +3,18 @@
 
 package com.cburch.logisim.circuit;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.ConcurrentModificationException;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
 
 import com.cburch.logisim.circuit.Propagator.SetData;
 import com.cburch.logisim.comp.Component;
 import com.cburch.logisim.comp.ComponentDrawContext;
+import com.cburch.logisim.comp.ComponentFactory;
 import com.cburch.logisim.comp.ComponentState;
 import com.cburch.logisim.data.BitWidth;
 import com.cburch.logisim.data.Location;
@@ -22,6 +23,7 @@ import com.cburch.logisim.instance.Instance;
 import com.cburch.logisim.instance.InstanceData;
 import com.cburch.logisim.instance.InstanceFactory;
 import com.cburch.logisim.instance.InstanceState;
+import com.cburch.logisim.prefs.AppPreferences;
 import com.cburch.logisim.proj.Project;
 import com.cburch.logisim.std.wiring.Clock;
 import com.cburch.logisim.std.wiring.Pin;
@@ -42,8 +44,12 @@ public class CircuitState implements InstanceData {
 				} else {
 					markComponentAsDirty(comp);
 				}
+				if (comp.getFactory() instanceof Clock || comp.getFactory() instanceof SubcircuitFactory)
+					clocksChanged();
 			} else if (action == CircuitEvent.ACTION_REMOVE) {
 				Component comp = (Component) event.getData();
+				if (comp.getFactory() instanceof Clock)
+					clocksChanged();
 				if (comp.getFactory() instanceof SubcircuitFactory) {
 					// disconnect from tree
 					CircuitState substate = (CircuitState) getData(comp);
@@ -51,6 +57,7 @@ public class CircuitState implements InstanceData {
 						substates.remove(substate);
 						substate.parentState = null;
 						substate.parentComp = null;
+						clocksChanged();
 					}
 				}
 
@@ -59,33 +66,45 @@ public class CircuitState implements InstanceData {
 					markPointAsDirty(w.getEnd0());
 					markPointAsDirty(w.getEnd1());
 				} else {
-					if (base != null)
-						base.checkComponentEnds(CircuitState.this, comp);
+					// the circuit releases the component's number after this,
+					// so its data is set aside for the transaction's end to
+					// hand to a replacement
+					Object data = getData(comp);
+					if (data != null) {
+						clearData(comp);
+						removedData.put(comp, data);
+					}
+					checkComponentEndsLater(comp);
 					dirtyComponents.remove(comp);
 				}
 			} else if (action == CircuitEvent.ACTION_CLEAR) {
 				substates.clear();
+				clocksChanged();
 				wireData = null;
-				componentData.clear();
+				componentData = new ComponentData();
+				removedData.clear();
 				values.clear();
+				netValues = null;
 				dirtyComponents.clear();
 				dirtyPoints.clear();
 				causes.clear();
+				synchronized (endsToCheck) {
+					endsToCheck.clear();
+				}
 			} else if (action == CircuitEvent.ACTION_CHANGE) {
 				Object data = event.getData();
 				if (data instanceof Collection) {
 					Collection<Component> comps = (Collection<Component>) data;
 					markComponentsDirty(comps);
-					if (base != null) {
-						for (Component comp : comps) {
-							base.checkComponentEnds(CircuitState.this, comp);
-						}
+					for (Component comp : comps) {
+						checkComponentEndsLater(comp);
 					}
 				} else {
 					Component comp = (Component) event.getData();
 					markComponentAsDirty(comp);
-					if (base != null)
-						base.checkComponentEnds(CircuitState.this, comp);
+					checkComponentEndsLater(comp);
+					if (comp.getFactory() instanceof Clock)
+						clocksChanged(); // its durations have changed
 				}
 			} else if (action == CircuitEvent.ACTION_INVALIDATE) {
 				Component comp = (Component) event.getData();
@@ -96,7 +115,7 @@ public class CircuitState implements InstanceData {
 				ReplacementMap map = event.getResult().getReplacementMap(circuit);
 				if (map != null) {
 					for (Component comp : map.getReplacedComponents()) {
-						Object compState = componentData.remove(comp);
+						Object compState = removeData(comp);
 						if (compState != null) {
 							Class<?> compFactory = comp.getFactory().getClass();
 							boolean found = false;
@@ -111,6 +130,7 @@ public class CircuitState implements InstanceData {
 								CircuitState sub = (CircuitState) compState;
 								sub.parentState = null;
 								substates.remove(sub);
+								clocksChanged();
 							}
 						}
 					}
@@ -119,6 +139,92 @@ public class CircuitState implements InstanceData {
 		}
 	}
 
+	/**
+	 * The values and causes at the points of a compiled netlist, indexed as in
+	 * the netlist, with the values of its wire threads; in compiled mode this
+	 * is the state's only store of them. It is replaced as a whole along with
+	 * the netlist, so that readers on other threads always see values matching
+	 * their netlist, and only the simulator's thread writes to it.
+	 */
+	private static class NetValues {
+		private final CircuitNetlist netlist;
+		private final Value[] values;
+		private final SetData[] causes;
+		private final Value[] threadValues;
+		// the points whose causes have changed since the last propagation
+		private final int[] dirty;
+		private final boolean[] isDirty;
+		private int dirtyCount = 0;
+		private boolean allDirty = false;
+		// scratch space for propagate
+		private final int[] threads;
+		private final boolean[] isThreadMarked;
+		private final int[] bundles;
+		private final boolean[] isBundleMarked;
+
+		private NetValues(CircuitNetlist netlist) {
+			int n = netlist.size();
+			this.netlist = netlist;
+			values = new Value[n];
+			causes = new SetData[n];
+			threadValues = new Value[netlist.getThreadCount()];
+			dirty = new int[n];
+			isDirty = new boolean[n];
+			threads = new int[threadValues.length];
+			isThreadMarked = new boolean[threadValues.length];
+			bundles = new int[netlist.getBundleCount()];
+			isBundleMarked = new boolean[bundles.length];
+		}
+
+		private NetValues copyFor(CircuitState state) {
+			NetValues ret = new NetValues(netlist);
+			System.arraycopy(values, 0, ret.values, 0, values.length);
+			for (int i = 0; i < causes.length; i++) {
+				if (causes[i] != null)
+					ret.causes[i] = causes[i].cloneFor(state);
+			}
+			System.arraycopy(threadValues, 0, ret.threadValues, 0, threadValues.length);
+			System.arraycopy(dirty, 0, ret.dirty, 0, dirtyCount);
+			System.arraycopy(isDirty, 0, ret.isDirty, 0, isDirty.length);
+			ret.dirtyCount = dirtyCount;
+			ret.allDirty = allDirty;
+			return ret;
+		}
+
+		private long getMemoryUsage() {
+			long n = values.length;
+			return 64 + 13 * n + 9L * threads.length + 5L * bundles.length;
+		}
+
+		private void markDirty(int node) {
+			if (!isDirty[node]) {
+				isDirty[node] = true;
+				dirty[dirtyCount] = node;
+				dirtyCount++;
+			}
+		}
+	}
+
+	/**
+	 * The data of the circuit's components, indexed by their numbers in the
+	 * circuit's <code>ComponentIndex</code>. Each slot with data also holds
+	 * its component, for reset to examine. The arrays are replaced as a pair
+	 * when they grow, for readers on other threads.
+	 */
+	private static class ComponentData {
+		private final Component[] keys;
+		private final Object[] data;
+
+		private ComponentData() {
+			this(0);
+		}
+
+		private ComponentData(int capacity) {
+			keys = new Component[capacity];
+			data = new Object[capacity];
+		}
+	}
+
 	private static int lastId = 0;
 	private MyCircuitListener myCircuitListener = new MyCircuitListener();
 	private Propagator base = null; // base of tree of CircuitStates
@@ -131,33 +237,111 @@ public class CircuitState implements InstanceData {
 	// state
 	private ArraySet<CircuitState> substates = new ArraySet<CircuitState>();
 	private CircuitWires.State wireData = null;
-	private HashMap<Component, Object> componentData = new HashMap<Component, Object>();
-	private Map<Location, Value> values = new HashMap<Location, Value>();
+	private volatile ComponentData componentData = new ComponentData();
+	// data of components removed in the current transaction, until its end
+	// hands the data to their replacements; used only by the thread editing
+	// the circuit
+	private final WeakHashMap<Component, Object> removedData = new WeakHashMap<Component, Object>();
+	private LocationMap<Value> values = new LocationMap<Value>();
+	// in compiled mode, values at points of the circuit's netlist are kept
+	// here rather than in values, which then holds only unlisted points
+	private final boolean compiled;
+	private volatile NetValues netValues = null;
 	private SmallSet<Component> dirtyComponents = new SmallSet<Component>();
 	private SmallSet<Location> dirtyPoints = new SmallSet<Location>();
+	// components whose ends the simulator is to check, as queued by the
+	// thread editing the circuit; guarded by itself
+	private final ArrayList<Component> endsToCheck = new ArrayList<Component>();
 
-	HashMap<Location, SetData> causes = new HashMap<Location, SetData>();
+	private LocationMap<SetData> causes = new LocationMap<SetData>();
 	private int id = lastId++;
+	// states of the circuit's pins, kept for SubcircuitFactory.propagate
+	// since they stay valid for as long as the pins do
+	private Instance[] pinStatesFor = null;
+	private InstanceState[] pinStates = null;
 
 	public CircuitState(Project proj, Circuit circuit) {
+		this(proj, circuit, AppPreferences.SIM_COMPILED_NETS.getBoolean());
+	}
+
+	private CircuitState(Project proj, Circuit circuit, boolean compiled) {
 		this.proj = proj;
 		this.circuit = circuit;
+		this.compiled = compiled;
 		circuit.addCircuitListener(myCircuitListener);
 	}
 
+	/**
+	 * Has the simulator check the component's ends once it next processes
+	 * points, since only its thread may touch the causes.
+	 */
+	private void checkComponentEndsLater(Component comp) {
+		synchronized (endsToCheck) {
+			endsToCheck.add(comp);
+		}
+	}
+
+	private void checkPendingComponentEnds() {
+		Component[] comps;
+		synchronized (endsToCheck) {
+			if (endsToCheck.isEmpty())
+				return;
+			comps = endsToCheck.toArray(new Component[endsToCheck.size()]);
+			endsToCheck.clear();
+		}
+		if (base != null) {
+			for (Component comp : comps) {
+				base.checkComponentEnds(this, comp);
+			}
+		}
+	}
+
+	private void clearData(Component comp) {
+		int i = circuit.componentIndex.get(comp);
+		ComponentData cur = componentData;
+		if (i >= 0 && i < cur.keys.length && cur.keys[i] == comp) {
+			cur.keys[i] = null;
+			cur.data[i] = null;
+		}
+	}
+
+	private void clocksChanged() {
+		if (base != null)
+			base.clocksChanged();
+	}
+
 	@Override
 	public CircuitState clone() {
 		return cloneState();
 	}
 
 	public CircuitState cloneState() {
-		CircuitState ret = new CircuitState(proj, circuit);
+		CircuitState ret = new CircuitState(proj, circuit, compiled);
 		ret.copyFrom(this, new Propagator(ret));
 		ret.parentComp = null;
 		ret.parentState = null;
 		return ret;
 	}
 
+	// This seeming wasted copy is to avoid ConcurrentModifications if we used
+	// an iterator instead, as the GUI thread may mark components dirty
+	// meanwhile.
+	private Object[] copyDirtyComponents() {
+		RuntimeException firstException = null;
+		for (int tries = 4; true; tries--) {
+			try {
+				return dirtyComponents.toArray();
+			} catch (RuntimeException e) {
+				if (firstException == null)
+					firstException = e;
+				if (tries == 0) {
+					dirtyComponents = new SmallSet<Component>();
+					throw firstException;
+				}
+			}
+		}
+	}
+
 	private void copyFrom(CircuitState src, Propagator base) {
 		this.base = base;
 		this.parentComp = src.parentComp;
@@ -165,41 +349,49 @@ public class CircuitState implements InstanceData {
 		HashMap<CircuitState, CircuitState> substateData = new HashMap<CircuitState, CircuitState>();
 		this.substates = new ArraySet<CircuitState>();
 		for (CircuitState oldSub : src.substates) {
-			CircuitState newSub = new CircuitState(src.proj, oldSub.circuit);
+			CircuitState newSub = new CircuitState(src.proj, oldSub.circuit, oldSub.compiled);
 			newSub.copyFrom(oldSub, base);
 			newSub.parentState = this;
 			this.substates.add(newSub);
 			substateData.put(oldSub, newSub);
 		}
-		for (Component key : src.componentData.keySet()) {
-			Object oldValue = src.componentData.get(key);
+		ComponentData srcData = src.componentData;
+		ComponentData newData = new ComponentData(srcData.keys.length);
+		for (int i = 0; i < srcData.keys.length; i++) {
+			Object oldValue = srcData.data[i];
+			Object newValue;
 			if (oldValue instanceof CircuitState) {
-				Object newValue = substateData.get(oldValue);
-				if (newValue != null)
-					this.componentData.put(key, newValue);
-				else
-					this.componentData.remove(key);
+				newValue = substateData.get(oldValue);
+			} else if (oldValue instanceof ComponentState) {
+				newValue = ((ComponentState) oldValue).clone();
 			} else {
-				Object newValue;
-				if (oldValue instanceof ComponentState) {
-					newValue = ((ComponentState) oldValue).clone();
-				} else {
-					newValue = oldValue;
-				}
-				this.componentData.put(key, newValue);
+				newValue = oldValue;
+			}
+			if (newValue != null) {
+				newData.keys[i] = srcData.keys[i];
+				newData.data[i] = newValue;
 			}
 		}
-		for (Location key : src.causes.keySet()) {
-			Propagator.SetData oldValue = src.causes.get(key);
-			Propagator.SetData newValue = oldValue.cloneFor(this);
-			this.causes.put(key, newValue);
+		this.componentData = newData;
+		this.causes = src.causes.copy();
+		for (int i = 0, n = causes.getSlotCount(); i < n; i++) {
+			Propagator.SetData oldValue = causes.getValueAt(i);
+			if (oldValue != null)
+				causes.setValueAt(i, oldValue.cloneFor(this));
 		}
 		if (src.wireData != null) {
 			this.wireData = (CircuitWires.State) src.wireData.clone();
 		}
-		this.values.putAll(src.values);
+		this.values = src.values.copy();
+		NetValues srcNet = src.netValues;
+		if (srcNet != null) {
+			this.netValues = srcNet.copyFor(this);
+		}
 		this.dirtyComponents.addAll(src.dirtyComponents);
 		this.dirtyPoints.addAll(src.dirtyPoints);
+		synchronized (src.endsToCheck) {
+			this.endsToCheck.addAll(src.endsToCheck);
+		}
 	}
 
 	public void drawOscillatingPoints(ComponentDrawContext context) {
@@ -214,6 +406,17 @@ public class CircuitState implements InstanceData {
 		return circuit;
 	}
 
+	/**
+	 * Returns the causes of the value at a point, given its index from
+	 * getNode. Only the simulator's thread may call this.
+	 */
+	SetData getCauses(Location loc, int node) {
+		if (!compiled)
+			return causes.get(loc);
+		NetValues net = netValues;
+		return net == null || node < 0 || node >= net.causes.length ? null : net.causes[node];
+	}
+
 	Value getComponentOutputAt(Location p) {
 		// for CircuitWires - to get values, ignoring wires' contributions
 		Propagator.SetData cause_list = causes.get(p);
@@ -221,7 +424,12 @@ public class CircuitState implements InstanceData {
 	}
 
 	public Object getData(Component comp) {
-		return componentData.get(comp);
+		int i = circuit.componentIndex.get(comp);
+		ComponentData cur = componentData;
+		// a released number may since have gone to another component
+		if (i < 0 || i >= cur.data.length || cur.keys[i] != comp)
+			return null;
+		return cur.data[i];
 	}
 
 	public InstanceState getInstanceState(Component comp) {
@@ -242,10 +450,38 @@ public class CircuitState implements InstanceData {
 		}
 	}
 
+	/**
+	 * Returns an estimate of the bytes taken by this state's tables of values,
+	 * causes and component data, not counting substates or the objects the
+	 * tables refer to.
+	 */
+	public long getMemoryUsage() {
+		long ret = values.getMemoryUsage() + causes.getMemoryUsage();
+		ret += 32 + 8L * componentData.keys.length;
+		NetValues net = netValues;
+		if (net != null)
+			ret += net.getMemoryUsage();
+		return ret;
+	}
+
 	public CircuitState getParentState() {
 		return parentState;
 	}
 
+	/** Returns the states of the given pins, which must be this circuit's. */
+	InstanceState[] getPinStates(Instance[] pins) {
+		InstanceState[] ret = pinStates;
+		if (pinStatesFor != pins || ret == null) {
+			ret = new InstanceState[pins.length];
+			for (int i = 0; i < pins.length; i++) {
+				ret[i] = getInstanceState(pins[i]);
+			}
+			pinStates = ret;
+			pinStatesFor = pins;
+		}
+		return ret;
+	}
+
 	public Project getProject() {
 		return proj;
 	}
@@ -266,8 +502,20 @@ public class CircuitState implements InstanceData {
 		return substates;
 	}
 
+	/**
+	 * Returns the index of the point in the netlist whose values the state
+	 * keeps, or -1 if it isn't there or the state isn't in compiled mode. Only
+	 * the simulator's thread may call this.
+	 */
+	int getNode(Location loc) {
+		if (!compiled)
+			return -1;
+		NetValues net = syncNetValues();
+		return net == null ? -1 : net.netlist.getIndex(loc);
+	}
+
 	public Value getValue(Location pt) {
-		Value ret = values.get(pt);
+		Value ret = getStoredValue(pt);
 		if (ret != null)
 			return ret;
 
@@ -276,9 +524,68 @@ public class CircuitState implements InstanceData {
 	}
 
 	Value getValueByWire(Location p) {
+		if (compiled) {
+			int i = getNode(p);
+			return i < 0 ? null : netValues.values[i];
+		}
 		return values.get(p);
 	}
 
+	/** Returns the causes stored at points, for a checkpoint. */
+	HashMap<Location, SetData> getStoredCauses() {
+		HashMap<Location, SetData> ret = new HashMap<Location, SetData>();
+		if (compiled) {
+			NetValues net = netValues;
+			if (net != null) {
+				for (int i = 0; i < net.causes.length; i++) {
+					if (net.causes[i] != null)
+						ret.put(net.netlist.getPoint(i), net.causes[i]);
+				}
+			}
+		} else {
+			for (int i = 0, n = causes.getSlotCount(); i < n; i++) {
+				SetData head = causes.getValueAt(i);
+				if (head != null)
+					ret.put(causes.getKeyAt(i), head);
+			}
+		}
+		return ret;
+	}
+
+	/** Returns the values stored at points, for a checkpoint. */
+	HashMap<Location, Value> getStoredValues() {
+		HashMap<Location, Value> ret = new HashMap<Location, Value>();
+		if (compiled) {
+			NetValues net = netValues;
+			if (net != null) {
+				for (int i = 0; i < net.values.length; i++) {
+					if (net.values[i] != null)
+						ret.put(net.netlist.getPoint(i), net.values[i]);
+				}
+			}
+		} else {
+			for (int i = 0, n = values.getSlotCount(); i < n; i++) {
+				Value v = values.getValueAt(i);
+				if (v != null)
+					ret.put(values.getKeyAt(i), v);
+			}
+		}
+		return ret;
+	}
+
+	private Value getStoredValue(Location pt) {
+		if (compiled) {
+			// may be called from the GUI thread, so this reads the values as
+			// they are, even if the structure has changed since
+			NetValues net = netValues;
+			if (net == null)
+				return null;
+			int i = net.netlist.getIndex(pt);
+			return i < 0 ? null : net.values[i];
+		}
+		return values.get(pt);
+	}
+
 	CircuitWires.State getWireData() {
 		return wireData;
 	}
@@ -290,6 +597,21 @@ public class CircuitState implements InstanceData {
 		return parentState != null;
 	}
 
+	/**
+	 * Whether the wires' values can be propagated without rebuilding the
+	 * bundle map or compiling a new netlist.
+	 */
+	boolean isWiringCurrent() {
+		CircuitWires wires = circuit.wires;
+		if (!wires.isMapCurrent())
+			return false;
+		if (compiled) {
+			NetValues net = netValues;
+			return net != null && wires.isNetlistCurrent(net.netlist);
+		}
+		return true;
+	}
+
 	//
 	// private methods
 	//
@@ -315,82 +637,288 @@ public class CircuitState implements InstanceData {
 		dirtyPoints.add(pt);
 	}
 
+	/**
+	 * Marks a point as dirty given its index from getNode, as the simulator's
+	 * thread does after changing the causes there.
+	 */
+	void markPointAsDirty(Location pt, int node) {
+		NetValues net = netValues;
+		if (net != null && node >= 0 && node < net.isDirty.length)
+			net.markDirty(node);
+		else
+			dirtyPoints.add(pt);
+	}
+
+	CircuitState[] getSubstateArray() {
+		return substates.toArray(new CircuitState[substates.size()]);
+	}
+
+	/**
+	 * Returns true if processing this state's dirty components could affect
+	 * other states than its own and those of its ancestors, as happens when a
+	 * subcircuit state must be created or a component is declared to need
+	 * <code>SERIAL_PROPAGATION</code>. The components are copied first, since
+	 * the GUI thread may mark more dirty meanwhile.
+	 */
+	boolean hasParallelHazard() {
+		if (dirtyComponents.isEmpty())
+			return false;
+		for (Object compObj : copyDirtyComponents()) {
+			Component comp = (Component) compObj;
+			ComponentFactory factory = comp.getFactory();
+			if (factory instanceof SubcircuitFactory && getData(comp) == null)
+				return true;
+			if (Boolean.TRUE.equals(factory.getFeature(ComponentFactory.SERIAL_PROPAGATION, comp.getAttributeSet())))
+				return true;
+		}
+		return false;
+	}
+
 	void processDirtyComponents() {
+		processOwnDirtyComponents();
+
+		CircuitState[] subs = new CircuitState[substates.size()];
+		for (CircuitState substate : substates.toArray(subs)) {
+			substate.processDirtyComponents();
+		}
+	}
+
+	void processOwnDirtyComponents() {
 		if (!dirtyComponents.isEmpty()) {
-			// This seeming wasted copy is to avoid ConcurrentModifications
-			// if we used an iterator instead.
-			Object[] toProcess;
-			RuntimeException firstException = null;
-			for (int tries = 4; true; tries--) {
-				try {
-					toProcess = dirtyComponents.toArray();
-					break;
-				} catch (RuntimeException e) {
-					if (firstException == null)
-						firstException = e;
-					if (tries == 0) {
-						toProcess = new Object[0];
-						dirtyComponents = new SmallSet<Component>();
-						throw firstException;
-					}
-				}
-			}
+			Object[] toProcess = copyDirtyComponents();
 			dirtyComponents.clear();
+			SimulationProfile profile = base == null ? null : base.getProfile();
 			for (Object compObj : toProcess) {
 				if (compObj instanceof Component) {
 					Component comp = (Component) compObj;
-					comp.propagate(this);
+					if (profile == null) {
+						comp.propagate(this);
+					} else {
+						long start = System.nanoTime();
+						comp.propagate(this);
+						profile.recordPropagation(this, comp, System.nanoTime() - start);
+					}
 					if (comp.getFactory() instanceof Pin && parentState != null) {
 						// should be propagated in superstate
-						parentComp.propagate(parentState);
+						if (base == null || !base.recordParentPropagation(this))
+							propagateInParent();
 					}
 				}
 			}
 		}
+	}
+
+	/**
+	 * Propagates the subcircuit component holding this state within the
+	 * parent state, as after one of the circuit's pins has changed.
+	 */
+	void propagateInParent() {
+		CircuitState parent = parentState;
+		Component comp = parentComp;
+		if (parent == null || comp == null)
+			return;
+		SimulationProfile profile = base == null ? null : base.getProfile();
+		if (profile == null) {
+			comp.propagate(parent);
+		} else {
+			long start = System.nanoTime();
+			comp.propagate(parent);
+			profile.recordPropagation(parent, comp, System.nanoTime() - start);
+		}
+	}
+
+	void processDirtyPoints() {
+		processOwnDirtyPoints();
 
 		CircuitState[] subs = new CircuitState[substates.size()];
 		for (CircuitState substate : substates.toArray(subs)) {
-			substate.processDirtyComponents();
+			substate.processDirtyPoints();
 		}
 	}
 
-	void processDirtyPoints() {
-		HashSet<Location> dirty = new HashSet<Location>(dirtyPoints);
+	void processOwnDirtyPoints() {
+		checkPendingComponentEnds();
+		if (compiled) {
+			NetValues net = syncNetValues();
+			if (net != null) {
+				if (!dirtyPoints.isEmpty()) {
+					for (Location loc : dirtyPoints) {
+						int i = net.netlist.getIndex(loc);
+						if (i >= 0)
+							net.markDirty(i);
+					}
+					dirtyPoints.clear();
+				}
+				if (net.allDirty || net.dirtyCount > 0) {
+					SimulationProfile profile = base == null ? null : base.getProfile();
+					if (profile == null) {
+						propagateNet(net);
+					} else {
+						long start = System.nanoTime();
+						int threads = propagateNet(net);
+						profile.recordWires(this, threads, System.nanoTime() - start);
+					}
+				}
+			}
+			return;
+		}
+
+		final HashSet<Location> dirty = new HashSet<Location>(dirtyPoints);
 		dirtyPoints.clear();
 		if (circuit.wires.isMapVoided()) {
-			for (int i = 3; i >= 0; i--) {
-				try {
+			circuit.runReadLocked(new Runnable() {
+				@Override
+				public void run() {
 					dirty.addAll(circuit.wires.points.getSplitLocations());
-					break;
-				} catch (ConcurrentModificationException e) {
-					// try again...
-					try {
-						Thread.sleep(1);
-					} catch (InterruptedException e2) {
+				}
+			});
+		}
+		if (!dirty.isEmpty() || circuit.wires.isOutdated(wireData)) {
+			SimulationProfile profile = base == null ? null : base.getProfile();
+			if (profile == null) {
+				circuit.wires.propagate(this, dirty);
+			} else {
+				long start = System.nanoTime();
+				int threads = circuit.wires.propagate(this, dirty);
+				profile.recordWires(this, threads, System.nanoTime() - start);
+			}
+		}
+	}
+
+	/**
+	 * Propagates values through the wires from the dirty points of the
+	 * netlist, as CircuitWires.propagate does by location, and returns the
+	 * number of wire threads whose values were recomputed.
+	 */
+	private int propagateNet(NetValues net) {
+		CircuitNetlist netlist = net.netlist;
+		boolean all = net.allDirty;
+		int count = all ? netlist.size() : net.dirtyCount;
+		net.allDirty = false;
+
+		// determine affected threads, and set values for unwired points
+		int threadCount = 0;
+		for (int k = 0; k < count; k++) {
+			int i = all ? k : net.dirty[k];
+			net.isDirty[i] = false;
+			int b = netlist.getBundle(i);
+			if (b < 0) { // point is not wired
+				setNetValue(net, i, Propagator.computeValue(net.causes[i]));
+			} else {
+				int[] th = netlist.getBundleThreads(b);
+				if (th == null) {
+					// immediately propagate NILs across invalid bundles
+					setNetValue(net, i, Value.NIL);
+					for (int j : netlist.getBundleNodes(b)) {
+						setNetValue(net, j, Value.NIL);
+					}
+				} else {
+					for (int t : th) {
+						if (!net.isThreadMarked[t]) {
+							net.isThreadMarked[t] = true;
+							net.threads[threadCount] = t;
+							threadCount++;
+						}
 					}
-					if (i == 0)
-						e.printStackTrace();
 				}
 			}
 		}
-		if (!dirty.isEmpty()) {
-			circuit.wires.propagate(this, dirty);
+		net.dirtyCount = 0;
+
+		// determine values of affected threads
+		int bundleCount = 0;
+		for (int k = 0; k < threadCount; k++) {
+			int t = net.threads[k];
+			net.isThreadMarked[t] = false;
+			net.threadValues[t] = getThreadValue(net, t);
+			for (int b : netlist.getThreadBundles(t)) {
+				if (!net.isBundleMarked[b]) {
+					net.isBundleMarked[b] = true;
+					net.bundles[bundleCount] = b;
+					bundleCount++;
+				}
+			}
 		}
 
-		CircuitState[] subs = new CircuitState[substates.size()];
-		for (CircuitState substate : substates.toArray(subs)) {
-			substate.processDirtyPoints();
+		// now propagate values through circuit
+		for (int k = 0; k < bundleCount; k++) {
+			int b = net.bundles[k];
+			net.isBundleMarked[b] = false;
+			int[] th = netlist.getBundleThreads(b);
+			Value bv = null;
+			if (th == null) {
+				; // do nothing
+			} else if (th.length == 1) {
+				bv = net.threadValues[th[0]];
+			} else {
+				Value[] tvs = new Value[th.length];
+				boolean tvs_valid = true;
+				for (int i = 0; i < tvs.length; i++) {
+					Value tv = net.threadValues[th[i]];
+					if (tv == null) {
+						tvs_valid = false;
+						break;
+					}
+					tvs[i] = tv;
+				}
+				if (tvs_valid)
+					bv = Value.create(tvs);
+			}
+
+			if (bv != null) {
+				for (int j : netlist.getBundleNodes(b)) {
+					setNetValue(net, j, bv);
+				}
+			}
+		}
+		return threadCount;
+	}
+
+	private Value getThreadValue(NetValues net, int thread) {
+		CircuitNetlist netlist = net.netlist;
+		int[] bundles = netlist.getThreadBundles(thread);
+		int[] bits = netlist.getThreadBits(thread);
+		Value ret = Value.UNKNOWN;
+		Value pull = Value.UNKNOWN;
+		for (int k = 0; k < bundles.length; k++) {
+			for (int j : netlist.getBundleNodes(bundles[k])) {
+				Value val = Propagator.computeValue(net.causes[j]);
+				if (val != null && val != Value.NIL) {
+					ret = ret.combine(val.get(bits[k]));
+				}
+			}
+			Value pullHere = netlist.getBundlePull(bundles[k]);
+			if (pullHere != Value.UNKNOWN)
+				pull = pull.combine(pullHere);
+		}
+		if (pull != Value.UNKNOWN) {
+			ret = CircuitWires.pullValue(ret, pull);
+		}
+		return ret;
+	}
+
+	private Object removeData(Component comp) {
+		Object ret = removedData.remove(comp);
+		if (ret == null) {
+			ret = getData(comp);
+			if (ret != null)
+				clearData(comp);
 		}
+		return ret;
 	}
 
 	void reset() {
 		wireData = null;
-		for (Iterator<Component> it = componentData.keySet().iterator(); it.hasNext();) {
-			Component comp = it.next();
-			if (!(comp.getFactory() instanceof SubcircuitFactory))
-				it.remove();
+		ComponentData cur = componentData;
+		for (int i = 0; i < cur.keys.length; i++) {
+			Component comp = cur.keys[i];
+			if (comp != null && !(comp.getFactory() instanceof SubcircuitFactory)) {
+				cur.keys[i] = null;
+				cur.data[i] = null;
+			}
 		}
 		values.clear();
+		netValues = null;
 		dirtyComponents.clear();
 		dirtyPoints.clear();
 		causes.clear();
@@ -401,9 +929,69 @@ public class CircuitState implements InstanceData {
 		}
 	}
 
+	/**
+	 * Replaces the values and causes stored at points with those saved in a
+	 * checkpoint. The values are taken as already settled, so nothing is
+	 * marked dirty, and the wires' thread values are recomputed at the next
+	 * propagation.
+	 */
+	void restoreValues(Map<Location, Value> savedValues, Map<Location, SetData> savedCauses) {
+		values.clear();
+		causes.clear();
+		netValues = null;
+		wireData = null;
+		dirtyComponents.clear();
+		dirtyPoints.clear();
+		if (compiled) {
+			NetValues net = syncNetValues();
+			if (net == null)
+				return;
+			for (Map.Entry<Location, Value> entry : savedValues.entrySet()) {
+				int i = net.netlist.getIndex(entry.getKey());
+				if (i >= 0)
+					net.values[i] = entry.getValue();
+			}
+			for (Map.Entry<Location, SetData> entry : savedCauses.entrySet()) {
+				int i = net.netlist.getIndex(entry.getKey());
+				if (i >= 0)
+					net.causes[i] = entry.getValue();
+			}
+		} else {
+			for (Map.Entry<Location, Value> entry : savedValues.entrySet()) {
+				values.put(entry.getKey(), entry.getValue());
+			}
+			for (Map.Entry<Location, SetData> entry : savedCauses.entrySet()) {
+				causes.put(entry.getKey(), entry.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Sets the causes of the value at a point, given its index from getNode,
+	 * removing them if <code>head</code> is null. Only the simulator's thread
+	 * may call this.
+	 */
+	void setCauses(Location loc, int node, SetData head) {
+		if (!compiled) {
+			if (head == null)
+				causes.remove(loc);
+			else
+				causes.put(loc, head);
+		} else {
+			NetValues net = netValues;
+			if (net != null && node >= 0 && node < net.causes.length)
+				net.causes[node] = head;
+		}
+	}
+
 	public void setData(Component comp, Object data) {
+		// the circuit numbers its components as they are added, so one
+		// without a number isn't in the circuit and has no data to keep
+		int i = circuit.componentIndex.get(comp);
+		if (i < 0)
+			return;
 		if (data instanceof CircuitState) {
-			CircuitState oldState = (CircuitState) componentData.get(comp);
+			CircuitState oldState = (CircuitState) getData(comp);
 			CircuitState newState = (CircuitState) data;
 			if (oldState != newState) {
 				// There's something new going on with this subcircuit.
@@ -414,6 +1002,7 @@ public class CircuitState implements InstanceData {
 					substates.remove(oldState);
 					oldState.parentState = null;
 					oldState.parentComp = null;
+					clocksChanged();
 				}
 				if (newState != null && newState.parentState != this) {
 					// this is the first time I've heard about this CircuitState
@@ -422,10 +1011,20 @@ public class CircuitState implements InstanceData {
 					newState.parentState = this;
 					newState.parentComp = comp;
 					newState.markAllComponentsDirty();
+					clocksChanged();
 				}
 			}
 		}
-		componentData.put(comp, data);
+		ComponentData cur = componentData;
+		if (i >= cur.keys.length) {
+			ComponentData bigger = new ComponentData(Math.max(circuit.componentIndex.size(), 2 * cur.keys.length));
+			System.arraycopy(cur.keys, 0, bigger.keys, 0, cur.keys.length);
+			System.arraycopy(cur.data, 0, bigger.data, 0, cur.data.length);
+			componentData = bigger;
+			cur = bigger;
+		}
+		cur.data[i] = data;
+		cur.keys[i] = data == null ? null : comp;
 	}
 
 	public void setValue(Location pt, Value val, Component cause, int delay) {
@@ -435,6 +1034,13 @@ public class CircuitState implements InstanceData {
 
 	void setValueByWire(Location p, Value v) {
 		// for CircuitWires - to set value at point
+		if (compiled) {
+			int i = getNode(p);
+			if (i >= 0)
+				setNetValue(netValues, i, v);
+			return;
+		}
+
 		boolean changed;
 		if (v == Value.NIL) {
 			Object old = values.remove(p);
@@ -459,20 +1065,57 @@ public class CircuitState implements InstanceData {
 		}
 	}
 
+	private void setNetValue(NetValues net, int index, Value v) {
+		Value old = net.values[index];
+		boolean changed;
+		if (v == Value.NIL) {
+			net.values[index] = null;
+			changed = (old != null && old != Value.NIL);
+		} else {
+			net.values[index] = v;
+			changed = !v.equals(old);
+		}
+		if (changed) {
+			Component[] listeners = net.netlist.getListeners(index);
+			for (Component comp : listeners) {
+				markComponentAsDirty(comp);
+			}
+			if (listeners.length > 0 && base != null)
+				base.locationTouched(this, net.netlist.getPoint(index));
+		}
+	}
+
 	void setWireData(CircuitWires.State data) {
 		wireData = data;
 	}
 
-	boolean tick(int ticks) {
-		boolean ret = false;
-		for (Component clock : circuit.getClocks()) {
-			ret |= Clock.tick(this, ticks, clock);
-		}
+	/**
+	 * Returns the values of the circuit's current netlist, moving the values
+	 * and causes over from the older netlist if the structure has changed
+	 * since. Only the simulator's thread may call this; others read
+	 * <code>netValues</code> as it is.
+	 */
+	private NetValues syncNetValues() {
+		NetValues cur = netValues;
+		CircuitNetlist netlist = circuit.wires.getNetlist(circuit);
+		if (netlist == null || (cur != null && cur.netlist == netlist))
+			return cur;
 
-		CircuitState[] subs = new CircuitState[substates.size()];
-		for (CircuitState substate : substates.toArray(subs)) {
-			ret |= substate.tick(ticks);
+		NetValues ret = new NetValues(netlist);
+		if (cur != null) {
+			for (int i = 0; i < cur.values.length; i++) {
+				if (cur.values[i] != null || cur.causes[i] != null) {
+					int j = netlist.getIndex(cur.netlist.getPoint(i));
+					if (j >= 0) {
+						ret.values[j] = cur.values[i];
+						ret.causes[j] = cur.causes[i];
+					}
+				}
+			}
 		}
+		// the wires' thread values are all recomputed at the next propagation
+		ret.allDirty = true;
+		netValues = ret;
 		return ret;
 	}
 
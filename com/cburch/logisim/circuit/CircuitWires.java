@@ -5,6 +5,7 @@ package com.cburch.logisim.circuit;
 
 import java.awt.Color;
 import java.awt.Graphics;
+import java.awt.Rectangle;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -32,14 +33,57 @@ import com.cburch.logisim.util.IteratorUtil;
 import com.cburch.logisim.util.SmallSet;
 
 class CircuitWires {
+	/**
+	 * The bundles of a circuit's wires. A full map holds every point with a
+	 * bundle. An incremental map holds only the points of the region it
+	 * rebuilt, and leaves all others to the map it was built on, so that an
+	 * edit costs time in proportion to the region rather than the circuit.
+	 * Maps are stacked at most MAX_INCREMENTAL_DEPTH deep before the regions
+	 * are flattened into a single map over the full one.
+	 */
 	static class BundleMap {
 		boolean computed = false;
+		// of the points that this map covers
 		HashMap<Location, WireBundle> pointBundles = new HashMap<Location, WireBundle>();
+		// of the bundles that this map built
 		HashSet<WireBundle> bundles = new HashSet<WireBundle>();
 		boolean isValid = true;
 		// NOTE: It would make things more efficient if we also had
 		// a set of just the first bundle in each tree.
 		HashSet<WidthIncompatibilityData> incompatibilityData = null;
+		// the errors of all bundles seen through this map
+		HashMap<WireBundle, WidthIncompatibilityData> bundleErrors = new HashMap<WireBundle, WidthIncompatibilityData>();
+		// the map to consult for points outside of region; null if full
+		BundleMap under = null;
+		HashSet<Location> region = null;
+		int layers = 0;
+		// the number of points in the full map at the bottom, and in the
+		// regions stacked over it
+		int fullSize = 0;
+		int overlaySize = 0;
+		// the map this one was derived from incrementally, with the points
+		// whose bundles were rebuilt and the threads that were discarded
+		BundleMap prior = null;
+		HashSet<Location> changedPoints = null;
+		HashSet<WireThread> removedThreads = null;
+		int depth = 0;
+		// position in the edit log of CircuitWires when this was computed
+		int generation;
+		int editMark;
+
+		/**
+		 * Collects the points and threads changed between old and this map.
+		 * Returns false if this map was not derived from old incrementally.
+		 */
+		boolean collectChangesSince(BundleMap old, Set<Location> pts, Set<WireThread> removed) {
+			for (BundleMap m = this; m != old; m = m.prior) {
+				if (m == null || m.changedPoints == null)
+					return false;
+				pts.addAll(m.changedPoints);
+				removed.addAll(m.removedThreads);
+			}
+			return true;
+		}
 
 		void addWidthIncompatibilityData(WidthIncompatibilityData e) {
 			if (incompatibilityData == null) {
@@ -49,26 +93,68 @@ class CircuitWires {
 		}
 
 		WireBundle createBundleAt(Location p) {
-			WireBundle ret = pointBundles.get(p);
+			WireBundle ret = getBundleAt(p);
 			if (ret == null) {
 				ret = new WireBundle();
-				pointBundles.put(p, ret);
+				setBundleAt(p, ret);
 				ret.points.add(p);
 				bundles.add(ret);
 			}
 			return ret;
 		}
 
+		/**
+		 * Replaces the stack of maps beneath this one with a single map
+		 * covering all of their regions, over the full map at the bottom.
+		 */
+		void flatten() {
+			BundleMap full = under;
+			HashSet<Location> pts = new HashSet<Location>(region);
+			for (; full.under != null; full = full.under) {
+				pts.addAll(full.region);
+			}
+			HashMap<Location, WireBundle> pbs = new HashMap<Location, WireBundle>();
+			for (Location p : pts) {
+				WireBundle b = getBundleAt(p);
+				if (b != null)
+					pbs.put(p, b);
+			}
+			pointBundles = pbs;
+			region = pts;
+			under = full;
+			layers = 1;
+			overlaySize = pts.size();
+		}
+
 		WireBundle getBundleAt(Location p) {
-			return pointBundles.get(p);
+			BundleMap m = this;
+			while (m.under != null && !m.region.contains(p)) {
+				m = m.under;
+			}
+			return m.pointBundles.get(p);
 		}
 
 		Set<Location> getBundlePoints() {
-			return pointBundles.keySet();
+			if (under == null)
+				return pointBundles.keySet();
+			HashSet<Location> ret = new HashSet<Location>();
+			for (BundleMap m = this; m != null; m = m.under) {
+				for (Location p : m.pointBundles.keySet()) {
+					if (!ret.contains(p) && getBundleAt(p) != null)
+						ret.add(p);
+				}
+			}
+			return ret;
 		}
 
 		Set<WireBundle> getBundles() {
-			return bundles;
+			if (under == null)
+				return bundles;
+			HashSet<WireBundle> ret = new HashSet<WireBundle>();
+			for (Location p : getBundlePoints()) {
+				ret.add(getBundleAt(p));
+			}
+			return ret;
 		}
 
 		HashSet<WidthIncompatibilityData> getWidthIncompatibilityData() {
@@ -89,6 +175,8 @@ class CircuitWires {
 		}
 
 		void setBundleAt(Location p, WireBundle b) {
+			if (region != null)
+				region.add(p);
 			pointBundles.put(p, b);
 		}
 
@@ -144,13 +232,18 @@ class CircuitWires {
 		@Override
 		public void attributeValueChanged(AttributeEvent e) {
 			Attribute<?> attr = e.getAttribute();
-			if (attr == StdAttr.LABEL || attr == PullResistor.ATTR_PULL_TYPE) {
+			if (attr == StdAttr.LABEL) {
+				synchronized (tunnelsByLabel) {
+					tunnelIndexStale = true;
+				}
+				voidBundleMap();
+			} else if (attr == PullResistor.ATTR_PULL_TYPE) {
 				voidBundleMap();
 			}
 		}
 	}
 
-	private static Value pullValue(Value base, Value pullTo) {
+	static Value pullValue(Value base, Value pullTo) {
 		if (base.isFullyDefined()) {
 			return base;
 		} else if (base.getWidth() == 1) {
@@ -168,6 +261,14 @@ class CircuitWires {
 		}
 	}
 
+	// edits beyond this many void the bundle map outright
+	private static final int MAX_INCREMENTAL_EDITS = 1000;
+	// regions beyond this or half the map are rebuilt in full
+	private static final int MIN_INCREMENTAL_REGION = 64;
+	// how many incremental maps a CircuitState can lag behind by, and how
+	// many can be stacked over a full map
+	private static final int MAX_INCREMENTAL_DEPTH = 8;
+
 	// user-given data
 	private HashSet<Wire> wires = new HashSet<Wire>();
 	private HashSet<Splitter> splitters = new HashSet<Splitter>();
@@ -177,6 +278,12 @@ class CircuitWires {
 	// Tunnel
 	// factory
 	private TunnelListener tunnelListener = new TunnelListener();
+	// the tunnels by their trimmed labels, so that an incremental rebuild
+	// finds a tunnel's partners without scanning them all; after a label
+	// changes it is rebuilt whole, as the bundle map is
+	private HashMap<String, ArrayList<Component>> tunnelsByLabel = new HashMap<String, ArrayList<Component>>();
+	private HashMap<Component, String> tunnelLabels = new HashMap<Component, String>();
+	private boolean tunnelIndexStale = false;
 	private HashSet<Component> pulls = new HashSet<Component>(); // of
 
 	// Components
@@ -186,8 +293,15 @@ class CircuitWires {
 	final CircuitPoints points = new CircuitPoints();
 	// derived data
 	private Bounds bounds = Bounds.EMPTY_BOUNDS;
+	private ComponentGrid wireGrid = new ComponentGrid();
 
-	private BundleMap bundleMap = null;
+	private volatile BundleMap bundleMap = null;
+	// points touched by recent edits, of which bundleMap reflects those
+	// before its editMark; guarded by editLog itself
+	private ArrayList<Location> editLog = new ArrayList<Location>();
+	private int editGeneration = 0;
+	private volatile CircuitNetlist netlist = null;
+	private volatile int structureVersion = 0;
 
 	CircuitWires() {
 	}
@@ -195,8 +309,8 @@ class CircuitWires {
 	//
 	// action methods
 	//
-	// NOTE: this could be made much more efficient in most cases to
-	// avoid voiding the bundle map.
+	// Structural edits only record the points they touch; the next call to
+	// getBundleMap rebuilds just the bundles around those points.
 	boolean add(Component comp) {
 		boolean added = true;
 		if (comp instanceof Wire) {
@@ -207,6 +321,9 @@ class CircuitWires {
 			Object factory = comp.getFactory();
 			if (factory instanceof Tunnel) {
 				tunnels.add(comp);
+				synchronized (tunnelsByLabel) {
+					indexTunnel(comp);
+				}
 				comp.getAttributeSet().addAttributeListener(tunnelListener);
 			} else if (factory instanceof PullResistor) {
 				pulls.add(comp);
@@ -215,20 +332,23 @@ class CircuitWires {
 		}
 		if (added) {
 			points.add(comp);
-			voidBundleMap();
+			touchBundleMap(comp);
+			voidNetlist();
 		}
 		return added;
 	}
 
 	void add(Component comp, EndData end) {
 		points.add(comp, end);
-		voidBundleMap();
+		touchBundleMap(end);
+		voidNetlist();
 	}
 
 	private boolean addWire(Wire w) {
 		boolean added = wires.add(w);
 		if (!added)
 			return false;
+		wireGrid.add(w, w.getBounds());
 
 		if (bounds != Bounds.EMPTY_BOUNDS) { // update bounds
 			bounds = bounds.add(w.e0).add(w.e1);
@@ -239,24 +359,151 @@ class CircuitWires {
 	// To be called by getBundleMap only
 	private void computeBundleMap(BundleMap ret) {
 		// create bundles corresponding to wires and tunnels
-		connectWires(ret);
-		connectTunnels(ret);
-		connectPullResistors(ret);
+		connectWires(ret, wires);
+		connectTunnels(ret, tunnels);
+		connectPullResistors(ret, pulls);
 
 		// merge any WireBundle objects united by previous steps
-		for (Iterator<WireBundle> it = ret.getBundles().iterator(); it.hasNext();) {
-			WireBundle b = it.next();
-			WireBundle bpar = b.find();
-			if (bpar != b) { // b isn't group's representative
-				for (Location pt : b.points) {
-					ret.setBundleAt(pt, bpar);
-					bpar.points.add(pt);
+		mergeBundles(ret, new ArrayList<WireBundle>(ret.getBundles()));
+
+		// size the bundles and sew their threads together
+		connectThreads(ret, splitters, null);
+
+		// All threads are sewn together! Compute the exception set before
+		// leaving
+		computeWidthIncompatibilityData(ret);
+		ret.fullSize = ret.pointBundles.size();
+	}
+
+	// To be called by getBundleMap only. Rebuilds just the bundles around
+	// the touched points in a map over base, which keeps all other bundles
+	// and threads; returns null if the region to rebuild, with those rebuilt
+	// since the last full map, is too large to be worthwhile.
+	BundleMap computeBundleMapIncrementally(BundleMap base, List<Location> touched) {
+		// determine the region to rebuild: the touched points, closed over
+		// the old bundles and threads and over the current wires, splitters
+		// and tunnels, so that no bundle crosses the region's boundary
+		int limit = Math.max(MIN_INCREMENTAL_REGION, base.fullSize / 2) - base.overlaySize;
+		HashSet<Location> region = new HashSet<Location>();
+		HashSet<WireBundle> oldBundles = new HashSet<WireBundle>();
+		HashSet<WireThread> oldThreads = new HashSet<WireThread>();
+		HashSet<Wire> regionWires = new HashSet<Wire>();
+		HashSet<Splitter> regionSplitters = new HashSet<Splitter>();
+		HashSet<Component> regionTunnels = new HashSet<Component>();
+		HashSet<Component> regionPulls = new HashSet<Component>();
+		ArrayList<Location> queue = new ArrayList<Location>(touched);
+		while (!queue.isEmpty()) {
+			Location p = queue.remove(queue.size() - 1);
+			if (!region.add(p))
+				continue;
+			if (region.size() > limit)
+				return null;
+
+			WireBundle ob = base.getBundleAt(p);
+			if (ob != null && oldBundles.add(ob)) {
+				queue.addAll(ob.points);
+				if (ob.threads != null) {
+					for (WireThread t : ob.threads) {
+						if (oldThreads.add(t)) {
+							for (ThreadBundle tb : t.getBundles()) {
+								queue.addAll(tb.b.points);
+							}
+						}
+					}
 				}
-				bpar.addPullValue(b.getPullValue());
-				it.remove();
 			}
+
+			for (Component comp : points.getComponents(p)) {
+				if (comp instanceof Wire) {
+					Wire w = (Wire) comp;
+					regionWires.add(w);
+					queue.add(w.getOtherEnd(p));
+				} else if (comp instanceof Splitter) {
+					if (regionSplitters.add((Splitter) comp)) {
+						for (EndData end : comp.getEnds()) {
+							queue.add(end.getLocation());
+						}
+					}
+				} else if (tunnels.contains(comp)) {
+					List<Component> tunnelSet = getTunnelSet(comp);
+					if (tunnelSet == null) {
+						regionTunnels.add(comp);
+					} else {
+						for (Component tunnel : tunnelSet) {
+							if (regionTunnels.add(tunnel))
+								queue.add(tunnel.getLocation());
+						}
+					}
+				} else if (pulls.contains(comp)) {
+					regionPulls.add(comp);
+				}
+			}
+		}
+
+		// leave the bundles outside the region to base
+		BundleMap ret = new BundleMap();
+		ret.under = base;
+		ret.region = region;
+		ret.layers = base.layers + 1;
+		ret.fullSize = base.fullSize;
+		ret.overlaySize = base.overlaySize + region.size();
+		ret.bundleErrors.putAll(base.bundleErrors);
+		ret.bundleErrors.keySet().removeAll(oldBundles);
+
+		// and rebuild those within it just as computeBundleMap would
+		connectWires(ret, regionWires);
+		connectTunnels(ret, regionTunnels);
+		connectPullResistors(ret, regionPulls);
+		mergeBundles(ret, getBundlesAt(ret, region));
+		connectThreads(ret, regionSplitters, region);
+		computeWidthIncompatibilityData(ret);
+		if (ret.layers > MAX_INCREMENTAL_DEPTH)
+			ret.flatten();
+
+		if (base.depth < MAX_INCREMENTAL_DEPTH) {
+			ret.prior = base;
+			ret.depth = base.depth + 1;
 		}
+		ret.changedPoints = new HashSet<Location>(region);
+		ret.removedThreads = oldThreads;
+		return ret;
+	}
 
+	private void computeWidthIncompatibilityData(BundleMap ret) {
+		Collection<WidthIncompatibilityData> exceptions = points.getWidthIncompatibilityData();
+		if (exceptions != null && exceptions.size() > 0) {
+			for (WidthIncompatibilityData wid : exceptions) {
+				ret.addWidthIncompatibilityData(wid);
+			}
+		}
+		// the errors of bundles that ret didn't build are carried over
+		for (WireBundle b : ret.bundles) {
+			WidthIncompatibilityData e = b.getWidthIncompatibilityData();
+			if (e != null)
+				ret.bundleErrors.put(b, e);
+		}
+		for (WidthIncompatibilityData e : ret.bundleErrors.values()) {
+			ret.addWidthIncompatibilityData(e);
+		}
+	}
+
+	private void connectPullResistors(BundleMap ret, Collection<Component> pulls) {
+		for (Component comp : pulls) {
+			Location loc = comp.getEnd(0).getLocation();
+			WireBundle b = ret.getBundleAt(loc);
+			if (b == null) {
+				b = ret.createBundleAt(loc);
+				b.points.add(loc);
+				ret.setBundleAt(loc, b);
+			}
+			Instance instance = Instance.getInstanceFor(comp);
+			b.addPullValue(PullResistor.getPullValue(instance));
+		}
+	}
+
+	// pts limits the sizing and sewing to the bundles at those points;
+	// null means all bundles in the map
+	private void connectThreads(BundleMap ret, Collection<Splitter> splitters, Collection<Location> pts) {
 		// make a WireBundle object for each end of a splitter
 		for (Splitter spl : splitters) {
 			List<EndData> ends = new ArrayList<EndData>(spl.getEnds());
@@ -269,10 +516,10 @@ class CircuitWires {
 
 		// set the width for each bundle whose size is known
 		// based on components
-		for (Location p : ret.getBundlePoints()) {
+		for (Location p : pts == null ? ret.getBundlePoints() : pts) {
 			WireBundle pb = ret.getBundleAt(p);
 			BitWidth width = points.getWidth(p);
-			if (width != BitWidth.UNKNOWN) {
+			if (pb != null && width != BitWidth.UNKNOWN) {
 				pb.setWidth(width, p);
 			}
 		}
@@ -324,7 +571,7 @@ class CircuitWires {
 		}
 
 		// merge any threads united by previous step
-		for (WireBundle b : ret.getBundles()) {
+		for (WireBundle b : pts == null ? ret.getBundles() : getBundlesAt(ret, pts)) {
 			if (b.isValid() && b.threads != null) {
 				for (int i = 0; i < b.threads.length; i++) {
 					WireThread thr = b.threads[i].find();
@@ -333,37 +580,9 @@ class CircuitWires {
 				}
 			}
 		}
-
-		// All threads are sewn together! Compute the exception set before
-		// leaving
-		Collection<WidthIncompatibilityData> exceptions = points.getWidthIncompatibilityData();
-		if (exceptions != null && exceptions.size() > 0) {
-			for (WidthIncompatibilityData wid : exceptions) {
-				ret.addWidthIncompatibilityData(wid);
-			}
-		}
-		for (WireBundle b : ret.getBundles()) {
-			WidthIncompatibilityData e = b.getWidthIncompatibilityData();
-			if (e != null)
-				ret.addWidthIncompatibilityData(e);
-		}
 	}
 
-	private void connectPullResistors(BundleMap ret) {
-		for (Component comp : pulls) {
-			Location loc = comp.getEnd(0).getLocation();
-			WireBundle b = ret.getBundleAt(loc);
-			if (b == null) {
-				b = ret.createBundleAt(loc);
-				b.points.add(loc);
-				ret.setBundleAt(loc, b);
-			}
-			Instance instance = Instance.getInstanceFor(comp);
-			b.addPullValue(PullResistor.getPullValue(instance));
-		}
-	}
-
-	private void connectTunnels(BundleMap ret) {
+	private void connectTunnels(BundleMap ret, Collection<Component> tunnels) {
 		// determine the sets of tunnels
 		HashMap<String, ArrayList<Location>> tunnelSets = new HashMap<String, ArrayList<Location>>();
 		for (Component comp : tunnels) {
@@ -409,7 +628,7 @@ class CircuitWires {
 		}
 	}
 
-	private void connectWires(BundleMap ret) {
+	private void connectWires(BundleMap ret, Collection<Wire> wires) {
 		// make a WireBundle object for each tree of connected wires
 		for (Wire w : wires) {
 			WireBundle b0 = ret.getBundleAt(w.e0);
@@ -439,8 +658,16 @@ class CircuitWires {
 
 		BundleMap bmap = getBundleMap();
 		boolean isValid = bmap.isValid();
+		Collection<? extends Component> toDraw = wires;
+		Rectangle clipRect = g.getClipBounds();
+		Bounds clip = null;
+		if (clipRect != null) {
+			clip = Bounds.create(clipRect).expand(5);
+			toDraw = wireGrid.query(clip);
+		}
 		if (hidden == null || hidden.size() == 0) {
-			for (Wire w : wires) {
+			for (Component comp : toDraw) {
+				Wire w = (Wire) comp;
 				Location s = w.e0;
 				Location t = w.e1;
 				WireBundle wb = bmap.getBundleAt(s);
@@ -464,6 +691,8 @@ class CircuitWires {
 			}
 
 			for (Location loc : points.getSplitLocations()) {
+				if (clip != null && !clip.contains(loc))
+					continue;
 				if (points.getComponentCount(loc) > 2) {
 					WireBundle wb = bmap.getBundleAt(loc);
 					if (wb != null) {
@@ -486,7 +715,8 @@ class CircuitWires {
 				}
 			}
 		} else {
-			for (Wire w : wires) {
+			for (Component comp : toDraw) {
+				Wire w = (Wire) comp;
 				if (!hidden.contains(w)) {
 					Location s = w.e0;
 					Location t = w.e1;
@@ -515,6 +745,8 @@ class CircuitWires {
 			// the problem is minor, and hidden only exists for a short
 			// while at a time anway.
 			for (Location loc : points.getSplitLocations()) {
+				if (clip != null && !clip.contains(loc))
+					continue;
 				if (points.getComponentCount(loc) > 2) {
 					int icount = 0;
 					for (Component comp : points.getComponents(loc)) {
@@ -550,26 +782,43 @@ class CircuitWires {
 		getBundleMap();
 	}
 
-	private BundleMap getBundleMap() {
+	BundleMap getBundleMap() {
 		// Maybe we already have a valid bundle map (or maybe
 		// one is in progress).
-		BundleMap ret = bundleMap;
-		if (ret != null) {
-			ret.waitUntilComputed();
-			return ret;
+		BundleMap base;
+		int generation;
+		int mark;
+		List<Location> touched = null;
+		synchronized (editLog) {
+			base = bundleMap;
+			generation = editGeneration;
+			mark = editLog.size();
+			if (base != null && base.editMark != mark) {
+				touched = new ArrayList<Location>(editLog.subList(base.editMark, mark));
+			}
 		}
+		if (base != null && touched == null) {
+			base.waitUntilComputed();
+			return base;
+		}
+		BundleMap ret = null;
 		try {
-			// Ok, we have to create our own.
+			// Ok, we have to create our own, preferably by patching the
+			// previous one.
 			for (int tries = 4; tries >= 0; tries--) {
 				try {
-					ret = new BundleMap();
-					computeBundleMap(ret);
-					bundleMap = ret;
+					ret = null;
+					if (base != null && tries == 4) {
+						ret = computeBundleMapIncrementally(base, touched);
+					}
+					if (ret == null) {
+						ret = new BundleMap();
+						computeBundleMap(ret);
+					}
 					break;
 				} catch (Throwable t) {
 					if (tries == 0) {
 						t.printStackTrace();
-						bundleMap = ret;
 					}
 				}
 			}
@@ -582,6 +831,60 @@ class CircuitWires {
 			// result.
 			ret.markComputed();
 		}
+		synchronized (editLog) {
+			// keep it unless the map was voided or superseded meanwhile
+			BundleMap cur = bundleMap;
+			if (generation == editGeneration && (cur == null || cur.editMark <= mark)) {
+				if (mark == editLog.size()) {
+					editLog.clear();
+					editGeneration++;
+					mark = 0;
+				}
+				ret.generation = editGeneration;
+				ret.editMark = mark;
+				bundleMap = ret;
+			}
+		}
+		return ret;
+	}
+
+	private HashSet<WireBundle> getBundlesAt(BundleMap map, Collection<Location> pts) {
+		HashSet<WireBundle> ret = new HashSet<WireBundle>();
+		for (Location p : pts) {
+			WireBundle b = map.getBundleAt(p);
+			if (b != null)
+				ret.add(b);
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns the compiled netlist for the current bundle map, compiling it if
+	 * necessary, or null if the structure kept being modified while it was
+	 * being compiled.
+	 */
+	/**
+	 * Returns the netlist of the wires' circuit, building it under the
+	 * circuit's read lock if it is not current, so that no edit changes the
+	 * points or bundles while it is built. Returns null if the circuit was
+	 * changed outside of a transaction meanwhile.
+	 */
+	CircuitNetlist getNetlist(Circuit circuit) {
+		CircuitNetlist ret = netlist;
+		if (ret == null) {
+			circuit.runReadLocked(new Runnable() {
+				@Override
+				public void run() {
+					int version = structureVersion;
+					CircuitNetlist built = CircuitNetlist.build(points, getBundleMap());
+					synchronized (editLog) {
+						if (version == structureVersion)
+							netlist = built;
+					}
+				}
+			});
+			ret = netlist;
+		}
 		return ret;
 	}
 
@@ -609,6 +912,23 @@ class CircuitWires {
 		return ret;
 	}
 
+	// returns the tunnels sharing the tunnel's label, or null if it has none
+	private List<Component> getTunnelSet(Component tunnel) {
+		String label = tunnel.getAttributeSet().getValue(StdAttr.LABEL).trim();
+		synchronized (tunnelsByLabel) {
+			if (tunnelIndexStale) {
+				tunnelIndexStale = false;
+				tunnelsByLabel.clear();
+				tunnelLabels.clear();
+				for (Component comp : tunnels) {
+					indexTunnel(comp);
+				}
+			}
+			ArrayList<Component> ret = tunnelsByLabel.get(label);
+			return ret == null ? null : new ArrayList<Component>(ret);
+		}
+	}
+
 	BitWidth getWidth(Location q) {
 		BitWidth det = points.getWidth(q);
 		if (det != BitWidth.UNKNOWN)
@@ -657,6 +977,11 @@ class CircuitWires {
 		return wires;
 	}
 
+	/** Returns the wires whose bounds may meet the region. */
+	Collection<Component> getWiresNear(Bounds bds) {
+		return wireGrid.query(bds);
+	}
+
 	WireSet getWireSet(Wire start) {
 		WireBundle bundle = getWireBundle(start.e0);
 		if (bundle == null)
@@ -668,6 +993,20 @@ class CircuitWires {
 		return new WireSet(wires);
 	}
 
+	// to be called while holding tunnelsByLabel
+	private void indexTunnel(Component tunnel) {
+		String label = tunnel.getAttributeSet().getValue(StdAttr.LABEL).trim();
+		if (!label.equals("")) {
+			ArrayList<Component> tunnelSet = tunnelsByLabel.get(label);
+			if (tunnelSet == null) {
+				tunnelSet = new ArrayList<Component>(3);
+				tunnelsByLabel.put(label, tunnelSet);
+			}
+			tunnelSet.add(tunnel);
+			tunnelLabels.put(tunnel, label);
+		}
+	}
+
 	//
 	// query methods
 	//
@@ -675,10 +1014,46 @@ class CircuitWires {
 		return bundleMap == null;
 	}
 
+	/** Whether the netlist was compiled after every edit made so far. */
+	boolean isNetlistCurrent(CircuitNetlist net) {
+		return net != null && net == netlist;
+	}
+
+	/** Whether the bundle map reflects every edit made so far. */
+	boolean isMapCurrent() {
+		synchronized (editLog) {
+			BundleMap map = bundleMap;
+			return map != null && map.editMark == editLog.size();
+		}
+	}
+
+	/**
+	 * Whether the state's wire values predate the latest edits, so that
+	 * propagate must be called even without any dirty points.
+	 */
+	boolean isOutdated(State s) {
+		return s != null && (s.bundleMap != bundleMap || !isMapCurrent());
+	}
+
+	private void mergeBundles(BundleMap ret, Collection<WireBundle> bundles) {
+		for (WireBundle b : bundles) {
+			WireBundle bpar = b.find();
+			if (bpar != b) { // b isn't group's representative
+				for (Location pt : b.points) {
+					ret.setBundleAt(pt, bpar);
+					bpar.points.add(pt);
+				}
+				bpar.addPullValue(b.getPullValue());
+				ret.bundles.remove(b);
+			}
+		}
+	}
+
 	//
 	// utility methods
 	//
-	void propagate(CircuitState circState, Set<Location> points) {
+	// Returns the number of wire threads whose values were recomputed.
+	int propagate(CircuitState circState, Set<Location> points) {
 		BundleMap map = getBundleMap();
 		SmallSet<WireThread> dirtyThreads = new SmallSet<WireThread>(); // affected
 																		// threads
@@ -686,17 +1061,27 @@ class CircuitWires {
 		// get state, or create a new one if current state is outdated
 		State s = circState.getWireData();
 		if (s == null || s.bundleMap != map) {
-			// if it is outdated, we need to compute for all threads
-			s = new State(map);
-			for (WireBundle b : map.getBundles()) {
-				WireThread[] th = b.threads;
-				if (b.isValid() && th != null) {
-					for (WireThread t : th) {
-						dirtyThreads.add(t);
+			HashSet<Location> changed = new HashSet<Location>();
+			HashSet<WireThread> removed = new HashSet<WireThread>();
+			if (s != null && map.collectChangesSince(s.bundleMap, changed, removed)) {
+				// if only parts were rebuilt, we need only revisit those
+				s.bundleMap = map;
+				s.thr_values.keySet().removeAll(removed);
+				changed.addAll(points);
+				points = changed;
+			} else {
+				// if it is outdated, we need to compute for all threads
+				s = new State(map);
+				for (WireBundle b : map.getBundles()) {
+					WireThread[] th = b.threads;
+					if (b.isValid() && th != null) {
+						for (WireThread t : th) {
+							dirtyThreads.add(t);
+						}
 					}
 				}
+				circState.setWireData(s);
 			}
-			circState.setWireData(s);
 		}
 
 		// determine affected threads, and set values for unwired points
@@ -725,7 +1110,7 @@ class CircuitWires {
 		}
 
 		if (dirtyThreads.isEmpty())
-			return;
+			return 0;
 
 		// determine values of affected threads
 		HashSet<ThreadBundle> bundles = new HashSet<ThreadBundle>();
@@ -765,6 +1150,7 @@ class CircuitWires {
 				}
 			}
 		}
+		return dirtyThreads.size();
 	}
 
 	private Bounds recomputeBounds() {
@@ -808,6 +1194,15 @@ class CircuitWires {
 			Object factory = comp.getFactory();
 			if (factory instanceof Tunnel) {
 				tunnels.remove(comp);
+				synchronized (tunnelsByLabel) {
+					String label = tunnelLabels.remove(comp);
+					ArrayList<Component> tunnelSet = label == null ? null : tunnelsByLabel.get(label);
+					if (tunnelSet != null) {
+						tunnelSet.remove(comp);
+						if (tunnelSet.isEmpty())
+							tunnelsByLabel.remove(label);
+					}
+				}
 				comp.getAttributeSet().removeAttributeListener(tunnelListener);
 			} else if (factory instanceof PullResistor) {
 				pulls.remove(comp);
@@ -815,18 +1210,21 @@ class CircuitWires {
 			}
 		}
 		points.remove(comp);
-		voidBundleMap();
+		touchBundleMap(comp);
+		voidNetlist();
 	}
 
 	void remove(Component comp, EndData end) {
 		points.remove(comp, end);
-		voidBundleMap();
+		touchBundleMap(end);
+		voidNetlist();
 	}
 
 	private void removeWire(Wire w) {
 		boolean removed = wires.remove(w);
 		if (!removed)
 			return;
+		wireGrid.remove(w);
 
 		if (bounds != Bounds.EMPTY_BOUNDS) {
 			// bounds is valid - invalidate if endpoint on border
@@ -840,13 +1238,54 @@ class CircuitWires {
 	void replace(Component comp, EndData oldEnd, EndData newEnd) {
 		points.remove(comp, oldEnd);
 		points.add(comp, newEnd);
-		voidBundleMap();
+		touchBundleMap(oldEnd);
+		touchBundleMap(newEnd);
+		voidNetlist();
 	}
 
 	//
 	// helper methods
 	//
+	private void touchBundleMap(Component comp) {
+		if (comp instanceof Wire) {
+			Wire w = (Wire) comp;
+			touchBundleMap(w.e0);
+			touchBundleMap(w.e1);
+		} else {
+			for (EndData end : comp.getEnds()) {
+				touchBundleMap(end);
+			}
+		}
+	}
+
+	private void touchBundleMap(EndData end) {
+		if (end != null)
+			touchBundleMap(end.getLocation());
+	}
+
+	private void touchBundleMap(Location loc) {
+		synchronized (editLog) {
+			if (editLog.size() >= MAX_INCREMENTAL_EDITS) {
+				voidBundleMap();
+			} else {
+				editLog.add(loc);
+			}
+		}
+	}
+
 	private void voidBundleMap() {
-		bundleMap = null;
+		synchronized (editLog) {
+			bundleMap = null;
+			editLog.clear();
+			editGeneration++;
+			voidNetlist();
+		}
+	}
+
+	private void voidNetlist() {
+		synchronized (editLog) {
+			structureVersion++;
+			netlist = null;
+		}
 	}
 }
@@ -0,0 +1,110 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.circuit;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.std.wiring.Clock;
+
+/**
+ * The clocks in a propagator's tree of <code>CircuitState</code>s, so that a
+ * tick visits only the states holding clocks rather than the whole tree.
+ * Clocks are grouped into domains by their high and low durations, which are
+ * read from the attributes once; the phase of a domain is computed once per
+ * tick and applied to all of its clocks. Clocks are kept in the order of a
+ * walk of the tree, so they are invalidated in the same order as before.
+ *
+ * The registry is rebuilt at the next tick after it is invalidated, which
+ * the states do when a clock or subcircuit is added to or removed from their
+ * circuit, when a substate is attached or detached, and when their circuit
+ * reports that a clock's durations changed. The registry itself listens to
+ * nothing, as it is used on the simulator's thread.
+ */
+class ClockRegistry {
+	private CircuitState root;
+	private volatile boolean stale = true;
+
+	// the clocks in the order of a walk of the tree, with their domains
+	private CircuitState[] states = new CircuitState[0];
+	private Component[] clocks = new Component[0];
+	private int[] domainOf = new int[0];
+
+	// the durations of each domain, and whether it is high in this tick
+	private int[] highs = new int[0];
+	private int[] lows = new int[0];
+	private boolean[] phases = new boolean[0];
+
+	ClockRegistry(CircuitState root) {
+		this.root = root;
+	}
+
+	private void add(CircuitState state, ArrayList<CircuitState> stateList, ArrayList<Component> clockList,
+			ArrayList<Integer> domainList, HashMap<Long, Integer> domainIds) {
+		for (Component clock : state.getCircuit().getClocks()) {
+			AttributeSet attrs = clock.getAttributeSet();
+			int high = attrs.getValue(Clock.ATTR_HIGH).intValue();
+			int low = attrs.getValue(Clock.ATTR_LOW).intValue();
+			Long key = Long.valueOf(((long) high << 32) | low);
+			Integer id = domainIds.get(key);
+			if (id == null) {
+				id = Integer.valueOf(domainIds.size());
+				domainIds.put(key, id);
+			}
+			stateList.add(state);
+			clockList.add(clock);
+			domainList.add(id);
+		}
+		for (CircuitState sub : state.getSubstates().toArray(new CircuitState[0])) {
+			add(sub, stateList, clockList, domainList, domainIds);
+		}
+	}
+
+	void invalidate() {
+		stale = true;
+	}
+
+	private void rebuild() {
+		// cleared first, so that an invalidation during the walk is kept
+		stale = false;
+		ArrayList<CircuitState> stateList = new ArrayList<CircuitState>();
+		ArrayList<Component> clockList = new ArrayList<Component>();
+		ArrayList<Integer> domainList = new ArrayList<Integer>();
+		HashMap<Long, Integer> domainIds = new HashMap<Long, Integer>();
+		add(root, stateList, clockList, domainList, domainIds);
+
+		states = stateList.toArray(new CircuitState[stateList.size()]);
+		clocks = clockList.toArray(new Component[clockList.size()]);
+		domainOf = new int[domainList.size()];
+		for (int i = 0; i < domainOf.length; i++) {
+			domainOf[i] = domainList.get(i).intValue();
+		}
+		highs = new int[domainIds.size()];
+		lows = new int[domainIds.size()];
+		phases = new boolean[domainIds.size()];
+		for (Map.Entry<Long, Integer> entry : domainIds.entrySet()) {
+			long key = entry.getKey().longValue();
+			int id = entry.getValue().intValue();
+			highs[id] = (int) (key >>> 32);
+			lows[id] = (int) key;
+		}
+	}
+
+	/** Brings every clock to its value for the tick, returning true if any changed. */
+	boolean tick(int ticks) {
+		if (stale)
+			rebuild();
+		for (int i = 0; i < phases.length; i++) {
+			phases[i] = ticks % (highs[i] + lows[i]) >= lows[i];
+		}
+		boolean ret = false;
+		for (int i = 0; i < clocks.length; i++) {
+			ret |= Clock.tick(states[i], clocks[i], phases[domainOf[i]]);
+		}
+		return ret;
+	}
+}
@@ -0,0 +1,154 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.circuit;
+
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.Bounds;
+
+/**
+ * A uniform grid over the bounds of a set of components, so that the
+ * components near a point or within a region can be found without examining
+ * all of them. Queries return candidates whose indexed bounds meet the region;
+ * callers still apply their own exact test to each. The grid itself is not
+ * synchronized; <code>Circuit</code> guards it with a lock.
+ */
+class ComponentGrid {
+	private static final int CELL_SHIFT = 7; // cells are 128 pixels square
+
+	// components covering more cells than this are kept apart and returned
+	// by every query, so that a huge component doesn't fill the grid
+	private static final int MAX_CELLS = 64;
+
+	// allows for label widths measured under a different font scale
+	private static final int LABEL_SLACK = 4;
+
+	private static Graphics measureGraphics = null;
+
+	/**
+	 * Returns the bounds under which a component should be indexed: those
+	 * including its label, as measured in an unscaled graphics context.
+	 */
+	static synchronized Bounds getIndexBounds(Component comp) {
+		if (measureGraphics == null) {
+			BufferedImage img = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+			measureGraphics = img.createGraphics();
+		}
+		Bounds bds = comp.getBounds(measureGraphics);
+		if (bds == null)
+			bds = comp.getBounds();
+		return bds.expand(LABEL_SLACK);
+	}
+
+	private static long key(int col, int row) {
+		return ((long) col << 32) | (row & 0xFFFFFFFFL);
+	}
+
+	private HashMap<Long, ArrayList<Component>> cells = new HashMap<Long, ArrayList<Component>>();
+	private HashMap<Component, Bounds> indexed = new HashMap<Component, Bounds>();
+	private ArrayList<Component> large = new ArrayList<Component>();
+
+	void add(Component comp, Bounds bds) {
+		if (indexed.containsKey(comp))
+			remove(comp);
+		indexed.put(comp, bds);
+		int c0 = bds.getX() >> CELL_SHIFT;
+		int r0 = bds.getY() >> CELL_SHIFT;
+		int c1 = (bds.getX() + bds.getWidth()) >> CELL_SHIFT;
+		int r1 = (bds.getY() + bds.getHeight()) >> CELL_SHIFT;
+		if ((long) (c1 - c0 + 1) * (r1 - r0 + 1) > MAX_CELLS) {
+			large.add(comp);
+			return;
+		}
+		for (int c = c0; c <= c1; c++) {
+			for (int r = r0; r <= r1; r++) {
+				Long k = Long.valueOf(key(c, r));
+				ArrayList<Component> cell = cells.get(k);
+				if (cell == null) {
+					cell = new ArrayList<Component>(4);
+					cells.put(k, cell);
+				}
+				cell.add(comp);
+			}
+		}
+	}
+
+	/** Returns the components whose indexed bounds may meet the region. */
+	Collection<Component> query(Bounds bds) {
+		int c0 = bds.getX() >> CELL_SHIFT;
+		int r0 = bds.getY() >> CELL_SHIFT;
+		int c1 = (bds.getX() + bds.getWidth()) >> CELL_SHIFT;
+		int r1 = (bds.getY() + bds.getHeight()) >> CELL_SHIFT;
+		if ((long) (c1 - c0 + 1) * (r1 - r0 + 1) > cells.size()) {
+			// the region covers more cells than are occupied
+			ArrayList<Component> ret = new ArrayList<Component>();
+			for (Map.Entry<Component, Bounds> entry : indexed.entrySet()) {
+				if (meets(entry.getValue(), bds))
+					ret.add(entry.getKey());
+			}
+			return ret;
+		}
+		HashSet<Component> ret = new HashSet<Component>();
+		for (int c = c0; c <= c1; c++) {
+			for (int r = r0; r <= r1; r++) {
+				ArrayList<Component> cell = cells.get(Long.valueOf(key(c, r)));
+				if (cell != null) {
+					for (Component comp : cell) {
+						if (meets(indexed.get(comp), bds))
+							ret.add(comp);
+					}
+				}
+			}
+		}
+		for (Component comp : large) {
+			if (meets(indexed.get(comp), bds))
+				ret.add(comp);
+		}
+		return ret;
+	}
+
+	private boolean meets(Bounds a, Bounds b) {
+		return a.getX() <= b.getX() + b.getWidth() && b.getX() <= a.getX() + a.getWidth()
+				&& a.getY() <= b.getY() + b.getHeight() && b.getY() <= a.getY() + a.getHeight();
+	}
+
+	void remove(Component comp) {
+		Bounds bds = indexed.remove(comp);
+		if (bds == null)
+			return;
+		int c0 = bds.getX() >> CELL_SHIFT;
+		int r0 = bds.getY() >> CELL_SHIFT;
+		int c1 = (bds.getX() + bds.getWidth()) >> CELL_SHIFT;
+		int r1 = (bds.getY() + bds.getHeight()) >> CELL_SHIFT;
+		if ((long) (c1 - c0 + 1) * (r1 - r0 + 1) > MAX_CELLS) {
+			large.remove(comp);
+			return;
+		}
+		for (int c = c0; c <= c1; c++) {
+			for (int r = r0; r <= r1; r++) {
+				Long k = Long.valueOf(key(c, r));
+				ArrayList<Component> cell = cells.get(k);
+				if (cell != null) {
+					cell.remove(comp);
+					if (cell.isEmpty())
+						cells.remove(k);
+				}
+			}
+		}
+	}
+
+	/** Re-indexes a component whose bounds may have changed. */
+	void update(Component comp, Bounds bds) {
+		Bounds old = indexed.get(comp);
+		if (old != null && !old.equals(bds))
+			add(comp, bds);
+	}
+}
@@ -0,0 +1,147 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.circuit;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.cburch.logisim.comp.Component;
+
+/**
+ * Numbers the components of a circuit densely from 0, so that each
+ * <code>CircuitState</code> can keep its components' data in an array rather
+ * than a map. A component's number is released when it is removed from the
+ * circuit and handed to the next component added, so the numbers stay as few
+ * as the components; a state sets a removed component's data aside itself,
+ * for the end of the edit to hand to the component's replacement.
+ *
+ * The circuit numbers and releases components on the thread editing the
+ * circuit, under this object's lock. Numbers are looked up without it, from
+ * the simulator's threads as well: an assignment fills a slot's number before
+ * publishing its key, a release leaves a marker in the slot so that lookups
+ * probe past it, and a full table is replaced rather than grown.
+ */
+class ComponentIndex {
+	private static class Table {
+		private final AtomicReferenceArray<Object> keys;
+		private final int[] indices;
+		private int used = 0; // slots holding a component or REMOVED
+
+		private Table(int capacity) {
+			keys = new AtomicReferenceArray<Object>(capacity);
+			indices = new int[capacity];
+		}
+	}
+
+	private static final int MIN_CAPACITY = 16;
+	private static final Object REMOVED = new Object();
+
+	private volatile Table table = new Table(MIN_CAPACITY);
+	private int size = 0;
+	private int count = 0; // components currently numbered
+	private int[] free = new int[8]; // released numbers, for reuse
+	private int freeCount = 0;
+
+	/** Returns the component's number, assigning one if it has none yet. */
+	synchronized int add(Component comp) {
+		int ret = get(comp);
+		if (ret >= 0)
+			return ret;
+
+		if (freeCount > 0) {
+			freeCount--;
+			ret = free[freeCount];
+		} else {
+			ret = size;
+			size++;
+		}
+		count++;
+		if (2 * (table.used + 1) > table.keys.length()) {
+			// rebuilding drops the markers, and grows only as the
+			// components need
+			Table old = table;
+			int capacity = MIN_CAPACITY;
+			while (4 * count > capacity)
+				capacity *= 2;
+			Table rebuilt = new Table(capacity);
+			for (int i = 0; i < old.keys.length(); i++) {
+				Object key = old.keys.get(i);
+				if (key != null && key != REMOVED)
+					insert(rebuilt, (Component) key, old.indices[i]);
+			}
+			table = rebuilt;
+		}
+		insert(table, comp, ret);
+		return ret;
+	}
+
+	/** Releases the numbers of all components, as the circuit is cleared. */
+	synchronized void clear() {
+		table = new Table(MIN_CAPACITY);
+		size = 0;
+		count = 0;
+		freeCount = 0;
+	}
+
+	/** Returns the component's number, or -1 if it has none. */
+	int get(Component comp) {
+		Table t = table;
+		AtomicReferenceArray<Object> keys = t.keys;
+		int mask = keys.length() - 1;
+		for (int i = slot(comp, mask); true; i = (i + 1) & mask) {
+			Object key = keys.get(i);
+			if (key == null)
+				return -1;
+			if (key == comp || (key != REMOVED && key.equals(comp)))
+				return t.indices[i];
+		}
+	}
+
+	private void insert(Table t, Component comp, int index) {
+		int mask = t.keys.length() - 1;
+		int i = slot(comp, mask);
+		Object key = t.keys.get(i);
+		while (key != null && key != REMOVED) {
+			i = (i + 1) & mask;
+			key = t.keys.get(i);
+		}
+		if (key == null)
+			t.used++;
+		t.indices[i] = index;
+		t.keys.set(i, comp);
+	}
+
+	/** Releases the component's number, if it has one, for reuse. */
+	synchronized void remove(Component comp) {
+		Table t = table;
+		AtomicReferenceArray<Object> keys = t.keys;
+		int mask = keys.length() - 1;
+		for (int i = slot(comp, mask); true; i = (i + 1) & mask) {
+			Object key = keys.get(i);
+			if (key == null)
+				return;
+			if (key == comp || (key != REMOVED && key.equals(comp))) {
+				keys.set(i, REMOVED);
+				count--;
+				if (freeCount == free.length) {
+					int[] bigger = new int[2 * free.length];
+					System.arraycopy(free, 0, bigger, 0, freeCount);
+					free = bigger;
+				}
+				free[freeCount] = t.indices[i];
+				freeCount++;
+				return;
+			}
+		}
+	}
+
+	/** Returns one more than the largest number assigned. */
+	synchronized int size() {
+		return size;
+	}
+
+	private int slot(Component comp, int mask) {
+		int h = comp.hashCode() * 0x9E3779B9;
+		return (h ^ (h >>> 16)) & mask;
+	}
+}
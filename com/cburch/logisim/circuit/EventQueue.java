@@ -0,0 +1,23 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.circuit;
+
+import com.cburch.logisim.circuit.Propagator.SetData;
+
+/**
+ * The queue of pending value changes used by a {@link Propagator}. Events must
+ * be returned in the order defined by {@link SetData#compareTo}: first by
+ * time, then by serial number.
+ */
+interface EventQueue {
+	public void add(SetData data);
+
+	public void clear();
+
+	public boolean isEmpty();
+
+	public SetData peek();
+
+	public SetData remove();
+}
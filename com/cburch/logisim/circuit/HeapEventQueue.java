@@ -0,0 +1,41 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.circuit;
+
+import java.util.PriorityQueue;
+
+import com.cburch.logisim.circuit.Propagator.SetData;
+
+/**
+ * The original event queue, a binary heap of events. It is kept so that the
+ * timing wheel can be compared against it.
+ */
+class HeapEventQueue implements EventQueue {
+	private PriorityQueue<SetData> heap = new PriorityQueue<SetData>();
+
+	@Override
+	public void add(SetData data) {
+		heap.add(data);
+	}
+
+	@Override
+	public void clear() {
+		heap.clear();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return heap.isEmpty();
+	}
+
+	@Override
+	public SetData peek() {
+		return heap.peek();
+	}
+
+	@Override
+	public SetData remove() {
+		return heap.poll();
+	}
+}
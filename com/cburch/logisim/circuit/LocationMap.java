@@ -0,0 +1,192 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.circuit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import com.cburch.logisim.data.Location;
+
+/**
+ * A map from locations to non-null values, kept in parallel arrays with open
+ * addressing. Each key is the location's coordinates packed into a long and
+ * scattered by a multiplicative hash, since <code>Location.hashCode</code>
+ * clusters points lying on the same grid. Compared to a
+ * <code>HashMap</code>, it allocates nothing per entry.
+ *
+ * Slots may be scanned from 0 to <code>getSlotCount() - 1</code>; a slot is
+ * occupied if <code>getValueAt</code> returns non-null there.
+ */
+class LocationMap<V> {
+	private static final int MIN_CAPACITY = 8;
+	private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+	// the values array holds only what put stored, all of them Vs
+	@SuppressWarnings("unchecked")
+	private static <V> V cast(Object value) {
+		return (V) value;
+	}
+
+	private static long pack(int x, int y) {
+		return ((long) x << 32) | (y & 0xFFFFFFFFL);
+	}
+
+	private long[] keys;
+	private Object[] values;
+	private int size = 0;
+	private int shift; // 64 minus the base-2 logarithm of the capacity
+
+	LocationMap() {
+		allocate(MIN_CAPACITY);
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		values = new Object[capacity];
+		shift = 64 - Integer.numberOfTrailingZeros(capacity);
+	}
+
+	void clear() {
+		if (size > 0) {
+			if (values.length > MIN_CAPACITY) {
+				allocate(MIN_CAPACITY);
+			} else {
+				Arrays.fill(values, null);
+			}
+			size = 0;
+		}
+	}
+
+	LocationMap<V> copy() {
+		LocationMap<V> ret = new LocationMap<V>();
+		ret.keys = keys.clone();
+		ret.values = values.clone();
+		ret.size = size;
+		ret.shift = shift;
+		return ret;
+	}
+
+	// returns the slot holding the key, or the empty slot where it belongs
+	private int find(long key) {
+		int mask = values.length - 1;
+		int i = (int) ((key * HASH_MULTIPLIER) >>> shift);
+		while (values[i] != null && keys[i] != key) {
+			i = (i + 1) & mask;
+		}
+		return i;
+	}
+
+	V get(Location loc) {
+		// may be called from the GUI thread while the simulator resizes the
+		// arrays, so it works from one consistent pair
+		long[] ks = keys;
+		Object[] vals = values;
+		if (ks.length != vals.length)
+			return null;
+		long key = pack(loc.getX(), loc.getY());
+		int mask = vals.length - 1;
+		int i = (int) ((key * HASH_MULTIPLIER) >>> (64 - Integer.numberOfTrailingZeros(vals.length)));
+		for (Object v = vals[i]; v != null; v = vals[i]) {
+			if (ks[i] == key)
+				return cast(v);
+			i = (i + 1) & mask;
+		}
+		return null;
+	}
+
+	Location getKeyAt(int slot) {
+		long key = keys[slot];
+		return Location.create((int) (key >> 32), (int) key);
+	}
+
+	/** Returns an estimate of the bytes taken by this map's arrays. */
+	long getMemoryUsage() {
+		// array headers, and a compressed reference per value
+		return 32 + 12L * values.length;
+	}
+
+	int getSlotCount() {
+		return values.length;
+	}
+
+	V getValueAt(int slot) {
+		return cast(values[slot]);
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	/** Returns the keys of the map, for callers who would remove some. */
+	ArrayList<Location> keyList() {
+		ArrayList<Location> ret = new ArrayList<Location>(size);
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] != null)
+				ret.add(getKeyAt(i));
+		}
+		return ret;
+	}
+
+	V put(Location loc, V value) {
+		if (value == null)
+			throw new IllegalArgumentException("null value");
+		long key = pack(loc.getX(), loc.getY());
+		int i = find(key);
+		Object old = values[i];
+		keys[i] = key;
+		values[i] = value;
+		if (old == null) {
+			size++;
+			if (3 * size > 2 * values.length)
+				resize(2 * values.length);
+		}
+		return cast(old);
+	}
+
+	V remove(Location loc) {
+		int i = find(pack(loc.getX(), loc.getY()));
+		Object old = values[i];
+		if (old == null)
+			return null;
+		size--;
+
+		// shift later members of the cluster back over the gap, so that
+		// lookups need no tombstones
+		int mask = values.length - 1;
+		int gap = i;
+		for (int j = (i + 1) & mask; values[j] != null; j = (j + 1) & mask) {
+			int home = (int) ((keys[j] * HASH_MULTIPLIER) >>> shift);
+			if (((j - home) & mask) >= ((j - gap) & mask)) {
+				keys[gap] = keys[j];
+				values[gap] = values[j];
+				gap = j;
+			}
+		}
+		values[gap] = null;
+		return cast(old);
+	}
+
+	private void resize(int capacity) {
+		long[] oldKeys = keys;
+		Object[] oldValues = values;
+		allocate(capacity);
+		for (int i = 0; i < oldValues.length; i++) {
+			if (oldValues[i] != null) {
+				int j = find(oldKeys[i]);
+				keys[j] = oldKeys[i];
+				values[j] = oldValues[i];
+			}
+		}
+	}
+
+	void setValueAt(int slot, V value) {
+		if (value == null || values[slot] == null)
+			throw new IllegalArgumentException("slot not occupied");
+		values[slot] = value;
+	}
+
+	int size() {
+		return size;
+	}
+}
@@ -0,0 +1,252 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.circuit;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.data.Value;
+
+/**
+ * Processes the dirty points and components of a tree of CircuitStates on
+ * several threads. Whenever a state has at least two substates, each substate's
+ * subtree becomes a separate fork-join task.
+ * 
+ * Everything a task does that is visible outside of its own subtree - scheduling
+ * values with the Propagator, touching oscillation points, firing circuit
+ * events, and propagating a subcircuit in its parent state after one of its
+ * pins changes - is recorded in the task's log rather than performed. Once all tasks
+ * finish, the logs are replayed in the same depth-first order in which the
+ * serial engine visits the states, so that serial numbers, random noise, and
+ * therefore all simulation results are exactly those of the serial engine.
+ * 
+ * A pass falls back to the serial engine on a single processor, when a subtree
+ * might change the shape of the tree (a subcircuit whose state doesn't exist
+ * yet), when a wire bundle map has to be recomputed, or when a dirty
+ * component's factory declares <code>SERIAL_PROPAGATION</code>, as one whose
+ * propagation changes what all its states share does.
+ */
+class ParallelPropagation {
+	private static class Log {
+		private ArrayList<Object> ops = new ArrayList<Object>();
+
+		void addAll(Log other) {
+			ops.addAll(other.ops);
+		}
+	}
+
+	private static class ParentOp {
+		CircuitState state;
+	}
+
+	private static class SetValueOp {
+		CircuitState state;
+		Location loc;
+		Value val;
+		Component cause;
+		int delay;
+	}
+
+	private static class TouchOp {
+		CircuitState state;
+		Location loc;
+	}
+
+	private class Task extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private CircuitState state;
+		private boolean points;
+		private Log log = new Log();
+
+		Task(CircuitState state, boolean points) {
+			this.state = state;
+			this.points = points;
+		}
+
+		@Override
+		protected void compute() {
+			process(state);
+		}
+
+		private void process(CircuitState s) {
+			Log old = CURRENT.get();
+			CURRENT.set(log);
+			try {
+				if (points)
+					s.processOwnDirtyPoints();
+				else
+					s.processOwnDirtyComponents();
+			} finally {
+				CURRENT.set(old);
+			}
+
+			CircuitState[] subs = s.getSubstateArray();
+			if (subs.length >= 2) {
+				Task[] tasks = new Task[subs.length];
+				for (int i = 0; i < subs.length; i++) {
+					tasks[i] = new Task(subs[i], points);
+				}
+				invokeAll(tasks);
+				for (Task t : tasks) {
+					log.addAll(t.log);
+				}
+			} else {
+				for (CircuitState sub : subs) {
+					process(sub);
+				}
+			}
+		}
+	}
+
+	private static final ThreadLocal<Log> CURRENT = new ThreadLocal<Log>();
+	private static ForkJoinPool pool = null;
+
+	/**
+	 * Records a circuit event fired while propagating on a worker thread, to be
+	 * delivered when the task's log is replayed. Returns false if the current
+	 * thread isn't running a task, in which case the event should be fired as
+	 * usual.
+	 */
+	static boolean deferEvent(Circuit circuit, CircuitEvent event) {
+		Log log = CURRENT.get();
+		if (log == null)
+			return false;
+		log.ops.add(event);
+		return true;
+	}
+
+	private static synchronized ForkJoinPool getPool() {
+		if (pool == null) {
+			pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+		}
+		return pool;
+	}
+
+	private Propagator prop;
+	private volatile boolean active = false;
+
+	ParallelPropagation(Propagator prop) {
+		this.prop = prop;
+	}
+
+	private boolean canRunInParallel(CircuitState state, boolean points) {
+		if (points ? !state.isWiringCurrent() : state.hasParallelHazard())
+			return false;
+		for (CircuitState sub : state.getSubstateArray()) {
+			if (!canRunInParallel(sub, points))
+				return false;
+		}
+		return true;
+	}
+
+	private boolean hasFanOut(CircuitState state) {
+		if (getPool().getParallelism() < 2)
+			return false; // nothing to gain on a single processor
+		CircuitState[] subs = state.getSubstateArray();
+		if (subs.length >= 2)
+			return true;
+		for (CircuitState sub : subs) {
+			if (hasFanOut(sub))
+				return true;
+		}
+		return false;
+	}
+
+	void processDirtyComponents(CircuitState root) {
+		if (hasFanOut(root) && canRunInParallel(root, false)) {
+			run(root, false);
+		} else {
+			root.processDirtyComponents();
+		}
+	}
+
+	void processDirtyPoints(CircuitState root) {
+		if (hasFanOut(root) && canRunInParallel(root, true)) {
+			run(root, true);
+		} else {
+			root.processDirtyPoints();
+		}
+	}
+
+	/**
+	 * Records a call to Propagator.locationTouched if the current thread is
+	 * running a task, returning false otherwise.
+	 */
+	boolean recordLocationTouched(CircuitState state, Location loc) {
+		if (!active)
+			return false;
+		Log log = CURRENT.get();
+		if (log == null)
+			return false;
+		TouchOp op = new TouchOp();
+		op.state = state;
+		op.loc = loc;
+		log.ops.add(op);
+		return true;
+	}
+
+	/**
+	 * Records a call to CircuitState.propagateInParent if the current thread is
+	 * running a task, returning false otherwise. The parent state belongs to
+	 * another task, or to none, so the call waits for the log's replay.
+	 */
+	boolean recordParentPropagation(CircuitState state) {
+		if (!active)
+			return false;
+		Log log = CURRENT.get();
+		if (log == null)
+			return false;
+		ParentOp op = new ParentOp();
+		op.state = state;
+		log.ops.add(op);
+		return true;
+	}
+
+	/**
+	 * Records a call to Propagator.setValue if the current thread is running a
+	 * task, returning false otherwise.
+	 */
+	boolean recordSetValue(CircuitState state, Location loc, Value val, Component cause, int delay) {
+		if (!active)
+			return false;
+		Log log = CURRENT.get();
+		if (log == null)
+			return false;
+		SetValueOp op = new SetValueOp();
+		op.state = state;
+		op.loc = loc;
+		op.val = val;
+		op.cause = cause;
+		op.delay = delay;
+		log.ops.add(op);
+		return true;
+	}
+
+	private void run(CircuitState root, boolean points) {
+		Task task = new Task(root, points);
+		active = true;
+		try {
+			getPool().invoke(task);
+		} finally {
+			active = false;
+		}
+		for (Object op : task.log.ops) {
+			if (op instanceof SetValueOp) {
+				SetValueOp s = (SetValueOp) op;
+				prop.setValue(s.state, s.loc, s.val, s.cause, s.delay);
+			} else if (op instanceof TouchOp) {
+				TouchOp t = (TouchOp) op;
+				prop.locationTouched(t.state, t.loc);
+			} else if (op instanceof ParentOp) {
+				((ParentOp) op).state.propagateInParent();
+			} else {
+				CircuitEvent event = (CircuitEvent) op;
+				event.getCircuit().fireEvent(event);
+			}
+		}
+	}
+}
@@ -4,9 +4,9 @@
 package com.cburch.logisim.circuit;
 
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.PriorityQueue;
 import java.util.Random;
 
 import com.cburch.logisim.comp.Component;
@@ -17,6 +17,7 @@ import com.cburch.logisim.data.AttributeListener;
 import com.cburch.logisim.data.Location;
 import com.cburch.logisim.data.Value;
 import com.cburch.logisim.file.Options;
+import com.cburch.logisim.prefs.AppPreferences;
 
 public class Propagator {
 	private static class ComponentPoint {
@@ -72,6 +73,7 @@ public class Propagator {
 		Location loc; // the location at which value is emitted
 		Value val; // value being emitted
 		SetData next = null;
+		SetData queueNext = null; // used by TimingWheelEventQueue
 
 		private SetData(int time, int serialNumber, CircuitState state, Location loc, Component cause, Value val) {
 			this.time = time;
@@ -137,12 +139,22 @@ public class Propagator {
 	 * Logisim (though they wouldn't oscillate in practice).
 	 */
 	private volatile int simRandomShift;
-	private PriorityQueue<SetData> toProcess = new PriorityQueue<SetData>();
+	private EventQueue toProcess;
+	/**
+	 * The points handled during the current step, or null if the legacy queue is
+	 * in use, in which case a fresh HashMap is built for every step and SetData
+	 * objects are never recycled.
+	 */
+	private VisitedPoints visited;
+	private SetData freeSetData = null; // recycled SetData, linked by next
+	private ParallelPropagation parallel; // null unless substates run in parallel
+	private volatile SimulationProfile profile = null; // null unless profiling
 	private int clock = 0;
 	private boolean isOscillating = false;
 	private boolean oscAdding = false;
 	private PropagationPoints oscPoints = new PropagationPoints();
 	private int ticks = 0;
+	private ClockRegistry clocks;
 	private Random noiseSource = new Random();
 
 	private int noiseCount = 0;
@@ -152,18 +164,38 @@ public class Propagator {
 
 	public Propagator(CircuitState root) {
 		this.root = root;
+		this.clocks = new ClockRegistry(root);
+		if (AppPreferences.SIM_EVENT_QUEUE.get().equals(AppPreferences.SIM_QUEUE_LEGACY)) {
+			toProcess = new HeapEventQueue();
+			visited = null;
+		} else {
+			toProcess = new TimingWheelEventQueue();
+			visited = new VisitedPoints();
+		}
+		if (AppPreferences.SIM_PARALLEL.getBoolean()) {
+			parallel = new ParallelPropagation(this);
+		}
 		Listener l = new Listener(this);
 		root.getProject().getOptions().getAttributeSet().addAttributeListener(l);
 		updateRandomness();
 	}
 
-	private SetData addCause(CircuitState state, SetData head, SetData data) {
+	/**
+	 * Queues an event restored from a checkpoint, to happen
+	 * <code>delay</code> time steps from now. Restored events must be added
+	 * in the order they are to be processed.
+	 */
+	void addCheckpointEvent(CircuitState state, int delay, Location loc, Component cause, Value val) {
+		toProcess.add(allocSetData(clock + delay, state, loc, cause, val));
+	}
+
+	private SetData addCause(CircuitState state, int node, SetData head, SetData data) {
 		if (data.val == null) { // actually, it should be removed
-			return removeCause(state, head, data.loc, data.cause);
+			head = removeCause(state, node, head, data.loc, data.cause, true);
+			recycle(data);
+			return head;
 		}
 
-		HashMap<Location, SetData> causes = state.causes;
-
 		// first check whether this is change of previous info.
 		boolean replaced = false;
 		for (SetData n = head; n != null; n = n.next) {
@@ -173,11 +205,13 @@ public class Propagator {
 				break;
 			}
 		}
+		if (replaced)
+			recycle(data);
 
 		// otherwise, insert to list of causes
 		if (!replaced) {
 			if (head == null) {
-				causes.put(data.loc, data);
+				state.setCauses(data.loc, node, data);
 				head = data;
 			} else {
 				data.next = head.next;
@@ -191,29 +225,81 @@ public class Propagator {
 	//
 	// private methods
 	//
+	/**
+	 * Drops the values that the component emits, as when it is removed from its
+	 * circuit. The state calls this as it processes its points, which may be on
+	 * a worker thread of a parallel propagation rather than the simulator's, so
+	 * the entries removed are left to the garbage collector instead of going
+	 * back to the pool.
+	 */
 	void checkComponentEnds(CircuitState state, Component comp) {
 		for (EndData end : comp.getEnds()) {
 			Location loc = end.getLocation();
-			SetData oldHead = state.causes.get(loc);
+			int node = state.getNode(loc);
+			SetData oldHead = state.getCauses(loc, node);
 			Value oldVal = computeValue(oldHead);
-			SetData newHead = removeCause(state, oldHead, loc, comp);
+			SetData newHead = removeCause(state, node, oldHead, loc, comp, false);
 			Value newVal = computeValue(newHead);
 			Value wireVal = state.getValueByWire(loc);
 
 			if (!newVal.equals(oldVal) || wireVal != null) {
-				state.markPointAsDirty(loc);
+				state.markPointAsDirty(loc, node);
 			}
 			if (wireVal != null)
 				state.setValueByWire(loc, Value.NIL);
 		}
 	}
 
+	private SetData allocSetData(int time, CircuitState state, Location loc, Component cause, Value val) {
+		SetData ret = freeSetData;
+		if (ret == null) {
+			ret = new SetData(time, setDataSerialNumber, state, loc, cause, val);
+		} else {
+			freeSetData = ret.next;
+			ret.time = time;
+			ret.serialNumber = setDataSerialNumber;
+			ret.state = state;
+			ret.loc = loc;
+			ret.cause = cause;
+			ret.val = val;
+			ret.next = null;
+		}
+		setDataSerialNumber++;
+		return ret;
+	}
+
+	/** Discards the pending events, as when a checkpoint replaces them. */
+	void clearPendingEvents() {
+		while (!toProcess.isEmpty()) {
+			toProcess.remove();
+		}
+	}
+
 	private void clearDirtyComponents() {
-		root.processDirtyComponents();
+		if (parallel == null)
+			root.processDirtyComponents();
+		else
+			parallel.processDirtyComponents(root);
 	}
 
 	private void clearDirtyPoints() {
-		root.processDirtyPoints();
+		if (parallel == null)
+			root.processDirtyPoints();
+		else
+			parallel.processDirtyPoints(root);
+	}
+
+	/**
+	 * Notes that the clocks in the tree of states may have changed, so that
+	 * they are found again at the next tick.
+	 */
+	void clocksChanged() {
+		clocks.invalidate();
+	}
+
+	/** Creates an entry for a list of causes restored from a checkpoint. */
+	SetData createCheckpointCause(CircuitState state, Location loc, Component cause, Value val) {
+		return allocSetData(clock, state, loc, cause, val);
 	}
 
 	public void drawOscillatingPoints(ComponentDrawContext context) {
@@ -224,10 +310,43 @@ public class Propagator {
 	//
 	// public methods
 	//
+	public SimulationProfile getProfile() {
+		return profile;
+	}
+
 	CircuitState getRootState() {
 		return root;
 	}
 
+	/** Returns the time of the events most recently processed. */
+	public int getClock() {
+		return clock;
+	}
+
+	/**
+	 * Returns the pending events in the order they will be processed, leaving
+	 * them in the queue.
+	 */
+	ArrayList<SetData> getPendingEvents() {
+		ArrayList<SetData> ret = new ArrayList<SetData>();
+		while (!toProcess.isEmpty()) {
+			ret.add(toProcess.remove());
+		}
+		for (SetData data : ret) {
+			toProcess.add(data);
+		}
+		return ret;
+	}
+
+	/** Returns the number of SetData objects waiting in the pool for reuse. */
+	int getPoolSize() {
+		int ret = 0;
+		for (SetData n = freeSetData; n != null; n = n.next) {
+			ret++;
+		}
+		return ret;
+	}
+
 	public int getTickCount() {
 		return ticks;
 	}
@@ -268,11 +387,33 @@ public class Propagator {
 	 */
 
 	void locationTouched(CircuitState state, Location loc) {
+		if (parallel != null && parallel.recordLocationTouched(state, loc))
+			return;
 		if (oscAdding)
 			oscPoints.add(state, loc);
 	}
 
+	/**
+	 * Records that the subcircuit holding the state must be propagated in the
+	 * parent state, if the current thread is running a parallel task. Returns
+	 * false otherwise, in which case the caller should propagate it at once.
+	 */
+	boolean recordParentPropagation(CircuitState state) {
+		return parallel != null && parallel.recordParentPropagation(state);
+	}
+
 	public void propagate() {
+		SimulationProfile prof = profile;
+		if (prof == null) {
+			propagateInternal();
+		} else {
+			long start = System.nanoTime();
+			propagateInternal();
+			prof.recordPropagate(System.nanoTime() - start);
+		}
+	}
+
+	private void propagateInternal() {
 		oscPoints.clear();
 		clearDirtyPoints();
 		clearDirtyComponents();
@@ -299,22 +440,40 @@ public class Propagator {
 		oscPoints.clear();
 	}
 
-	private SetData removeCause(CircuitState state, SetData head, Location loc, Component cause) {
-		HashMap<Location, SetData> causes = state.causes;
+	/**
+	 * Returns a SetData that is no longer referenced by the queue or by any list
+	 * of causes to the pool, if pooling is enabled. The pool belongs to the
+	 * simulator's thread, which alone may call this.
+	 */
+	private void recycle(SetData data) {
+		if (visited == null)
+			return;
+		data.state = null;
+		data.cause = null;
+		data.loc = null;
+		data.val = null;
+		data.next = freeSetData;
+		freeSetData = data;
+	}
+
+	private SetData removeCause(CircuitState state, int node, SetData head, Location loc, Component cause,
+			boolean pooled) {
 		if (head == null) {
 			;
 		} else if (head.cause == cause) {
+			SetData removed = head;
 			head = head.next;
-			if (head == null)
-				causes.remove(loc);
-			else
-				causes.put(loc, head);
+			state.setCauses(loc, node, head);
+			if (pooled)
+				recycle(removed);
 		} else {
 			SetData prev = head;
 			SetData cur = head.next;
 			while (cur != null) {
 				if (cur.cause == cause) {
 					prev.next = cur.next;
+					if (pooled)
+						recycle(cur);
 					break;
 				}
 				prev = cur;
@@ -324,18 +483,39 @@ public class Propagator {
 		return head;
 	}
 
-	void reset() {
+	public void reset() {
 		toProcess.clear();
+		clocks.invalidate();
+		if (visited != null)
+			visited.clear();
+		freeSetData = null;
 		root.reset();
 		isOscillating = false;
 	}
 
+	/**
+	 * Attaches a profile to count the work done by later propagation, or
+	 * detaches the current one if <code>value</code> is null.
+	 */
+	public void setProfile(SimulationProfile value) {
+		profile = value;
+	}
+
 	//
 	// package-protected helper methods
 	//
+	void setTickCount(int value) {
+		ticks = value;
+	}
+
 	void setValue(CircuitState state, Location pt, Value val, Component cause, int delay) {
 		if (cause instanceof Wire || cause instanceof Splitter)
 			return;
+		if (parallel != null && parallel.recordSetValue(state, pt, val, cause, delay))
+			return;
+		SimulationProfile prof = profile;
+		if (prof != null)
+			prof.recordEvent(state, cause);
 		if (delay <= 0) {
 			delay = 1;
 		}
@@ -353,13 +533,20 @@ public class Propagator {
 				}
 			}
 		}
-		toProcess.add(new SetData(clock + delay, setDataSerialNumber, state, pt, cause, val));
+		toProcess.add(allocSetData(clock + delay, state, pt, cause, val));
 		/*
 		 * DEBUGGING - comment out Simulator.log(clock + ": set " + pt + " in " + state
 		 * + " to " + val + " by " + cause + " after " + delay); //
 		 */
+	}
 
-		setDataSerialNumber++;
+	/**
+	 * Processes the events of the next time step, returning whether any
+	 * events remain afterwards.
+	 */
+	public boolean step() {
+		step(null);
+		return isPending();
 	}
 
 	void step(PropagationPoints changedPoints) {
@@ -383,23 +570,36 @@ public class Propagator {
 		clock = toProcess.peek().time;
 
 		// propagate all values for this clock tick
-		HashMap<CircuitState, HashSet<ComponentPoint>> visited = new HashMap<CircuitState, HashSet<ComponentPoint>>();
+		HashMap<CircuitState, HashSet<ComponentPoint>> legacyVisited = null;
+		if (visited == null) {
+			legacyVisited = new HashMap<CircuitState, HashSet<ComponentPoint>>();
+		} else {
+			visited.nextEpoch();
+		}
 		while (true) {
 			SetData data = toProcess.peek();
 			if (data == null || data.time != clock)
 				break;
 			toProcess.remove();
 			CircuitState state = data.state;
+			Location loc = data.loc;
 
 			// if it's already handled for this clock tick, continue
-			HashSet<ComponentPoint> handled = visited.get(state);
-			if (handled != null) {
-				if (!handled.add(new ComponentPoint(data.cause, data.loc)))
+			if (legacyVisited == null) {
+				if (!visited.add(state, data.cause, loc)) {
+					recycle(data);
 					continue;
+				}
 			} else {
-				handled = new HashSet<ComponentPoint>();
-				visited.put(state, handled);
-				handled.add(new ComponentPoint(data.cause, data.loc));
+				HashSet<ComponentPoint> handled = legacyVisited.get(state);
+				if (handled != null) {
+					if (!handled.add(new ComponentPoint(data.cause, loc)))
+						continue;
+				} else {
+					handled = new HashSet<ComponentPoint>();
+					legacyVisited.put(state, handled);
+					handled.add(new ComponentPoint(data.cause, loc));
+				}
 			}
 
 			/*
@@ -408,17 +608,18 @@ public class Propagator {
 			 */
 
 			if (changedPoints != null)
-				changedPoints.add(state, data.loc);
+				changedPoints.add(state, loc);
 
-			// change the information about value
-			SetData oldHead = state.causes.get(data.loc);
+			// change the information about value; data may be recycled
+			int node = state.getNode(loc);
+			SetData oldHead = state.getCauses(loc, node);
 			Value oldVal = computeValue(oldHead);
-			SetData newHead = addCause(state, oldHead, data);
+			SetData newHead = addCause(state, node, oldHead, data);
 			Value newVal = computeValue(newHead);
 
 			// if the value at point has changed, propagate it
 			if (!newVal.equals(oldVal)) {
-				state.markPointAsDirty(data.loc);
+				state.markPointAsDirty(loc, node);
 			}
 		}
 
@@ -428,7 +629,7 @@ public class Propagator {
 
 	public boolean tick() {
 		ticks++;
-		return root.tick(ticks);
+		return clocks.tick(ticks);
 	}
 
 	@Override
@@ -0,0 +1,168 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.circuit;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.ComponentFactory;
+
+/**
+ * Counts where a simulation spends its effort. While a profile is attached to
+ * a <code>Propagator</code>, it records the events each component schedules,
+ * each call to a component's <code>propagate</code> method along with the time
+ * spent in it, and each recomputation of wire threads, totalled both by
+ * component factory and by subcircuit instance. An instance's entry also
+ * reports the memory its state's tables take. The counters may be updated
+ * from several threads at once when substates propagate in parallel.
+ */
+public class SimulationProfile {
+	public static class Entry {
+		private final String name;
+		private final CircuitState state; // null for a factory's entry
+		private final LongAdder events = new LongAdder();
+		private final LongAdder propagations = new LongAdder();
+		private final LongAdder wireThreads = new LongAdder();
+		private final LongAdder nanos = new LongAdder();
+
+		private Entry(String name, CircuitState state) {
+			this.name = name;
+			this.state = state;
+		}
+
+		public long getEvents() {
+			return events.sum();
+		}
+
+		/**
+		 * Returns an estimate of the bytes taken by the circuit instance's
+		 * tables, or -1 for a component factory's entry.
+		 */
+		public long getMemoryUsage() {
+			return state == null ? -1 : state.getMemoryUsage();
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public long getNanos() {
+			return nanos.sum();
+		}
+
+		public long getPropagations() {
+			return propagations.sum();
+		}
+
+		public long getWireThreads() {
+			return wireThreads.sum();
+		}
+	}
+
+	private static final Comparator<Entry> BY_TIME = new Comparator<Entry>() {
+		@Override
+		public int compare(Entry a, Entry b) {
+			long ta = a.getNanos();
+			long tb = b.getNanos();
+			if (ta != tb)
+				return ta > tb ? -1 : 1;
+			return a.getName().compareTo(b.getName());
+		}
+	};
+
+	private static String getPath(CircuitState state) {
+		Component comp = state.getSubcircuit();
+		String name = state.getCircuit().getName();
+		if (comp == null)
+			return name;
+		CircuitState parent = state.getParentState();
+		return (parent == null ? "" : getPath(parent) + "/") + name + comp.getLocation();
+	}
+
+	private final ConcurrentHashMap<ComponentFactory, Entry> factories = new ConcurrentHashMap<ComponentFactory, Entry>();
+	private final ConcurrentHashMap<CircuitState, Entry> states = new ConcurrentHashMap<CircuitState, Entry>();
+	private final LongAdder propagateCalls = new LongAdder();
+	private final LongAdder propagateNanos = new LongAdder();
+
+	public void clear() {
+		factories.clear();
+		states.clear();
+		propagateCalls.reset();
+		propagateNanos.reset();
+	}
+
+	private Entry getEntry(ComponentFactory factory) {
+		Entry ret = factories.get(factory);
+		if (ret == null) {
+			Entry e = new Entry(factory.getDisplayName(), null);
+			ret = factories.putIfAbsent(factory, e);
+			if (ret == null)
+				ret = e;
+		}
+		return ret;
+	}
+
+	private Entry getEntry(CircuitState state) {
+		Entry ret = states.get(state);
+		if (ret == null) {
+			Entry e = new Entry(getPath(state), state);
+			ret = states.putIfAbsent(state, e);
+			if (ret == null)
+				ret = e;
+		}
+		return ret;
+	}
+
+	/** Returns the totals for each component factory, most costly first. */
+	public List<Entry> getFactoryEntries() {
+		List<Entry> ret = new ArrayList<Entry>(factories.values());
+		Collections.sort(ret, BY_TIME);
+		return ret;
+	}
+
+	public long getPropagateCalls() {
+		return propagateCalls.sum();
+	}
+
+	public long getPropagateNanos() {
+		return propagateNanos.sum();
+	}
+
+	/** Returns the totals for each circuit instance, most costly first. */
+	public List<Entry> getStateEntries() {
+		List<Entry> ret = new ArrayList<Entry>(states.values());
+		Collections.sort(ret, BY_TIME);
+		return ret;
+	}
+
+	void recordEvent(CircuitState state, Component cause) {
+		getEntry(cause.getFactory()).events.increment();
+		getEntry(state).events.increment();
+	}
+
+	void recordPropagate(long nanos) {
+		propagateCalls.increment();
+		propagateNanos.add(nanos);
+	}
+
+	void recordPropagation(CircuitState state, Component comp, long nanos) {
+		Entry f = getEntry(comp.getFactory());
+		f.propagations.increment();
+		f.nanos.add(nanos);
+		Entry s = getEntry(state);
+		s.propagations.increment();
+		s.nanos.add(nanos);
+	}
+
+	void recordWires(CircuitState state, int threads, long nanos) {
+		Entry s = getEntry(state);
+		s.wireThreads.add(threads);
+		s.nanos.add(nanos);
+	}
+}
@@ -24,11 +24,13 @@ public class Simulator {
 	class PropagationManager extends Thread {
 		private Propagator propagator = null;
 		private PropagationPoints stepPoints = new PropagationPoints();
+		private ArrayList<Runnable> tasks = new ArrayList<Runnable>();
 		private volatile int ticksRequested = 0;
 		private volatile int stepsRequested = 0;
 		private volatile boolean resetRequested = false;
 		private volatile boolean propagateRequested = false;
 		private volatile boolean complete = false;
+		private volatile long tickCount = 0;
 
 		// These variables apply only if PRINT_TICK_RATE is set
 		int tickRateTicks = 0;
@@ -39,12 +41,21 @@ public class Simulator {
 				ticksRequested--;
 			}
 			propagator.tick();
+			tickCount++;
 		}
 
 		public Propagator getPropagator() {
 			return propagator;
 		}
 
+		private synchronized boolean hasTasks() {
+			return !tasks.isEmpty();
+		}
+
+		private boolean isTurboActive() {
+			return isTurbo() && isRunning && isTicking && propagator != null;
+		}
+
 		public synchronized void requestPropagate() {
 			if (!propagateRequested) {
 				propagateRequested = true;
@@ -59,6 +70,11 @@ public class Simulator {
 			}
 		}
 
+		public synchronized void requestTask(Runnable task) {
+			tasks.add(task);
+			notifyAll();
+		}
+
 		public synchronized void requestTick() {
 			if (ticksRequested < 16) {
 				ticksRequested++;
@@ -70,8 +86,8 @@ public class Simulator {
 		public void run() {
 			while (!complete) {
 				synchronized (this) {
-					while (!complete && !propagateRequested && !resetRequested && ticksRequested == 0
-							&& stepsRequested == 0) {
+					while (!complete && !propagateRequested && !resetRequested && tasks.isEmpty()
+							&& ticksRequested == 0 && stepsRequested == 0 && !isTurboActive()) {
 						try {
 							wait();
 						} catch (InterruptedException e) {
@@ -87,6 +103,13 @@ public class Simulator {
 					propagateRequested |= isRunning;
 				}
 
+				runTasks();
+
+				if (isTurboActive()) {
+					runTurbo();
+					continue;
+				}
+
 				if (propagateRequested || ticksRequested > 0 || stepsRequested > 0) {
 					boolean ticked = false;
 					propagateRequested = false;
@@ -143,6 +166,58 @@ public class Simulator {
 			}
 		}
 
+		// Runs the tasks requested of the simulator thread, between steps of
+		// the propagation.
+		private void runTasks() {
+			Runnable[] toRun;
+			synchronized (this) {
+				if (tasks.isEmpty())
+					return;
+				toRun = tasks.toArray(new Runnable[tasks.size()]);
+				tasks.clear();
+			}
+			for (Runnable task : toRun) {
+				try {
+					task.run();
+				} catch (Throwable thr) {
+					thr.printStackTrace();
+				}
+			}
+			firePropagationCompleted();
+		}
+
+		// Ticks the clock as fast as the circuit allows, rather than waiting
+		// for the ticker, and tells listeners of the progress only once per
+		// frame so that they do not slow the simulation down.
+		private void runTurbo() {
+			synchronized (this) {
+				ticksRequested = 0;
+			}
+			long nextFrame = System.currentTimeMillis() + TURBO_FRAME_MILLIS;
+			while (!complete && !resetRequested && !hasTasks() && isTurboActive()) {
+				propagateRequested = false;
+				try {
+					exceptionEncountered = false;
+					propagator.tick();
+					tickCount++;
+					propagator.propagate();
+				} catch (Throwable thr) {
+					thr.printStackTrace();
+					exceptionEncountered = true;
+					setIsRunning(false);
+				}
+				if (isOscillating())
+					setIsRunning(false);
+
+				long now = System.currentTimeMillis();
+				if (now >= nextFrame || !isTurboActive()) {
+					nextFrame = now + TURBO_FRAME_MILLIS;
+					fireTickCompleted();
+					firePropagationCompleted();
+				}
+			}
+		}
+
 		public void setPropagator(Propagator value) {
 			propagator = value;
 		}
@@ -151,12 +226,24 @@ public class Simulator {
 			complete = true;
 			notifyAll();
 		}
+
+		synchronized void wakeUp() {
+			notifyAll();
+		}
 	}
 
-	private boolean isRunning = true;
-	private boolean isTicking = false;
+	/**
+	 * The tick frequency that asks the simulator to tick the clock as fast as it
+	 * can, with notifications to listeners limited to a fixed frame rate.
+	 */
+	public static final double TURBO_FREQUENCY = Double.POSITIVE_INFINITY;
+
+	private static final int TURBO_FRAME_MILLIS = 1000 / 30;
+
+	private volatile boolean isRunning = true;
+	private volatile boolean isTicking = false;
 	private boolean exceptionEncountered = false;
-	private double tickFrequency = 1.0;
+	private volatile double tickFrequency = 1.0;
 
 	private PropagationManager manager;
 	private SimulatorTicker ticker;
@@ -212,6 +299,11 @@ public class Simulator {
 		return prop == null ? null : prop.getRootState();
 	}
 
+	/** Returns the number of clock ticks the simulator has performed. */
+	public long getTickCount() {
+		return manager.tickCount;
+	}
+
 	public double getTickFrequency() {
 		return tickFrequency;
 	}
@@ -233,12 +325,17 @@ public class Simulator {
 		return isTicking;
 	}
 
+	public boolean isTurbo() {
+		return tickFrequency == TURBO_FREQUENCY;
+	}
+
 	public void removeSimulatorListener(SimulatorListener l) {
 		listeners.remove(l);
 	}
 
 	private void renewTickerAwake() {
-		ticker.setAwake(isRunning && isTicking && tickFrequency > 0);
+		ticker.setAwake(isRunning && isTicking && tickFrequency > 0 && !isTurbo());
+		manager.wakeUp();
 	}
 
 	public void requestPropagate() {
@@ -249,6 +346,14 @@ public class Simulator {
 		manager.requestReset();
 	}
 
+	/**
+	 * Asks the simulator's thread to run the task between steps of the
+	 * propagation, after which listeners hear that propagation completed.
+	 */
+	public void requestTask(Runnable task) {
+		manager.requestTask(task);
+	}
+
 	public void setCircuitState(CircuitState state) {
 		manager.setPropagator(state.getPropagator());
 		renewTickerAwake();
@@ -277,7 +382,10 @@ public class Simulator {
 		if (tickFrequency != freq) {
 			int millis = (int) Math.round(1000 / freq);
 			int ticks;
-			if (millis > 0) {
+			if (freq == TURBO_FREQUENCY) {
+				millis = 1000;
+				ticks = 1; // the ticker sleeps while in turbo mode
+			} else if (millis > 0) {
 				ticks = 1;
 			} else {
 				millis = 1;
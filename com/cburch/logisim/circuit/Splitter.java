@@ -68,12 +68,12 @@ public class Splitter extends ManagedComponent implements WireRepair, ToolTipMak
 
 		// compute width of each end
 		bit_thread = new byte[bit_end.length];
-		byte[] end_width = new byte[fanout + 1];
-		end_width[0] = (byte) bit_end.length;
+		int[] end_width = new int[fanout + 1];
+		end_width[0] = bit_end.length;
 		for (int i = 0; i < bit_end.length; i++) {
 			byte thr = bit_end[i];
 			if (thr > 0) {
-				bit_thread[i] = end_width[thr];
+				bit_thread[i] = (byte) end_width[thr];
 				end_width[thr]++;
 			} else {
 				bit_thread[i] = -1;
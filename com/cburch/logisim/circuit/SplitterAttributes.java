@@ -121,7 +121,7 @@ class SplitterAttributes extends AbstractAttributeSet {
 			Strings.getter("splitterBitWidthAttr"));
 
 	public static final Attribute<Integer> ATTR_FANOUT = Attributes.forIntegerRange("fanout",
-			Strings.getter("splitterFanOutAttr"), 1, 32);
+			Strings.getter("splitterFanOutAttr"), 1, 64);
 
 	private static final List<Attribute<?>> INIT_ATTRIBUTES = Arrays
 			.asList(new Attribute<?>[] { StdAttr.FACING, ATTR_FANOUT, ATTR_WIDTH, ATTR_APPEARANCE, });
@@ -314,9 +314,10 @@ public class SubcircuitFactory extends InstanceFactory {
 
 		CircuitAttributes attrs = (CircuitAttributes) superState.getAttributeSet();
 		Instance[] pins = attrs.getPinInstances();
+		InstanceState[] pinStates = subState.getPinStates(pins);
 		for (int i = 0; i < pins.length; i++) {
 			Instance pin = pins[i];
-			InstanceState pinState = subState.getInstanceState(pin);
+			InstanceState pinState = pinStates[i];
 			if (Pin.FACTORY.isInputPin(pin)) {
 				Value newVal = superState.getPort(i);
 				Value oldVal = Pin.FACTORY.getValue(pinState);
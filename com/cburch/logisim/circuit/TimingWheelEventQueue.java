@@ -0,0 +1,109 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.circuit;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+import com.cburch.logisim.circuit.Propagator.SetData;
+
+/**
+ * An event queue organized as a timing wheel. Events scheduled less than
+ * WHEEL_SIZE steps after the current time are appended to the bucket for their
+ * time, which costs no allocation and no comparisons; since events are added
+ * in serial number order, each bucket is already sorted. Events that fall
+ * outside of the wheel's window go into an overflow heap, which is consulted
+ * whenever the next event is requested.
+ */
+class TimingWheelEventQueue implements EventQueue {
+	private static final int WHEEL_BITS = 10;
+	private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+	private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+	private SetData[] heads = new SetData[WHEEL_SIZE];
+	private SetData[] tails = new SetData[WHEEL_SIZE];
+	private int wheelCount = 0;
+	// no event on the wheel is earlier than this time
+	private int now = 0;
+	private PriorityQueue<SetData> overflow = new PriorityQueue<SetData>();
+
+	@Override
+	public void add(SetData data) {
+		// Yes, this subtraction may overflow; see SetData.compareTo.
+		int dt = data.time - now;
+		if (dt >= 0 && dt < WHEEL_SIZE) {
+			int index = data.time & WHEEL_MASK;
+			data.queueNext = null;
+			if (tails[index] == null) {
+				heads[index] = data;
+			} else {
+				tails[index].queueNext = data;
+			}
+			tails[index] = data;
+			wheelCount++;
+		} else {
+			overflow.add(data);
+		}
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(heads, null);
+		Arrays.fill(tails, null);
+		wheelCount = 0;
+		overflow.clear();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return wheelCount == 0 && overflow.isEmpty();
+	}
+
+	@Override
+	public SetData peek() {
+		SetData wheelHead = peekWheel();
+		SetData heapHead = overflow.peek();
+		if (wheelHead == null) {
+			return heapHead;
+		} else if (heapHead == null || wheelHead.compareTo(heapHead) < 0) {
+			return wheelHead;
+		} else {
+			return heapHead;
+		}
+	}
+
+	private SetData peekWheel() {
+		if (wheelCount == 0)
+			return null;
+		int index = now & WHEEL_MASK;
+		while (heads[index] == null) {
+			index = (index + 1) & WHEEL_MASK;
+		}
+		// All events on the wheel are at least as late as this one, so the
+		// window can be moved forward; anything added before it later on
+		// goes into the overflow heap.
+		now = heads[index].time;
+		return heads[index];
+	}
+
+	@Override
+	public SetData remove() {
+		SetData ret = peek();
+		if (ret == null)
+			return null;
+		int index = ret.time & WHEEL_MASK;
+		if (heads[index] == ret) {
+			heads[index] = ret.queueNext;
+			if (heads[index] == null)
+				tails[index] = null;
+			ret.queueNext = null;
+			wheelCount--;
+		} else {
+			overflow.poll();
+			if (wheelCount == 0)
+				now = ret.time;
+		}
+		return ret;
+	}
+}
@@ -0,0 +1,106 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.circuit;
+
+import java.util.Arrays;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.Location;
+
+/**
+ * The set of (state, cause, location) triples already handled during one step
+ * of a {@link Propagator}. Entries live in an open-addressed table and are
+ * stamped with the step's epoch, so that starting a new step only requires
+ * incrementing the epoch rather than clearing or reallocating anything.
+ */
+class VisitedPoints {
+	private static final int INITIAL_CAPACITY = 64;
+
+	private CircuitState[] states;
+	private Component[] causes;
+	private Location[] locs;
+	private int[] stamps;
+	private int mask;
+	private int size = 0;
+	private int epoch = 1;
+
+	VisitedPoints() {
+		allocate(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * Records the given triple, returning false if it was already recorded
+	 * during the current epoch.
+	 */
+	boolean add(CircuitState state, Component cause, Location loc) {
+		int i = hash(state, cause, loc) & mask;
+		while (stamps[i] == epoch) {
+			if (states[i] == state && causes[i].equals(cause) && locs[i].equals(loc)) {
+				return false;
+			}
+			i = (i + 1) & mask;
+		}
+		states[i] = state;
+		causes[i] = cause;
+		locs[i] = loc;
+		stamps[i] = epoch;
+		size++;
+		if (2 * size > stamps.length)
+			grow();
+		return true;
+	}
+
+	private void allocate(int capacity) {
+		states = new CircuitState[capacity];
+		causes = new Component[capacity];
+		locs = new Location[capacity];
+		stamps = new int[capacity];
+		mask = capacity - 1;
+	}
+
+	void clear() {
+		Arrays.fill(states, null);
+		Arrays.fill(causes, null);
+		Arrays.fill(locs, null);
+		Arrays.fill(stamps, 0);
+		size = 0;
+		epoch = 1;
+	}
+
+	private void grow() {
+		CircuitState[] oldStates = states;
+		Component[] oldCauses = causes;
+		Location[] oldLocs = locs;
+		int[] oldStamps = stamps;
+		allocate(2 * oldStamps.length);
+		for (int j = 0; j < oldStamps.length; j++) {
+			if (oldStamps[j] == epoch) {
+				int i = hash(oldStates[j], oldCauses[j], oldLocs[j]) & mask;
+				while (stamps[i] == epoch) {
+					i = (i + 1) & mask;
+				}
+				states[i] = oldStates[j];
+				causes[i] = oldCauses[j];
+				locs[i] = oldLocs[j];
+				stamps[i] = epoch;
+			}
+		}
+	}
+
+	private static int hash(CircuitState state, Component cause, Location loc) {
+		int h = (31 * System.identityHashCode(state) + cause.hashCode()) * 31 + loc.hashCode();
+		h *= 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/** Forgets all entries by moving on to a new epoch. */
+	void nextEpoch() {
+		size = 0;
+		epoch++;
+		if (epoch == 0) { // wrapped around: stale stamps could now match
+			Arrays.fill(stamps, 0);
+			epoch = 1;
+		}
+	}
+}
@@ -23,8 +23,8 @@ import com.cburch.logisim.data.BitWidth;
 import com.cburch.logisim.data.Bounds;
 import com.cburch.logisim.data.Location;
 import com.cburch.logisim.tools.CustomHandles;
-import com.cburch.logisim.util.Cache;
 import com.cburch.logisim.util.GraphicsUtil;
+import com.cburch.logisim.util.Interner;
 
 public final class Wire implements Component, AttributeSet, CustomHandles, Iterable<Location> {
 	private class EndList extends AbstractList<EndData> {
@@ -51,10 +51,10 @@ public final class Wire implements Component, AttributeSet, CustomHandles, Itera
 	public static final Attribute<Integer> len_attr = Attributes.forInteger("length", Strings.getter("wireLengthAttr"));
 	private static final List<Attribute<?>> ATTRIBUTES = Arrays.asList(new Attribute<?>[] { dir_attr, len_attr });
 
-	private static final Cache cache = new Cache();
+	private static final Interner<Wire> cache = new Interner<Wire>("Wire", 10);
 
 	public static Wire create(Location e0, Location e1) {
-		return (Wire) cache.get(new Wire(e0, e1));
+		return cache.intern(new Wire(e0, e1));
 	}
 
 	final Location e0;
@@ -23,6 +23,7 @@ public interface ComponentFactory extends AttributeDefaultProvider {
 	public static final Object SHOULD_SNAP = new Object();
 	public static final Object TOOL_TIP = new Object();
 	public static final Object FACING_ATTRIBUTE_KEY = new Object();
+	public static final Object SERIAL_PROPAGATION = new Object();
 
 	public AttributeSet createAttributeSet();
 
@@ -47,8 +48,11 @@ public interface ComponentFactory extends AttributeDefaultProvider {
 	 * interface if it supports the feature.
 	 * 
 	 * As of this writing, possible values for <code>key</code> include:
-	 * <code>TOOL_TIP</code> (return a <code>String</code>) and
-	 * <code>SHOULD_SNAP</code> (return a <code>Boolean</code>).
+	 * <code>TOOL_TIP</code> (return a <code>String</code>),
+	 * <code>SHOULD_SNAP</code> (return a <code>Boolean</code>), and
+	 * <code>SERIAL_PROPAGATION</code> (return <code>Boolean.TRUE</code> if
+	 * propagating a component changes anything shared by all the circuit
+	 * states holding it, so that states must not propagate it in parallel).
 	 * 
 	 * @param key
 	 *            an object representing a feature.
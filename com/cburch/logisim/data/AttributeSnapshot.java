@@ -0,0 +1,111 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.data;
+
+import java.util.concurrent.atomic.AtomicStampedReference;
+
+/**
+ * An unchanging copy of some of the values of an attribute set. Code reading
+ * the same few attributes over and over, as components do while propagating,
+ * finds them among the attributes given when the snapshot is created, by
+ * identity, rather than through the set.
+ *
+ * Values that are <code>Integer</code>s, <code>BitWidth</code>s or
+ * <code>Boolean</code>s are also kept as ints, for <code>getInt</code> to
+ * read without unboxing. A snapshot does not follow later changes to its
+ * set; the holder should replace it when the set reports a change.
+ */
+public final class AttributeSnapshot {
+	/**
+	 * Holds the snapshot of a set, taken when first asked for and dropped when
+	 * the set changes. The snapshot may be taken on a simulator thread while
+	 * the set changes on another, so each change bumps a stamp, and a
+	 * snapshot is kept only if no change came after its values were read.
+	 */
+	public static final class Cache {
+		private final AtomicStampedReference<AttributeSnapshot> current = new AtomicStampedReference<AttributeSnapshot>(
+				null, 0);
+
+		/** Returns the snapshot of the attributes, taking it if need be. */
+		public AttributeSnapshot get(AttributeSet attrs, Attribute<?>[] keys) {
+			AttributeSnapshot ret = current.getReference();
+			if (ret == null) {
+				int[] stamp = new int[1];
+				ret = current.get(stamp);
+				if (ret == null) {
+					ret = create(attrs, keys);
+					current.compareAndSet(null, ret, stamp[0], stamp[0]);
+				}
+			}
+			return ret;
+		}
+
+		/** Drops the snapshot, once a value in the set has changed. */
+		public void invalidate() {
+			int[] stamp = new int[1];
+			while (true) {
+				AttributeSnapshot old = current.get(stamp);
+				if (current.compareAndSet(old, null, stamp[0], stamp[0] + 1))
+					return;
+			}
+		}
+	}
+
+	public static final AttributeSnapshot EMPTY = new AttributeSnapshot(new Attribute<?>[0], new Object[0]);
+
+	public static AttributeSnapshot create(AttributeSet attrs, Attribute<?>[] keys) {
+		if (keys.length == 0)
+			return EMPTY;
+		Object[] values = new Object[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			values[i] = attrs.getValue(keys[i]);
+		}
+		return new AttributeSnapshot(keys.clone(), values);
+	}
+
+	private final Attribute<?>[] keys;
+	private final Object[] values;
+	private final int[] ints;
+
+	private AttributeSnapshot(Attribute<?>[] keys, Object[] values) {
+		this.keys = keys;
+		this.values = values;
+		this.ints = new int[values.length];
+		for (int i = 0; i < values.length; i++) {
+			Object v = values[i];
+			if (v instanceof Integer)
+				ints[i] = ((Integer) v).intValue();
+			else if (v instanceof BitWidth)
+				ints[i] = ((BitWidth) v).getWidth();
+			else if (v instanceof Boolean)
+				ints[i] = ((Boolean) v).booleanValue() ? 1 : 0;
+		}
+	}
+
+	/** Returns the attribute's value when the snapshot was taken. */
+	@SuppressWarnings("unchecked")
+	public <V> V get(Attribute<V> attr) {
+		return (V) values[indexOf(attr)];
+	}
+
+	/**
+	 * Returns the attribute's value as an int: an integer itself, the width of
+	 * a bit width, or 1 for true. Other values give 0.
+	 */
+	public int getInt(Attribute<?> attr) {
+		return ints[indexOf(attr)];
+	}
+
+	private int indexOf(Attribute<?> attr) {
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] == attr)
+				return i;
+		}
+		throw new IllegalArgumentException("attribute not in snapshot: " + attr.getName());
+	}
+
+	public int size() {
+		return values.length;
+	}
+}
@@ -5,7 +5,7 @@ package com.cburch.logisim.data;
 
 import java.awt.Rectangle;
 
-import com.cburch.logisim.util.Cache;
+import com.cburch.logisim.util.Interner;
 
 /**
  * Represents an immutable rectangular bounding box. This is analogous to
@@ -14,19 +14,18 @@ import com.cburch.logisim.util.Cache;
  */
 public class Bounds {
 	public static Bounds EMPTY_BOUNDS = new Bounds(0, 0, 0, 0);
-	private static final Cache cache = new Cache();
+	private static final Interner<Bounds> cache = new Interner<Bounds>("Bounds", 10);
 
 	public static Bounds create(int x, int y, int wid, int ht) {
 		int hashCode = 13 * (31 * (31 * x + y) + wid) + ht;
-		Object cached = cache.get(hashCode);
-		if (cached != null) {
-			Bounds bds = (Bounds) cached;
-			if (bds.x == x && bds.y == y && bds.wid == wid && bds.ht == ht)
+		for (int i = 0; i < Interner.WAYS; i++) {
+			Bounds bds = cache.get(hashCode, i);
+			if (bds != null && bds.x == x && bds.y == y && bds.wid == wid && bds.ht == ht) {
+				cache.hit();
 				return bds;
+			}
 		}
-		Bounds ret = new Bounds(x, y, wid, ht);
-		cache.put(hashCode, ret);
-		return ret;
+		return cache.put(hashCode, new Bounds(x, y, wid, ht));
 	}
 
 	public static Bounds create(java.awt.Rectangle rect) {
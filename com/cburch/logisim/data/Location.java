@@ -3,7 +3,7 @@
 
 package com.cburch.logisim.data;
 
-import com.cburch.logisim.util.Cache;
+import com.cburch.logisim.util.Interner;
 
 /**
  * Represents an immutable rectangular bounding box. This is analogous to
@@ -11,19 +11,18 @@ import com.cburch.logisim.util.Cache;
  * immutable.
  */
 public class Location implements Comparable<Location> {
-	private static final Cache cache = new Cache();
+	private static final Interner<Location> cache = new Interner<Location>("Location", 13);
 
 	public static Location create(int x, int y) {
 		int hashCode = 31 * x + y;
-		Object ret = cache.get(hashCode);
-		if (ret != null) {
-			Location loc = (Location) ret;
-			if (loc.x == x && loc.y == y)
+		for (int i = 0; i < Interner.WAYS; i++) {
+			Location loc = cache.get(hashCode, i);
+			if (loc != null && loc.x == x && loc.y == y) {
+				cache.hit();
 				return loc;
+			}
 		}
-		Location loc = new Location(hashCode, x, y);
-		cache.put(hashCode, loc);
-		return loc;
+		return cache.put(hashCode, new Location(hashCode, x, y));
 	}
 
 	public static Location parse(String value) {
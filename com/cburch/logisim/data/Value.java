@@ -4,9 +4,14 @@
 package com.cburch.logisim.data;
 
 import java.awt.Color;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigInteger;
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
-import com.cburch.logisim.util.Cache;
+import com.cburch.logisim.util.Interner;
 
 public class Value {
 	public static final Value FALSE = new Value(1, 0, 0, 0);
@@ -15,7 +20,7 @@ public class Value {
 	public static final Value ERROR = new Value(1, 1, 0, 0);
 	public static final Value NIL = new Value(0, 0, 0, 0);
 
-	public static final int MAX_WIDTH = 32;
+	public static final int MAX_WIDTH = 128;
 
 	public static final Color NIL_COLOR = Color.GRAY;
 	public static final Color FALSE_COLOR = new Color(0, 100, 0);
@@ -25,9 +30,21 @@ public class Value {
 	public static final Color WIDTH_ERROR_COLOR = new Color(255, 123, 0);
 	public static final Color MULTI_COLOR = Color.BLACK;
 
-	private static final Cache cache = new Cache();
+	private static final Interner<Value> cache = new Interner<Value>("Value", 12);
 
-	private static Value create(int width, int error, int unknown, int value) {
+	// every value of up to SMALL_WIDTH bits, indexed by width and bit states
+	// and filled in as they are first created
+	private static final int SMALL_WIDTH = 8;
+	private static final int[] smallOffset = new int[SMALL_WIDTH + 2];
+	private static final AtomicReferenceArray<Value> small;
+	static {
+		for (int w = 2; w <= SMALL_WIDTH; w++) {
+			smallOffset[w + 1] = smallOffset[w] + (1 << (2 * w));
+		}
+		small = new AtomicReferenceArray<Value>(smallOffset[SMALL_WIDTH + 1]);
+	}
+
+	private static Value create(int width, long error, long unknown, long value) {
 		if (width == 0) {
 			return Value.NIL;
 		} else if (width == 1) {
@@ -39,23 +56,62 @@ public class Value {
 				return Value.TRUE;
 			else
 				return Value.FALSE;
+		} else if (width > 64) {
+			return create(width, extend(width, error), extend(width, unknown), extend(width, value));
 		} else {
-			int mask = (width == 32 ? -1 : ~(-1 << width));
+			long mask = (width == 64 ? -1L : ~(-1L << width));
 			error = error & mask;
 			unknown = unknown & mask & ~error;
 			value = value & mask & ~unknown & ~error;
 
-			int hashCode = 31 * (31 * (31 * width + error) + unknown) + value;
-			Object cached = cache.get(hashCode);
-			if (cached != null) {
-				Value val = (Value) cached;
-				if (val.value == value && val.width == width && val.error == error && val.unknown == unknown)
+			if (width <= SMALL_WIDTH) {
+				// two bits per bit: value or error, then unknown or error
+				int index = smallOffset[width] + (spread(value | error) | (spread(unknown | error) << 1));
+				Value ret = small.get(index);
+				if (ret == null) {
+					ret = new Value(width, error, unknown, value);
+					if (!small.compareAndSet(index, null, ret))
+						ret = small.get(index);
+				}
+				return ret;
+			}
+
+			int hashCode = hash(width, error, unknown, value);
+			for (int i = 0; i < Interner.WAYS; i++) {
+				Value val = cache.get(hashCode, i);
+				if (val != null && val.value == value && val.width == width && val.error == error
+						&& val.unknown == unknown && val.valueWords == null) {
+					cache.hit();
 					return val;
+				}
+			}
+			return cache.put(hashCode, new Value(width, error, unknown, value));
+		}
+	}
+
+	// for values wider than 64 bits; each array holds exactly
+	// words(width) words and becomes owned by the returned value
+	private static Value create(int width, long[] error, long[] unknown, long[] value) {
+		if (width <= 64)
+			return create(width, error[0], unknown[0], value[0]);
+		int n = error.length;
+		for (int i = 0; i < n; i++) {
+			long mask = highMask(width, i) ^ -1L;
+			error[i] = error[i] & mask;
+			unknown[i] = unknown[i] & mask & ~error[i];
+			value[i] = value[i] & mask & ~unknown[i] & ~error[i];
+		}
+
+		int hashCode = hash(width, error, unknown, value);
+		for (int i = 0; i < Interner.WAYS; i++) {
+			Value val = cache.get(hashCode, i);
+			if (val != null && val.width == width && Arrays.equals(val.errorWords, error)
+					&& Arrays.equals(val.unknownWords, unknown) && Arrays.equals(val.valueWords, value)) {
+				cache.hit();
+				return val;
 			}
-			Value ret = new Value(width, error, unknown, value);
-			cache.put(hashCode, ret);
-			return ret;
 		}
+		return cache.put(hashCode, new Value(width, error, unknown, value));
 	}
 
 	public static Value create(Value[] values) {
@@ -67,19 +123,20 @@ public class Value {
 			throw new RuntimeException("Cannot have more than " + MAX_WIDTH + " bits in a value");
 
 		int width = values.length;
-		int value = 0;
-		int unknown = 0;
-		int error = 0;
+		int n = words(width);
+		long[] value = new long[n];
+		long[] unknown = new long[n];
+		long[] error = new long[n];
 		for (int i = 0; i < values.length; i++) {
-			int mask = 1 << i;
+			long mask = 1L << i;
 			if (values[i] == TRUE)
-				value |= mask;
+				value[i >> 6] |= mask;
 			else if (values[i] == FALSE)
 				/* do nothing */;
 			else if (values[i] == UNKNOWN)
-				unknown |= mask;
+				unknown[i >> 6] |= mask;
 			else if (values[i] == ERROR)
-				error |= mask;
+				error[i >> 6] |= mask;
 			else {
 				throw new RuntimeException("unrecognized value " + values[i]);
 			}
@@ -88,15 +145,125 @@ public class Value {
 	}
 
 	public static Value createError(BitWidth bits) {
-		return Value.create(bits.getWidth(), -1, 0, 0);
+		return Value.create(bits.getWidth(), -1L, 0, 0);
 	}
 
+	/**
+	 * Creates a fully defined value whose low bits are given by value; any
+	 * bits beyond the 32nd are zero.
+	 */
 	public static Value createKnown(BitWidth bits, int value) {
-		return Value.create(bits.getWidth(), 0, 0, value);
+		return Value.create(bits.getWidth(), 0, 0, value & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Creates a fully defined value whose low bits are given by value; any
+	 * bits beyond the 64th are zero.
+	 */
+	public static Value createKnown(BitWidth bits, long value) {
+		int width = bits.getWidth();
+		if (width <= 64) {
+			return Value.create(width, 0, 0, value);
+		} else {
+			long[] words = new long[words(width)];
+			words[0] = value;
+			return Value.create(width, new long[words.length], new long[words.length], words);
+		}
+	}
+
+	/**
+	 * Creates a fully defined value holding the low bits of value's two's
+	 * complement representation.
+	 */
+	public static Value createKnown(BitWidth bits, BigInteger value) {
+		int width = bits.getWidth();
+		if (width <= 64) {
+			return Value.create(width, 0, 0, value.longValue());
+		} else {
+			long[] words = new long[words(width)];
+			for (int i = 0; i < words.length; i++) {
+				words[i] = value.shiftRight(64 * i).longValue();
+			}
+			return Value.create(width, new long[words.length], new long[words.length], words);
+		}
 	}
 
 	public static Value createUnknown(BitWidth bits) {
-		return Value.create(bits.getWidth(), 0, -1, 0);
+		return Value.create(bits.getWidth(), 0, -1L, 0);
+	}
+
+	// sign-extends word to all the words of the given width
+	private static long[] extend(int width, long word) {
+		long[] ret = new long[words(width)];
+		Arrays.fill(ret, word >> 63);
+		ret[0] = word;
+		return ret;
+	}
+
+	private static int hash(int width, long error, long unknown, long value) {
+		return 31 * (31 * (31 * width + Long.hashCode(error)) + Long.hashCode(unknown)) + Long.hashCode(value);
+	}
+
+	private static int hash(int width, long[] error, long[] unknown, long[] value) {
+		return 31 * (31 * (31 * width + Arrays.hashCode(error)) + Arrays.hashCode(unknown)) + Arrays.hashCode(value);
+	}
+
+	// the bits of the given word lying at or beyond the given width
+	private static long highMask(int width, int word) {
+		int base = word << 6;
+		if (width <= base)
+			return -1L;
+		else if (width >= base + 64)
+			return 0L;
+		else
+			return -1L << (width - base);
+	}
+
+	// moves the low eight bits of mask to the even bit positions
+	private static int spread(long mask) {
+		int x = (int) mask & 0xFF;
+		x = (x | (x << 4)) & 0x0F0F;
+		x = (x | (x << 2)) & 0x3333;
+		x = (x | (x << 1)) & 0x5555;
+		return x;
+	}
+
+	private static int words(int width) {
+		return (width + 63) >> 6;
+	}
+
+	/**
+	 * Reads a value written by <code>write</code>.
+	 */
+	public static Value read(DataInput in) throws IOException {
+		int width = in.readUnsignedByte();
+		if (width == 0)
+			return Value.NIL;
+		if (width > MAX_WIDTH)
+			throw new IOException("value width " + width);
+		boolean defined = in.readBoolean();
+		int n = words(width);
+		long[] error = new long[n];
+		long[] unknown = new long[n];
+		long[] value = new long[n];
+		if (!defined) {
+			readWords(in, width, error);
+			readWords(in, width, unknown);
+		}
+		readWords(in, width, value);
+		return create(width, error, unknown, value);
+	}
+
+	// reads only as many bytes of each word as the width needs
+	private static void readWords(DataInput in, int width, long[] words) throws IOException {
+		for (int i = 0; i < words.length; i++) {
+			int bytes = Math.min(8, (width - 64 * i + 7) / 8);
+			long w = 0;
+			for (int j = 0; j < bytes; j++) {
+				w |= (long) in.readUnsignedByte() << (8 * j);
+			}
+			words[i] = w;
+		}
 	}
 
 	public static Value repeat(Value base, int bits) {
@@ -113,11 +280,16 @@ public class Value {
 	}
 
 	private final int width;
-	private final int error;
-	private final int unknown;
-	private final int value;
-
-	private Value(int width, int error, int unknown, int value) {
+	private final long error;
+	private final long unknown;
+	private final long value;
+	// all words of each, least significant first, for values wider than 64
+	// bits (whose low words are also held above); null otherwise
+	private final long[] errorWords;
+	private final long[] unknownWords;
+	private final long[] valueWords;
+
+	private Value(int width, long error, long unknown, long value) {
 		// To ensure that the one-bit values are unique, this should be called
 		// only
 		// for the one-bit values and by the private create method
@@ -125,6 +297,19 @@ public class Value {
 		this.error = error;
 		this.unknown = unknown;
 		this.value = value;
+		this.errorWords = null;
+		this.unknownWords = null;
+		this.valueWords = null;
+	}
+
+	private Value(int width, long[] error, long[] unknown, long[] value) {
+		this.width = width;
+		this.error = error[0];
+		this.unknown = unknown[0];
+		this.value = value[0];
+		this.errorWords = error;
+		this.unknownWords = unknown;
+		this.valueWords = value;
 	}
 
 	public Value and(Value other) {
@@ -136,12 +321,26 @@ public class Value {
 			if (this == TRUE && other == TRUE)
 				return TRUE;
 			return ERROR;
-		} else {
-			int false0 = ~this.value & ~this.error & ~this.unknown;
-			int false1 = ~other.value & ~other.error & ~other.unknown;
-			int falses = false0 | false1;
+		} else if (this.valueWords == null && other.valueWords == null) {
+			long false0 = ~this.value & ~this.error & ~this.unknown;
+			long false1 = ~other.value & ~other.error & ~other.unknown;
+			long falses = false0 | false1;
 			return Value.create(Math.max(this.width, other.width),
 					(this.error | other.error | this.unknown | other.unknown) & ~falses, 0, this.value & other.value);
+		} else {
+			int width = Math.max(this.width, other.width);
+			int n = words(width);
+			long[] error = new long[n];
+			long[] value = new long[n];
+			for (int i = 0; i < n; i++) {
+				long false0 = ~this.valueWord(i) & ~this.errorWord(i) & ~this.unknownWord(i);
+				long false1 = ~other.valueWord(i) & ~other.errorWord(i) & ~other.unknownWord(i);
+				long falses = false0 | false1;
+				error[i] = (this.errorWord(i) | other.errorWord(i) | this.unknownWord(i) | other.unknownWord(i))
+						& ~falses;
+				value[i] = this.valueWord(i) & other.valueWord(i);
+			}
+			return Value.create(width, error, new long[n], value);
 		}
 	}
 
@@ -160,10 +359,27 @@ public class Value {
 			if (other == UNKNOWN)
 				return this;
 			return ERROR;
-		} else {
-			int disagree = (this.value ^ other.value) & ~(this.unknown | other.unknown);
+		} else if (this.valueWords == null && other.valueWords == null) {
+			long disagree = (this.value ^ other.value) & ~(this.unknown | other.unknown);
 			return Value.create(Math.max(this.width, other.width), this.error | other.error | disagree,
 					this.unknown & other.unknown, (this.value & ~this.unknown) | (other.value & ~other.unknown));
+		} else {
+			int width = Math.max(this.width, other.width);
+			int n = words(width);
+			long[] error = new long[n];
+			long[] unknown = new long[n];
+			long[] value = new long[n];
+			for (int i = 0; i < n; i++) {
+				long u0 = this.unknownWord(i);
+				long u1 = other.unknownWord(i);
+				long v0 = this.valueWord(i);
+				long v1 = other.valueWord(i);
+				long disagree = (v0 ^ v1) & ~(u0 | u1);
+				error[i] = this.errorWord(i) | other.errorWord(i) | disagree;
+				unknown[i] = u0 & u1;
+				value[i] = (v0 & ~u0) | (v1 & ~u1);
+			}
+			return Value.create(width, error, unknown, value);
 		}
 	}
 
@@ -173,34 +389,57 @@ public class Value {
 			return false;
 		Value other = (Value) other_obj;
 		boolean ret = this.width == other.width && this.error == other.error && this.unknown == other.unknown
-				&& this.value == other.value;
+				&& this.value == other.value && Arrays.equals(this.errorWords, other.errorWords)
+				&& Arrays.equals(this.unknownWords, other.unknownWords)
+				&& Arrays.equals(this.valueWords, other.valueWords);
 		return ret;
 	}
 
 	public Value extendWidth(int newWidth, Value others) {
 		if (width == newWidth)
 			return this;
-		int maskInverse = (width == 32 ? 0 : (-1 << width));
-		if (others == Value.ERROR) {
-			return Value.create(newWidth, error | maskInverse, unknown, value);
-		} else if (others == Value.FALSE) {
-			return Value.create(newWidth, error, unknown, value);
-		} else if (others == Value.TRUE) {
-			return Value.create(newWidth, error, unknown, value | maskInverse);
-		} else {
-			return Value.create(newWidth, error, unknown | maskInverse, value);
+		if (newWidth <= 64 && valueWords == null) {
+			long maskInverse = highMask(width, 0);
+			if (others == Value.ERROR) {
+				return Value.create(newWidth, error | maskInverse, unknown, value);
+			} else if (others == Value.FALSE) {
+				return Value.create(newWidth, error, unknown, value);
+			} else if (others == Value.TRUE) {
+				return Value.create(newWidth, error, unknown, value | maskInverse);
+			} else {
+				return Value.create(newWidth, error, unknown | maskInverse, value);
+			}
 		}
+		int n = words(newWidth);
+		long[] error = new long[n];
+		long[] unknown = new long[n];
+		long[] value = new long[n];
+		for (int i = 0; i < n; i++) {
+			long maskInverse = highMask(width, i);
+			error[i] = errorWord(i);
+			unknown[i] = unknownWord(i);
+			value[i] = valueWord(i);
+			if (others == Value.ERROR) {
+				error[i] |= maskInverse;
+			} else if (others == Value.TRUE) {
+				value[i] |= maskInverse;
+			} else if (others != Value.FALSE) {
+				unknown[i] |= maskInverse;
+			}
+		}
+		return Value.create(newWidth, error, unknown, value);
 	}
 
 	public Value get(int which) {
 		if (which < 0 || which >= width)
 			return ERROR;
-		int mask = 1 << which;
-		if ((error & mask) != 0)
+		int i = which >> 6;
+		long mask = 1L << which;
+		if ((errorWord(i) & mask) != 0)
 			return ERROR;
-		else if ((unknown & mask) != 0)
+		else if ((unknownWord(i) & mask) != 0)
 			return UNKNOWN;
-		else if ((value & mask) != 0)
+		else if ((valueWord(i) & mask) != 0)
 			return TRUE;
 		else
 			return FALSE;
@@ -219,7 +458,7 @@ public class Value {
 	}
 
 	public Color getColor() {
-		if (error != 0) {
+		if (isErrorValue()) {
 			return ERROR_COLOR;
 		} else if (width == 0) {
 			return NIL_COLOR;
@@ -241,27 +480,41 @@ public class Value {
 
 	@Override
 	public int hashCode() {
-		int ret = width;
-		ret = 31 * ret + error;
-		ret = 31 * ret + unknown;
-		ret = 31 * ret + value;
-		return ret;
+		if (valueWords == null)
+			return hash(width, error, unknown, value);
+		else
+			return hash(width, errorWords, unknownWords, valueWords);
 	}
 
 	public boolean isErrorValue() {
-		return error != 0;
+		if (errorWords == null)
+			return error != 0;
+		for (long word : errorWords) {
+			if (word != 0)
+				return true;
+		}
+		return false;
 	}
 
 	public boolean isFullyDefined() {
-		return width > 0 && error == 0 && unknown == 0;
+		if (valueWords == null)
+			return width > 0 && error == 0 && unknown == 0;
+		for (int i = 0; i < valueWords.length; i++) {
+			if (errorWords[i] != 0 || unknownWords[i] != 0)
+				return false;
+		}
+		return true;
 	}
 
 	public boolean isUnknown() {
-		if (width == 32) {
-			return error == 0 && unknown == -1;
-		} else {
-			return error == 0 && unknown == ((1 << width) - 1);
+		if (valueWords == null) {
+			return error == 0 && unknown == ~highMask(width, 0);
 		}
+		for (int i = 0; i < valueWords.length; i++) {
+			if (errorWords[i] != 0 || unknownWords[i] != ~highMask(width, i))
+				return false;
+		}
+		return true;
 	}
 
 	public Value not() {
@@ -271,8 +524,17 @@ public class Value {
 			if (this == FALSE)
 				return TRUE;
 			return ERROR;
-		} else {
+		} else if (valueWords == null) {
 			return Value.create(this.width, this.error | this.unknown, 0, ~this.value);
+		} else {
+			int n = valueWords.length;
+			long[] error = new long[n];
+			long[] value = new long[n];
+			for (int i = 0; i < n; i++) {
+				error[i] = errorWords[i] | unknownWords[i];
+				value[i] = ~valueWords[i];
+			}
+			return Value.create(this.width, error, new long[n], value);
 		}
 	}
 
@@ -285,12 +547,26 @@ public class Value {
 			if (this == FALSE && other == FALSE)
 				return FALSE;
 			return ERROR;
-		} else {
-			int true0 = this.value & ~this.error & ~this.unknown;
-			int true1 = other.value & ~other.error & ~other.unknown;
-			int trues = true0 | true1;
+		} else if (this.valueWords == null && other.valueWords == null) {
+			long true0 = this.value & ~this.error & ~this.unknown;
+			long true1 = other.value & ~other.error & ~other.unknown;
+			long trues = true0 | true1;
 			return Value.create(Math.max(this.width, other.width),
 					(this.error | other.error | this.unknown | other.unknown) & ~trues, 0, this.value | other.value);
+		} else {
+			int width = Math.max(this.width, other.width);
+			int n = words(width);
+			long[] error = new long[n];
+			long[] value = new long[n];
+			for (int i = 0; i < n; i++) {
+				long true0 = this.valueWord(i) & ~this.errorWord(i) & ~this.unknownWord(i);
+				long true1 = other.valueWord(i) & ~other.errorWord(i) & ~other.unknownWord(i);
+				long trues = true0 | true1;
+				error[i] = (this.errorWord(i) | other.errorWord(i) | this.unknownWord(i) | other.unknownWord(i))
+						& ~trues;
+				value[i] = this.valueWord(i) | other.valueWord(i);
+			}
+			return Value.create(width, error, new long[n], value);
 		}
 	}
 
@@ -301,10 +577,20 @@ public class Value {
 			throw new RuntimeException("Attempt to set outside value's width");
 		} else if (width == 1) {
 			return val;
-		} else {
-			int mask = ~(1 << which);
+		} else if (valueWords == null) {
+			long mask = ~(1L << which);
 			return Value.create(this.width, (this.error & mask) | (val.error << which),
 					(this.unknown & mask) | (val.unknown << which), (this.value & mask) | (val.value << which));
+		} else {
+			int i = which >> 6;
+			long mask = ~(1L << which);
+			long[] error = errorWords.clone();
+			long[] unknown = unknownWords.clone();
+			long[] value = valueWords.clone();
+			error[i] = (error[i] & mask) | (val.error << which);
+			unknown[i] = (unknown[i] & mask) | (val.unknown << which);
+			value[i] = (value[i] & mask) | (val.value << which);
+			return Value.create(this.width, error, unknown, value);
 		}
 	}
 
@@ -316,14 +602,21 @@ public class Value {
 		if (!isFullyDefined())
 			return Strings.get("valueUnknown");
 
-		int value = toIntValue();
+		if (width > 64) {
+			BigInteger value = toBigInteger();
+			if (signed && value.testBit(width - 1)) {
+				value = value.subtract(BigInteger.ONE.shiftLeft(width));
+			}
+			return value.toString();
+		}
+		long value = toLongValue();
 		if (signed) {
-			if (width < 32 && (value >> (width - 1)) != 0) {
-				value |= (-1) << width;
+			if (width < 64 && (value >> (width - 1)) != 0) {
+				value |= (-1L) << width;
 			}
 			return "" + value;
 		} else {
-			return "" + (value & 0xFFFFFFFFL);
+			return Long.toUnsignedString(value);
 		}
 	}
 
@@ -366,6 +659,8 @@ public class Value {
 				return Strings.get("valueError");
 			if (!isFullyDefined())
 				return Strings.get("valueUnknown");
+			if (width > 32)
+				return toBigInteger().toString(radix);
 			return Integer.toString(toIntValue(), radix);
 		}
 	}
@@ -402,12 +697,40 @@ public class Value {
 		}
 	}
 
+	/**
+	 * Returns the value's bits as an unsigned integer; only meaningful for
+	 * fully defined values.
+	 */
+	public BigInteger toBigInteger() {
+		if (valueWords == null)
+			return value >= 0 ? BigInteger.valueOf(value) : new BigInteger(Long.toUnsignedString(value));
+		byte[] bytes = new byte[8 * valueWords.length + 1];
+		for (int i = 0; i < valueWords.length; i++) {
+			long word = valueWords[i];
+			for (int j = 0; j < 8; j++) {
+				bytes[bytes.length - 1 - 8 * i - j] = (byte) (word >>> (8 * j));
+			}
+		}
+		return new BigInteger(bytes);
+	}
+
 	public int toIntValue() {
-		if (error != 0)
-			return -1;
-		if (unknown != 0)
-			return -1;
-		return value;
+		return (int) toLongValue();
+	}
+
+	/**
+	 * Returns the low 64 bits of the value, or -1 if any bit is an error or
+	 * unknown.
+	 */
+	public long toLongValue() {
+		if (valueWords == null) {
+			if (error != 0)
+				return -1L;
+			if (unknown != 0)
+				return -1L;
+			return value;
+		}
+		return isFullyDefined() ? value : -1L;
 	}
 
 	public String toOctalString() {
@@ -467,6 +790,27 @@ public class Value {
 		}
 	}
 
+	/**
+	 * Writes the value compactly, using only as many bytes as its width
+	 * needs; <code>read</code> recovers it.
+	 */
+	public void write(DataOutput out) throws IOException {
+		out.writeByte(width);
+		if (width == 0)
+			return;
+		boolean defined = isFullyDefined();
+		out.writeBoolean(defined);
+		int n = words(width);
+		if (!defined) {
+			for (int i = 0; i < n; i++)
+				writeWord(out, i, errorWord(i));
+			for (int i = 0; i < n; i++)
+				writeWord(out, i, unknownWord(i));
+		}
+		for (int i = 0; i < n; i++)
+			writeWord(out, i, valueWord(i));
+	}
+
 	public Value xor(Value other) {
 		if (other == null)
 			return this;
@@ -480,9 +824,45 @@ public class Value {
 			if ((this == TRUE) == (other == TRUE))
 				return FALSE;
 			return TRUE;
-		} else {
+		} else if (this.valueWords == null && other.valueWords == null) {
 			return Value.create(Math.max(this.width, other.width),
 					this.error | other.error | this.unknown | other.unknown, 0, this.value ^ other.value);
+		} else {
+			int width = Math.max(this.width, other.width);
+			int n = words(width);
+			long[] error = new long[n];
+			long[] value = new long[n];
+			for (int i = 0; i < n; i++) {
+				error[i] = this.errorWord(i) | other.errorWord(i) | this.unknownWord(i) | other.unknownWord(i);
+				value[i] = this.valueWord(i) ^ other.valueWord(i);
+			}
+			return Value.create(width, error, new long[n], value);
 		}
 	}
+
+	private long errorWord(int i) {
+		return word(errorWords, error, i);
+	}
+
+	private long unknownWord(int i) {
+		return word(unknownWords, unknown, i);
+	}
+
+	private long valueWord(int i) {
+		return word(valueWords, value, i);
+	}
+
+	private void writeWord(DataOutput out, int i, long w) throws IOException {
+		int bytes = Math.min(8, (width - 64 * i + 7) / 8);
+		for (int j = 0; j < bytes; j++) {
+			out.writeByte((int) (w >>> (8 * j)));
+		}
+	}
+
+	private static long word(long[] words, long low, int i) {
+		if (words == null)
+			return i == 0 ? low : 0L;
+		else
+			return i < words.length ? words[i] : 0L;
+	}
 }
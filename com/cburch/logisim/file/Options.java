@@ -4,9 +4,12 @@
 package com.cburch.logisim.file;
 
 import com.cburch.logisim.data.Attribute;
+import com.cburch.logisim.data.AttributeEvent;
+import com.cburch.logisim.data.AttributeListener;
 import com.cburch.logisim.data.AttributeOption;
 import com.cburch.logisim.data.AttributeSet;
 import com.cburch.logisim.data.AttributeSets;
+import com.cburch.logisim.data.AttributeSnapshot;
 import com.cburch.logisim.data.Attributes;
 
 public class Options {
@@ -31,9 +34,20 @@ public class Options {
 	private AttributeSet attrs;
 	private MouseMappings mmappings;
 	private ToolbarData toolbar;
+	private AttributeSnapshot.Cache snapshot = new AttributeSnapshot.Cache();
 
 	public Options() {
 		attrs = AttributeSets.fixedSet(ATTRIBUTES, DEFAULTS);
+		attrs.addAttributeListener(new AttributeListener() {
+			@Override
+			public void attributeListChanged(AttributeEvent e) {
+			}
+
+			@Override
+			public void attributeValueChanged(AttributeEvent e) {
+				snapshot.invalidate();
+			}
+		});
 		mmappings = new MouseMappings();
 		toolbar = new ToolbarData();
 	}
@@ -48,6 +62,13 @@ public class Options {
 		return attrs;
 	}
 
+	/**
+	 * Returns the options' values, for reading during propagation.
+	 */
+	public AttributeSnapshot getAttributeSnapshot() {
+		return snapshot.get(attrs, ATTRIBUTES);
+	}
+
 	public MouseMappings getMouseMappings() {
 		return mmappings;
 	}
@@ -3,102 +3,74 @@
 
 package com.cburch.logisim.gui.hex;
 
-import java.io.BufferedReader;
+import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileReader;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.Reader;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
-import java.util.StringTokenizer;
 
 import com.cburch.hex.HexModel;
 
 public class HexFile {
+	/**
+	 * Implemented by models that can copy the words of a binary image straight
+	 * from a buffer into their own storage, rather than through
+	 * <code>HexModel.set</code>. The buffer's remaining bytes hold the words
+	 * in little-endian order, <code>bytesPerWord</code> bytes apiece; values
+	 * beyond them are cleared.
+	 */
+	public static interface BinaryTarget {
+		public void loadBinary(ByteBuffer words, int bytesPerWord) throws IOException;
+	}
+
+	/**
+	 * Reads the tokens of a raw text image straight from the characters, so
+	 * that a large image doesn't allocate a String for every token.
+	 */
 	private static class HexReader {
-		private BufferedReader in;
+		private Reader in;
+		private char[] buf = new char[8192];
+		private int bufPos = 0;
+		private int bufEnd = 0;
 		private int[] data;
-		private StringTokenizer curLine;
 		private long leftCount;
 		private long leftValue;
+		// the results of readNumber
+		private long numberValue;
+		private long hexValue;
+		private boolean hexValid;
 
-		public HexReader(BufferedReader in) throws IOException {
+		public HexReader(Reader in) throws IOException {
 			this.in = in;
 			data = new int[4096];
-			curLine = findNonemptyLine();
-		}
-
-		private StringTokenizer findNonemptyLine() throws IOException {
-			String line = in.readLine();
-			while (line != null) {
-				int index = line.indexOf(COMMENT_MARKER);
-				if (index >= 0) {
-					line = line.substring(0, index);
-				}
-
-				StringTokenizer ret = new StringTokenizer(line);
-				if (ret.hasMoreTokens())
-					return ret;
-				line = this.in.readLine();
-			}
-			return null;
 		}
 
 		public boolean hasNext() throws IOException {
-			if (leftCount > 0) {
-				return true;
-			} else if (curLine != null && curLine.hasMoreTokens()) {
-				return true;
-			} else {
-				curLine = findNonemptyLine();
-				return curLine != null;
-			}
+			return leftCount > 0 || nextToken();
 		}
 
 		public int[] next() throws IOException {
 			int pos = 0;
-			if (leftCount > 0) {
-				int n = (int) Math.min(data.length - pos, leftCount);
-				if (n == 1) {
-					data[pos] = (int) leftValue;
-					pos++;
-					leftCount--;
-				} else {
-					Arrays.fill(data, pos, pos + n, (int) leftValue);
-					pos += n;
-					leftCount -= n;
-				}
-			}
-			if (pos >= data.length)
-				return data;
-
-			for (String tok = nextToken(); tok != null; tok = nextToken()) {
-				try {
-					int star = tok.indexOf("*");
-					if (star < 0) {
-						leftCount = 1;
-						leftValue = Long.parseLong(tok, 16);
-					} else {
-						leftCount = Long.parseLong(tok.substring(0, star));
-						leftValue = Long.parseLong(tok.substring(star + 1), 16);
-					}
-				} catch (NumberFormatException e) {
-					throw new IOException(Strings.get("hexNumberFormatError"));
-				}
-
+			while (pos < data.length && (leftCount > 0 || nextToken())) {
 				int n = (int) Math.min(data.length - pos, leftCount);
 				if (n == 1) {
 					data[pos] = (int) leftValue;
-					pos++;
-					leftCount--;
 				} else {
 					Arrays.fill(data, pos, pos + n, (int) leftValue);
-					pos += n;
-					leftCount -= n;
 				}
-				if (pos >= data.length)
-					return data;
+				pos += n;
+				leftCount -= n;
 			}
 
 			if (pos >= data.length) {
@@ -110,50 +82,209 @@ public class HexFile {
 			}
 		}
 
-		private String nextToken() throws IOException {
-			if (curLine != null && curLine.hasMoreTokens()) {
-				return curLine.nextToken();
+		// returns the next character, or -1 at the end of the input
+		private int nextChar() throws IOException {
+			return bufPos < bufEnd ? buf[bufPos++] : refill();
+		}
+
+		/**
+		 * Parses the next token, of the form <code>value</code> or
+		 * <code>count*value</code> with the count in decimal and the value in
+		 * hexadecimal, into <code>leftCount</code> and <code>leftValue</code>.
+		 * Returns false at the end of the input.
+		 */
+		private boolean nextToken() throws IOException {
+			int c = skipSpace(nextChar());
+			if (c < 0)
+				return false;
+
+			long count = 1;
+			c = readNumber(c, 10);
+			if (c == '*') {
+				count = numberValue;
+				if (count < 0)
+					throw new IOException(Strings.get("hexNumberFormatError"));
+				c = readNumber(nextChar(), 16);
 			} else {
-				curLine = findNonemptyLine();
-				return curLine == null ? null : curLine.nextToken();
+				numberValue = hexValue;
+				if (!hexValid)
+					throw new IOException(Strings.get("hexNumberFormatError"));
+			}
+			if (c >= 0 && !isSpace(c) && c != COMMENT_MARKER)
+				throw new IOException(Strings.get("hexNumberFormatError"));
+			if (c == COMMENT_MARKER)
+				bufPos--; // leave the comment for the next call to skip
+			leftCount = count;
+			leftValue = numberValue;
+			return true;
+		}
+
+		/**
+		 * Reads an optionally signed number beginning with the character
+		 * <code>c</code> into <code>numberValue</code>, and returns the first
+		 * character following it. The digits are read as hexadecimal; when
+		 * reading a decimal count, they are converted afterwards, so that a
+		 * value with no '*' following needn't be read twice.
+		 */
+		private int readNumber(int c, int radix) throws IOException {
+			boolean negate = false;
+			if (c == '-' || c == '+') {
+				negate = c == '-';
+				c = nextChar();
+			}
+			long hex = 0;
+			int digits = 0;
+			int letters = 0;
+			// the buffer position is kept in locals while scanning the digits
+			int pos = bufPos;
+			int end = bufEnd;
+			while (c >= 0) {
+				int digit = c < DIGIT_VALUES.length ? DIGIT_VALUES[c] : -1;
+				if (digit < 0)
+					break;
+				hex = (hex << 4) | digit;
+				letters |= digit + 6; // bit 4 is set for the digits a to f
+				digits++;
+				if (pos < end) {
+					c = buf[pos++];
+				} else {
+					bufPos = pos;
+					c = refill();
+					pos = bufPos;
+					end = bufEnd;
+				}
+			}
+			bufPos = pos;
+			if (c >= 0 && c != '*' && c != COMMENT_MARKER && !isSpace(c))
+				throw new IOException(Strings.get("hexNumberFormatError"));
+
+			// as with Long.parseLong, reject anything beyond the range of a long
+			hexValid = digits > 0 && (digits < 16 || digits == 16 && hex >= 0);
+			hexValue = negate ? -hex : hex;
+			if (radix == 16) {
+				if (!hexValid)
+					throw new IOException(Strings.get("hexNumberFormatError"));
+				numberValue = hexValue;
+			} else if (c == '*') {
+				if (digits == 0 || digits > 15 || (letters & 16) != 0)
+					throw new IOException(Strings.get("hexNumberFormatError"));
+				long dec = 0;
+				for (int shift = 4 * (digits - 1); shift >= 0; shift -= 4) {
+					dec = dec * 10 + ((hex >>> shift) & 0xf);
+				}
+				numberValue = negate ? -dec : dec;
+			}
+			return c;
+		}
+
+		// reads the next block of input, returning its first character
+		private int refill() throws IOException {
+			bufEnd = in.read(buf, 0, buf.length);
+			bufPos = 0;
+			if (bufEnd <= 0) {
+				bufEnd = 0;
+				return -1;
+			}
+			return buf[bufPos++];
+		}
+
+		// skips whitespace and comments, returning the first other character
+		private int skipSpace(int c) throws IOException {
+			while (true) {
+				if (c == COMMENT_MARKER) {
+					do
+						c = nextChar();
+					while (c >= 0 && c != '\n' && c != '\r');
+				} else if (isSpace(c)) {
+					c = nextChar();
+				} else {
+					return c;
+				}
 			}
 		}
 	}
 
 	private static final String RAW_IMAGE_HEADER = "v2.0 raw";
-	private static final String COMMENT_MARKER = "#";
+	private static final String BINARY_IMAGE_HEADER = "v2.0 bin";
+	private static final String BINARY_EXTENSION = ".bin";
+	private static final char COMMENT_MARKER = '#';
+	private static final int MAX_HEADER_LENGTH = 64;
+	private static final byte[] DIGIT_VALUES = new byte[128];
+
+	static {
+		Arrays.fill(DIGIT_VALUES, (byte) -1);
+		for (int i = 0; i < 10; i++)
+			DIGIT_VALUES['0' + i] = (byte) i;
+		for (int i = 0; i < 6; i++) {
+			DIGIT_VALUES['a' + i] = (byte) (10 + i);
+			DIGIT_VALUES['A' + i] = (byte) (10 + i);
+		}
+	}
+
+	private static int getBytesPerWord(int width) {
+		return width <= 8 ? 1 : width <= 16 ? 2 : 4;
+	}
+
+	private static boolean isSpace(int c) {
+		// the same characters that StringTokenizer treats as delimiters
+		return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+	}
 
 	public static void open(HexModel dst, File src) throws IOException {
-		BufferedReader in;
+		FileChannel in;
 		try {
-			in = new BufferedReader(new FileReader(src));
+			in = FileChannel.open(src.toPath(), StandardOpenOption.READ);
 		} catch (IOException e) {
 			throw new IOException(Strings.get("hexFileOpenError"));
 		}
 		try {
-			String header = in.readLine();
-			if (!header.equals(RAW_IMAGE_HEADER)) {
-				throw new IOException(Strings.get("hexHeaderFormatError"));
+			// read the header line, noting where the contents begin
+			ByteBuffer head = ByteBuffer.allocate(MAX_HEADER_LENGTH);
+			while (head.hasRemaining() && in.read(head) > 0)
+				;
+			int headerEnd = -1;
+			for (int i = 0; i < head.position(); i++) {
+				if (head.get(i) == '\n') {
+					headerEnd = i;
+					break;
+				}
 			}
-			open(dst, in);
-			try {
-				BufferedReader oldIn = in;
-				in = null;
-				oldIn.close();
-			} catch (IOException e) {
-				throw new IOException(Strings.get("hexFileReadError"));
+			if (headerEnd < 0 && head.position() < MAX_HEADER_LENGTH)
+				headerEnd = head.position(); // the file is just the header
+			if (headerEnd < 0)
+				throw new IOException(Strings.get("hexHeaderFormatError"));
+			int headerLength = headerEnd > 0 && head.get(headerEnd - 1) == '\r' ? headerEnd - 1 : headerEnd;
+			String header = new String(head.array(), 0, headerLength, StandardCharsets.ISO_8859_1);
+			long contentStart = Math.min(headerEnd + 1, in.size());
+
+			if (header.equals(RAW_IMAGE_HEADER)) {
+				in.position(contentStart);
+				open(dst, new InputStreamReader(Channels.newInputStream(in), StandardCharsets.ISO_8859_1));
+			} else if (header.startsWith(BINARY_IMAGE_HEADER + " ")) {
+				int bytesPerWord;
+				try {
+					bytesPerWord = Integer.parseInt(header.substring(BINARY_IMAGE_HEADER.length() + 1).trim());
+				} catch (NumberFormatException e) {
+					bytesPerWord = -1;
+				}
+				if (bytesPerWord != 1 && bytesPerWord != 2 && bytesPerWord != 4)
+					throw new IOException(Strings.get("hexHeaderFormatError"));
+				ByteBuffer words = in.map(FileChannel.MapMode.READ_ONLY, contentStart, in.size() - contentStart);
+				openBinary(dst, words.order(ByteOrder.LITTLE_ENDIAN), bytesPerWord);
+			} else {
+				throw new IOException(Strings.get("hexHeaderFormatError"));
 			}
 		} finally {
 			try {
-				if (in != null)
-					in.close();
+				in.close();
 			} catch (IOException e) {
+				throw new IOException(Strings.get("hexFileReadError"));
 			}
 		}
 	}
 
 	public static void open(HexModel dst, Reader in) throws IOException {
-		HexReader reader = new HexReader(new BufferedReader(in));
+		HexReader reader = new HexReader(in);
 		long offs = dst.getFirstOffset();
 		while (reader.hasNext()) {
 			int[] values = reader.next();
@@ -166,8 +297,43 @@ public class HexFile {
 		dst.fill(offs, dst.getLastOffset() - offs + 1, 0);
 	}
 
+	private static void openBinary(HexModel dst, ByteBuffer words, int bytesPerWord) throws IOException {
+		if (words.remaining() % bytesPerWord != 0)
+			throw new IOException(Strings.get("hexNumberFormatError"));
+		long count = words.remaining() / bytesPerWord;
+		long offs = dst.getFirstOffset();
+		if (offs + count - 1 > dst.getLastOffset())
+			throw new IOException(Strings.get("hexFileSizeError"));
+
+		if (dst instanceof BinaryTarget) {
+			((BinaryTarget) dst).loadBinary(words, bytesPerWord);
+			return;
+		}
+		int[] values = new int[4096];
+		while (words.hasRemaining()) {
+			int n = Math.min(values.length, words.remaining() / bytesPerWord);
+			if (n < values.length)
+				values = new int[n];
+			for (int i = 0; i < n; i++) {
+				switch (bytesPerWord) {
+				case 1:
+					values[i] = words.get() & 0xff;
+					break;
+				case 2:
+					values[i] = words.getShort() & 0xffff;
+					break;
+				default:
+					values[i] = words.getInt();
+				}
+			}
+			dst.set(offs, values);
+			offs += n;
+		}
+		dst.fill(offs, dst.getLastOffset() - offs + 1, 0);
+	}
+
 	public static int[] parse(Reader in) throws IOException {
-		HexReader reader = new HexReader(new BufferedReader(in));
+		HexReader reader = new HexReader(in);
 		int cur = 0;
 		int[] data = new int[4096];
 		while (reader.hasNext()) {
@@ -188,7 +354,15 @@ public class HexFile {
 		return data;
 	}
 
+	/**
+	 * Saves the image, in the binary format if the file's name ends with
+	 * <code>.bin</code> and as text otherwise.
+	 */
 	public static void save(File dst, HexModel src) throws IOException {
+		if (dst.getName().toLowerCase().endsWith(BINARY_EXTENSION)) {
+			saveBinary(dst, src);
+			return;
+		}
 		FileWriter out;
 		try {
 			out = new FileWriter(dst);
@@ -244,6 +418,37 @@ public class HexFile {
 			out.write('\n');
 	}
 
+	public static void saveBinary(File dst, HexModel src) throws IOException {
+		OutputStream out;
+		try {
+			out = new BufferedOutputStream(new FileOutputStream(dst), 1 << 16);
+		} catch (IOException e) {
+			throw new IOException(Strings.get("hexFileOpenError"));
+		}
+		try {
+			int bytesPerWord = getBytesPerWord(src.getValueWidth());
+			long first = src.getFirstOffset();
+			long last = src.getLastOffset();
+			while (last >= first && src.get(last) == 0)
+				last--;
+			out.write((BINARY_IMAGE_HEADER + " " + bytesPerWord + "\n").getBytes(StandardCharsets.ISO_8859_1));
+			for (long cur = first; cur <= last; cur++) {
+				int val = src.get(cur);
+				for (int i = 0; i < bytesPerWord; i++) {
+					out.write(val >>> (8 * i));
+				}
+			}
+		} catch (IOException e) {
+			throw new IOException(Strings.get("hexFileWriteError"));
+		} finally {
+			try {
+				out.close();
+			} catch (IOException e) {
+				throw new IOException(Strings.get("hexFileWriteError"));
+			}
+		}
+	}
+
 	private HexFile() {
 	}
 }
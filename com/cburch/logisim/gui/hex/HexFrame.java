@@ -19,6 +19,7 @@ import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.ScrollPaneConstants;
+import javax.swing.Timer;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 
@@ -33,6 +34,19 @@ import com.cburch.logisim.util.LocaleManager;
 import com.cburch.logisim.util.WindowMenuItemManager;
 
 public class HexFrame extends LFrame {
+	/**
+	 * Implemented by models written by the simulation, which do not announce
+	 * each such write to their listeners. While tracking, the model marks the
+	 * written addresses, and <code>fireTrackedChanges</code> announces those
+	 * marked since the last call as a few ranges. The frame tracks changes
+	 * while it is showing and fires them each time it refreshes.
+	 */
+	public static interface TrackedModel {
+		public void fireTrackedChanges();
+
+		public void setTrackingChanges(boolean value);
+	}
+
 	private class EditListener implements ActionListener, ChangeListener {
 		private Clip clip = null;
 
@@ -121,6 +135,8 @@ public class HexFrame extends LFrame {
 			} else if (src == close) {
 				WindowEvent e = new WindowEvent(HexFrame.this, WindowEvent.WINDOW_CLOSING);
 				HexFrame.this.processWindowEvent(e);
+			} else if (src == timer) {
+				((TrackedModel) model).fireTrackedChanges();
 			}
 		}
 
@@ -155,6 +171,8 @@ public class HexFrame extends LFrame {
 	 */
 	private static final long serialVersionUID = -3382498162653014279L;
 
+	private static final int REFRESH_MILLIS = 100;
+
 	private WindowMenuManager windowManager = new WindowMenuManager();
 	private EditListener editListener = new EditListener();
 	private MyListener myListener = new MyListener();
@@ -163,6 +181,7 @@ public class HexFrame extends LFrame {
 	private JButton open = new JButton();
 	private JButton save = new JButton();
 	private JButton close = new JButton();
+	private Timer timer = new Timer(REFRESH_MILLIS, myListener);
 
 	public HexFrame(Project proj, HexModel model) {
 		setDefaultCloseOperation(HIDE_ON_CLOSE);
@@ -216,6 +235,13 @@ public class HexFrame extends LFrame {
 		if (value && !isVisible()) {
 			windowManager.frameOpened(this);
 		}
+		if (model instanceof TrackedModel && value != isVisible()) {
+			((TrackedModel) model).setTrackingChanges(value);
+			if (value)
+				timer.start();
+			else
+				timer.stop();
+		}
 		super.setVisible(value);
 	}
 }
@@ -20,6 +20,7 @@ import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JTextField;
 
+import com.cburch.logisim.circuit.Simulator;
 import com.cburch.logisim.data.Value;
 import com.cburch.logisim.util.JFileChoosers;
 import com.cburch.logisim.util.StringUtil;
@@ -64,6 +65,31 @@ class FilePanel extends LogPanel {
 				getModel().setFile(file);
 			} else if (src == headerCheckBox) {
 				getModel().setFileHeader(headerCheckBox.isSelected());
+			} else if (src == vcdButton) {
+				Model model = getModel();
+				try {
+					if (model.getVcdFile() != null) {
+						model.stopVcd();
+					} else {
+						int result = vcdChooser.showSaveDialog(getLogFrame());
+						if (result != JFileChooser.APPROVE_OPTION)
+							return;
+						model.startVcd(vcdChooser.getSelectedFile());
+						// an empty task makes the simulator take the first sample
+						Simulator sim = getProject().getSimulator();
+						if (sim != null) {
+							sim.requestTask(new Runnable() {
+								@Override
+								public void run() {
+								}
+							});
+						}
+					}
+				} catch (IOException e) {
+					JOptionPane.showMessageDialog(getLogFrame(),
+							StringUtil.format(Strings.get("vcdErrorMessage"), e.getMessage()),
+							Strings.get("vcdErrorTitle"), JOptionPane.ERROR_MESSAGE);
+				}
 			}
 		}
 
@@ -91,6 +117,10 @@ class FilePanel extends LogPanel {
 			enableButton.setEnabled(file != null);
 
 			headerCheckBox.setSelected(model.getFileHeader());
+
+			File vcdFile = model.getVcdFile();
+			vcdField.setText(vcdFile == null ? "" : vcdFile.getPath());
+			vcdButton.setText(Strings.get(vcdFile == null ? "vcdStartButton" : "vcdStopButton"));
 		}
 
 		@Override
@@ -111,6 +141,10 @@ class FilePanel extends LogPanel {
 	private JButton selectButton = new JButton();
 	private JCheckBox headerCheckBox = new JCheckBox();
 	private JFileChooser chooser = JFileChoosers.create();
+	private JLabel vcdLabel = new JLabel();
+	private JTextField vcdField = new JTextField();
+	private JButton vcdButton = new JButton();
+	private JFileChooser vcdChooser = JFileChoosers.create();
 
 	public FilePanel(LogFrame frame) {
 		super(frame);
@@ -130,6 +164,21 @@ class FilePanel extends LogPanel {
 		fileField.setEditable(false);
 		fileField.setEnabled(false);
 
+		JPanel vcdPanel = new JPanel(new GridBagLayout());
+		gb = (GridBagLayout) vcdPanel.getLayout();
+		gc = new GridBagConstraints();
+		gc.fill = GridBagConstraints.HORIZONTAL;
+		gb.setConstraints(vcdLabel, gc);
+		vcdPanel.add(vcdLabel);
+		gc.weightx = 1.0;
+		gb.setConstraints(vcdField, gc);
+		vcdPanel.add(vcdField);
+		gc.weightx = 0.0;
+		gb.setConstraints(vcdButton, gc);
+		vcdPanel.add(vcdButton);
+		vcdField.setEditable(false);
+		vcdField.setEnabled(false);
+
 		setLayout(new GridBagLayout());
 		gb = (GridBagLayout) getLayout();
 		gc = new GridBagConstraints();
@@ -167,10 +216,20 @@ class FilePanel extends LogPanel {
 		gb.setConstraints(glue, gc);
 		add(glue);
 		gc.weighty = 0.0;
+		gc.fill = GridBagConstraints.HORIZONTAL;
+		gb.setConstraints(vcdPanel, gc);
+		add(vcdPanel);
+		gc.fill = GridBagConstraints.NONE;
+		glue = new JPanel();
+		gc.weighty = 1.0;
+		gb.setConstraints(glue, gc);
+		add(glue);
+		gc.weighty = 0.0;
 
 		enableButton.addActionListener(listener);
 		selectButton.addActionListener(listener);
 		headerCheckBox.addActionListener(listener);
+		vcdButton.addActionListener(listener);
 		modelChanged(null, getModel());
 		localeChanged();
 	}
@@ -191,6 +250,8 @@ class FilePanel extends LogPanel {
 		fileLabel.setText(Strings.get("fileLabel") + " ");
 		selectButton.setText(Strings.get("fileSelectButton"));
 		headerCheckBox.setText(Strings.get("fileHeaderCheck"));
+		vcdLabel.setText(Strings.get("vcdLabel") + " ");
+		vcdButton.setText(Strings.get(getModel().getVcdFile() == null ? "vcdStartButton" : "vcdStopButton"));
 	}
 
 	@Override
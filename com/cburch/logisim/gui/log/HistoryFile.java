@@ -0,0 +1,104 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.gui.log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A temporary file to which the value logs of a model spill their older
+ * chunks of history. The file is created when first needed and deleted when
+ * the model is disposed, or failing that when Logisim exits. The space of a
+ * chunk released by its log is reused by later chunks, and released space at
+ * the end of the file is cut off.
+ */
+class HistoryFile {
+	private File file = null;
+	private RandomAccessFile data = null;
+	private long length = 0;
+	private TreeMap<Long, Long> free = new TreeMap<Long, Long>(); // offset -> length
+
+	/**
+	 * Writes the bytes into the first released space that holds them, or at
+	 * the end of the file, returning their offset. If the write fails, the
+	 * space is left free and what was written before is unharmed.
+	 */
+	synchronized long append(byte[] bytes) throws IOException {
+		if (data == null) {
+			file = File.createTempFile("logisim", ".hist");
+			file.deleteOnExit();
+			data = new RandomAccessFile(file, "rw");
+		}
+		long ret = length;
+		long space = 0;
+		for (Map.Entry<Long, Long> e : free.entrySet()) {
+			if (e.getValue().longValue() >= bytes.length) {
+				ret = e.getKey().longValue();
+				space = e.getValue().longValue();
+				break;
+			}
+		}
+		data.seek(ret);
+		data.write(bytes);
+		if (ret == length) {
+			length += bytes.length;
+		} else {
+			free.remove(Long.valueOf(ret));
+			if (space > bytes.length)
+				free.put(Long.valueOf(ret + bytes.length), Long.valueOf(space - bytes.length));
+		}
+		return ret;
+	}
+
+	synchronized void close() {
+		if (data != null) {
+			try {
+				data.close();
+			} catch (IOException e) {
+			}
+			file.delete();
+			data = null;
+			file = null;
+			length = 0;
+			free.clear();
+		}
+	}
+
+	synchronized byte[] read(long offset, int count) throws IOException {
+		if (data == null)
+			throw new IOException("history file closed");
+		byte[] ret = new byte[count];
+		data.seek(offset);
+		data.readFully(ret);
+		return ret;
+	}
+
+	/** Marks the bytes written at the offset as no longer needed. */
+	synchronized void release(long offset, int count) {
+		if (data == null)
+			return;
+		long start = offset;
+		long end = offset + count;
+		Map.Entry<Long, Long> before = free.floorEntry(Long.valueOf(start));
+		if (before != null && before.getKey().longValue() + before.getValue().longValue() == start) {
+			start = before.getKey().longValue();
+			free.remove(before.getKey());
+		}
+		Long after = free.remove(Long.valueOf(end));
+		if (after != null)
+			end += after.longValue();
+		if (end == length) {
+			length = start;
+			try {
+				data.setLength(length);
+			} catch (IOException e) {
+			}
+		} else {
+			free.put(Long.valueOf(start), Long.valueOf(end - start));
+		}
+	}
+}
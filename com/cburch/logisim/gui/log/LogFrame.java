@@ -10,6 +10,7 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.WindowEvent;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 
 import javax.swing.JButton;
@@ -17,6 +18,7 @@ import javax.swing.JFrame;
 import javax.swing.JPanel;
 import javax.swing.JTabbedPane;
 
+import com.cburch.logisim.circuit.Circuit;
 import com.cburch.logisim.circuit.CircuitState;
 import com.cburch.logisim.circuit.Simulator;
 import com.cburch.logisim.circuit.SimulatorEvent;
@@ -178,6 +180,20 @@ public class LogFrame extends LFrame {
 		setLocationRelativeTo(null);
 	}
 
+	/** Disposes the models too, deleting their history files. */
+	@Override
+	public void dispose() {
+		if (curSimulator != null)
+			curSimulator.removeSimulatorListener(myListener);
+		curSimulator = null;
+		curModel = null;
+		for (Model model : modelMap.values()) {
+			model.dispose();
+		}
+		modelMap.clear();
+		super.dispose();
+	}
+
 	Model getModel() {
 		return curModel;
 	}
@@ -190,6 +206,20 @@ public class LogFrame extends LFrame {
 		return project;
 	}
 
+	// whether the state is still the project's state for its circuit, or a
+	// substate of one
+	private boolean isLive(CircuitState state) {
+		CircuitState parent = state.getParentState();
+		while (parent != null) {
+			if (!parent.getSubstates().contains(state))
+				return false;
+			state = parent;
+			parent = state.getParentState();
+		}
+		Circuit circuit = state.getCircuit();
+		return project.getLogisimFile().contains(circuit) && project.getCircuitState(circuit) == state;
+	}
+
 	private void setSimulator(Simulator value, CircuitState state) {
 		if ((value == null) == (curModel == null)) {
 			if (value == null || value.getCircuitState() == curModel.getCircuitState())
@@ -216,6 +246,15 @@ public class LogFrame extends LFrame {
 		curSimulator = value;
 		curModel = data;
 
+		// the models of states that are gone will not be shown again
+		for (Iterator<Model> it = modelMap.values().iterator(); it.hasNext();) {
+			Model model = it.next();
+			if (model != curModel && !isLive(model.getCircuitState())) {
+				model.dispose();
+				it.remove();
+			}
+		}
+
 		if (curSimulator != null)
 			curSimulator.addSimulatorListener(myListener);
 		if (curModel != null)
@@ -4,6 +4,7 @@
 package com.cburch.logisim.gui.log;
 
 import com.cburch.logisim.circuit.CircuitState;
+import com.cburch.logisim.data.BitWidth;
 import com.cburch.logisim.data.Value;
 
 public interface Loggable {
@@ -11,5 +12,8 @@ public interface Loggable {
 
 	public Object[] getLogOptions(CircuitState state);
 
+	/** Returns the width of the option's values, or null if it is not known. */
+	public BitWidth getLogWidth(CircuitState state, Object option);
+
 	public Value getLogValue(CircuitState state, Object option);
 }
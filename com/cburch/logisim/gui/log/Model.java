@@ -4,6 +4,7 @@
 package com.cburch.logisim.gui.log;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Iterator;
 
@@ -17,22 +18,47 @@ class Model {
 	private EventSourceWeakSupport<ModelListener> listeners;
 	private Selection selection;
 	private HashMap<SelectionItem, ValueLog> log;
+	private HistoryFile history;
 	private boolean fileEnabled = false;
 	private File file = null;
 	private boolean fileHeader = true;
 	private boolean selected = false;
 	private LogThread logger = null;
+	private volatile VcdWriter vcd = null;
+	private File vcdFile = null;
 
 	public Model(CircuitState circuitState) {
 		listeners = new EventSourceWeakSupport<ModelListener>();
 		selection = new Selection(circuitState, this);
 		log = new HashMap<SelectionItem, ValueLog>();
+		history = new HistoryFile();
 	}
 
 	public void addModelListener(ModelListener l) {
 		listeners.add(l);
 	}
 
+	/**
+	 * Stops logging and deletes the history file, once the model's circuit
+	 * state is gone or the log frame closes.
+	 */
+	public void dispose() {
+		if (logger != null)
+			logger.cancel();
+		logger = null;
+		selected = false;
+		fileEnabled = false;
+		try {
+			stopVcd();
+		} catch (IOException e) {
+		}
+		for (ValueLog l : log.values()) {
+			l.dispose();
+		}
+		log.clear();
+		history.close();
+	}
+
 	private void fireEntryAdded(ModelEvent e, Value[] values) {
 		for (ModelListener l : listeners) {
 			l.entryAdded(e, values);
@@ -49,6 +75,7 @@ class Model {
 		for (Iterator<SelectionItem> it = log.keySet().iterator(); it.hasNext();) {
 			SelectionItem i = it.next();
 			if (selection.indexOf(i) < 0) {
+				log.get(i).dispose();
 				it.remove();
 			}
 		}
@@ -77,12 +104,16 @@ class Model {
 	public ValueLog getValueLog(SelectionItem item) {
 		ValueLog ret = log.get(item);
 		if (ret == null && selection.indexOf(item) >= 0) {
-			ret = new ValueLog();
+			ret = new ValueLog(history);
 			log.put(item, ret);
 		}
 		return ret;
 	}
 
+	public File getVcdFile() {
+		return vcdFile;
+	}
+
 	public boolean isFileEnabled() {
 		return fileEnabled;
 	}
@@ -110,6 +141,9 @@ class Model {
 			}
 			fireEntryAdded(new ModelEvent(), vals);
 		}
+		VcdWriter writer = vcd;
+		if (writer != null)
+			writer.sample(circuitState);
 	}
 
 	public void removeModelListener(ModelListener l) {
@@ -137,6 +171,24 @@ class Model {
 		fireFilePropertyChanged(new ModelEvent());
 	}
 
+	/**
+	 * Starts dumping the values of the current selection to the file, in
+	 * value change dump format. The dump is sampled whenever propagation
+	 * completes; later changes to the selection do not affect it.
+	 */
+	public void startVcd(File value) throws IOException {
+		stopVcd();
+		VcdWriter writer = new VcdWriter(value);
+		for (int i = 0; i < selection.size(); i++) {
+			SelectionItem item = selection.get(i);
+			writer.addSignal(item.getPath(), item.getComponent(), item.getOption());
+		}
+		writer.start();
+		vcd = writer;
+		vcdFile = value;
+		fireFilePropertyChanged(new ModelEvent());
+	}
+
 	public void setSelected(JFrame frame, boolean value) {
 		if (selected == value)
 			return;
@@ -149,7 +201,21 @@ class Model {
 				logger.cancel();
 			logger = null;
 			fileEnabled = false;
+			try {
+				stopVcd();
+			} catch (IOException e) {
+			}
 		}
 		fireFilePropertyChanged(new ModelEvent());
 	}
+
+	public void stopVcd() throws IOException {
+		VcdWriter writer = vcd;
+		if (writer == null)
+			return;
+		vcd = null;
+		vcdFile = null;
+		fireFilePropertyChanged(new ModelEvent());
+		writer.close();
+	}
 }
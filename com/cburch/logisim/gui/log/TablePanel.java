@@ -265,11 +265,13 @@ class TablePanel extends LogPanel {
 			int offs = rowCount - log.size();
 			y = y0 + Math.max(offs, firstRow) * cellHeight;
 			for (int row = Math.max(offs, firstRow); row < lastRow; row++) {
-				g.setColor(colors[((row + log.firstIndex()) / 10) % 10]);
+				g.setColor(colors[(row / 10) % 10]);
 				Value val = log.get(row - offs);
-				String label = val.toDisplayString(radix);
-				int width = bodyMetric.stringWidth(label);
-				g.drawString(label, x + (cellWidth - width) / 2, y + bodyMetric.getAscent());
+				if (val != null) {
+					String label = val.toDisplayString(radix);
+					int width = bodyMetric.stringWidth(label);
+					g.drawString(label, x + (cellWidth - width) / 2, y + bodyMetric.getAscent());
+				}
 				y += cellHeight;
 			}
 			x += cellWidth + COLUMN_SEP;
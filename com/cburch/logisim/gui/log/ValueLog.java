@@ -3,50 +3,245 @@
 
 package com.cburch.logisim.gui.log;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+
 import com.cburch.logisim.data.Value;
 
+/**
+ * The history of one selected item, kept for as long as the log runs. Rows
+ * holding the same value as the row before are stored as one run, and runs
+ * are gathered into chunks of <code>CHUNK_RUNS</code>. A sealed chunk is
+ * encoded as a table of its distinct values followed by each run's length
+ * and index into the table, so each change costs a few bytes. Once the
+ * sealed chunks in memory pass <code>MEMORY_LIMIT</code>, the oldest are
+ * moved out to the model's <code>HistoryFile</code>.
+ *
+ * Any row can be fetched by finding its chunk and then its run by binary
+ * search; the last chunk decoded is kept, as a scrolling table asks for
+ * neighboring rows. The log is written by the simulator and read by the
+ * table and the log file thread, so its methods are synchronized.
+ */
 class ValueLog {
-	private static final int LOG_SIZE = 400;
+	private static class Chunk {
+		private final int firstRow;
+		private byte[] data; // null once spilled to the file
+		private long offset = -1;
+		private final int length;
+
+		private Chunk(int firstRow, byte[] data) {
+			this.firstRow = firstRow;
+			this.data = data;
+			this.length = data.length;
+		}
+	}
 
-	private Value[] log;
-	private short curSize;
-	private short firstIndex;
+	private static final int CHUNK_RUNS = 256;
+	private static final int MEMORY_LIMIT = 1 << 18; // bytes per log
+
+	private static int findRun(int[] starts, int count, int row) {
+		int lo = 0;
+		int hi = count - 1;
+		while (lo < hi) {
+			int mid = (lo + hi + 1) >>> 1;
+			if (starts[mid] <= row)
+				lo = mid;
+			else
+				hi = mid - 1;
+		}
+		return lo;
+	}
 
-	public ValueLog() {
-		log = new Value[LOG_SIZE];
-		curSize = 0;
-		firstIndex = 0;
+	private static int readCount(DataInputStream in) throws IOException {
+		int ret = 0;
+		for (int shift = 0; true; shift += 7) {
+			int b = in.readUnsignedByte();
+			ret |= (b & 0x7f) << shift;
+			if ((b & 0x80) == 0)
+				return ret;
+		}
 	}
 
-	public void append(Value val) {
-		if (curSize < LOG_SIZE) {
-			log[curSize] = val;
-			curSize++;
-		} else {
-			log[firstIndex] = val;
-			firstIndex++;
-			if (firstIndex >= LOG_SIZE)
-				firstIndex = 0;
+	private static void writeCount(DataOutputStream out, int value) throws IOException {
+		while ((value & ~0x7f) != 0) {
+			out.writeByte((value & 0x7f) | 0x80);
+			value >>>= 7;
 		}
+		out.writeByte(value);
 	}
 
-	public short firstIndex() {
-		return firstIndex;
+	private HistoryFile file;
+	private boolean spilling = true; // false once the file refuses a chunk
+	private ArrayList<Chunk> chunks = new ArrayList<Chunk>();
+	private int memoryUsed = 0;
+	private int firstInMemory = 0; // chunks before this have been spilled
+	private int size = 0;
+
+	// the runs not yet sealed into a chunk
+	private int[] openStarts = new int[CHUNK_RUNS];
+	private Value[] openValues = new Value[CHUNK_RUNS];
+	private int openRuns = 0;
+
+	// the runs of the chunk decoded last
+	private Chunk cached = null;
+	private int[] cachedStarts = new int[CHUNK_RUNS];
+	private Value[] cachedValues = new Value[CHUNK_RUNS];
+	private int cachedRuns = 0;
+
+	public ValueLog(HistoryFile file) {
+		this.file = file;
 	}
 
-	public Value get(int index) {
-		int i = firstIndex + index;
-		if (i >= LOG_SIZE)
-			i -= LOG_SIZE;
-		return log[i];
+	public synchronized void append(Value val) {
+		if (openRuns > 0) {
+			Value last = openValues[openRuns - 1];
+			if (last == null ? val == null : last.equals(val)) {
+				size++;
+				return;
+			}
+			if (openRuns == CHUNK_RUNS)
+				seal();
+		}
+		openStarts[openRuns] = size;
+		openValues[openRuns] = val;
+		openRuns++;
+		size++;
 	}
 
-	public Value getLast() {
-		return curSize < LOG_SIZE ? (curSize == 0 ? null : log[curSize - 1])
-				: (firstIndex == 0 ? log[curSize - 1] : log[firstIndex - 1]);
+	private void decode(Chunk chunk) {
+		cached = null;
+		cachedRuns = 0;
+		try {
+			byte[] bytes = chunk.data != null ? chunk.data : file.read(chunk.offset, chunk.length);
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+			Value[] table = new Value[readCount(in)];
+			for (int i = 0; i < table.length; i++) {
+				table[i] = in.readBoolean() ? Value.read(in) : null;
+			}
+			int runs = readCount(in);
+			int row = chunk.firstRow;
+			for (int i = 0; i < runs; i++) {
+				cachedStarts[i] = row;
+				row += readCount(in);
+				cachedValues[i] = table[readCount(in)];
+			}
+			cachedRuns = runs;
+		} catch (IOException e) {
+			// the rows of an unreadable chunk are reported as missing
+			cachedStarts[0] = chunk.firstRow;
+			cachedValues[0] = null;
+			cachedRuns = 1;
+		}
+		cached = chunk;
+	}
+
+	/**
+	 * Drops the history, releasing its chunks in the file, once the item is
+	 * no longer logged.
+	 */
+	public synchronized void dispose() {
+		for (int i = 0; i < firstInMemory; i++) {
+			Chunk chunk = chunks.get(i);
+			if (file != null)
+				file.release(chunk.offset, chunk.length);
+		}
+		chunks.clear();
+		memoryUsed = 0;
+		firstInMemory = 0;
+		size = 0;
+		openRuns = 0;
+		cached = null;
+		cachedRuns = 0;
+		file = null;
+	}
+
+	/** Returns the value at the row, or null if it cannot be found. */
+	public synchronized Value get(int index) {
+		if (index < 0 || index >= size)
+			return null;
+		if (openRuns > 0 && index >= openStarts[0])
+			return openValues[findRun(openStarts, openRuns, index)];
+
+		int lo = 0;
+		int hi = chunks.size() - 1;
+		while (lo < hi) {
+			int mid = (lo + hi + 1) >>> 1;
+			if (chunks.get(mid).firstRow <= index)
+				lo = mid;
+			else
+				hi = mid - 1;
+		}
+		Chunk chunk = chunks.get(lo);
+		if (chunk != cached)
+			decode(chunk);
+		return cachedValues[findRun(cachedStarts, cachedRuns, index)];
+	}
+
+	public synchronized Value getLast() {
+		return openRuns == 0 ? null : openValues[openRuns - 1];
+	}
+
+	// moves the open runs into a new chunk, spilling older chunks if there
+	// are too many in memory
+	private void seal() {
+		ByteArrayOutputStream buf = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(buf);
+		try {
+			HashMap<Value, Integer> indices = new HashMap<Value, Integer>();
+			ArrayList<Value> table = new ArrayList<Value>();
+			int[] runIndex = new int[openRuns];
+			for (int i = 0; i < openRuns; i++) {
+				Integer index = indices.get(openValues[i]);
+				if (index == null) {
+					index = Integer.valueOf(table.size());
+					indices.put(openValues[i], index);
+					table.add(openValues[i]);
+				}
+				runIndex[i] = index.intValue();
+			}
+			writeCount(out, table.size());
+			for (Value v : table) {
+				out.writeBoolean(v != null);
+				if (v != null)
+					v.write(out);
+			}
+			writeCount(out, openRuns);
+			for (int i = 0; i < openRuns; i++) {
+				int end = i + 1 < openRuns ? openStarts[i + 1] : size;
+				writeCount(out, end - openStarts[i]);
+				writeCount(out, runIndex[i]);
+			}
+			out.flush();
+		} catch (IOException e) {
+			// cannot happen when writing to memory
+		}
+		Chunk chunk = new Chunk(openStarts[0], buf.toByteArray());
+		chunks.add(chunk);
+		memoryUsed += chunk.length;
+		openRuns = 0;
+
+		while (memoryUsed > MEMORY_LIMIT && spilling && file != null && firstInMemory < chunks.size() - 1) {
+			Chunk old = chunks.get(firstInMemory);
+			try {
+				old.offset = file.append(old.data);
+			} catch (IOException e) {
+				// keep new chunks in memory from now on; those already
+				// spilled are still read from the file
+				spilling = false;
+				break;
+			}
+			old.data = null;
+			memoryUsed -= old.length;
+			firstInMemory++;
+		}
 	}
 
-	public int size() {
-		return curSize;
+	public synchronized int size() {
+		return size;
 	}
 }
@@ -0,0 +1,356 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.gui.log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Date;
+
+import com.cburch.logisim.Main;
+import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.circuit.CircuitState;
+import com.cburch.logisim.circuit.SubcircuitFactory;
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.instance.StdAttr;
+
+/**
+ * Writes a value change dump of a set of signals, to be read by external
+ * waveform viewers. Each signal is a <code>Loggable</code> component, perhaps
+ * inside subcircuits, which become nested scopes of the dump. The signals are
+ * fixed when the first sample is taken, each declared with the width its
+ * component gives for it.
+ *
+ * The simulator thread calls <code>sample</code> after each propagation, and
+ * the changes are stamped with the propagator's clock. A reset sets the clock
+ * back, so the stamps then carry on from the last one written, keeping the
+ * times of the dump increasing. Lines are gathered in memory and written to
+ * the file by this thread, so that the simulator never waits on the disk
+ * unless it runs far ahead of it.
+ */
+public class VcdWriter extends Thread {
+	private static class Scope {
+		private final Component comp; // null for the root circuit
+		private final String name;
+		private final ArrayList<Signal> signals = new ArrayList<Signal>();
+		private final ArrayList<Scope> children = new ArrayList<Scope>();
+
+		private Scope(Component comp, String name) {
+			this.comp = comp;
+			this.name = name;
+		}
+
+		private Scope getChild(Component sub) {
+			for (Scope child : children) {
+				if (child.comp == sub)
+					return child;
+			}
+			String label = sub.getAttributeSet().getValue(StdAttr.LABEL);
+			if (label == null || label.equals(""))
+				label = sub.getFactory().getName() + sub.getLocation();
+			Scope ret = new Scope(sub, toIdentifier(label));
+			children.add(ret);
+			return ret;
+		}
+	}
+
+	private static class Signal {
+		private final Component comp;
+		private final Object option;
+		private final String name;
+		private String id;
+		private int width;
+		private Value last = null;
+
+		private Signal(Component comp, Object option, String name) {
+			this.comp = comp;
+			this.option = option;
+			this.name = name;
+		}
+	}
+
+	// the thread writes whatever is pending at least this often
+	private static final int FLUSH_FREQUENCY = 500;
+
+	// the thread is woken once this many characters are pending
+	private static final int FLUSH_SIZE = 1 << 16;
+
+	// the simulator waits once this many characters are pending
+	private static final int MAX_PENDING = 1 << 22;
+
+	private static String toIdentifier(String name) {
+		StringBuilder ret = new StringBuilder(name.length());
+		for (int i = 0; i < name.length(); i++) {
+			char c = name.charAt(i);
+			ret.append(c > ' ' && c < 127 ? c : '_');
+		}
+		return ret.length() == 0 ? "_" : ret.toString();
+	}
+
+	private FileChannel channel;
+	private Scope root = new Scope(null, null);
+	private int nextId = 0;
+	private boolean started = false;
+	private int lastTime = -1; // the last time written
+	private int lastClock = 0;
+	private int timeOffset = 0; // added to the clock, growing at each reset
+	private StringBuilder line = new StringBuilder();
+
+	private Object lock = new Object();
+	private StringBuilder pending = new StringBuilder();
+	private boolean closing = false;
+	private volatile IOException error = null;
+
+	public VcdWriter(File file) throws IOException {
+		super("VcdWriter");
+		channel = new FileOutputStream(file).getChannel();
+	}
+
+	/** Adds every loggable component in the circuit and its subcircuits. */
+	public void addCircuit(CircuitState state) {
+		addCircuit(state, new ArrayList<Component>());
+	}
+
+	private void addCircuit(CircuitState state, ArrayList<Component> path) {
+		Circuit circuit = state.getCircuit();
+		for (Component comp : circuit.getNonWires()) {
+			if (comp.getFactory() instanceof SubcircuitFactory) {
+				SubcircuitFactory factory = (SubcircuitFactory) comp.getFactory();
+				path.add(comp);
+				addCircuit(factory.getSubstate(state, comp), path);
+				path.remove(path.size() - 1);
+			} else {
+				Loggable log = (Loggable) comp.getFeature(Loggable.class);
+				if (log != null && log.getLogOptions(state) == null) {
+					addSignal(path.toArray(new Component[path.size()]), comp, null);
+				}
+			}
+		}
+	}
+
+	void addSignal(Component[] path, Component comp, Object option) {
+		if (started)
+			throw new IllegalStateException("signals added after first sample");
+		Scope scope = root;
+		for (Component sub : path) {
+			scope = scope.getChild(sub);
+		}
+		Loggable log = (Loggable) comp.getFeature(Loggable.class);
+		String name = log.getLogName(option);
+		if (name == null || name.equals("")) {
+			name = comp.getFactory().getName() + comp.getLocation();
+			if (option != null)
+				name += "." + option;
+		}
+		scope.signals.add(new Signal(comp, option, toIdentifier(name)));
+	}
+
+	// bits the value lacks are written as x
+	private void appendValue(Value val, Signal sig) {
+		int width = sig.width;
+		if (width > 1)
+			line.append('b');
+		for (int i = width - 1; i >= 0; i--) {
+			Value bit = val == null || i >= val.getWidth() ? Value.ERROR : val.get(i);
+			if (bit == Value.TRUE)
+				line.append('1');
+			else if (bit == Value.FALSE)
+				line.append('0');
+			else if (bit == Value.UNKNOWN)
+				line.append('z');
+			else
+				line.append('x');
+		}
+		if (width > 1)
+			line.append(' ');
+		line.append(sig.id).append('\n');
+	}
+
+	// collects the changed values of the scope's signals into line
+	private void appendChanges(Scope scope, CircuitState state, boolean all) {
+		for (Signal sig : scope.signals) {
+			Loggable log = (Loggable) sig.comp.getFeature(Loggable.class);
+			Value val = log == null ? null : log.getLogValue(state, sig.option);
+			if (all || (val == null ? sig.last != null : !val.equals(sig.last))) {
+				appendValue(val, sig);
+				sig.last = val;
+			}
+		}
+		for (Scope child : scope.children) {
+			SubcircuitFactory factory = (SubcircuitFactory) child.comp.getFactory();
+			appendChanges(child, factory.getSubstate(state, child.comp), all);
+		}
+	}
+
+	private void appendHeader(Scope scope, String name) {
+		line.append("$scope module ").append(name).append(" $end\n");
+		for (Signal sig : scope.signals) {
+			int width = sig.width;
+			line.append("$var wire ").append(width).append(' ').append(sig.id).append(' ').append(sig.name);
+			if (width > 1)
+				line.append(" [").append(width - 1).append(":0]");
+			line.append(" $end\n");
+		}
+		for (Scope child : scope.children) {
+			appendHeader(child, child.name);
+		}
+		line.append("$upscope $end\n");
+	}
+
+	// a signal whose component gives no width takes that of its first value
+	private void assignIds(Scope scope, CircuitState state) {
+		for (Signal sig : scope.signals) {
+			Loggable log = (Loggable) sig.comp.getFeature(Loggable.class);
+			BitWidth width = log == null ? null : log.getLogWidth(state, sig.option);
+			if (width == null) {
+				Value val = log == null ? null : log.getLogValue(state, sig.option);
+				sig.width = val == null ? 1 : Math.max(1, val.getWidth());
+			} else {
+				sig.width = Math.max(1, width.getWidth());
+			}
+
+			// identifiers are written in base 94 using the printable characters
+			StringBuilder id = new StringBuilder();
+			int n = nextId;
+			nextId++;
+			do {
+				id.append((char) ('!' + n % 94));
+				n /= 94;
+			} while (n > 0);
+			sig.id = id.toString();
+		}
+		for (Scope child : scope.children) {
+			SubcircuitFactory factory = (SubcircuitFactory) child.comp.getFactory();
+			assignIds(child, factory.getSubstate(state, child.comp));
+		}
+	}
+
+	/**
+	 * Writes what remains and closes the file, waiting for the thread to
+	 * finish. Throws the first error met in writing the file, if any.
+	 */
+	public void close() throws IOException {
+		synchronized (lock) {
+			closing = true;
+			lock.notifyAll();
+		}
+		if (isAlive()) {
+			try {
+				join();
+			} catch (InterruptedException e) {
+			}
+		} else {
+			writePending();
+			closeChannel();
+		}
+		if (error != null)
+			throw error;
+	}
+
+	private void closeChannel() {
+		try {
+			channel.close();
+		} catch (IOException e) {
+			if (error == null)
+				error = e;
+		}
+	}
+
+	@Override
+	public void run() {
+		while (true) {
+			boolean done;
+			synchronized (lock) {
+				if (!closing && pending.length() < FLUSH_SIZE) {
+					try {
+						lock.wait(FLUSH_FREQUENCY);
+					} catch (InterruptedException e) {
+					}
+				}
+				done = closing;
+			}
+			writePending();
+			if (done || error != null)
+				break;
+		}
+		closeChannel();
+	}
+
+	/** Records the values that have changed since the last sample. */
+	public void sample(CircuitState state) {
+		int clock = state.getPropagator().getClock();
+		if (clock < lastClock)
+			timeOffset = lastTime + 1 - clock;
+		lastClock = clock;
+		int time = clock + timeOffset;
+		line.setLength(0);
+		if (!started) {
+			started = true;
+			assignIds(root, state);
+			line.append("$date ").append(new Date()).append(" $end\n");
+			line.append("$version Logisim ").append(Main.VERSION_NAME).append(" $end\n");
+			line.append("$comment each time unit is one unit of propagation delay $end\n");
+			line.append("$timescale 1ns $end\n");
+			appendHeader(root, toIdentifier(state.getCircuit().getName()));
+			line.append("$enddefinitions $end\n");
+			line.append('#').append(time).append('\n');
+			line.append("$dumpvars\n");
+			appendChanges(root, state, true);
+			line.append("$end\n");
+		} else {
+			if (time > lastTime)
+				line.append('#').append(time).append('\n');
+			int mark = line.length();
+			appendChanges(root, state, false);
+			if (line.length() == mark)
+				return;
+		}
+		lastTime = time;
+
+		synchronized (lock) {
+			while (pending.length() > MAX_PENDING && !closing && error == null && isAlive()) {
+				lock.notifyAll();
+				try {
+					lock.wait(FLUSH_FREQUENCY);
+				} catch (InterruptedException e) {
+				}
+			}
+			if (closing || error != null)
+				return;
+			pending.append(line);
+			if (pending.length() >= FLUSH_SIZE)
+				lock.notifyAll();
+		}
+	}
+
+	private void writePending() {
+		StringBuilder data;
+		synchronized (lock) {
+			if (pending.length() == 0)
+				return;
+			data = pending;
+			pending = new StringBuilder(Math.min(2 * data.length(), MAX_PENDING));
+			lock.notifyAll();
+		}
+		if (error != null)
+			return;
+		ByteBuffer buf = ByteBuffer.allocate(data.length());
+		for (int i = 0, n = data.length(); i < n; i++) {
+			buf.put((byte) data.charAt(i));
+		}
+		buf.flip();
+		try {
+			while (buf.hasRemaining()) {
+				channel.write(buf);
+			}
+		} catch (IOException e) {
+			error = e;
+		}
+	}
+}
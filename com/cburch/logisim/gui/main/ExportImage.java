@@ -3,6 +3,7 @@
 
 package com.cburch.logisim.gui.main;
 
+import java.awt.AWTException;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics;
@@ -11,8 +12,25 @@ import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.Insets;
 import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.imageio.ImageIO;
 import javax.swing.Box;
@@ -35,95 +53,245 @@ import javax.swing.event.ChangeListener;
 import javax.swing.filechooser.FileFilter;
 
 import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.circuit.CircuitDrawing;
 import com.cburch.logisim.circuit.CircuitState;
 import com.cburch.logisim.comp.ComponentDrawContext;
 import com.cburch.logisim.data.Bounds;
 import com.cburch.logisim.file.Loader;
 import com.cburch.logisim.proj.Project;
 import com.cburch.logisim.util.GifEncoder;
+import com.cburch.logisim.util.PngEncoder;
 import com.cburch.logisim.util.StringGetter;
+import com.cburch.logisim.util.SvgGraphics;
 
-class ExportImage {
+public class ExportImage {
 	private static class ExportThread extends Thread {
 		Frame frame;
-		Canvas canvas;
-		File dest;
-		ImageFileFilter filter;
-		List<Circuit> circuits;
-		double scale;
-		boolean printerView;
+		Exporter exporter;
+		List<Exporter.Job> jobs;
 		ProgressMonitor monitor;
 
-		ExportThread(Frame frame, Canvas canvas, File dest, ImageFileFilter f, List<Circuit> circuits, double scale,
-				boolean printerView, ProgressMonitor monitor) {
+		ExportThread(Frame frame, Exporter exporter, List<Exporter.Job> jobs, ProgressMonitor monitor) {
 			this.frame = frame;
-			this.canvas = canvas;
-			this.dest = dest;
-			this.filter = f;
-			this.circuits = circuits;
-			this.scale = scale;
-			this.printerView = printerView;
+			this.exporter = exporter;
+			this.jobs = jobs;
 			this.monitor = monitor;
 		}
 
-		private void export(Circuit circuit) {
-			Bounds bds = circuit.getBounds(canvas.getGraphics()).expand(BORDER_SIZE);
-			int width = (int) Math.round(bds.getWidth() * scale);
-			int height = (int) Math.round(bds.getHeight() * scale);
-			BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-			Graphics base = img.getGraphics();
-			Graphics g = base.create();
-			g.setColor(Color.white);
-			g.fillRect(0, 0, width, height);
-			g.setColor(Color.black);
-			if (g instanceof Graphics2D) {
-				((Graphics2D) g).scale(scale, scale);
-				((Graphics2D) g).translate(-bds.getX(), -bds.getY());
-			} else {
-				JOptionPane.showMessageDialog(frame, Strings.get("couldNotCreateImage"));
-				monitor.close();
+		@Override
+		public void run() {
+			Map<Circuit, String> failed = exporter.exportAll(jobs, monitor);
+			monitor.close();
+			if (!failed.isEmpty()) {
+				StringBuilder msg = new StringBuilder(Strings.get("couldNotCreateFile"));
+				for (Map.Entry<Circuit, String> entry : failed.entrySet()) {
+					msg.append("\n" + entry.getKey().getName() + ": " + entry.getValue());
+				}
+				JOptionPane.showMessageDialog(frame, msg.toString());
 			}
+		}
+	}
+
+	/**
+	 * Draws circuits into image files. Each circuit is first taken as a
+	 * {@link CircuitDrawing} on the thread editing the project; the drawings
+	 * are then drawn several at once, on a pool of no more threads than there
+	 * are processors, each by one thread with its own images and drawing
+	 * context. The circuits themselves are not touched by the pool, though
+	 * the values drawn are read from their states as the simulator leaves
+	 * them.
+	 */
+	private static class Exporter {
+		// what is needed to write one circuit, found before any is drawn
+		private static class Job {
+			Circuit circuit;
+			CircuitState state;
+			CircuitDrawing drawing;
+			Bounds bds;
+			File where;
+		}
+
+		private Project proj;
+		private java.awt.Component destination; // null when exporting without a window
+		private ImageFileFilter filter;
+		private double scale;
+		private boolean printerView;
+
+		Exporter(Project proj, java.awt.Component destination, ImageFileFilter filter, double scale,
+				boolean printerView) {
+			this.proj = proj;
+			this.destination = destination;
+			this.filter = filter;
+			this.scale = scale;
+			this.printerView = printerView;
+		}
 
-			CircuitState circuitState = canvas.getProject().getCircuitState(circuit);
-			ComponentDrawContext context = new ComponentDrawContext(canvas, circuit, circuitState, base, g,
+		// draws the circuit onto g, whose origin is to be the corner of its
+		// bounds
+		private void draw(Job job, Graphics base, Graphics2D g) {
+			g.scale(scale, scale);
+			g.translate(-job.bds.getX(), -job.bds.getY());
+			ComponentDrawContext context = new ComponentDrawContext(destination, job.circuit, job.state, base, g,
 					printerView);
-			circuit.draw(context, null);
+			job.drawing.draw(context);
+		}
 
-			File where;
+		// writes one circuit; the monitor, if any, follows the strips of a PNG
+		private void export(Job job, ProgressMonitor monitor) throws IOException, AWTException {
+			int width = (int) Math.round(job.bds.getWidth() * scale);
+			int height = (int) Math.round(job.bds.getHeight() * scale);
+			switch (filter.type) {
+			case FORMAT_GIF:
+				GifEncoder.toFile(render(job, width, height), job.where, monitor);
+				break;
+			case FORMAT_PNG:
+				exportPng(job, width, height, monitor);
+				break;
+			case FORMAT_JPG:
+				ImageIO.write(render(job, width, height), "JPEG", job.where);
+				break;
+			case FORMAT_SVG:
+				exportSvg(job, width, height);
+				break;
+			}
+		}
+
+		/**
+		 * Writes each job's circuit to its file, returning the circuits that
+		 * could not be written, each with the reason. The monitor, if any,
+		 * follows the circuits completed, or the progress of the only one.
+		 */
+		Map<Circuit, String> exportAll(List<Job> jobs, final ProgressMonitor monitor) {
+			final int total = jobs.size();
+			final AtomicInteger done = new AtomicInteger(0);
+			int threads = Math.max(1, Math.min(total, Runtime.getRuntime().availableProcessors()));
+			ExecutorService pool = Executors.newFixedThreadPool(threads);
+			ArrayList<Future<String>> results = new ArrayList<Future<String>>();
+			for (final Job job : jobs) {
+				results.add(pool.submit(new Callable<String>() {
+					@Override
+					public String call() {
+						try {
+							export(job, total == 1 ? monitor : null);
+							return null;
+						} catch (Exception e) {
+							return describe(e);
+						} finally {
+							if (monitor != null && total > 1)
+								monitor.setProgress((int) (10000L * done.incrementAndGet() / total));
+						}
+					}
+				}));
+			}
+			pool.shutdown();
+
+			LinkedHashMap<Circuit, String> failed = new LinkedHashMap<Circuit, String>();
+			for (int i = 0; i < total; i++) {
+				String error;
+				try {
+					error = results.get(i).get();
+				} catch (InterruptedException e) {
+					error = describe(e);
+				} catch (ExecutionException e) {
+					error = describe(e.getCause());
+				}
+				if (error != null)
+					failed.put(jobs.get(i).circuit, error);
+			}
+			return failed;
+		}
+
+		// draws the image a strip of rows at a time, writing each strip before
+		// drawing the next, so that the memory used depends only on the width
+		private void exportPng(Job job, int width, int height, ProgressMonitor monitor) throws IOException {
+			int stripHeight = Math.max(1, Math.min(height, STRIP_PIXELS / Math.max(1, width)));
+			BufferedImage strip = new BufferedImage(width, stripHeight, BufferedImage.TYPE_INT_RGB);
+			OutputStream out = new BufferedOutputStream(new FileOutputStream(job.where));
+			try {
+				PngEncoder encoder = new PngEncoder(out, width, height, false);
+				for (int y = 0; y < height; y += stripHeight) {
+					int rows = Math.min(stripHeight, height - y);
+					Graphics base = strip.getGraphics();
+					Graphics2D g = (Graphics2D) base.create();
+					g.setColor(Color.white);
+					g.fillRect(0, 0, width, stripHeight);
+					g.setColor(Color.black);
+					g.clipRect(0, 0, width, rows);
+					g.translate(0, -y);
+					draw(job, base, g);
+					g.dispose();
+					base.dispose();
+					encoder.writeRows(strip, rows);
+					if (monitor != null)
+						monitor.setProgress((int) (10000L * (y + rows) / height));
+				}
+				encoder.finish();
+			} finally {
+				out.close();
+			}
+		}
+
+		private void exportSvg(Job job, int width, int height) throws IOException {
+			Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(job.where), "UTF-8"));
+			try {
+				SvgGraphics base = new SvgGraphics(out, width, height);
+				base.setColor(Color.white);
+				base.fillRect(0, 0, width, height);
+				Graphics2D g = (Graphics2D) base.create();
+				g.setColor(Color.black);
+				draw(job, base, g);
+				base.finish();
+			} finally {
+				out.close();
+			}
+		}
+
+		private File getFile(Circuit circuit, File dest) {
 			if (dest.isDirectory()) {
-				where = new File(dest, circuit.getName() + filter.extensions[0]);
+				return new File(dest, circuit.getName() + filter.extensions[0]);
 			} else if (filter.accept(dest)) {
-				where = dest;
+				return dest;
 			} else {
 				String newName = dest.getName() + filter.extensions[0];
-				where = new File(dest.getParentFile(), newName);
+				return new File(dest.getParentFile(), newName);
 			}
+		}
+
+		/**
+		 * Finds what is needed to write each circuit, including its drawing.
+		 * This must be called on the thread editing the project, as the
+		 * project's map of states is not for sharing between threads either.
+		 */
+		List<Job> prepare(List<Circuit> circuits, File dest) {
+			Graphics measure = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB).getGraphics();
+			ArrayList<Job> jobs = new ArrayList<Job>();
 			try {
-				switch (filter.type) {
-				case FORMAT_GIF:
-					GifEncoder.toFile(img, where, monitor);
-					break;
-				case FORMAT_PNG:
-					ImageIO.write(img, "PNG", where);
-					break;
-				case FORMAT_JPG:
-					ImageIO.write(img, "JPEG", where);
-					break;
+				for (Circuit circuit : circuits) {
+					Job job = new Job();
+					job.circuit = circuit;
+					job.state = proj.getCircuitState(circuit);
+					job.drawing = circuit.getDrawing();
+					job.bds = circuit.getBounds(measure).expand(BORDER_SIZE);
+					job.where = getFile(circuit, dest);
+					jobs.add(job);
 				}
-			} catch (Exception e) {
-				JOptionPane.showMessageDialog(frame, Strings.get("couldNotCreateFile"));
-				monitor.close();
-				return;
+			} finally {
+				measure.dispose();
 			}
-			g.dispose();
-			monitor.close();
+			return jobs;
 		}
 
-		@Override
-		public void run() {
-			for (Circuit circ : circuits) {
-				export(circ);
-			}
+		private BufferedImage render(Job job, int width, int height) {
+			BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+			Graphics base = img.getGraphics();
+			Graphics2D g = (Graphics2D) base.create();
+			g.setColor(Color.white);
+			g.fillRect(0, 0, width, height);
+			g.setColor(Color.black);
+			draw(job, base, g);
+			g.dispose();
+			base.dispose();
+			return img;
 		}
 	}
 
@@ -168,6 +336,7 @@ class ExportImage {
 		JRadioButton formatPng;
 		JRadioButton formatGif;
 		JRadioButton formatJpg;
+		JRadioButton formatSvg;
 		GridBagLayout gridbag;
 		GridBagConstraints gbc;
 		Dimension curScaleDim;
@@ -177,10 +346,12 @@ class ExportImage {
 			formatPng = new JRadioButton("PNG");
 			formatGif = new JRadioButton("GIF");
 			formatJpg = new JRadioButton("JPEG");
+			formatSvg = new JRadioButton("SVG");
 			ButtonGroup bgroup = new ButtonGroup();
 			bgroup.add(formatPng);
 			bgroup.add(formatGif);
 			bgroup.add(formatJpg);
+			bgroup.add(formatSvg);
 			formatPng.setSelected(true);
 
 			slider = new JSlider(SwingConstants.HORIZONTAL, -3 * SLIDER_DIVISIONS, 3 * SLIDER_DIVISIONS, 0);
@@ -218,6 +389,7 @@ class ExportImage {
 			formatsPanel.add(formatPng);
 			formatsPanel.add(formatGif);
 			formatsPanel.add(formatJpg);
+			formatsPanel.add(formatSvg);
 			addGb(formatsPanel);
 
 			gbc.gridy++;
@@ -240,6 +412,8 @@ class ExportImage {
 				return FORMAT_GIF;
 			if (formatJpg.isSelected())
 				return FORMAT_JPG;
+			if (formatSvg.isSelected())
+				return FORMAT_SVG;
 			return FORMAT_PNG;
 		}
 
@@ -268,8 +442,38 @@ class ExportImage {
 
 	private static final int FORMAT_JPG = 2;
 
+	private static final int FORMAT_SVG = 3;
+
+	// the names of the formats on the command line, by number
+	private static final String[] FORMAT_NAMES = { "gif", "png", "jpg", "svg" };
+
 	private static final int BORDER_SIZE = 5;
 
+	// the most pixels drawn at once when writing a PNG file
+	private static final int STRIP_PIXELS = 1 << 21;
+
+	private static ImageFileFilter createFilter(int fmt) {
+		switch (fmt) {
+		case FORMAT_GIF:
+			return new ImageFileFilter(fmt, Strings.getter("exportGifFilter"), new String[] { "gif" });
+		case FORMAT_PNG:
+			return new ImageFileFilter(fmt, Strings.getter("exportPngFilter"), new String[] { "png" });
+		case FORMAT_JPG:
+			return new ImageFileFilter(fmt, Strings.getter("exportJpgFilter"),
+					new String[] { "jpg", "jpeg", "jpe", "jfi", "jfif", "jfi" });
+		case FORMAT_SVG:
+			return new ImageFileFilter(fmt, Strings.getter("exportSvgFilter"), new String[] { "svg" });
+		default:
+			return null;
+		}
+	}
+
+	// the message of an exception, or its name if it has none
+	private static String describe(Throwable e) {
+		String msg = e.getMessage();
+		return msg == null || msg.isEmpty() ? e.toString() : msg;
+	}
+
 	static void doExport(Project proj) {
 		// First display circuit/parameter selection dialog
 		Frame frame = proj.getFrame();
@@ -290,20 +494,8 @@ class ExportImage {
 		if (circuits.isEmpty())
 			return;
 
-		ImageFileFilter filter;
-		int fmt = options.getImageFormat();
-		switch (options.getImageFormat()) {
-		case FORMAT_GIF:
-			filter = new ImageFileFilter(fmt, Strings.getter("exportGifFilter"), new String[] { "gif" });
-			break;
-		case FORMAT_PNG:
-			filter = new ImageFileFilter(fmt, Strings.getter("exportPngFilter"), new String[] { "png" });
-			break;
-		case FORMAT_JPG:
-			filter = new ImageFileFilter(fmt, Strings.getter("exportJpgFilter"),
-					new String[] { "jpg", "jpeg", "jpe", "jfi", "jfif", "jfi" });
-			break;
-		default:
+		ImageFileFilter filter = createFilter(options.getImageFormat());
+		if (filter == null) {
 			System.err.println("unexpected format; aborted"); // OK
 			return;
 		}
@@ -352,8 +544,29 @@ class ExportImage {
 		// And start a thread to actually perform the operation
 		// (This is run in a thread so that Swing will update the
 		// monitor.)
-		new ExportThread(frame, frame.getCanvas(), dest, filter, circuits, scale, printerView, monitor).start();
+		Exporter exporter = new Exporter(proj, frame.getCanvas(), filter, scale, printerView);
+		List<Exporter.Job> jobs = exporter.prepare(circuits, dest);
+		new ExportThread(frame, exporter, jobs, monitor).start();
+
+	}
+
+	/**
+	 * Writes each circuit to a file in the directory, named for the circuit,
+	 * without needing a window. The format is named as on the command line:
+	 * gif, png, jpg or svg. Returns the circuits that could not be written,
+	 * each with the reason.
+	 */
+	public static Map<Circuit, String> exportCircuits(Project proj, List<Circuit> circuits, File dir, String format,
+			double scale, boolean printerView) {
+		int fmt = Arrays.asList(FORMAT_NAMES).indexOf(format.toLowerCase());
+		if (fmt < 0)
+			throw new IllegalArgumentException("unknown image format " + format);
+		Exporter exporter = new Exporter(proj, null, createFilter(fmt), scale, printerView);
+		return exporter.exportAll(exporter.prepare(circuits, dir), null);
+	}
 
+	public static boolean isFormatName(String name) {
+		return Arrays.asList(FORMAT_NAMES).contains(name.toLowerCase());
 	}
 
 	private ExportImage() {
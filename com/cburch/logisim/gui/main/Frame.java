@@ -45,6 +45,7 @@ import com.cburch.logisim.gui.generic.CardPanel;
 import com.cburch.logisim.gui.generic.LFrame;
 import com.cburch.logisim.gui.generic.ZoomControl;
 import com.cburch.logisim.gui.generic.ZoomModel;
+import com.cburch.logisim.gui.log.LogFrame;
 import com.cburch.logisim.gui.menu.LogisimMenuBar;
 import com.cburch.logisim.prefs.AppPreferences;
 import com.cburch.logisim.proj.Project;
@@ -136,6 +137,9 @@ public class Frame extends LFrame implements LocaleListener {
 			if (confirmClose(Strings.get("confirmCloseTitle"))) {
 				layoutCanvas.closeCanvas();
 				Frame.this.dispose();
+				LogFrame log = proj.getLogFrame(false);
+				if (log != null)
+					log.dispose();
 			}
 		}
 
@@ -0,0 +1,233 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.gui.main;
+
+import java.awt.BorderLayout;
+import java.awt.Container;
+import java.awt.Dimension;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.Collections;
+import java.util.List;
+
+import javax.swing.JButton;
+import javax.swing.JDialog;
+import javax.swing.JFrame;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTabbedPane;
+import javax.swing.JTable;
+import javax.swing.Timer;
+import javax.swing.table.AbstractTableModel;
+
+import com.cburch.logisim.circuit.CircuitState;
+import com.cburch.logisim.circuit.Propagator;
+import com.cburch.logisim.circuit.SimulationProfile;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.util.TableSorter;
+
+public class ProfileDialog extends JDialog implements ActionListener {
+	private static class ProfileTableModel extends AbstractTableModel {
+		private static final long serialVersionUID = 1L;
+		private String nameColumn;
+		private List<SimulationProfile.Entry> entries = Collections.emptyList();
+
+		ProfileTableModel(String nameColumn) {
+			this.nameColumn = nameColumn;
+		}
+
+		@Override
+		public Class<?> getColumnClass(int column) {
+			if (column == 0)
+				return String.class;
+			else if (column == 4)
+				return Double.class;
+			else
+				return Long.class;
+		}
+
+		@Override
+		public int getColumnCount() {
+			return 5;
+		}
+
+		@Override
+		public String getColumnName(int column) {
+			switch (column) {
+			case 0:
+				return nameColumn;
+			case 1:
+				return Strings.get("profileEventsColumn");
+			case 2:
+				return Strings.get("profilePropagationsColumn");
+			case 3:
+				return Strings.get("profileWireThreadsColumn");
+			case 4:
+				return Strings.get("profileTimeColumn");
+			default:
+				return "??"; // should never happen
+			}
+		}
+
+		@Override
+		public int getRowCount() {
+			return entries.size();
+		}
+
+		@Override
+		public Object getValueAt(int row, int column) {
+			if (row < 0 || row >= entries.size())
+				return "";
+			SimulationProfile.Entry entry = entries.get(row);
+			switch (column) {
+			case 0:
+				return entry.getName();
+			case 1:
+				return Long.valueOf(entry.getEvents());
+			case 2:
+				return Long.valueOf(entry.getPropagations());
+			case 3:
+				return Long.valueOf(entry.getWireThreads());
+			case 4:
+				return Double.valueOf(Math.round(entry.getNanos() / 1e3) / 1e3);
+			default:
+				return ""; // should never happen
+			}
+		}
+
+		void setEntries(List<SimulationProfile.Entry> value) {
+			entries = value;
+			fireTableDataChanged();
+		}
+	}
+
+	private static final long serialVersionUID = 1L;
+
+	private static final int REFRESH_MILLIS = 1000;
+
+	public static void show(JFrame parent, Project proj) {
+		ProfileDialog dlog = new ProfileDialog(parent, proj);
+		dlog.setVisible(true);
+	}
+
+	private Project proj;
+	private SimulationProfile profile = new SimulationProfile();
+	private Propagator attached = null;
+	private ProfileTableModel factoryModel;
+	private ProfileTableModel stateModel;
+	private JLabel summary = new JLabel();
+	private JButton start = new JButton();
+	private JButton clear = new JButton(Strings.get("profileClearButton"));
+	private JButton close = new JButton(Strings.get("statsCloseButton"));
+	private Timer timer = new Timer(REFRESH_MILLIS, this);
+
+	private ProfileDialog(JFrame parent, Project proj) {
+		super(parent, false);
+		this.proj = proj;
+		setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+		setTitle(Strings.get("profileDialogTitle", proj.getLogisimFile().getName()));
+
+		factoryModel = new ProfileTableModel(Strings.get("statsComponentColumn"));
+		stateModel = new ProfileTableModel(Strings.get("profileCircuitColumn"));
+		JTabbedPane tabs = new JTabbedPane();
+		tabs.addTab(Strings.get("profileComponentsTab"), createTablePane(factoryModel));
+		tabs.addTab(Strings.get("profileCircuitsTab"), createTablePane(stateModel));
+
+		start.addActionListener(this);
+		clear.addActionListener(this);
+		close.addActionListener(this);
+		JPanel buttonPanel = new JPanel();
+		buttonPanel.add(start);
+		buttonPanel.add(clear);
+		buttonPanel.add(close);
+
+		JPanel south = new JPanel(new BorderLayout());
+		south.add(summary, BorderLayout.CENTER);
+		south.add(buttonPanel, BorderLayout.PAGE_END);
+
+		Container contents = this.getContentPane();
+		contents.setLayout(new BorderLayout());
+		contents.add(tabs, BorderLayout.CENTER);
+		contents.add(south, BorderLayout.PAGE_END);
+
+		addWindowListener(new WindowAdapter() {
+			@Override
+			public void windowClosed(WindowEvent e) {
+				detach();
+			}
+		});
+
+		attach();
+		refresh();
+		this.pack();
+		this.setLocationRelativeTo(parent);
+		Dimension pref = contents.getPreferredSize();
+		if (pref.width > 750 || pref.height > 550) {
+			if (pref.width > 750)
+				pref.width = 750;
+			if (pref.height > 550)
+				pref.height = 550;
+			this.setSize(pref);
+		}
+	}
+
+	@Override
+	public void actionPerformed(ActionEvent e) {
+		Object src = e.getSource();
+		if (src == start) {
+			if (attached == null)
+				attach();
+			else
+				detach();
+			refresh();
+		} else if (src == clear) {
+			profile.clear();
+			refresh();
+		} else if (src == close) {
+			this.dispose();
+		} else if (src == timer) {
+			// follow the simulator if the project switches to another state
+			CircuitState state = proj.getCircuitState();
+			if (state != null && state.getPropagator() != attached) {
+				detach();
+				attach();
+			}
+			refresh();
+		}
+	}
+
+	private void attach() {
+		CircuitState state = proj.getCircuitState();
+		if (state == null)
+			return;
+		attached = state.getPropagator();
+		attached.setProfile(profile);
+		timer.start();
+	}
+
+	private JScrollPane createTablePane(ProfileTableModel model) {
+		JTable table = new JTable();
+		TableSorter sorter = new TableSorter(model, table.getTableHeader());
+		table.setModel(sorter);
+		return new JScrollPane(table);
+	}
+
+	private void detach() {
+		timer.stop();
+		if (attached != null && attached.getProfile() == profile)
+			attached.setProfile(null);
+		attached = null;
+	}
+
+	private void refresh() {
+		start.setText(Strings.get(attached == null ? "profileStartButton" : "profileStopButton"));
+		factoryModel.setEntries(profile.getFactoryEntries());
+		stateModel.setEntries(profile.getStateEntries());
+		summary.setText(Strings.get("profileSummary", "" + profile.getPropagateCalls(),
+				String.format("%.3f", profile.getPropagateNanos() / 1e6)));
+	}
+}
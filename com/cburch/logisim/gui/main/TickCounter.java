@@ -11,6 +11,7 @@ class TickCounter implements SimulatorListener {
 	private static final int QUEUE_LENGTH = 1000;
 
 	private long[] queueTimes;
+	private long[] queueTicks;
 	private double[] queueRates;
 	private int queueStart;
 	private int queueSize;
@@ -18,6 +19,7 @@ class TickCounter implements SimulatorListener {
 
 	public TickCounter() {
 		queueTimes = new long[QUEUE_LENGTH];
+		queueTicks = new long[QUEUE_LENGTH];
 		queueRates = new double[QUEUE_LENGTH];
 		queueSize = 0;
 	}
@@ -159,15 +161,19 @@ class TickCounter implements SimulatorListener {
 					queueStart = end + 1;
 				}
 			}
+			// in turbo mode each sample covers all the ticks of a frame, so
+			// we count the ticks rather than the samples
 			long startTime = queueTimes[start];
 			long endTime = System.currentTimeMillis();
+			long endTicks = sim.getTickCount();
 			double rate;
 			if (startTime == endTime || curSize <= 1) {
 				rate = Double.MAX_VALUE;
 			} else {
-				rate = 1000.0 * (curSize - 1) / (endTime - startTime);
+				rate = 1000.0 * (endTicks - queueTicks[start]) / (endTime - startTime);
 			}
 			queueTimes[end] = endTime;
+			queueTicks[end] = endTicks;
 			queueRates[end] = rate;
 		}
 	}
@@ -11,6 +11,7 @@ import java.awt.event.KeyEvent;
 import javax.swing.JMenuItem;
 import javax.swing.KeyStroke;
 
+import com.cburch.logisim.gui.log.LogFrame;
 import com.cburch.logisim.gui.main.Frame;
 import com.cburch.logisim.gui.opts.OptionsFrame;
 import com.cburch.logisim.gui.prefs.PreferencesFrame;
@@ -101,6 +102,9 @@ class MenuFile extends Menu implements ActionListener {
 				OptionsFrame f = proj.getOptionsFrame(false);
 				if (f != null)
 					f.dispose();
+				LogFrame log = proj.getLogFrame(false);
+				if (log != null)
+					log.dispose();
 			}
 		} else if (src == save) {
 			ProjectActions.doSave(proj);
@@ -25,6 +25,7 @@ import com.cburch.logisim.circuit.Simulator;
 import com.cburch.logisim.circuit.SimulatorEvent;
 import com.cburch.logisim.circuit.SimulatorListener;
 import com.cburch.logisim.gui.log.LogFrame;
+import com.cburch.logisim.gui.main.ProfileDialog;
 import com.cburch.logisim.proj.Project;
 import com.cburch.logisim.util.StringUtil;
 
@@ -89,6 +90,15 @@ class MenuSimulate extends Menu {
 			} else if (src == log) {
 				LogFrame frame = menubar.getProject().getLogFrame(true);
 				frame.setVisible(true);
+			} else if (src == profile) {
+				if (proj != null)
+					ProfileDialog.show(menubar.getParentWindow(), proj);
+			} else if (src == saveCheckpoint) {
+				if (proj != null)
+					SimulateCheckpointActions.doSave(proj);
+			} else if (src == loadCheckpoint) {
+				if (proj != null)
+					SimulateCheckpointActions.doLoad(proj);
 			}
 		}
 
@@ -162,7 +172,9 @@ class MenuSimulate extends Menu {
 
 		public void localeChanged() {
 			double f = freq;
-			if (f < 1000 && f > 0) {
+			if (f == Simulator.TURBO_FREQUENCY) {
+				setText(Strings.get("simulateTickTurboItem"));
+			} else if (f < 1000 && f > 0) {
 				String hzStr;
 				if (Math.abs(f - Math.round(f)) < 0.0001) {
 					hzStr = "" + (int) Math.round(f);
@@ -209,7 +221,8 @@ class MenuSimulate extends Menu {
 	private MenuItemCheckImpl ticksEnabled;
 	private MenuItemImpl tickOnce;
 	private JMenu tickFreq = new JMenu();
-	private TickFrequencyChoice[] tickFreqs = { new TickFrequencyChoice(8192, false),
+	private TickFrequencyChoice[] tickFreqs = { new TickFrequencyChoice(Simulator.TURBO_FREQUENCY, false),
+			new TickFrequencyChoice(8192, false),
 			new TickFrequencyChoice(4096, false), new TickFrequencyChoice(2048, false),
 			new TickFrequencyChoice(1024, false), new TickFrequencyChoice(512, false),
 			new TickFrequencyChoice(256, false), new TickFrequencyChoice(128, false),
@@ -222,6 +235,9 @@ class MenuSimulate extends Menu {
 	private JMenu upStateMenu = new JMenu();
 	private ArrayList<CircuitStateMenuItem> upStateItems = new ArrayList<CircuitStateMenuItem>();
 	private JMenuItem log = new JMenuItem();
+	private JMenuItem profile = new JMenuItem();
+	private JMenuItem saveCheckpoint = new JMenuItem();
+	private JMenuItem loadCheckpoint = new JMenuItem();
 
 	public MenuSimulate(LogisimMenuBar menubar) {
 		this.menubar = menubar;
@@ -261,6 +277,10 @@ class MenuSimulate extends Menu {
 		add(tickFreq);
 		addSeparator();
 		add(log);
+		add(profile);
+		addSeparator();
+		add(saveCheckpoint);
+		add(loadCheckpoint);
 
 		setEnabled(false);
 		run.setEnabled(false);
@@ -271,6 +291,9 @@ class MenuSimulate extends Menu {
 		tickOnce.setEnabled(false);
 		ticksEnabled.setEnabled(false);
 		tickFreq.setEnabled(false);
+		profile.setEnabled(false);
+		saveCheckpoint.setEnabled(false);
+		loadCheckpoint.setEnabled(false);
 
 		run.addChangeListener(myListener);
 		menubar.addActionListener(LogisimMenuBar.SIMULATE_ENABLE, myListener);
@@ -283,6 +306,9 @@ class MenuSimulate extends Menu {
 		// tickOnce.addActionListener(myListener);
 		// ticksEnabled.addActionListener(myListener);
 		log.addActionListener(myListener);
+		profile.addActionListener(myListener);
+		saveCheckpoint.addActionListener(myListener);
+		loadCheckpoint.addActionListener(myListener);
 
 		computeEnabled();
 	}
@@ -308,6 +334,9 @@ class MenuSimulate extends Menu {
 		tickOnce.setEnabled(present);
 		ticksEnabled.setEnabled(present && simRunning);
 		tickFreq.setEnabled(present);
+		profile.setEnabled(present);
+		saveCheckpoint.setEnabled(present);
+		loadCheckpoint.setEnabled(present);
 		menubar.fireEnableChanged();
 	}
 
@@ -325,6 +354,9 @@ class MenuSimulate extends Menu {
 		downStateMenu.setText(Strings.get("simulateDownStateMenu"));
 		upStateMenu.setText(Strings.get("simulateUpStateMenu"));
 		log.setText(Strings.get("simulateLogItem"));
+		profile.setText(Strings.get("simulateProfileItem"));
+		saveCheckpoint.setText(Strings.get("simulateSaveCheckpointItem"));
+		loadCheckpoint.setText(Strings.get("simulateLoadCheckpointItem"));
 	}
 
 	private void recreateStateMenu(JMenu menu, ArrayList<CircuitStateMenuItem> items, int code) {
@@ -378,7 +410,8 @@ class MenuSimulate extends Menu {
 		if (currentSim != oldSim) {
 			double freq = currentSim == null ? 1.0 : currentSim.getTickFrequency();
 			for (int i = 0; i < tickFreqs.length; i++) {
-				tickFreqs[i].setSelected(Math.abs(tickFreqs[i].freq - freq) < 0.001);
+				double f = tickFreqs[i].freq;
+				tickFreqs[i].setSelected(f == freq || Math.abs(f - freq) < 0.001);
 			}
 
 			if (oldSim != null)
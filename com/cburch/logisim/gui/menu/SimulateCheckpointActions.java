@@ -0,0 +1,117 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.gui.menu;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import javax.swing.JFileChooser;
+import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
+
+import com.cburch.logisim.circuit.Checkpoint;
+import com.cburch.logisim.circuit.CircuitState;
+import com.cburch.logisim.circuit.Simulator;
+import com.cburch.logisim.proj.Project;
+
+/**
+ * Saves and restores simulation checkpoints for the Simulate menu. The file
+ * is chosen on the event thread, but the state is written or read by the
+ * simulator's thread, so that it is never caught partway through a step.
+ */
+public class SimulateCheckpointActions {
+	public static void doLoad(final Project proj) {
+		final Simulator sim = proj.getSimulator();
+		if (sim == null)
+			return;
+		JFileChooser chooser = proj.getLogisimFile().getLoader().createChooser();
+		chooser.setDialogTitle(Strings.get("loadCheckpointDialogTitle"));
+		if (chooser.showOpenDialog(proj.getFrame()) != JFileChooser.APPROVE_OPTION)
+			return;
+		final File file = chooser.getSelectedFile();
+		sim.requestTask(new Runnable() {
+			@Override
+			public void run() {
+				CircuitState root = sim.getCircuitState();
+				if (root == null)
+					return;
+				InputStream in = null;
+				try {
+					in = new BufferedInputStream(new FileInputStream(file));
+					Checkpoint.read(root, in);
+				} catch (IOException e) {
+					showError(proj, Strings.get("loadCheckpointErrorTitle"), e);
+				} finally {
+					close(in);
+				}
+			}
+		});
+		sim.requestPropagate();
+	}
+
+	public static void doSave(final Project proj) {
+		final Simulator sim = proj.getSimulator();
+		if (sim == null)
+			return;
+		JFileChooser chooser = proj.getLogisimFile().getLoader().createChooser();
+		chooser.setDialogTitle(Strings.get("saveCheckpointDialogTitle"));
+		if (chooser.showSaveDialog(proj.getFrame()) != JFileChooser.APPROVE_OPTION)
+			return;
+		final File file = chooser.getSelectedFile();
+		if (file.exists()) {
+			int confirm = JOptionPane.showConfirmDialog(proj.getFrame(),
+					Strings.get("confirmOverwriteMessage"), Strings.get("confirmOverwriteTitle"),
+					JOptionPane.YES_NO_OPTION);
+			if (confirm != JOptionPane.YES_OPTION)
+				return;
+		}
+		sim.requestTask(new Runnable() {
+			@Override
+			public void run() {
+				CircuitState root = sim.getCircuitState();
+				if (root == null)
+					return;
+				OutputStream out = null;
+				try {
+					out = new BufferedOutputStream(new FileOutputStream(file));
+					Checkpoint.write(root, out);
+					out.close();
+					out = null;
+				} catch (IOException e) {
+					showError(proj, Strings.get("saveCheckpointErrorTitle"), e);
+				} finally {
+					close(out);
+				}
+			}
+		});
+	}
+
+	private static void close(Closeable stream) {
+		if (stream != null) {
+			try {
+				stream.close();
+			} catch (IOException e) {
+			}
+		}
+	}
+
+	private static void showError(final Project proj, final String title, final IOException e) {
+		SwingUtilities.invokeLater(new Runnable() {
+			@Override
+			public void run() {
+				JOptionPane.showMessageDialog(proj.getFrame(), e.getMessage(), title, JOptionPane.ERROR_MESSAGE);
+			}
+		});
+	}
+
+	private SimulateCheckpointActions() {
+	}
+}
@@ -21,6 +21,9 @@ class ExperimentalOptions extends OptionsPanel {
 	private static final long serialVersionUID = 3383815234719208494L;
 	private JLabel accelRestart = new JLabel();
 	private PrefOptionList accel;
+	private PrefOptionList eventQueue;
+	private PrefBoolean compiledNets;
+	private PrefBoolean parallel;
 
 	public ExperimentalOptions(PreferencesFrame window) {
 		super(window);
@@ -40,9 +43,28 @@ class ExperimentalOptions extends OptionsPanel {
 		JPanel accelPanel2 = new JPanel();
 		accelPanel2.add(accelPanel);
 
+		eventQueue = new PrefOptionList(AppPreferences.SIM_EVENT_QUEUE, Strings.getter("simQueueLabel"),
+				new PrefOption[] { new PrefOption(AppPreferences.SIM_QUEUE_WHEEL, Strings.getter("simQueueWheel")),
+						new PrefOption(AppPreferences.SIM_QUEUE_LEGACY, Strings.getter("simQueueLegacy")), });
+
+		JPanel queuePanel = new JPanel();
+		queuePanel.add(eventQueue.getJLabel());
+		queuePanel.add(eventQueue.getJComboBox());
+
+		compiledNets = new PrefBoolean(AppPreferences.SIM_COMPILED_NETS, Strings.getter("simCompiledNets"));
+		JPanel compiledPanel = new JPanel();
+		compiledPanel.add(compiledNets);
+
+		parallel = new PrefBoolean(AppPreferences.SIM_PARALLEL, Strings.getter("simParallel"));
+		JPanel parallelPanel = new JPanel();
+		parallelPanel.add(parallel);
+
 		setLayout(new BoxLayout(this, BoxLayout.PAGE_AXIS));
 		add(Box.createGlue());
 		add(accelPanel2);
+		add(queuePanel);
+		add(compiledPanel);
+		add(parallelPanel);
 		add(Box.createGlue());
 	}
 
@@ -59,6 +81,9 @@ class ExperimentalOptions extends OptionsPanel {
 	@Override
 	public void localeChanged() {
 		accel.localeChanged();
+		eventQueue.localeChanged();
+		compiledNets.localeChanged();
+		parallel.localeChanged();
 		accelRestart.setText(Strings.get("accelRestartLabel"));
 	}
 }
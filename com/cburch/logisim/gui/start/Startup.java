@@ -30,6 +30,7 @@ import com.cburch.logisim.LogisimVersion;
 import com.cburch.logisim.Main;
 import com.cburch.logisim.file.LoadFailedException;
 import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.gui.main.ExportImage;
 import com.cburch.logisim.gui.main.Print;
 import com.cburch.logisim.gui.menu.LogisimMenuBar;
 import com.cburch.logisim.gui.menu.WindowManagers;
@@ -57,16 +58,23 @@ public class Startup {
 	public static Startup parseArgs(String[] args) {
 		// see whether we'll be using any graphics
 		boolean isTty = false;
+		boolean isExport = false;
 		boolean isClearPreferences = false;
 		for (int i = 0; i < args.length; i++) {
 			if (args[i].equals("-tty")) {
 				isTty = true;
+			} else if (args[i].equals("-export")) {
+				isExport = true;
 			} else if (args[i].equals("-clearprefs") || args[i].equals("-clearprops")) {
 				isClearPreferences = true;
 			}
 		}
 
-		if (!isTty) {
+		if (isExport && !isTty && System.getProperty("java.awt.headless") == null) {
+			// exports are drawn offscreen, so they need no display
+			System.setProperty("java.awt.headless", "true");
+		}
+		if (!isTty && !isExport) {
 			// we're using the GUI: Set up the Look&Feel to match the platform
 			System.setProperty("com.apple.mrj.application.apple.menu.about.name", "Logisim");
 			System.setProperty("apple.laf.useScreenMenuBar", "true");
@@ -79,7 +87,9 @@ public class Startup {
 
 		Startup ret = new Startup(isTty);
 		startupTemp = ret;
-		if (!isTty) {
+		if (isExport)
+			ret.showSplash = false;
+		if (!isTty && !isExport) {
 			registerHandler();
 		}
 
@@ -114,6 +124,10 @@ public class Startup {
 							ret.ttyFormat |= TtyInterface.FORMAT_HALT;
 						} else if (fmt.equals("stats")) {
 							ret.ttyFormat |= TtyInterface.FORMAT_STATISTICS;
+						} else if (fmt.equals("server")) {
+							ret.ttyFormat |= TtyInterface.FORMAT_SERVER;
+						} else if (fmt.equals("profile")) {
+							ret.ttyFormat |= TtyInterface.FORMAT_PROFILE;
 						} else {
 							System.err.println(Strings.get("ttyFormatError")); // OK
 						}
@@ -149,6 +163,66 @@ public class Startup {
 					System.err.println(Strings.get("loadNeedsFileError")); // OK
 					return null;
 				}
+			} else if (arg.equals("-restore")) {
+				if (i + 1 < args.length) {
+					i++;
+					ret.restoreFile = new File(args[i]);
+				} else {
+					System.err.println(Strings.get("restoreNeedsFileError")); // OK
+					return null;
+				}
+			} else if (arg.equals("-checkpoint")) {
+				if (i + 1 < args.length) {
+					i++;
+					ret.checkpointFile = new File(args[i]);
+				} else {
+					System.err.println(Strings.get("checkpointNeedsFileError")); // OK
+					return null;
+				}
+			} else if (arg.equals("-vcd")) {
+				if (i + 1 < args.length) {
+					i++;
+					ret.vcdFile = new File(args[i]);
+				} else {
+					System.err.println(Strings.get("vcdNeedsFileError")); // OK
+					return null;
+				}
+			} else if (arg.equals("-export")) {
+				if (i + 2 < args.length && ExportImage.isFormatName(args[i + 1])) {
+					ret.exportFormat = args[i + 1];
+					ret.exportDirectory = new File(args[i + 2]);
+					i += 2;
+				} else {
+					System.err.println(Strings.get("exportNeedsArgsError")); // OK
+					return null;
+				}
+			} else if (arg.equals("-exportscale")) {
+				double scale = -1;
+				if (i + 1 < args.length) {
+					i++;
+					try {
+						scale = Double.parseDouble(args[i]);
+					} catch (NumberFormatException e) {
+					}
+				}
+				if (!(scale > 0)) {
+					System.err.println(Strings.get("exportScaleError")); // OK
+					return null;
+				}
+				ret.exportScale = scale;
+			} else if (arg.equals("-port")) {
+				if (i + 1 < args.length) {
+					i++;
+					try {
+						ret.serverPort = Integer.parseInt(args[i]);
+					} catch (NumberFormatException e) {
+						System.err.println(Strings.get("portNeedsNumberError")); // OK
+						return null;
+					}
+				} else {
+					System.err.println(Strings.get("portNeedsNumberError")); // OK
+					return null;
+				}
 			} else if (arg.equals("-empty")) {
 				if (ret.templFile != null || ret.templEmpty || ret.templPlain) {
 					System.err.println(Strings.get("argOneTemplateError")); // OK
@@ -222,7 +296,8 @@ public class Startup {
 				ret.filesToOpen.add(new File(arg));
 			}
 		}
-		if (ret.isTty && ret.filesToOpen.isEmpty()) {
+		boolean isServer = (ret.ttyFormat & TtyInterface.FORMAT_SERVER) != 0;
+		if (ret.isTty && ret.filesToOpen.isEmpty() && !isServer) {
 			System.err.println(Strings.get("ttyNeedsFileError")); // OK
 			return null;
 		}
@@ -230,6 +305,30 @@ public class Startup {
 			System.err.println(Strings.get("loadNeedsTtyError")); // OK
 			return null;
 		}
+		if ((ret.restoreFile != null || ret.checkpointFile != null) && !ret.isTty) {
+			System.err.println(Strings.get("checkpointNeedsTtyError")); // OK
+			return null;
+		}
+		if (ret.vcdFile != null && !ret.isTty) {
+			System.err.println(Strings.get("vcdNeedsTtyError")); // OK
+			return null;
+		}
+		if (ret.exportDirectory != null && ret.isTty) {
+			System.err.println(Strings.get("exportTtyError")); // OK
+			return null;
+		}
+		if (ret.exportDirectory != null && ret.filesToOpen.isEmpty()) {
+			System.err.println(Strings.get("exportNeedsFileError")); // OK
+			return null;
+		}
+		if (ret.exportScale != 1.0 && ret.exportDirectory == null) {
+			System.err.println(Strings.get("exportScaleNeedsExportError")); // OK
+			return null;
+		}
+		if (ret.serverPort >= 0 && !isServer) {
+			System.err.println(Strings.get("portNeedsServerError")); // OK
+			return null;
+		}
 		return ret;
 	}
 
@@ -238,17 +337,23 @@ public class Startup {
 		System.err.println(); // OK
 		System.err.println(Strings.get("argOptionHeader")); // OK
 		System.err.println("   " + Strings.get("argAccentsOption")); // OK
+		System.err.println("   " + Strings.get("argCheckpointOption")); // OK
 		System.err.println("   " + Strings.get("argClearOption")); // OK
 		System.err.println("   " + Strings.get("argEmptyOption")); // OK
+		System.err.println("   " + Strings.get("argExportOption")); // OK
+		System.err.println("   " + Strings.get("argExportScaleOption")); // OK
 		System.err.println("   " + Strings.get("argGatesOption")); // OK
 		System.err.println("   " + Strings.get("argHelpOption")); // OK
 		System.err.println("   " + Strings.get("argLoadOption")); // OK
 		System.err.println("   " + Strings.get("argLocaleOption")); // OK
 		System.err.println("   " + Strings.get("argNoSplashOption")); // OK
 		System.err.println("   " + Strings.get("argPlainOption")); // OK
+		System.err.println("   " + Strings.get("argPortOption")); // OK
+		System.err.println("   " + Strings.get("argRestoreOption")); // OK
 		System.err.println("   " + Strings.get("argSubOption")); // OK
 		System.err.println("   " + Strings.get("argTemplateOption")); // OK
 		System.err.println("   " + Strings.get("argTtyOption")); // OK
+		System.err.println("   " + Strings.get("argVcdOption")); // OK
 		System.err.println("   " + Strings.get("argVersionOption")); // OK
 		System.exit(-1);
 	}
@@ -298,6 +403,13 @@ public class Startup {
 	private boolean showSplash;
 	private boolean updatecanceled = false;
 	private File loadFile;
+	private File restoreFile;
+	private File checkpointFile;
+	private File vcdFile;
+	private File exportDirectory = null;
+	private String exportFormat = null;
+	private double exportScale = 1.0;
+	private int serverPort = -1;
 	private HashMap<File, File> substitutions = new HashMap<File, File>();
 
 	private int ttyFormat = 0;
@@ -552,6 +664,22 @@ public class Startup {
 		return "OK";
 	}
 
+	File getCheckpointFile() {
+		return checkpointFile;
+	}
+
+	File getExportDirectory() {
+		return exportDirectory;
+	}
+
+	String getExportFormat() {
+		return exportFormat;
+	}
+
+	double getExportScale() {
+		return exportScale;
+	}
+
 	List<File> getFilesToOpen() {
 		return filesToOpen;
 	}
@@ -560,6 +688,14 @@ public class Startup {
 		return loadFile;
 	}
 
+	File getRestoreFile() {
+		return restoreFile;
+	}
+
+	int getServerPort() {
+		return serverPort;
+	}
+
 	Map<File, File> getSubstitutions() {
 		return Collections.unmodifiableMap(substitutions);
 	}
@@ -568,6 +704,10 @@ public class Startup {
 		return ttyFormat;
 	}
 
+	File getVcdFile() {
+		return vcdFile;
+	}
+
 	private void loadTemplate(Loader loader, File templFile, boolean templEmpty) {
 		if (showSplash)
 			monitor.setProgress(SplashScreen.TEMPLATE_OPEN);
@@ -620,9 +760,22 @@ public class Startup {
 	}
 
 	public void run() {
+		if (exportDirectory != null) {
+			try {
+				TtyInterface.exportImages(this);
+				return;
+			} catch (Throwable t) {
+				t.printStackTrace();
+				System.exit(-1);
+				return;
+			}
+		}
 		if (isTty) {
 			try {
-				TtyInterface.run(this);
+				if ((ttyFormat & TtyInterface.FORMAT_SERVER) != 0)
+					TtyServer.run(this);
+				else
+					TtyInterface.run(this);
 				return;
 			} catch (Throwable t) {
 				t.printStackTrace();
@@ -3,23 +3,34 @@
 
 package com.cburch.logisim.gui.start;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 
 import com.cburch.logisim.circuit.Analyze;
+import com.cburch.logisim.circuit.Checkpoint;
 import com.cburch.logisim.circuit.Circuit;
 import com.cburch.logisim.circuit.CircuitState;
 import com.cburch.logisim.circuit.Propagator;
+import com.cburch.logisim.circuit.SimulationProfile;
 import com.cburch.logisim.comp.Component;
 import com.cburch.logisim.data.Value;
 import com.cburch.logisim.file.FileStatistics;
 import com.cburch.logisim.file.LoadFailedException;
 import com.cburch.logisim.file.Loader;
 import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.gui.log.VcdWriter;
+import com.cburch.logisim.gui.main.ExportImage;
 import com.cburch.logisim.instance.Instance;
 import com.cburch.logisim.instance.InstanceState;
 import com.cburch.logisim.proj.Project;
@@ -28,6 +39,7 @@ import com.cburch.logisim.std.io.Tty;
 import com.cburch.logisim.std.memory.Ram;
 import com.cburch.logisim.std.wiring.Pin;
 import com.cburch.logisim.tools.Library;
+import com.cburch.logisim.util.Interner;
 import com.cburch.logisim.util.StringUtil;
 
 public class TtyInterface {
@@ -78,6 +90,8 @@ public class TtyInterface {
 	public static final int FORMAT_HALT = 8;
 
 	public static final int FORMAT_STATISTICS = 16;
+	public static final int FORMAT_SERVER = 32;
+	public static final int FORMAT_PROFILE = 64;
 
 	private static boolean lastIsNewline = true;
 
@@ -110,6 +124,48 @@ public class TtyInterface {
 				hertzStr, "" + tickCount, "" + elapse));
 	}
 
+	private static void displayInterners() {
+		String header = Strings.get("ttyInternerCache");
+		int maxName = header.length();
+		for (Interner<?> interner : Interner.getInterners()) {
+			maxName = Math.max(maxName, interner.getName().length());
+		}
+		String fmt = "%-" + maxName + "s\t%12s\t%12s\t%12s\n";
+		System.out.printf(fmt, header, Strings.get("ttyInternerHits"), // OK
+				Strings.get("ttyInternerMisses"), Strings.get("ttyInternerSlots"));
+		for (Interner<?> interner : Interner.getInterners()) {
+			System.out.printf(fmt, interner.getName(), "" + interner.getHits(), // OK
+					"" + interner.getMisses(), "" + interner.getCapacity());
+		}
+	}
+
+	private static void displayProfile(SimulationProfile profile) {
+		System.out.println(StringUtil.format(Strings.get("ttyProfileSummary"), // OK
+				"" + profile.getPropagateCalls(), String.format("%.3f", profile.getPropagateNanos() / 1e6)));
+		displayProfileEntries(Strings.get("ttyProfileComponent"), profile.getFactoryEntries());
+		System.out.println(); // OK
+		displayProfileEntries(Strings.get("ttyProfileCircuit"), profile.getStateEntries());
+		System.out.println(); // OK
+		displayInterners();
+	}
+
+	private static void displayProfileEntries(String header, List<SimulationProfile.Entry> entries) {
+		int maxName = header.length();
+		for (SimulationProfile.Entry entry : entries) {
+			maxName = Math.max(maxName, entry.getName().length());
+		}
+		String fmt = "%-" + maxName + "s\t%12s\t%12s\t%12s\t%12s\t%12s\n";
+		System.out.printf(fmt, header, Strings.get("ttyProfileEvents"), // OK
+				Strings.get("ttyProfilePropagations"), Strings.get("ttyProfileWireThreads"),
+				Strings.get("ttyProfileTime"), Strings.get("ttyProfileMemory"));
+		for (SimulationProfile.Entry entry : entries) {
+			long memory = entry.getMemoryUsage();
+			System.out.printf(fmt, entry.getName(), "" + entry.getEvents(), "" + entry.getPropagations(), // OK
+					"" + entry.getWireThreads(), String.format("%.3f", entry.getNanos() / 1e6),
+					memory < 0 ? "" : String.format("%.1f", memory / 1024.0));
+		}
+	}
+
 	private static void displayStatistics(LogisimFile file) {
 		FileStatistics stats = FileStatistics.compute(file, file.getMainCircuit());
 		FileStatistics.Count total = stats.getTotalWithSubcircuits();
@@ -136,6 +192,8 @@ public class TtyInterface {
 		System.out.printf(fmt + "%s\n", // OK
 				Integer.valueOf(total.getUniqueCount()), Integer.valueOf(total.getRecursiveCount()),
 				Strings.get("statsTotalWith"));
+		System.out.println(); // OK
+		displayInterners();
 	}
 
 	private static void displayTableRow(ArrayList<Value> prevOutputs, ArrayList<Value> curOutputs) {
@@ -169,7 +227,7 @@ public class TtyInterface {
 		}
 	}
 
-	private static boolean loadRam(CircuitState circState, File loadFile) throws IOException {
+	static boolean loadRam(CircuitState circState, File loadFile) throws IOException {
 		if (loadFile == null)
 			return false;
 
@@ -189,6 +247,55 @@ public class TtyInterface {
 		return found;
 	}
 
+	/**
+	 * Writes an image of every circuit in each file given on the command line
+	 * into the export directory, the circuits being drawn in parallel. When
+	 * there are several files, each gets a subdirectory named after it, since
+	 * their circuits' names may clash.
+	 */
+	static void exportImages(Startup args) {
+		File dir = args.getExportDirectory();
+		if (!dir.isDirectory() && !dir.mkdirs()) {
+			System.err.println(Strings.get("exportDirectoryError", dir.getPath())); // OK
+			System.exit(-1);
+			return;
+		}
+		boolean failed = false;
+		Loader loader = new Loader(null);
+		List<File> files = args.getFilesToOpen();
+		for (File fileToOpen : files) {
+			LogisimFile file;
+			try {
+				file = loader.openLogisimFile(fileToOpen, args.getSubstitutions());
+			} catch (LoadFailedException e) {
+				System.err.println(Strings.get("ttyLoadError", fileToOpen.getName())); // OK
+				failed = true;
+				continue;
+			}
+			File dest = dir;
+			if (files.size() > 1) {
+				String name = fileToOpen.getName();
+				if (name.endsWith(Loader.LOGISIM_EXTENSION))
+					name = name.substring(0, name.length() - Loader.LOGISIM_EXTENSION.length());
+				dest = new File(dir, name);
+				if (!dest.isDirectory() && !dest.mkdir()) {
+					System.err.println(Strings.get("exportDirectoryError", dest.getPath())); // OK
+					failed = true;
+					continue;
+				}
+			}
+			Project proj = new Project(file);
+			Map<Circuit, String> bad = ExportImage.exportCircuits(proj, file.getCircuits(), dest,
+					args.getExportFormat(), args.getExportScale(), true);
+			for (Map.Entry<Circuit, String> entry : bad.entrySet()) {
+				String msg = Strings.get("exportCircuitError", entry.getKey().getName());
+				System.err.println(msg + ": " + entry.getValue()); // OK
+				failed = true;
+			}
+		}
+		System.exit(failed ? -1 : 0);
+	}
+
 	private static boolean prepareForTty(CircuitState circState, ArrayList<InstanceState> keybStates) {
 		boolean found = false;
 		for (Component comp : circState.getCircuit().getNonWires()) {
@@ -210,6 +317,15 @@ public class TtyInterface {
 		return found;
 	}
 
+	private static void restoreCheckpoint(CircuitState circState, File file) throws IOException {
+		InputStream in = new BufferedInputStream(new FileInputStream(file));
+		try {
+			Checkpoint.read(circState, in);
+		} finally {
+			in.close();
+		}
+	}
+
 	public static void run(Startup args) {
 		File fileToOpen = args.getFilesToOpen().get(0);
 		Loader loader = new Loader(null);
@@ -263,13 +379,56 @@ public class TtyInterface {
 				System.exit(-1);
 			}
 		}
+		if (args.getRestoreFile() != null) {
+			try {
+				restoreCheckpoint(circState, args.getRestoreFile());
+			} catch (IOException e) {
+				System.err.println(Strings.get("ttyRestoreError") + ": " + e.toString()); // OK
+				System.exit(-1);
+			}
+		}
+		VcdWriter vcd = null;
+		if (args.getVcdFile() != null) {
+			try {
+				vcd = new VcdWriter(args.getVcdFile());
+			} catch (IOException e) {
+				System.err.println(Strings.get("ttyVcdError") + ": " + e.toString()); // OK
+				System.exit(-1);
+			}
+			vcd.addCircuit(circState);
+			vcd.start();
+		}
 		int ttyFormat = args.getTtyFormat();
-		int simCode = runSimulation(circState, outputPins, haltPin, ttyFormat);
+		SimulationProfile profile = null;
+		if ((ttyFormat & FORMAT_PROFILE) != 0) {
+			profile = new SimulationProfile();
+			circState.getPropagator().setProfile(profile);
+		}
+		int simCode = runSimulation(circState, outputPins, haltPin, ttyFormat, vcd);
+		if (profile != null) {
+			displayProfile(profile);
+		}
+		if (vcd != null) {
+			try {
+				vcd.close();
+			} catch (IOException e) {
+				System.err.println(Strings.get("ttyVcdError") + ": " + e.toString()); // OK
+				System.exit(-1);
+			}
+		}
+		if (args.getCheckpointFile() != null) {
+			try {
+				saveCheckpoint(circState, args.getCheckpointFile());
+			} catch (IOException e) {
+				System.err.println(Strings.get("ttyCheckpointError") + ": " + e.toString()); // OK
+				System.exit(-1);
+			}
+		}
 		System.exit(simCode);
 	}
 
 	private static int runSimulation(CircuitState circState, ArrayList<Instance> outputPins, Instance haltPin,
-			int format) {
+			int format, VcdWriter vcd) {
 		boolean showTable = (format & FORMAT_TABLE) != 0;
 		boolean showSpeed = (format & FORMAT_SPEED) != 0;
 		boolean showTty = (format & FORMAT_TTY) != 0;
@@ -299,6 +458,8 @@ public class TtyInterface {
 		ArrayList<Value> prevOutputs = null;
 		Propagator prop = circState.getPropagator();
 		while (true) {
+			if (vcd != null)
+				vcd.sample(circState);
 			ArrayList<Value> curOutputs = new ArrayList<Value>();
 			for (Instance pin : outputPins) {
 				InstanceState pinState = circState.getInstanceState(pin);
@@ -350,6 +511,15 @@ public class TtyInterface {
 		return retCode;
 	}
 
+	private static void saveCheckpoint(CircuitState circState, File file) throws IOException {
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+		try {
+			Checkpoint.write(circState, out);
+		} finally {
+			out.close();
+		}
+	}
+
 	public static void sendFromTty(char c) {
 		lastIsNewline = c == '\n';
 		System.out.print(c); // OK
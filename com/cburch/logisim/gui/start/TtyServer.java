@@ -0,0 +1,284 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.gui.start;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.cburch.logisim.circuit.Analyze;
+import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.circuit.CircuitState;
+import com.cburch.logisim.circuit.Propagator;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.file.LoadFailedException;
+import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.instance.Instance;
+import com.cburch.logisim.instance.InstanceState;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.wiring.Pin;
+import com.cburch.logisim.util.StringUtil;
+
+/**
+ * Runs simulation jobs for the "-tty server" format. Circuit files stay loaded
+ * between jobs, and each job starts from a reset of the cached circuit state
+ * rather than from a fresh load. Jobs arrive one per line, from standard input
+ * or, with "-port", from connections accepted on the loopback interface. A job
+ * line is a sequence of options:
+ *
+ * <pre>
+ * file=adder.circ ticks=4 in=a:3,b:0x5 in=a:1,b:0b10 out=sum,cout
+ * </pre>
+ *
+ * The file defaults to the one most recently given (or the first named on the
+ * command line), and the outputs default to all output pins. For each input
+ * vector, in order, the server drives the named input pins, propagates, runs
+ * the requested number of clock ticks, and writes a line holding the output
+ * values separated by tabs. The job ends with a line reading "done", or with
+ * one starting "error" if it could not be completed.
+ */
+class TtyServer {
+	private static class Session {
+		private long lastModified;
+		private CircuitState circState;
+		private Map<String, Instance> inputs = new HashMap<String, Instance>();
+		private Map<String, Instance> outputs = new LinkedHashMap<String, Instance>();
+	}
+
+	private static class JobException extends Exception {
+		private static final long serialVersionUID = 1L;
+
+		public JobException(String message) {
+			super(message);
+		}
+	}
+
+	private static Value parseValue(BitWidth width, String str) throws JobException {
+		try {
+			if (str.startsWith("0b")) {
+				String bits = str.substring(2);
+				if (bits.length() > width.getWidth())
+					throw widthError(width, str);
+				if (bits.length() != width.getWidth())
+					throw new JobException(StringUtil.format(Strings.get("ttyServerValueError"), str));
+				Value[] vals = new Value[bits.length()];
+				for (int i = 0; i < vals.length; i++) {
+					char c = bits.charAt(vals.length - 1 - i);
+					if (c == '0')
+						vals[i] = Value.FALSE;
+					else if (c == '1')
+						vals[i] = Value.TRUE;
+					else if (c == 'x')
+						vals[i] = Value.UNKNOWN;
+					else if (c == 'E')
+						vals[i] = Value.ERROR;
+					else
+						throw new JobException(StringUtil.format(Strings.get("ttyServerValueError"), str));
+				}
+				return Value.create(vals);
+			} else {
+				BigInteger value = str.startsWith("0x") ? new BigInteger(str.substring(2), 16) : new BigInteger(str);
+				// negative values are taken in two's complement
+				int bits = value.signum() < 0 ? value.bitLength() + 1 : value.bitLength();
+				if (bits > width.getWidth())
+					throw widthError(width, str);
+				return Value.createKnown(width, value);
+			}
+		} catch (NumberFormatException e) {
+			throw new JobException(StringUtil.format(Strings.get("ttyServerValueError"), str));
+		}
+	}
+
+	public static void run(Startup args) {
+		TtyServer server = new TtyServer(args);
+		int port = args.getServerPort();
+		try {
+			if (port < 0) {
+				server.serve(new BufferedReader(new InputStreamReader(System.in)),
+						new PrintWriter(new OutputStreamWriter(System.out), true));
+			} else {
+				ServerSocket socket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+				System.err.println(StringUtil.format(Strings.get("ttyServerListening"), // OK
+						"" + socket.getLocalPort()));
+				while (true) {
+					Socket client = socket.accept();
+					try {
+						server.serve(new BufferedReader(new InputStreamReader(client.getInputStream())),
+								new PrintWriter(new OutputStreamWriter(client.getOutputStream()), true));
+					} catch (IOException e) {
+						System.err.println(e.toString()); // OK
+					} finally {
+						client.close();
+					}
+				}
+			}
+		} catch (IOException e) {
+			System.err.println(e.toString()); // OK
+			System.exit(-1);
+		}
+		System.exit(0);
+	}
+
+	private static JobException widthError(BitWidth width, String str) {
+		return new JobException(StringUtil.format(Strings.get("ttyServerWidthError"), str, "" + width.getWidth()));
+	}
+
+	private Startup args;
+	private Map<File, Session> sessions = new HashMap<File, Session>();
+	private File defaultFile;
+
+	private TtyServer(Startup args) {
+		this.args = args;
+		if (!args.getFilesToOpen().isEmpty())
+			this.defaultFile = args.getFilesToOpen().get(0).getAbsoluteFile();
+	}
+
+	private Session getSession(File fileToOpen) throws JobException {
+		Session ret = sessions.get(fileToOpen);
+		if (ret != null && ret.lastModified == fileToOpen.lastModified())
+			return ret;
+
+		LogisimFile file;
+		try {
+			file = new Loader(null).openLogisimFile(fileToOpen, args.getSubstitutions());
+		} catch (LoadFailedException e) {
+			throw new JobException(Strings.get("ttyLoadError", fileToOpen.getName()));
+		}
+		ret = new Session();
+		ret.lastModified = fileToOpen.lastModified();
+		Circuit circuit = file.getMainCircuit();
+		for (Map.Entry<Instance, String> entry : Analyze.getPinLabels(circuit).entrySet()) {
+			Instance pin = entry.getKey();
+			if (Pin.FACTORY.isInputPin(pin)) {
+				ret.inputs.put(entry.getValue(), pin);
+			} else {
+				ret.outputs.put(entry.getValue(), pin);
+			}
+		}
+		ret.circState = new CircuitState(new Project(file), circuit);
+		sessions.put(fileToOpen, ret);
+		return ret;
+	}
+
+	private void runJob(String line, PrintWriter out) throws JobException {
+		File fileToOpen = defaultFile;
+		int ticks = 0;
+		ArrayList<String> vectors = new ArrayList<String>();
+		String outNames = null;
+		for (String token : line.trim().split("\\s+")) {
+			int eq = token.indexOf('=');
+			String key = eq < 0 ? token : token.substring(0, eq);
+			String val = eq < 0 ? "" : token.substring(eq + 1);
+			if (key.equals("file")) {
+				fileToOpen = new File(val).getAbsoluteFile();
+			} else if (key.equals("ticks")) {
+				try {
+					ticks = Integer.parseInt(val);
+				} catch (NumberFormatException e) {
+					throw new JobException(StringUtil.format(Strings.get("ttyServerOptionError"), token));
+				}
+			} else if (key.equals("in")) {
+				vectors.add(val);
+			} else if (key.equals("out")) {
+				outNames = val;
+			} else {
+				throw new JobException(StringUtil.format(Strings.get("ttyServerOptionError"), token));
+			}
+		}
+		if (fileToOpen == null)
+			throw new JobException(Strings.get("ttyServerNoFileError"));
+		defaultFile = fileToOpen;
+		if (vectors.isEmpty())
+			vectors.add("");
+
+		Session session = getSession(fileToOpen);
+		ArrayList<Instance> outputPins = new ArrayList<Instance>();
+		if (outNames == null) {
+			outputPins.addAll(session.outputs.values());
+		} else {
+			for (String name : outNames.split(",")) {
+				Instance pin = session.outputs.get(name);
+				if (pin == null)
+					throw new JobException(StringUtil.format(Strings.get("ttyServerPinError"), name));
+				outputPins.add(pin);
+			}
+		}
+
+		CircuitState circState = session.circState;
+		Propagator prop = circState.getPropagator();
+		prop.reset();
+		prop.propagate();
+		if (args.getLoadFile() != null) {
+			try {
+				TtyInterface.loadRam(circState, args.getLoadFile());
+			} catch (IOException e) {
+				throw new JobException(Strings.get("loadIoError") + ": " + e.toString());
+			}
+		}
+
+		for (String vector : vectors) {
+			for (String assign : vector.split(",")) {
+				if (assign.length() == 0)
+					continue;
+				int colon = assign.indexOf(':');
+				String name = colon < 0 ? assign : assign.substring(0, colon);
+				Instance pin = session.inputs.get(name);
+				if (pin == null || colon < 0)
+					throw new JobException(StringUtil.format(Strings.get("ttyServerPinError"), name));
+				InstanceState pinState = circState.getInstanceState(pin);
+				Pin.FACTORY.setValue(pinState, parseValue(Pin.FACTORY.getWidth(pin), assign.substring(colon + 1)));
+				pinState.fireInvalidated();
+			}
+			prop.propagate();
+			for (int i = 0; i < ticks && !prop.isOscillating(); i++) {
+				prop.tick();
+				prop.propagate();
+			}
+			if (prop.isOscillating())
+				throw new JobException(Strings.get("ttyHaltReasonOscillation"));
+
+			StringBuilder row = new StringBuilder();
+			for (Instance pin : outputPins) {
+				if (row.length() > 0)
+					row.append('\t');
+				row.append(Pin.FACTORY.getValue(circState.getInstanceState(pin)));
+			}
+			out.println(row);
+		}
+	}
+
+	private void serve(BufferedReader in, PrintWriter out) throws IOException {
+		while (true) {
+			String line = in.readLine();
+			if (line == null || line.trim().equals("quit"))
+				break;
+			if (line.trim().length() == 0)
+				continue;
+			try {
+				runJob(line, out);
+				out.println("done");
+			} catch (JobException e) {
+				out.println("error " + e.getMessage());
+			} catch (RuntimeException e) {
+				// a failure inside the simulation may leave the cached state
+				// half updated, so the next job reloads the file
+				sessions.remove(defaultFile);
+				out.println("error " + e.toString());
+			}
+		}
+	}
+}
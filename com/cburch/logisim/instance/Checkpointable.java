@@ -0,0 +1,20 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.instance;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Implemented by component data that can be saved in a simulation checkpoint.
+ * A checkpoint is restored into data that the component has already created
+ * for itself, so only the data's changing contents need be written, and not
+ * anything derived from the component's attributes.
+ */
+public interface Checkpointable {
+	public void readCheckpoint(DataInput in) throws IOException;
+
+	public void writeCheckpoint(DataOutput out) throws IOException;
+}
@@ -10,6 +10,7 @@ import com.cburch.logisim.circuit.CircuitState;
 import com.cburch.logisim.comp.Component;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.AttributeSnapshot;
 import com.cburch.logisim.data.Bounds;
 import com.cburch.logisim.data.Location;
 
@@ -44,6 +45,10 @@ public class Instance {
 		return comp.getAttributeSet();
 	}
 
+	public AttributeSnapshot getAttributeSnapshot() {
+		return comp.getAttributeSnapshot();
+	}
+
 	public <E> E getAttributeValue(Attribute<E> attr) {
 		return comp.getAttributeSet().getValue(attr);
 	}
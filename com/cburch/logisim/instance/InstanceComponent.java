@@ -22,6 +22,7 @@ import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeEvent;
 import com.cburch.logisim.data.AttributeListener;
 import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.AttributeSnapshot;
 import com.cburch.logisim.data.BitWidth;
 import com.cburch.logisim.data.Bounds;
 import com.cburch.logisim.data.Location;
@@ -44,6 +45,8 @@ class InstanceComponent implements Component, AttributeListener, ToolTipMaker {
 	private HashSet<Attribute<BitWidth>> widthAttrs;
 	private AttributeSet attrs;
 	private boolean attrListenRequested;
+	private boolean snapshotRequested;
+	private AttributeSnapshot.Cache snapshot;
 	private InstanceTextField textField;
 
 	InstanceComponent(InstanceFactory factory, Location loc, AttributeSet attrs) {
@@ -57,6 +60,8 @@ class InstanceComponent implements Component, AttributeListener, ToolTipMaker {
 		this.hasToolTips = false;
 		this.attrs = attrs;
 		this.attrListenRequested = false;
+		this.snapshotRequested = false;
+		this.snapshot = new AttributeSnapshot.Cache();
 		this.textField = null;
 
 		computeEnds();
@@ -65,7 +70,7 @@ class InstanceComponent implements Component, AttributeListener, ToolTipMaker {
 	void addAttributeListener(Instance instance) {
 		if (!attrListenRequested) {
 			attrListenRequested = true;
-			if (widthAttrs == null)
+			if (widthAttrs == null && !snapshotRequested)
 				getAttributeSet().addAttributeListener(this);
 		}
 	}
@@ -94,6 +99,7 @@ class InstanceComponent implements Component, AttributeListener, ToolTipMaker {
 
 	@Override
 	public void attributeValueChanged(AttributeEvent e) {
+		snapshot.invalidate();
 		Attribute<?> attr = e.getAttribute();
 		if (widthAttrs != null && widthAttrs.contains(attr))
 			computeEnds();
@@ -147,7 +153,7 @@ class InstanceComponent implements Component, AttributeListener, ToolTipMaker {
 					toolTipFound = true;
 			}
 		}
-		if (!attrListenRequested) {
+		if (!attrListenRequested && !snapshotRequested) {
 			HashSet<Attribute<BitWidth>> oldWattrs = widthAttrs;
 			if (wattrs == null && oldWattrs != null) {
 				getAttributeSet().removeAttributeListener(this);
@@ -246,6 +252,15 @@ class InstanceComponent implements Component, AttributeListener, ToolTipMaker {
 		return attrs;
 	}
 
+	AttributeSnapshot getAttributeSnapshot() {
+		if (!snapshotRequested) {
+			snapshotRequested = true;
+			if (!attrListenRequested && widthAttrs == null)
+				getAttributeSet().addAttributeListener(this);
+		}
+		return snapshot.get(attrs, factory.getSnapshotAttributes());
+	}
+
 	@Override
 	public Bounds getBounds() {
 		return bounds;
@@ -335,12 +350,20 @@ class InstanceComponent implements Component, AttributeListener, ToolTipMaker {
 
 	@Override
 	public void propagate(CircuitState state) {
-		factory.propagate(state.getInstanceState(this));
+		InstanceStateImpl instState = InstanceStateImpl.acquire(state, this);
+		try {
+			factory.propagate(instState);
+		} finally {
+			instState.release();
+		}
 	}
 
 	void recomputeBounds() {
 		Location p = loc;
+		Bounds old = bounds;
 		bounds = factory.getOffsetBounds(attrs).translate(p.getX(), p.getY());
+		if (!bounds.equals(old))
+			fireInvalidated();
 	}
 
 	@Override
@@ -366,6 +389,7 @@ class InstanceComponent implements Component, AttributeListener, ToolTipMaker {
 			textField = field;
 		} else {
 			field.update(labelAttr, fontAttr, x, y, halign, valign);
+			fireInvalidated(); // the label may have moved
 		}
 	}
 
@@ -3,7 +3,17 @@
 
 package com.cburch.logisim.instance;
 
-public class InstanceDataSingleton implements InstanceData, Cloneable {
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import com.cburch.logisim.data.Value;
+
+public class InstanceDataSingleton implements InstanceData, Cloneable, Checkpointable {
+	private static final int OTHER = 0;
+	private static final int VALUE = 1;
+	private static final int INTEGER = 2;
+
 	private Object value;
 
 	public InstanceDataSingleton(Object value) {
@@ -23,7 +33,29 @@ public class InstanceDataSingleton implements InstanceData, Cloneable {
 		return value;
 	}
 
+	@Override
+	public void readCheckpoint(DataInput in) throws IOException {
+		int kind = in.readByte();
+		if (kind == VALUE)
+			value = Value.read(in);
+		else if (kind == INTEGER)
+			value = Integer.valueOf(in.readInt());
+	}
+
 	public void setValue(Object value) {
 		this.value = value;
 	}
+
+	@Override
+	public void writeCheckpoint(DataOutput out) throws IOException {
+		if (value instanceof Value) {
+			out.writeByte(VALUE);
+			((Value) value).write(out);
+		} else if (value instanceof Integer) {
+			out.writeByte(INTEGER);
+			out.writeInt(((Integer) value).intValue());
+		} else {
+			out.writeByte(OTHER);
+		}
+	}
 }
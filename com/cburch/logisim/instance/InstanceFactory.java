@@ -48,9 +48,11 @@ public abstract class InstanceFactory extends AbstractComponentFactory {
 	private List<Port> portList;
 	private Attribute<Direction> facingAttribute;
 	private Boolean shouldSnap;
+	private Boolean serialPropagation;
 	private KeyConfigurator keyConfigurator;
 	private Class<? extends InstancePoker> pokerClass;
 	private Class<? extends InstanceLogger> loggerClass;
+	private Attribute<?>[] snapshotAttrs;
 
 	public InstanceFactory(String name) {
 		this(name, StringUtil.constantGetter(name));
@@ -68,6 +70,8 @@ public abstract class InstanceFactory extends AbstractComponentFactory {
 		this.keyConfigurator = null;
 		this.facingAttribute = null;
 		this.shouldSnap = Boolean.TRUE;
+		this.serialPropagation = Boolean.FALSE;
+		this.snapshotAttrs = new Attribute<?>[0];
 	}
 
 	// event methods
@@ -163,6 +167,8 @@ public abstract class InstanceFactory extends AbstractComponentFactory {
 			return keyConfigurator;
 		if (key == SHOULD_SNAP)
 			return shouldSnap;
+		if (key == SERIAL_PROPAGATION)
+			return serialPropagation;
 		return super.getFeature(key, attrs);
 	}
 
@@ -198,6 +204,10 @@ public abstract class InstanceFactory extends AbstractComponentFactory {
 		return portList;
 	}
 
+	Attribute<?>[] getSnapshotAttributes() {
+		return snapshotAttrs;
+	}
+
 	protected void instanceAttributeChanged(Instance instance, Attribute<?> attr) {
 	}
 
@@ -308,7 +318,24 @@ public abstract class InstanceFactory extends AbstractComponentFactory {
 		portList = new UnmodifiableList<Port>(ports);
 	}
 
+	/**
+	 * Declares that <code>propagate</code> changes something shared by all
+	 * the instance's states, such as its attributes or bounds, so that the
+	 * simulator must not propagate several states of it at once.
+	 */
+	public void setSerialPropagation(boolean value) {
+		serialPropagation = Boolean.valueOf(value);
+	}
+
 	public void setShouldSnap(boolean value) {
 		shouldSnap = Boolean.valueOf(value);
 	}
+
+	/**
+	 * Sets the attributes kept in each instance's
+	 * <code>AttributeSnapshot</code>.
+	 */
+	public void setSnapshotAttributes(Attribute<?>[] attrs) {
+		snapshotAttrs = attrs;
+	}
 }
@@ -3,6 +3,8 @@
 
 package com.cburch.logisim.instance;
 
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.BitWidth;
 import com.cburch.logisim.data.Value;
 
 public abstract class InstanceLogger {
@@ -12,5 +14,14 @@ public abstract class InstanceLogger {
 		return null;
 	}
 
+	/**
+	 * Returns the width of the option's values, or null if it is not known.
+	 * By default this is the component's width attribute, if it has one.
+	 */
+	public BitWidth getLogWidth(InstanceState state, Object option) {
+		AttributeSet attrs = state.getAttributeSet();
+		return attrs.containsAttribute(StdAttr.WIDTH) ? attrs.getValue(StdAttr.WIDTH) : null;
+	}
+
 	public abstract Value getLogValue(InstanceState state, Object option);
 }
@@ -4,6 +4,7 @@
 package com.cburch.logisim.instance;
 
 import com.cburch.logisim.circuit.CircuitState;
+import com.cburch.logisim.data.BitWidth;
 import com.cburch.logisim.data.Value;
 import com.cburch.logisim.gui.log.Loggable;
 
@@ -42,6 +43,16 @@ class InstanceLoggerAdapter implements Loggable {
 		}
 	}
 
+	@Override
+	public BitWidth getLogWidth(CircuitState circuitState, Object option) {
+		if (logger != null) {
+			updateState(circuitState);
+			return logger.getLogWidth(state, option);
+		} else {
+			return null;
+		}
+	}
+
 	@Override
 	public Value getLogValue(CircuitState circuitState, Object option) {
 		if (logger != null) {
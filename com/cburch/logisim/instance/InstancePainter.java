@@ -11,6 +11,7 @@ import com.cburch.logisim.circuit.WireSet;
 import com.cburch.logisim.comp.ComponentDrawContext;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.AttributeSnapshot;
 import com.cburch.logisim.data.Bounds;
 import com.cburch.logisim.data.Direction;
 import com.cburch.logisim.data.Location;
@@ -28,6 +29,16 @@ public class InstancePainter implements InstanceState {
 		this.comp = instance;
 	}
 
+	@Override
+	public InstanceState copy() {
+		CircuitState circState = context.getCircuitState();
+		if (circState == null || comp == null) {
+			throw new UnsupportedOperationException("copy on InstancePainter");
+		} else {
+			return new InstanceStateImpl(circState, comp);
+		}
+	}
+
 	//
 	// helper methods for drawing common elements in components
 	//
@@ -92,6 +103,12 @@ public class InstancePainter implements InstanceState {
 		return c == null ? attrs : c.getAttributeSet();
 	}
 
+	@Override
+	public AttributeSnapshot getAttributeSnapshot() {
+		InstanceComponent c = comp;
+		return c == null ? AttributeSnapshot.create(attrs, factory.getSnapshotAttributes()) : c.getAttributeSnapshot();
+	}
+
 	@Override
 	public <E> E getAttributeValue(Attribute<E> attr) {
 		InstanceComponent c = comp;
@@ -5,14 +5,31 @@ package com.cburch.logisim.instance;
 
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.AttributeSnapshot;
 import com.cburch.logisim.data.Value;
 import com.cburch.logisim.proj.Project;
 
 public interface InstanceState {
+	/**
+	 * Returns a state for the same component and circuit state that stays valid
+	 * after the current call returns. The state passed to
+	 * <code>InstanceFactory.propagate</code> is reused for the next component
+	 * as soon as <code>propagate</code> returns, so a factory that keeps a state
+	 * beyond that call must keep a copy instead.
+	 */
+	public InstanceState copy();
+
 	public void fireInvalidated();
 
 	public AttributeSet getAttributeSet();
 
+	/**
+	 * Returns the values of the attributes named by the factory's
+	 * <code>setSnapshotAttributes</code>, which is quicker than
+	 * <code>getAttributeValue</code> for reading them on each propagation.
+	 */
+	public AttributeSnapshot getAttributeSnapshot();
+
 	public <E> E getAttributeValue(Attribute<E> attr);
 
 	public InstanceData getData();
@@ -9,11 +9,35 @@ import com.cburch.logisim.comp.Component;
 import com.cburch.logisim.comp.EndData;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.AttributeSnapshot;
 import com.cburch.logisim.data.Location;
 import com.cburch.logisim.data.Value;
 import com.cburch.logisim.proj.Project;
 
 class InstanceStateImpl implements InstanceState {
+	// the state that InstanceComponent.propagate lends to factories, one per
+	// thread since substates may propagate in parallel
+	private static final ThreadLocal<InstanceStateImpl> flyweights = new ThreadLocal<InstanceStateImpl>() {
+		@Override
+		protected InstanceStateImpl initialValue() {
+			return new InstanceStateImpl(null, null);
+		}
+	};
+
+	/**
+	 * Returns this thread's reusable state, pointed at the given component. If
+	 * that state is already lent out further up the stack, a fresh one is
+	 * returned instead. Either way, the caller must call
+	 * <code>release</code> when done with it.
+	 */
+	static InstanceStateImpl acquire(CircuitState circuitState, Component component) {
+		InstanceStateImpl ret = flyweights.get();
+		if (ret.component != null)
+			return new InstanceStateImpl(circuitState, component);
+		ret.repurpose(circuitState, component);
+		return ret;
+	}
+
 	private CircuitState circuitState;
 	private Component component;
 
@@ -22,6 +46,11 @@ class InstanceStateImpl implements InstanceState {
 		this.component = component;
 	}
 
+	@Override
+	public InstanceState copy() {
+		return new InstanceStateImpl(circuitState, component);
+	}
+
 	@Override
 	public void fireInvalidated() {
 		if (component instanceof InstanceComponent) {
@@ -34,6 +63,14 @@ class InstanceStateImpl implements InstanceState {
 		return component.getAttributeSet();
 	}
 
+	@Override
+	public AttributeSnapshot getAttributeSnapshot() {
+		if (component instanceof InstanceComponent)
+			return ((InstanceComponent) component).getAttributeSnapshot();
+		InstanceFactory factory = (InstanceFactory) component.getFactory();
+		return AttributeSnapshot.create(component.getAttributeSet(), factory.getSnapshotAttributes());
+	}
+
 	@Override
 	public <E> E getAttributeValue(Attribute<E> attr) {
 		return component.getAttributeSet().getValue(attr);
@@ -95,6 +132,13 @@ class InstanceStateImpl implements InstanceState {
 		return circ.isConnected(loc, component);
 	}
 
+	// Forgets the component, so that a state kept past its loan fails
+	// rather than silently acting on whichever component is next.
+	void release() {
+		circuitState = null;
+		component = null;
+	}
+
 	public void repurpose(CircuitState circuitState, Component component) {
 		this.circuitState = circuitState;
 		this.component = component;
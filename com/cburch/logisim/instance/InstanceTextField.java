@@ -52,9 +52,12 @@ public class InstanceTextField implements AttributeListener, TextFieldListener,
 		Attribute<?> attr = e.getAttribute();
 		if (attr == labelAttr) {
 			updateField(comp.getAttributeSet());
+			comp.fireInvalidated(); // the label's bounds have changed
 		} else if (attr == fontAttr) {
-			if (field != null)
+			if (field != null) {
 				field.setFont((Font) e.getValue());
+				comp.fireInvalidated();
+			}
 		}
 	}
 
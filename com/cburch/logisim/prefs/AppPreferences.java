@@ -191,6 +191,13 @@ public class AppPreferences {
 	public static final PrefMonitor<String> GRAPHICS_ACCELERATION = create(
 			new PrefMonitorStringOpts("graphicsAcceleration",
 					new String[] { ACCEL_DEFAULT, ACCEL_NONE, ACCEL_OPENGL, ACCEL_D3D }, ACCEL_DEFAULT));
+	public static final String SIM_QUEUE_WHEEL = "wheel";
+	public static final String SIM_QUEUE_LEGACY = "legacy";
+	public static final PrefMonitor<String> SIM_EVENT_QUEUE = create(new PrefMonitorStringOpts("simEventQueue",
+			new String[] { SIM_QUEUE_WHEEL, SIM_QUEUE_LEGACY }, SIM_QUEUE_WHEEL));
+	public static final PrefMonitor<Boolean> SIM_COMPILED_NETS = create(
+			new PrefMonitorBoolean("simCompiledNets", false));
+	public static final PrefMonitor<Boolean> SIM_PARALLEL = create(new PrefMonitorBoolean("simParallel", false));
 	// fork preferences
 	public static final PrefMonitor<Boolean> ANTI_ALIASING = create(new PrefMonitorBoolean("AntiAliasing", true));
 	public static final PrefMonitor<Boolean> AUTO_UPDATES = create(new PrefMonitorBoolean("AutoUpdates", true));
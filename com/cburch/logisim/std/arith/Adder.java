@@ -5,6 +5,7 @@ package com.cburch.logisim.std.arith;
 
 import java.awt.Color;
 import java.awt.Graphics;
+import java.math.BigInteger;
 
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.BitWidth;
@@ -34,14 +35,22 @@ public class Adder extends InstanceFactory {
 		if (c_in == Value.UNKNOWN || c_in == Value.NIL)
 			c_in = Value.FALSE;
 		if (a.isFullyDefined() && b.isFullyDefined() && c_in.isFullyDefined()) {
-			if (w >= 32) {
-				long mask = (1L << w) - 1;
-				long ax = a.toIntValue() & mask;
-				long bx = b.toIntValue() & mask;
-				long cx = c_in.toIntValue() & mask;
-				long sum = ax + bx + cx;
-				return new Value[] { Value.createKnown(width, (int) sum),
-						((sum >> w) & 1) == 0 ? Value.FALSE : Value.TRUE };
+			if (w > 64) {
+				BigInteger sum = a.toBigInteger().add(b.toBigInteger()).add(c_in.toBigInteger());
+				return new Value[] { Value.createKnown(width, sum), sum.testBit(w) ? Value.TRUE : Value.FALSE };
+			} else if (w >= 32) {
+				long ax = a.toLongValue();
+				long bx = b.toLongValue();
+				long cx = c_in.toLongValue();
+				long ab = ax + bx;
+				long sum = ab + cx;
+				boolean carry;
+				if (w == 64) {
+					carry = Long.compareUnsigned(ab, ax) < 0 || Long.compareUnsigned(sum, ab) < 0;
+				} else {
+					carry = ((sum >> w) & 1) != 0;
+				}
+				return new Value[] { Value.createKnown(width, sum), carry ? Value.TRUE : Value.FALSE };
 			} else {
 				int sum = a.toIntValue() + b.toIntValue() + c_in.toIntValue();
 				return new Value[] { Value.createKnown(width, sum), ((sum >> w) & 1) == 0 ? Value.FALSE : Value.TRUE };
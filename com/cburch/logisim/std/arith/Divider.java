@@ -5,6 +5,7 @@ package com.cburch.logisim.std.arith;
 
 import java.awt.Color;
 import java.awt.Graphics;
+import java.math.BigInteger;
 
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.BitWidth;
@@ -33,7 +34,14 @@ public class Divider extends InstanceFactory {
 		int w = width.getWidth();
 		if (upper == Value.NIL || upper.isUnknown())
 			upper = Value.createKnown(width, 0);
-		if (a.isFullyDefined() && b.isFullyDefined() && upper.isFullyDefined()) {
+		if (a.isFullyDefined() && b.isFullyDefined() && upper.isFullyDefined() && w > 32) {
+			BigInteger num = upper.toBigInteger().shiftLeft(w).or(a.toBigInteger());
+			BigInteger den = b.toBigInteger();
+			if (den.signum() == 0)
+				den = BigInteger.ONE;
+			BigInteger[] result = num.divideAndRemainder(den);
+			return new Value[] { Value.createKnown(width, result[0]), Value.createKnown(width, result[1]) };
+		} else if (a.isFullyDefined() && b.isFullyDefined() && upper.isFullyDefined()) {
 			long num = ((long) upper.toIntValue() << w) | (a.toIntValue() & 0xFFFFFFFFL);
 			long den = b.toIntValue() & 0xFFFFFFFFL;
 			if (den == 0)
@@ -5,6 +5,7 @@ package com.cburch.logisim.std.arith;
 
 import java.awt.Color;
 import java.awt.Graphics;
+import java.math.BigInteger;
 
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.BitWidth;
@@ -34,30 +35,35 @@ public class Multiplier extends InstanceFactory {
 		if (c_in == Value.NIL || c_in.isUnknown())
 			c_in = Value.createKnown(width, 0);
 		if (a.isFullyDefined() && b.isFullyDefined() && c_in.isFullyDefined()) {
+			if (w > 32) {
+				BigInteger sum = a.toBigInteger().multiply(b.toBigInteger()).add(c_in.toBigInteger());
+				return new Value[] { Value.createKnown(width, sum), Value.createKnown(width, sum.shiftRight(w)) };
+			}
 			long sum = (long) a.toIntValue() * (long) b.toIntValue() + c_in.toIntValue();
 			return new Value[] { Value.createKnown(width, (int) sum), Value.createKnown(width, (int) (sum >> w)) };
 		} else {
 			Value[] avals = a.getAll();
 			int aOk = findUnknown(avals);
 			int aErr = findError(avals);
-			int ax = getKnown(avals);
+			long ax = getKnown(avals);
 			Value[] bvals = b.getAll();
 			int bOk = findUnknown(bvals);
 			int bErr = findError(bvals);
-			int bx = getKnown(bvals);
+			long bx = getKnown(bvals);
 			Value[] cvals = c_in.getAll();
 			int cOk = findUnknown(cvals);
 			int cErr = findError(cvals);
-			int cx = getKnown(cvals);
+			long cx = getKnown(cvals);
 
-			int known = Math.min(Math.min(aOk, bOk), cOk);
+			// only the low 64 bits of the known part are computed
+			int known = Math.min(Math.min(Math.min(aOk, bOk), cOk), 64);
 			int error = Math.min(Math.min(aErr, bErr), cErr);
-			int ret = ax * bx + cx;
+			long ret = ax * bx + cx;
 
 			Value[] bits = new Value[w];
 			for (int i = 0; i < w; i++) {
 				if (i < known) {
-					bits[i] = ((ret & (1 << i)) != 0 ? Value.TRUE : Value.FALSE);
+					bits[i] = ((ret & (1L << i)) != 0 ? Value.TRUE : Value.FALSE);
 				} else if (i < error) {
 					bits[i] = Value.UNKNOWN;
 				} else {
@@ -85,10 +91,10 @@ public class Multiplier extends InstanceFactory {
 		return vals.length;
 	}
 
-	private static int getKnown(Value[] vals) {
-		int ret = 0;
-		for (int i = 0; i < vals.length; i++) {
-			int val = vals[i].toIntValue();
+	private static long getKnown(Value[] vals) {
+		long ret = 0;
+		for (int i = 0; i < vals.length && i < 64; i++) {
+			long val = vals[i].toLongValue();
 			if (val < 0)
 				return ret;
 			ret |= val << i;
@@ -3,6 +3,8 @@
 
 package com.cburch.logisim.std.arith;
 
+import java.math.BigInteger;
+
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.BitWidth;
 import com.cburch.logisim.data.Bounds;
@@ -50,7 +52,11 @@ public class Negator extends InstanceFactory {
 		Value in = state.getPort(IN);
 		Value out;
 		if (in.isFullyDefined()) {
-			out = Value.createKnown(in.getBitWidth(), -in.toIntValue());
+			if (in.getWidth() > 64) {
+				out = Value.createKnown(in.getBitWidth(), in.toBigInteger().negate());
+			} else {
+				out = Value.createKnown(in.getBitWidth(), -in.toLongValue());
+			}
 		} else {
 			Value[] bits = in.getAll();
 			Value fill = Value.FALSE;
@@ -13,10 +13,12 @@ import javax.swing.Icon;
 import com.cburch.logisim.LogisimVersion;
 import com.cburch.logisim.analyze.model.Expression;
 import com.cburch.logisim.analyze.model.Expressions;
+import com.cburch.logisim.circuit.BitSliceEvaluator;
 import com.cburch.logisim.circuit.ExpressionComputer;
 import com.cburch.logisim.comp.TextField;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.AttributeSnapshot;
 import com.cburch.logisim.data.Bounds;
 import com.cburch.logisim.data.Direction;
 import com.cburch.logisim.data.Location;
@@ -114,6 +116,14 @@ abstract class AbstractGate extends InstanceFactory {
 
 	protected abstract Value computeOutput(Value[] inputs, int numInputs, InstanceState state);
 
+	/**
+	 * Computes the output for 64 rows at once, as described for
+	 * <code>BitSliceEvaluator</code>, placing it into <code>out</code>.
+	 */
+	protected void computeSlice(long[][] inputs, int numInputs, long[] out, GateAttributes attrs) {
+		throw new UnsupportedOperationException();
+	}
+
 	void computePorts(Instance instance) {
 		GateAttributes attrs = (GateAttributes) instance.getAttributeSet();
 		int inputs = attrs.inputs;
@@ -294,6 +304,45 @@ abstract class AbstractGate extends InstanceFactory {
 				}
 			};
 		}
+		if (key == BitSliceEvaluator.class) {
+			GateAttributes attrs = (GateAttributes) instance.getAttributeSet();
+			if (attrs.width.getWidth() != 1 || attrs.out != GateAttributes.OUTPUT_01)
+				return null;
+			return new BitSliceEvaluator() {
+				@Override
+				public void evaluate(Map<Location, long[]> values) {
+					GateAttributes attrs = (GateAttributes) instance.getAttributeSet();
+					int inputCount = attrs.inputs;
+					int negated = attrs.negated;
+
+					long[][] inputs = new long[inputCount][];
+					int numInputs = 0;
+					for (int i = 1; i <= inputCount; i++) {
+						long[] in = values.get(instance.getPortLocation(i));
+						if (in != null) {
+							int negatedBit = (negated >> (i - 1)) & 1;
+							if (negatedBit == 1) {
+								long[] inverted = new long[3];
+								GateFunctions.sliceNot(in, inverted);
+								in = inverted;
+							}
+							inputs[numInputs] = in;
+							++numInputs;
+						}
+					}
+					long[] out = values.get(instance.getPortLocation(0));
+					if (out == null) {
+						return;
+					} else if (numInputs == 0) {
+						out[0] = 0;
+						out[1] = 0;
+						out[2] = -1L;
+					} else {
+						AbstractGate.this.computeSlice(inputs, numInputs, out, attrs);
+					}
+				}
+			};
+		}
 		if (key == ExpressionComputer.class) {
 			return new ExpressionComputer() {
 				@Override
@@ -510,8 +559,8 @@ abstract class AbstractGate extends InstanceFactory {
 		GateAttributes attrs = (GateAttributes) state.getAttributeSet();
 		int inputCount = attrs.inputs;
 		int negated = attrs.negated;
-		AttributeSet opts = state.getProject().getOptions().getAttributeSet();
-		boolean errorIfUndefined = opts.getValue(Options.ATTR_GATE_UNDEFINED).equals(Options.GATE_UNDEFINED_ERROR);
+		AttributeSnapshot opts = state.getProject().getOptions().getAttributeSnapshot();
+		boolean errorIfUndefined = opts.get(Options.ATTR_GATE_UNDEFINED) == Options.GATE_UNDEFINED_ERROR;
 
 		Value[] inputs = new Value[inputCount];
 		int numInputs = 0;
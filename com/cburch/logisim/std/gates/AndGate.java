@@ -35,6 +35,11 @@ class AndGate extends AbstractGate {
 		return GateFunctions.computeAnd(inputs, numInputs);
 	}
 
+	@Override
+	protected void computeSlice(long[][] inputs, int numInputs, long[] out, GateAttributes attrs) {
+		GateFunctions.sliceAnd(inputs, numInputs, out);
+	}
+
 	@Override
 	protected Value getIdentity() {
 		return Value.TRUE;
@@ -9,9 +9,11 @@ import java.awt.Graphics2D;
 import java.util.Map;
 
 import com.cburch.logisim.analyze.model.Expression;
+import com.cburch.logisim.circuit.BitSliceEvaluator;
 import com.cburch.logisim.circuit.ExpressionComputer;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.AttributeSnapshot;
 import com.cburch.logisim.data.BitWidth;
 import com.cburch.logisim.data.Bounds;
 import com.cburch.logisim.data.Direction;
@@ -35,9 +37,8 @@ class Buffer extends InstanceFactory {
 	// static methods - shared with other classes
 	//
 	static Value repair(InstanceState state, Value v) {
-		AttributeSet opts = state.getProject().getOptions().getAttributeSet();
-		Object onUndefined = opts.getValue(Options.ATTR_GATE_UNDEFINED);
-		boolean errorIfUndefined = onUndefined.equals(Options.GATE_UNDEFINED_ERROR);
+		AttributeSnapshot opts = state.getProject().getOptions().getAttributeSnapshot();
+		boolean errorIfUndefined = opts.get(Options.ATTR_GATE_UNDEFINED) == Options.GATE_UNDEFINED_ERROR;
 		Value repaired;
 		if (errorIfUndefined) {
 			int vw = v.getWidth();
@@ -95,6 +96,27 @@ class Buffer extends InstanceFactory {
 
 	@Override
 	public Object getInstanceFeature(final Instance instance, Object key) {
+		if (key == BitSliceEvaluator.class) {
+			if (instance.getAttributeValue(StdAttr.WIDTH).getWidth() != 1
+					|| instance.getAttributeValue(GateAttributes.ATTR_OUTPUT) != GateAttributes.OUTPUT_01)
+				return null;
+			return new BitSliceEvaluator() {
+				@Override
+				public void evaluate(Map<Location, long[]> values) {
+					long[] in = values.get(instance.getPortLocation(1));
+					long[] out = values.get(instance.getPortLocation(0));
+					if (out != null) {
+						if (in == null) {
+							out[0] = 0;
+							out[1] = -1L;
+							out[2] = 0;
+						} else {
+							System.arraycopy(in, 0, out, 0, 3);
+						}
+					}
+				}
+			};
+		}
 		if (key == ExpressionComputer.class) {
 			return new ExpressionComputer() {
 				@Override
@@ -182,7 +182,7 @@ public class CircuitBuilder {
 			CircuitDetermination.Value value = (CircuitDetermination.Value) det;
 			ComponentFactory factory = Constant.FACTORY;
 			AttributeSet attrs = factory.createAttributeSet();
-			attrs.setValue(Constant.ATTR_VALUE, Integer.valueOf(value.getValue()));
+			attrs.setValue(Constant.ATTR_VALUE, Long.valueOf(value.getValue()));
 			Bounds bds = factory.getOffsetBounds(attrs);
 			return new Layout(bds.getWidth(), bds.getHeight(), -bds.getY(), factory, attrs, new Layout[0], 0);
 		}
@@ -360,10 +360,10 @@ public class CircuitBuilder {
 			Object factory = parent.getFactory();
 			if (factory instanceof AbstractGate) {
 				Value val = ((AbstractGate) factory).getIdentity();
-				Integer valInt = Integer.valueOf(val.toIntValue());
+				Long valLong = Long.valueOf(val.toLongValue());
 				Location loc = parent.getEnd(index).getLocation();
 				AttributeSet attrs = Constant.FACTORY.createAttributeSet();
-				attrs.setValue(Constant.ATTR_VALUE, valInt);
+				attrs.setValue(Constant.ATTR_VALUE, valLong);
 				result.add(Constant.FACTORY.createComponent(loc, attrs));
 			}
 		}
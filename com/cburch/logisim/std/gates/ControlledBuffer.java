@@ -13,6 +13,7 @@ import com.cburch.logisim.comp.ComponentFactory;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeOption;
 import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.AttributeSnapshot;
 import com.cburch.logisim.data.Attributes;
 import com.cburch.logisim.data.BitWidth;
 import com.cburch.logisim.data.Bounds;
@@ -259,8 +260,8 @@ class ControlledBuffer extends InstanceFactory {
 		} else {
 			Value out;
 			if (control == Value.UNKNOWN || control == Value.NIL) {
-				AttributeSet opts = state.getProject().getOptions().getAttributeSet();
-				if (opts.getValue(Options.ATTR_GATE_UNDEFINED).equals(Options.GATE_UNDEFINED_ERROR)) {
+				AttributeSnapshot opts = state.getProject().getOptions().getAttributeSnapshot();
+				if (opts.get(Options.ATTR_GATE_UNDEFINED) == Options.GATE_UNDEFINED_ERROR) {
 					out = Value.createError(width);
 				} else {
 					out = Value.createUnknown(width);
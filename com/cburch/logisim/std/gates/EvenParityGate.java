@@ -32,6 +32,12 @@ class EvenParityGate extends AbstractGate {
 		return GateFunctions.computeOddParity(inputs, numInputs).not();
 	}
 
+	@Override
+	protected void computeSlice(long[][] inputs, int numInputs, long[] out, GateAttributes attrs) {
+		GateFunctions.sliceOddParity(inputs, numInputs, out);
+		GateFunctions.sliceNot(out, out);
+	}
+
 	@Override
 	protected Value getIdentity() {
 		return Value.FALSE;
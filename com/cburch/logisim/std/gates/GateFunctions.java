@@ -57,6 +57,86 @@ class GateFunctions {
 		return ret;
 	}
 
+	//
+	// Bit-sliced versions of the above, for BitSliceEvaluator: each value
+	// is three words giving the TRUE, UNKNOWN and ERROR bits of 64 rows.
+	// As above, a lone input passes through unchanged, even if UNKNOWN.
+	//
+	static void sliceAnd(long[][] inputs, int numInputs, long[] out) {
+		if (numInputs == 1) {
+			System.arraycopy(inputs[0], 0, out, 0, 3);
+			return;
+		}
+		long trues = -1L;
+		long falses = 0;
+		for (int i = 0; i < numInputs; i++) {
+			long[] in = inputs[i];
+			long defined = ~(in[1] | in[2]);
+			trues &= in[0] & defined;
+			falses |= ~in[0] & defined;
+		}
+		out[0] = trues;
+		out[1] = 0;
+		out[2] = ~(trues | falses);
+	}
+
+	static void sliceExactlyOne(long[][] inputs, int numInputs, long[] out) {
+		long once = 0;
+		long twice = 0;
+		long undefined = 0;
+		for (int i = 0; i < numInputs; i++) {
+			long[] in = inputs[i];
+			twice |= once & in[0];
+			once |= in[0];
+			undefined |= in[1] | in[2];
+		}
+		out[0] = once & ~twice & ~undefined;
+		out[1] = 0;
+		out[2] = undefined;
+	}
+
+	static void sliceNot(long[] in, long[] out) {
+		long undefined = in[1] | in[2];
+		out[0] = ~in[0] & ~undefined;
+		out[1] = 0;
+		out[2] = undefined;
+	}
+
+	static void sliceOddParity(long[][] inputs, int numInputs, long[] out) {
+		if (numInputs == 1) {
+			System.arraycopy(inputs[0], 0, out, 0, 3);
+			return;
+		}
+		long parity = 0;
+		long undefined = 0;
+		for (int i = 0; i < numInputs; i++) {
+			long[] in = inputs[i];
+			parity ^= in[0];
+			undefined |= in[1] | in[2];
+		}
+		out[0] = parity & ~undefined;
+		out[1] = 0;
+		out[2] = undefined;
+	}
+
+	static void sliceOr(long[][] inputs, int numInputs, long[] out) {
+		if (numInputs == 1) {
+			System.arraycopy(inputs[0], 0, out, 0, 3);
+			return;
+		}
+		long trues = 0;
+		long falses = -1L;
+		for (int i = 0; i < numInputs; i++) {
+			long[] in = inputs[i];
+			long defined = ~(in[1] | in[2]);
+			trues |= in[0] & defined;
+			falses &= ~in[0] & defined;
+		}
+		out[0] = trues;
+		out[1] = 0;
+		out[2] = ~(trues | falses);
+	}
+
 	private GateFunctions() {
 	}
 }
@@ -36,6 +36,12 @@ class NandGate extends AbstractGate {
 		return GateFunctions.computeAnd(inputs, numInputs).not();
 	}
 
+	@Override
+	protected void computeSlice(long[][] inputs, int numInputs, long[] out, GateAttributes attrs) {
+		GateFunctions.sliceAnd(inputs, numInputs, out);
+		GateFunctions.sliceNot(out, out);
+	}
+
 	@Override
 	protected Value getIdentity() {
 		return Value.TRUE;
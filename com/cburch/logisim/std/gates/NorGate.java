@@ -39,6 +39,12 @@ class NorGate extends AbstractGate {
 		return GateFunctions.computeOr(inputs, numInputs).not();
 	}
 
+	@Override
+	protected void computeSlice(long[][] inputs, int numInputs, long[] out, GateAttributes attrs) {
+		GateFunctions.sliceOr(inputs, numInputs, out);
+		GateFunctions.sliceNot(out, out);
+	}
+
 	@Override
 	protected Value getIdentity() {
 		return Value.FALSE;
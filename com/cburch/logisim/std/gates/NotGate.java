@@ -12,6 +12,7 @@ import javax.swing.Icon;
 
 import com.cburch.logisim.analyze.model.Expression;
 import com.cburch.logisim.analyze.model.Expressions;
+import com.cburch.logisim.circuit.BitSliceEvaluator;
 import com.cburch.logisim.circuit.ExpressionComputer;
 import com.cburch.logisim.comp.TextField;
 import com.cburch.logisim.data.Attribute;
@@ -109,6 +110,28 @@ class NotGate extends InstanceFactory {
 
 	@Override
 	protected Object getInstanceFeature(final Instance instance, Object key) {
+		if (key == BitSliceEvaluator.class) {
+			if (instance.getAttributeValue(StdAttr.WIDTH).getWidth() != 1
+					|| instance.getAttributeValue(GateAttributes.ATTR_OUTPUT) != GateAttributes.OUTPUT_01)
+				return null;
+			return new BitSliceEvaluator() {
+				@Override
+				public void evaluate(Map<Location, long[]> values) {
+					long[] in = values.get(instance.getPortLocation(1));
+					long[] out = values.get(instance.getPortLocation(0));
+					if (out != null) {
+						if (in == null) {
+							// the input floats, and NOT of UNKNOWN is ERROR
+							out[0] = 0;
+							out[1] = 0;
+							out[2] = -1L;
+						} else {
+							GateFunctions.sliceNot(in, out);
+						}
+					}
+				}
+			};
+		}
 		if (key == ExpressionComputer.class) {
 			return new ExpressionComputer() {
 				@Override
@@ -37,6 +37,11 @@ class OddParityGate extends AbstractGate {
 		return GateFunctions.computeOddParity(inputs, numInputs);
 	}
 
+	@Override
+	protected void computeSlice(long[][] inputs, int numInputs, long[] out, GateAttributes attrs) {
+		GateFunctions.sliceOddParity(inputs, numInputs, out);
+	}
+
 	@Override
 	protected Value getIdentity() {
 		return Value.FALSE;
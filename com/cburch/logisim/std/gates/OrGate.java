@@ -38,6 +38,11 @@ class OrGate extends AbstractGate {
 		return GateFunctions.computeOr(inputs, numInputs);
 	}
 
+	@Override
+	protected void computeSlice(long[][] inputs, int numInputs, long[] out, GateAttributes attrs) {
+		GateFunctions.sliceOr(inputs, numInputs, out);
+	}
+
 	@Override
 	protected Value getIdentity() {
 		return Value.FALSE;
@@ -41,6 +41,16 @@ class XnorGate extends AbstractGate {
 		}
 	}
 
+	@Override
+	protected void computeSlice(long[][] inputs, int numInputs, long[] out, GateAttributes attrs) {
+		if (attrs.xorBehave == GateAttributes.XOR_ODD) {
+			GateFunctions.sliceOddParity(inputs, numInputs, out);
+		} else {
+			GateFunctions.sliceExactlyOne(inputs, numInputs, out);
+		}
+		GateFunctions.sliceNot(out, out);
+	}
+
 	@Override
 	protected Value getIdentity() {
 		return Value.FALSE;
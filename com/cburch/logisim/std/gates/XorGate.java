@@ -51,6 +51,15 @@ class XorGate extends AbstractGate {
 		}
 	}
 
+	@Override
+	protected void computeSlice(long[][] inputs, int numInputs, long[] out, GateAttributes attrs) {
+		if (attrs.xorBehave == GateAttributes.XOR_ODD) {
+			GateFunctions.sliceOddParity(inputs, numInputs, out);
+		} else {
+			GateFunctions.sliceExactlyOne(inputs, numInputs, out);
+		}
+	}
+
 	@Override
 	protected Value getIdentity() {
 		return Value.FALSE;
@@ -7,6 +7,9 @@ import java.awt.Color;
 import java.awt.Font;
 import java.awt.Graphics;
 import java.awt.event.MouseEvent;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeOption;
@@ -75,6 +78,18 @@ abstract class AbstractFlipFlop extends InstanceFactory {
 
 	private static class StateData extends ClockState implements InstanceData {
 		Value curValue = Value.FALSE;
+
+		@Override
+		public void readCheckpoint(DataInput in) throws IOException {
+			super.readCheckpoint(in);
+			curValue = Value.read(in);
+		}
+
+		@Override
+		public void writeCheckpoint(DataOutput out) throws IOException {
+			super.writeCheckpoint(out);
+			curValue.write(out);
+		}
 	}
 
 	private static final int STD_PORTS = 4;
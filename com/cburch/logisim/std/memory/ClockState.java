@@ -3,10 +3,15 @@
 
 package com.cburch.logisim.std.memory;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import com.cburch.logisim.data.Value;
+import com.cburch.logisim.instance.Checkpointable;
 import com.cburch.logisim.instance.StdAttr;
 
-class ClockState implements Cloneable {
+class ClockState implements Cloneable, Checkpointable {
 	private Value lastClock;
 
 	public ClockState() {
@@ -22,6 +27,11 @@ class ClockState implements Cloneable {
 		}
 	}
 
+	@Override
+	public void readCheckpoint(DataInput in) throws IOException {
+		lastClock = Value.read(in);
+	}
+
 	public boolean updateClock(Value newClock, Object trigger) {
 		Value oldClock = lastClock;
 		lastClock = newClock;
@@ -37,4 +47,9 @@ class ClockState implements Cloneable {
 			return oldClock == Value.FALSE && newClock == Value.TRUE;
 		}
 	}
+
+	@Override
+	public void writeCheckpoint(DataOutput out) throws IOException {
+		lastClock.write(out);
+	}
 }
@@ -31,7 +31,7 @@ public class Counter extends InstanceFactory {
 			Strings.getter("counterGoalContinue"));
 	static final AttributeOption ON_GOAL_LOAD = new AttributeOption("load", "load", Strings.getter("counterGoalLoad"));
 
-	static final Attribute<Integer> ATTR_MAX = Attributes.forHexInteger("max", Strings.getter("counterMaxAttr"));
+	static final Attribute<Long> ATTR_MAX = Attributes.forHexLong("max", Strings.getter("counterMaxAttr"));
 	static final Attribute<AttributeOption> ATTR_ON_GOAL = Attributes.forOption("ongoal",
 			Strings.getter("counterGoalAttr"),
 			new AttributeOption[] { ON_GOAL_WRAP, ON_GOAL_STAY, ON_GOAL_CONT, ON_GOAL_LOAD });
@@ -51,7 +51,7 @@ public class Counter extends InstanceFactory {
 		setIconName("counter.gif");
 		setInstancePoker(RegisterPoker.class);
 		setInstanceLogger(RegisterLogger.class);
-		setKeyConfigurator(new BitWidthConfigurator(StdAttr.WIDTH));
+		setKeyConfigurator(new BitWidthConfigurator(StdAttr.WIDTH, 1, 64));
 
 		Port[] ps = new Port[7];
 		ps[OUT] = new Port(0, 0, Port.OUTPUT, StdAttr.WIDTH);
@@ -95,7 +95,7 @@ public class Counter extends InstanceFactory {
 		String a;
 		String b = null;
 		if (painter.getShowState()) {
-			int val = state == null ? 0 : state.value;
+			long val = state == null ? 0 : state.value;
 			String str = StringUtil.toHexString(width, val);
 			if (str.length() <= 4) {
 				a = str;
@@ -148,7 +148,7 @@ public class Counter extends InstanceFactory {
 
 		BitWidth dataWidth = state.getAttributeValue(StdAttr.WIDTH);
 		Object triggerType = state.getAttributeValue(StdAttr.EDGE_TRIGGER);
-		int max = state.getAttributeValue(ATTR_MAX).intValue();
+		long max = state.getAttributeValue(ATTR_MAX).longValue();
 		Value clock = state.getPort(CK);
 		boolean triggered = data.updateClock(clock, triggerType);
 
@@ -160,13 +160,13 @@ public class Counter extends InstanceFactory {
 		} else {
 			boolean ld = state.getPort(LD) == Value.TRUE;
 			boolean ct = state.getPort(CT) != Value.FALSE;
-			int oldVal = data.value;
-			int newVal;
+			long oldVal = data.value;
+			long newVal;
 			if (!triggered) {
 				newVal = oldVal;
 			} else if (ct) { // trigger, enable = 1: should increment or
 								// decrement
-				int goal = ld ? 0 : max;
+				long goal = ld ? 0 : max;
 				if (oldVal == goal) {
 					Object onGoal = state.getAttributeValue(ATTR_ON_GOAL);
 					if (onGoal == ON_GOAL_WRAP) {
@@ -175,7 +175,7 @@ public class Counter extends InstanceFactory {
 						newVal = oldVal;
 					} else if (onGoal == ON_GOAL_LOAD) {
 						Value in = state.getPort(IN);
-						newVal = in.isFullyDefined() ? in.toIntValue() : 0;
+						newVal = in.isFullyDefined() ? in.toLongValue() : 0;
 						if (newVal > max)
 							newVal &= max;
 					} else if (onGoal == ON_GOAL_CONT) {
@@ -189,14 +189,14 @@ public class Counter extends InstanceFactory {
 				}
 			} else if (ld) { // trigger, enable = 0, load = 1: should load
 				Value in = state.getPort(IN);
-				newVal = in.isFullyDefined() ? in.toIntValue() : 0;
+				newVal = in.isFullyDefined() ? in.toLongValue() : 0;
 				if (newVal > max)
 					newVal &= max;
 			} else { // trigger, enable = 0, load = 0: no change
 				newVal = oldVal;
 			}
 			newValue = Value.createKnown(dataWidth, newVal);
-			newVal = newValue.toIntValue();
+			newVal = newValue.toLongValue();
 			carry = newVal == (ld && ct ? 0 : max);
 			/*
 			 * I would want this if I were worried about the carry signal outrunning the
@@ -206,7 +206,7 @@ public class Counter extends InstanceFactory {
 			 */
 		}
 
-		data.value = newValue.toIntValue();
+		data.value = newValue.toLongValue();
 		state.setPort(OUT, newValue, DELAY);
 		state.setPort(CARRY, carry ? Value.TRUE : Value.FALSE, DELAY);
 	}
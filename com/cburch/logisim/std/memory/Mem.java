@@ -66,8 +66,9 @@ abstract class Mem extends InstanceFactory {
 	public static final Attribute<BitWidth> ADDR_ATTR = Attributes.forBitWidth("addrWidth",
 			Strings.getter("ramAddrWidthAttr"), 2, 24);
 
+	// MemContents keeps each word in an int, so data is at most 32 bits wide
 	public static final Attribute<BitWidth> DATA_ATTR = Attributes.forBitWidth("dataWidth",
-			Strings.getter("ramDataWidthAttr"));
+			Strings.getter("ramDataWidthAttr"), 1, 32);
 	// port-related constants
 	static final int DATA = 0;
 	static final int ADDR = 1;
@@ -85,9 +86,10 @@ abstract class Mem extends InstanceFactory {
 		currentInstanceFiles = new WeakHashMap<Instance, File>();
 		setInstancePoker(MemPoker.class);
 		setKeyConfigurator(JoinedConfigurator.create(new BitWidthConfigurator(ADDR_ATTR, 2, 24, 0),
-				new BitWidthConfigurator(DATA_ATTR)));
+				new BitWidthConfigurator(DATA_ATTR, 1, 32)));
 
 		setOffsetBounds(Bounds.create(-140, -40, 140, 80));
+		setSnapshotAttributes(new Attribute<?>[] { ADDR_ATTR, DATA_ATTR });
 	}
 
 	@Override
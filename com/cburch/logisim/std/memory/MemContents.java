@@ -3,18 +3,29 @@
 
 package com.cburch.logisim.std.memory;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 import com.cburch.hex.HexModel;
 import com.cburch.hex.HexModelListener;
+import com.cburch.logisim.gui.hex.HexFile;
+import com.cburch.logisim.gui.hex.HexFrame;
+import com.cburch.logisim.instance.Checkpointable;
 import com.cburch.logisim.util.EventSourceWeakSupport;
 
-class MemContents implements Cloneable, HexModel {
+public class MemContents implements Cloneable, HexModel, HexFile.BinaryTarget, HexFrame.TrackedModel, Checkpointable {
 	private static final int PAGE_SIZE_BITS = 12;
 	private static final int PAGE_SIZE = 1 << PAGE_SIZE_BITS;
 	private static final int PAGE_MASK = PAGE_SIZE - 1;
 
-	static MemContents create(int addrBits, int width) {
+	// each bit of the tracked changes covers this many addresses
+	private static final int TRACK_BLOCK_BITS = 4;
+
+	public static MemContents create(int addrBits, int width) {
 		return new MemContents(addrBits, width);
 	}
 
@@ -23,6 +34,7 @@ class MemContents implements Cloneable, HexModel {
 	private int addrBits;
 	private int mask;
 	private MemContentsSub.ContentsInterface[] pages;
+	private volatile AtomicLongArray tracked = null;
 
 	private MemContents(int addrBits, int width) {
 		listeners = null;
@@ -60,6 +72,7 @@ class MemContents implements Cloneable, HexModel {
 		}
 		if (changed) {
 			pages[index] = null;
+			page.release();
 			fireBytesChanged(index << PAGE_SIZE_BITS, oldValues.length, oldValues);
 		}
 	}
@@ -72,10 +85,11 @@ class MemContents implements Cloneable, HexModel {
 		try {
 			MemContents ret = (MemContents) super.clone();
 			ret.listeners = null;
+			ret.tracked = null;
 			ret.pages = new MemContentsSub.ContentsInterface[this.pages.length];
 			for (int i = 0; i < ret.pages.length; i++) {
 				if (this.pages[i] != null) {
-					ret.pages[i] = this.pages[i].clone();
+					ret.pages[i] = this.pages[i].share();
 				}
 			}
 			return ret;
@@ -84,6 +98,11 @@ class MemContents implements Cloneable, HexModel {
 		}
 	}
 
+	private AtomicLongArray createTracked() {
+		long blocks = ((1L << addrBits) + (1 << TRACK_BLOCK_BITS) - 1) >>> TRACK_BLOCK_BITS;
+		return new AtomicLongArray((int) ((blocks + 63) >>> 6));
+	}
+
 	private void ensurePage(int index) {
 		if (pages[index] == null) {
 			pages[index] = MemContentsSub.createContents(PAGE_SIZE, width);
@@ -108,6 +127,7 @@ class MemContents implements Cloneable, HexModel {
 			MemContentsSub.ContentsInterface page = pages[pageStart];
 			if (!page.matches(vals, startOffs, mask)) {
 				int[] oldValues = page.get(startOffs, (int) len);
+				page = getWritablePage(pageStart);
 				page.load(startOffs, vals, mask);
 				if (value == 0 && page.isClear())
 					pages[pageStart] = null;
@@ -126,6 +146,7 @@ class MemContents implements Cloneable, HexModel {
 					MemContentsSub.ContentsInterface page = pages[pageStart];
 					if (!page.matches(vals, startOffs, mask)) {
 						int[] oldValues = page.get(startOffs, vals.length);
+						page = getWritablePage(pageStart);
 						page.load(startOffs, vals, mask);
 						if (value == 0 && page.isClear())
 							pages[pageStart] = null;
@@ -146,21 +167,23 @@ class MemContents implements Cloneable, HexModel {
 					MemContentsSub.ContentsInterface page = pages[i];
 					if (!page.matches(vals, 0, mask)) {
 						int[] oldValues = page.get(0, PAGE_SIZE);
+						page = getWritablePage(i);
 						page.load(0, vals, mask);
 						fireBytesChanged((long) i << PAGE_SIZE_BITS, PAGE_SIZE, oldValues);
 					}
 				}
 			}
 			if (endOffs >= 0) {
-				MemContentsSub.ContentsInterface page = pages[pageEnd];
-				if (value == 0 && page == null) {
+				if (value == 0 && pages[pageEnd] == null) {
 					// nothing to do
 				} else {
 					ensurePage(pageEnd);
+					MemContentsSub.ContentsInterface page = pages[pageEnd];
 					int[] vals = new int[endOffs + 1];
 					Arrays.fill(vals, value);
 					if (!page.matches(vals, 0, mask)) {
 						int[] oldValues = page.get(0, endOffs + 1);
+						page = getWritablePage(pageEnd);
 						page.load(0, vals, mask);
 						if (value == 0 && page.isClear())
 							pages[pageEnd] = null;
@@ -195,6 +218,38 @@ class MemContents implements Cloneable, HexModel {
 			listeners = null;
 	}
 
+	/**
+	 * Announces the blocks of addresses written by the simulation since the
+	 * last call, with null for the old values, which are not kept.
+	 */
+	@Override
+	public void fireTrackedChanges() {
+		AtomicLongArray bits = tracked;
+		if (bits == null)
+			return;
+		long runStart = -1;
+		for (int i = 0, n = bits.length(); i <= n; i++) {
+			long word = i == n || bits.get(i) == 0 ? 0 : bits.getAndSet(i, 0);
+			if (runStart < 0 && word == 0)
+				continue;
+			for (int j = 0; j < 64; j++) {
+				long block = ((long) i << 6) | j;
+				if ((word & (1L << j)) != 0) {
+					if (runStart < 0)
+						runStart = block;
+				} else if (runStart >= 0) {
+					long start = runStart << TRACK_BLOCK_BITS;
+					long end = Math.min(block << TRACK_BLOCK_BITS, getLastOffset() + 1);
+					runStart = -1;
+					if (end > start)
+						fireBytesChanged(start, end - start, null);
+					if (word >>> j == 0)
+						break;
+				}
+			}
+		}
+	}
+
 	@Override
 	public int get(long addr) {
 		int page = (int) (addr >>> PAGE_SIZE_BITS);
@@ -227,6 +282,20 @@ class MemContents implements Cloneable, HexModel {
 		return width;
 	}
 
+	// returns the page for writing, first creating it if it does not exist,
+	// or copying it if it is shared with clones
+	private MemContentsSub.ContentsInterface getWritablePage(int index) {
+		MemContentsSub.ContentsInterface page = pages[index];
+		if (page == null) {
+			page = MemContentsSub.createContents(PAGE_SIZE, width);
+			pages[index] = page;
+		} else if (page.isShared()) {
+			page = page.unshare();
+			pages[index] = page;
+		}
+		return page;
+	}
+
 	public boolean isClear() {
 		for (int i = 0; i < pages.length; i++) {
 			MemContentsSub.ContentsInterface page = pages[i];
@@ -240,6 +309,58 @@ class MemContents implements Cloneable, HexModel {
 		return true;
 	}
 
+	/**
+	 * Replaces the contents with the words of a binary image, filling each
+	 * page straight from the buffer.
+	 */
+	@Override
+	public void loadBinary(ByteBuffer words, int bytesPerWord) {
+		for (int i = 0; i < pages.length; i++) {
+			MemContentsSub.ContentsInterface old = pages[i];
+			if (!words.hasRemaining()) {
+				if (old != null)
+					clearPage(i);
+				continue;
+			}
+			MemContentsSub.ContentsInterface page = MemContentsSub.createContents(PAGE_SIZE, width);
+			page.load(0, words, bytesPerWord, mask);
+			pages[i] = page.isClear() ? null : page;
+			if (old != null)
+				old.release();
+			if (listeners != null && (old != null || pages[i] != null)) {
+				int[] oldValues = old == null ? new int[PAGE_SIZE] : old.get(0, PAGE_SIZE);
+				for (int j = 0; j < oldValues.length; j++) {
+					oldValues[j] &= mask;
+				}
+				fireBytesChanged((long) i << PAGE_SIZE_BITS, PAGE_SIZE, oldValues);
+			}
+		}
+	}
+
+	/**
+	 * Replaces the contents with the pages saved by
+	 * <code>writeCheckpoint</code>. The saved dimensions must match.
+	 */
+	@Override
+	public void readCheckpoint(DataInput in) throws IOException {
+		int savedAddrBits = in.readInt();
+		int savedWidth = in.readInt();
+		if (savedAddrBits != addrBits || savedWidth != width)
+			throw new IOException("memory dimensions differ from checkpoint");
+		clear();
+		int count = in.readInt();
+		for (int i = 0; i < count; i++) {
+			int index = in.readInt();
+			int[] values = new int[in.readInt()];
+			for (int j = 0; j < values.length; j++) {
+				values[j] = in.readInt();
+			}
+			if (index < 0 || index >= pages.length || values.length > PAGE_SIZE)
+				throw new IOException("memory page out of range");
+			set((long) index << PAGE_SIZE_BITS, values);
+		}
+	}
+
 	@Override
 	public void removeHexModelListener(HexModelListener l) {
 		if (listeners == null)
@@ -256,10 +377,7 @@ class MemContents implements Cloneable, HexModel {
 		int old = pages[page] == null ? 0 : pages[page].get(offs) & mask;
 		int val = value & mask;
 		if (old != val) {
-			if (pages[page] == null) {
-				pages[page] = MemContentsSub.createContents(PAGE_SIZE, width);
-			}
-			pages[page].set(offs, val);
+			getWritablePage(page).set(offs, val);
 			fireBytesChanged(addr, 1, new int[] { old });
 		}
 	}
@@ -279,6 +397,7 @@ class MemContents implements Cloneable, HexModel {
 			MemContentsSub.ContentsInterface page = pages[pageStart];
 			if (!page.matches(values, startOffs, mask)) {
 				int[] oldValues = page.get(startOffs, values.length);
+				page = getWritablePage(pageStart);
 				page.load(startOffs, values, mask);
 				if (page.isClear())
 					pages[pageStart] = null;
@@ -296,6 +415,7 @@ class MemContents implements Cloneable, HexModel {
 				MemContentsSub.ContentsInterface page = pages[pageStart];
 				if (!page.matches(vals, startOffs, mask)) {
 					int[] oldValues = page.get(startOffs, vals.length);
+					page = getWritablePage(pageStart);
 					page.load(startOffs, vals, mask);
 					if (page.isClear())
 						pages[pageStart] = null;
@@ -322,8 +442,9 @@ class MemContents implements Cloneable, HexModel {
 				}
 				if (page != null) {
 					System.arraycopy(values, offs, vals, 0, PAGE_SIZE);
-					if (!page.matches(vals, startOffs, mask)) {
+					if (!page.matches(vals, 0, mask)) {
 						int[] oldValues = page.get(0, PAGE_SIZE);
+						page = getWritablePage(i);
 						page.load(0, vals, mask);
 						if (page.isClear())
 							pages[i] = null;
@@ -336,8 +457,9 @@ class MemContents implements Cloneable, HexModel {
 				vals = new int[endOffs + 1];
 				System.arraycopy(values, offs, vals, 0, endOffs + 1);
 				MemContentsSub.ContentsInterface page = pages[pageEnd];
-				if (!page.matches(vals, startOffs, mask)) {
+				if (!page.matches(vals, 0, mask)) {
 					int[] oldValues = page.get(0, endOffs + 1);
+					page = getWritablePage(pageEnd);
 					page.load(0, vals, mask);
 					if (page.isClear())
 						pages[pageEnd] = null;
@@ -347,6 +469,33 @@ class MemContents implements Cloneable, HexModel {
 		}
 	}
 
+	/**
+	 * Sets a value as the simulation writes it. The write is not announced to
+	 * the listeners; while changes are tracked, it is only marked, to be
+	 * announced by <code>fireTrackedChanges</code>.
+	 */
+	public void setFromSimulation(long addr, int value) {
+		int page = (int) (addr >>> PAGE_SIZE_BITS);
+		int offs = (int) (addr & PAGE_MASK);
+		MemContentsSub.ContentsInterface cur = pages[page];
+		int val = value & mask;
+		if ((cur == null ? 0 : cur.get(offs) & mask) == val)
+			return;
+		getWritablePage(page).set(offs, val);
+		AtomicLongArray bits = tracked;
+		if (bits != null) {
+			long block = addr >>> TRACK_BLOCK_BITS;
+			int index = (int) (block >>> 6);
+			long bit = 1L << block;
+			if (index < bits.length()) {
+				long word = bits.get(index);
+				while ((word & bit) == 0 && !bits.compareAndSet(index, word, word | bit)) {
+					word = bits.get(index);
+				}
+			}
+		}
+	}
+
 	public void setDimensions(int addrBits, int width) {
 		if (addrBits == this.addrBits && width == this.width)
 			return;
@@ -376,10 +525,45 @@ class MemContents implements Cloneable, HexModel {
 					}
 				}
 			}
+			for (int i = 0; i < oldPages.length; i++) {
+				if (oldPages[i] != null)
+					oldPages[i].release();
+			}
 		}
 		if (pageCount == 0 && pages[0] == null) {
 			pages[0] = MemContentsSub.createContents(pageLength, width);
 		}
+		if (tracked != null)
+			tracked = createTracked();
 		fireMetainfoChanged();
 	}
+
+	@Override
+	public void setTrackingChanges(boolean value) {
+		tracked = value ? createTracked() : null;
+	}
+
+	/** Writes the dimensions and the non-empty pages. */
+	@Override
+	public void writeCheckpoint(DataOutput out) throws IOException {
+		out.writeInt(addrBits);
+		out.writeInt(width);
+		int count = 0;
+		for (int i = 0; i < pages.length; i++) {
+			if (pages[i] != null)
+				count++;
+		}
+		out.writeInt(count);
+		for (int i = 0; i < pages.length; i++) {
+			MemContentsSub.ContentsInterface page = pages[i];
+			if (page != null) {
+				int[] values = page.get(0, page.getLength());
+				out.writeInt(i);
+				out.writeInt(values.length);
+				for (int j = 0; j < values.length; j++) {
+					out.writeInt(values[j] & mask);
+				}
+			}
+		}
+	}
 }
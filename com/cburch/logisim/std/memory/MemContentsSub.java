@@ -3,7 +3,9 @@
 
 package com.cburch.logisim.std.memory;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
 
 class MemContentsSub {
 	private static class ByteContents extends ContentsInterface {
@@ -39,6 +41,21 @@ class MemContentsSub {
 			return data.length;
 		}
 
+		@Override
+		void load(int start, ByteBuffer src, int bytesPerWord, int mask) {
+			if (bytesPerWord != 1) {
+				super.load(start, src, bytesPerWord, mask);
+				return;
+			}
+			int n = Math.min(src.remaining(), data.length - start);
+			src.get(data, start, n);
+			if ((mask & 0xff) != 0xff) {
+				for (int i = start; i < start + n; i++) {
+					data[i] &= mask;
+				}
+			}
+		}
+
 		@Override
 		void load(int start, int[] values, int mask) {
 			int n = Math.min(values.length, data.length - start);
@@ -58,13 +75,24 @@ class MemContentsSub {
 		}
 	}
 
+	/**
+	 * A page of memory. Clones of a <code>MemContents</code> share their
+	 * pages, each counting the contents that hold it, and a page is copied
+	 * by the first of its holders to write to it. Holders that drop a page
+	 * release it, so that the last holder can write in place; a holder lost
+	 * to garbage collection never does, which costs only an extra copy.
+	 */
 	static abstract class ContentsInterface implements Cloneable {
+		private AtomicInteger holders = new AtomicInteger(1);
+
 		abstract void clear();
 
 		@Override
 		public ContentsInterface clone() {
 			try {
-				return (ContentsInterface) super.clone();
+				ContentsInterface ret = (ContentsInterface) super.clone();
+				ret.holders = new AtomicInteger(1);
+				return ret;
 			} catch (CloneNotSupportedException e) {
 				return this;
 			}
@@ -89,6 +117,33 @@ class MemContentsSub {
 			return true;
 		}
 
+		boolean isShared() {
+			return holders.get() > 1;
+		}
+
+		/**
+		 * Copies words from the buffer, <code>bytesPerWord</code> bytes apiece
+		 * in the buffer's byte order, until either the buffer or the page
+		 * runs out. The buffer's position is advanced past the words used.
+		 */
+		void load(int start, ByteBuffer src, int bytesPerWord, int mask) {
+			int n = Math.min(src.remaining() / bytesPerWord, getLength() - start);
+			for (int i = 0; i < n; i++) {
+				int value;
+				switch (bytesPerWord) {
+				case 1:
+					value = src.get() & 0xff;
+					break;
+				case 2:
+					value = src.getShort() & 0xffff;
+					break;
+				default:
+					value = src.getInt();
+				}
+				set(start + i, value & mask);
+			}
+		}
+
 		abstract void load(int start, int[] values, int mask);
 
 		boolean matches(int[] values, int start, int mask) {
@@ -99,7 +154,29 @@ class MemContentsSub {
 			return true;
 		}
 
+		/** Notes that a holder has dropped the page. */
+		void release() {
+			holders.decrementAndGet();
+		}
+
 		abstract void set(int addr, int value);
+
+		/** Returns the page for another holder to share. */
+		ContentsInterface share() {
+			holders.incrementAndGet();
+			return this;
+		}
+
+		/**
+		 * Returns a private copy of the page for a holder about to write,
+		 * which releases this one. The copy is taken before the release, so
+		 * that no other holder can start writing in place while it is made.
+		 */
+		ContentsInterface unshare() {
+			ContentsInterface ret = clone();
+			release();
+			return ret;
+		}
 	}
 
 	private static class IntContents extends ContentsInterface {
@@ -135,11 +212,27 @@ class MemContentsSub {
 			return data.length;
 		}
 
+		@Override
+		void load(int start, ByteBuffer src, int bytesPerWord, int mask) {
+			if (bytesPerWord != 4) {
+				super.load(start, src, bytesPerWord, mask);
+				return;
+			}
+			int n = Math.min(src.remaining() / 4, data.length - start);
+			src.asIntBuffer().get(data, start, n);
+			src.position(src.position() + 4 * n);
+			if (mask != -1) {
+				for (int i = start; i < start + n; i++) {
+					data[i] &= mask;
+				}
+			}
+		}
+
 		@Override
 		void load(int start, int[] values, int mask) {
 			int n = Math.min(values.length, data.length - start);
 			for (int i = 0; i < n; i++) {
-				data[i] = values[i] & mask;
+				data[start + i] = values[i] & mask;
 			}
 		}
 
@@ -187,6 +280,22 @@ class MemContentsSub {
 			return data.length;
 		}
 
+		@Override
+		void load(int start, ByteBuffer src, int bytesPerWord, int mask) {
+			if (bytesPerWord != 2) {
+				super.load(start, src, bytesPerWord, mask);
+				return;
+			}
+			int n = Math.min(src.remaining() / 2, data.length - start);
+			src.asShortBuffer().get(data, start, n);
+			src.position(src.position() + 2 * n);
+			if ((mask & 0xffff) != 0xffff) {
+				for (int i = start; i < start + n; i++) {
+					data[i] &= mask;
+				}
+			}
+		}
+
 		@Override
 		void load(int start, int[] values, int mask) {
 			int n = Math.min(values.length, data.length - start);
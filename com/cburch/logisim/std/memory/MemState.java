@@ -38,6 +38,7 @@ class MemState implements InstanceData, Cloneable, HexModelListener {
 	private long curScroll = 0;
 	private long cursorLoc = -1;
 	private long curAddr = -1;
+	private long shownAddr = -1; // curAddr when paint last scrolled to it
 
 	MemState(MemContents contents) {
 		this.contents = contents;
@@ -178,6 +179,14 @@ class MemState implements InstanceData, Cloneable, HexModelListener {
 		int boxW = addrBits <= 12 ? TABLE_WIDTH12 : TABLE_WIDTH32;
 		int boxH = ROWS * ENTRY_HEIGHT;
 
+		// the simulation only notes the current address, so the scroll
+		// follows it here rather than on every access
+		long cur = curAddr;
+		if (cur != shownAddr) {
+			shownAddr = cur;
+			scrollToShow(cur);
+		}
+
 		GraphicsUtil.switchToWidth(g, 1);
 		g.drawRect(boxX, boxY, boxW, boxH);
 		int entryWidth = boxW / columns;
@@ -194,7 +203,7 @@ class MemState implements InstanceData, Cloneable, HexModelListener {
 			g.setColor(Color.BLACK);
 			for (int col = 0; col < columns && isValidAddr(addr); col++) {
 				int val = contents.get(addr);
-				if (addr == curAddr) {
+				if (addr == cur) {
 					g.fillRect(x, y, entryWidth, ENTRY_HEIGHT);
 					g.setColor(Color.WHITE);
 					GraphicsUtil.drawText(g, StringUtil.toHexString(dataBits, val), x + entryWidth / 2, y + yoffs,
@@ -13,6 +13,7 @@ import javax.swing.JPopupMenu;
 import com.cburch.logisim.circuit.CircuitState;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.Attributes;
+import com.cburch.logisim.data.BitWidth;
 import com.cburch.logisim.data.Bounds;
 import com.cburch.logisim.data.Direction;
 import com.cburch.logisim.data.Location;
@@ -37,6 +38,11 @@ public class PlaRom extends InstanceFactory {
 			return null;
 		}
 
+		@Override
+		public BitWidth getLogWidth(InstanceState state, Object option) {
+			return BitWidth.create(state.getAttributeValue(ATTR_OUTPUTS));
+		}
+
 		@Override
 		public Value getLogValue(InstanceState state, Object option) {
 			return state.getPort(1);
@@ -248,7 +248,7 @@ public class PlaRomEditWindow extends LFrame {
 	}
 
 	public PlaRomEditWindow(InstanceState state, PlaRomData data) {
-		this.instate = state;
+		this.instate = state.copy(); // the window outlives the caller's state
 		this.data = data;
 		InitializeWindow();
 	}
@@ -6,6 +6,9 @@ package com.cburch.logisim.std.memory;
 import java.awt.Color;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 import com.cburch.logisim.circuit.CircuitState;
 import com.cburch.logisim.data.Attribute;
@@ -14,12 +17,14 @@ import com.cburch.logisim.data.AttributeListener;
 import com.cburch.logisim.data.AttributeOption;
 import com.cburch.logisim.data.AttributeSet;
 import com.cburch.logisim.data.AttributeSets;
+import com.cburch.logisim.data.AttributeSnapshot;
 import com.cburch.logisim.data.Attributes;
 import com.cburch.logisim.data.BitWidth;
 import com.cburch.logisim.data.Direction;
 import com.cburch.logisim.data.Location;
 import com.cburch.logisim.data.Value;
 import com.cburch.logisim.gui.hex.HexFrame;
+import com.cburch.logisim.instance.Checkpointable;
 import com.cburch.logisim.instance.Instance;
 import com.cburch.logisim.instance.InstanceData;
 import com.cburch.logisim.instance.InstanceLogger;
@@ -42,6 +47,11 @@ public class Ram extends Mem {
 			}
 		}
 
+		@Override
+		public BitWidth getLogWidth(InstanceState state, Object option) {
+			return state.getAttributeValue(DATA_ATTR);
+		}
+
 		@Override
 		public Object[] getLogOptions(InstanceState state) {
 			int addrBits = state.getAttributeValue(ADDR_ATTR).getWidth();
@@ -72,7 +82,7 @@ public class Ram extends Mem {
 		}
 	}
 
-	private static class RamState extends MemState implements InstanceData, AttributeListener {
+	private static class RamState extends MemState implements InstanceData, AttributeListener, Checkpointable {
 		private Instance parent;
 		private MemListener listener;
 		private HexFrame hexFrame = null;
@@ -123,6 +133,18 @@ public class Ram extends Mem {
 			return hexFrame;
 		}
 
+		@Override
+		public void readCheckpoint(DataInput in) throws IOException {
+			getContents().readCheckpoint(in);
+			clockState.readCheckpoint(in);
+		}
+
+		@Override
+		public void writeCheckpoint(DataOutput out) throws IOException {
+			getContents().writeCheckpoint(out);
+			clockState.writeCheckpoint(out);
+		}
+
 		//
 		// methods for accessing the write-enable data
 		//
@@ -165,6 +187,7 @@ public class Ram extends Mem {
 		super("RAM", Strings.getter("ramComponent"), 3);
 		setIconName("ram.gif");
 		setInstanceLogger(Logger.class);
+		setSnapshotAttributes(new Attribute<?>[] { ADDR_ATTR, DATA_ATTR, ATTR_BUS });
 	}
 
 	@Override
@@ -239,12 +262,10 @@ public class Ram extends Mem {
 
 	@Override
 	MemState getState(InstanceState state) {
-		BitWidth addrBits = state.getAttributeValue(ADDR_ATTR);
-		BitWidth dataBits = state.getAttributeValue(DATA_ATTR);
-
 		RamState myState = (RamState) state.getData();
 		if (myState == null) {
-			MemContents contents = MemContents.create(addrBits.getWidth(), dataBits.getWidth());
+			AttributeSnapshot attrs = state.getAttributeSnapshot();
+			MemContents contents = MemContents.create(attrs.getInt(ADDR_ATTR), attrs.getInt(DATA_ATTR));
 			Instance instance = state.getInstance();
 			myState = new RamState(instance, contents, new MemListener(instance));
 			state.setData(myState);
@@ -282,10 +303,11 @@ public class Ram extends Mem {
 	@Override
 	public void propagate(InstanceState state) {
 		RamState myState = (RamState) getState(state);
-		BitWidth dataBits = state.getAttributeValue(DATA_ATTR);
-		Object busVal = state.getAttributeValue(ATTR_BUS);
-		boolean asynch = busVal == null ? false : busVal.equals(BUS_ASYNCH);
-		boolean separate = busVal == null ? false : busVal.equals(BUS_SEPARATE);
+		AttributeSnapshot attrs = state.getAttributeSnapshot();
+		BitWidth dataBits = attrs.get(DATA_ATTR);
+		Object busVal = attrs.get(ATTR_BUS);
+		boolean asynch = busVal == BUS_ASYNCH;
+		boolean separate = busVal == BUS_SEPARATE;
 
 		Value addrValue = state.getPort(ADDR);
 		boolean chipSelect = state.getPort(CS) != Value.FALSE;
@@ -306,10 +328,7 @@ public class Ram extends Mem {
 		int addr = addrValue.toIntValue();
 		if (!addrValue.isFullyDefined() || addr < 0)
 			return;
-		if (addr != myState.getCurrent()) {
-			myState.setCurrent(addr);
-			myState.scrollToShow(addr);
-		}
+		myState.setCurrent(addr);
 
 		if (!shouldClear && triggered) {
 			boolean shouldStore;
@@ -320,7 +339,7 @@ public class Ram extends Mem {
 			}
 			if (shouldStore) {
 				Value dataValue = state.getPort(separate ? DIN : DATA);
-				myState.getContents().set(addr, dataValue.toIntValue());
+				myState.getContents().setFromSimulation(addr, dataValue.toIntValue());
 			}
 		}
 
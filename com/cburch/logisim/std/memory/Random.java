@@ -4,6 +4,9 @@
 package com.cburch.logisim.std.memory;
 
 import java.awt.Graphics;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.Attributes;
@@ -50,12 +53,20 @@ public class Random extends InstanceFactory {
 
 		private long initSeed;
 		private long curSeed;
-		private int value;
+		private long value;
 
 		public StateData(Object seed) {
 			reset(seed);
 		}
 
+		@Override
+		public void readCheckpoint(DataInput in) throws IOException {
+			super.readCheckpoint(in);
+			initSeed = in.readLong();
+			curSeed = in.readLong();
+			value = in.readLong();
+		}
+
 		void reset(Object seed) {
 			long start = seed instanceof Integer ? ((Integer) seed).intValue() : 0;
 			if (start == 0) {
@@ -69,14 +80,29 @@ public class Random extends InstanceFactory {
 			}
 			this.initSeed = start;
 			this.curSeed = start;
-			this.value = (int) start;
+			this.value = start;
 		}
 
-		void step() {
+		void step(int width) {
 			long v = curSeed;
 			v = (v * multiplier + addend) & mask;
+			long next = (v >> 12) & 0xFFFFFFFFL;
+			if (width > 32) {
+				// a second step fills the upper half, so that narrower
+				// generators keep the sequence they always had
+				v = (v * multiplier + addend) & mask;
+				next |= (v >> 16) << 32;
+			}
 			curSeed = v;
-			value = (int) (v >> 12);
+			value = next;
+		}
+
+		@Override
+		public void writeCheckpoint(DataOutput out) throws IOException {
+			super.writeCheckpoint(out);
+			out.writeLong(initSeed);
+			out.writeLong(curSeed);
+			out.writeLong(value);
 		}
 	}
 
@@ -94,7 +120,7 @@ public class Random extends InstanceFactory {
 				new Attribute[] { StdAttr.WIDTH, ATTR_SEED, StdAttr.EDGE_TRIGGER, StdAttr.LABEL, StdAttr.LABEL_FONT },
 				new Object[] { BitWidth.create(8), Integer.valueOf(0), StdAttr.TRIG_RISING, "",
 						StdAttr.DEFAULT_LABEL_FONT });
-		setKeyConfigurator(new BitWidthConfigurator(StdAttr.WIDTH));
+		setKeyConfigurator(new BitWidthConfigurator(StdAttr.WIDTH, 1, 64));
 
 		setOffsetBounds(Bounds.create(-30, -20, 30, 40));
 		setIconName("random.gif");
@@ -139,7 +165,7 @@ public class Random extends InstanceFactory {
 
 		// draw contents
 		if (painter.getShowState()) {
-			int val = state == null ? 0 : state.value;
+			long val = state == null ? 0 : state.value;
 			String str = StringUtil.toHexString(width, val);
 			if (str.length() <= 4) {
 				GraphicsUtil.drawText(g, str, bds.getX() + 15, bds.getY() + 4, GraphicsUtil.H_CENTER,
@@ -169,7 +195,7 @@ public class Random extends InstanceFactory {
 		if (state.getPort(RST) == Value.TRUE) {
 			data.reset(state.getAttributeValue(ATTR_SEED));
 		} else if (triggered && state.getPort(NXT) != Value.FALSE) {
-			data.step();
+			data.step(dataWidth.getWidth());
 		}
 
 		state.setPort(OUT, Value.createKnown(dataWidth, data.value), 4);
@@ -7,6 +7,7 @@ import java.awt.Color;
 import java.awt.Graphics;
 
 import com.cburch.logisim.data.Attribute;
+import com.cburch.logisim.data.AttributeSnapshot;
 import com.cburch.logisim.data.BitWidth;
 import com.cburch.logisim.data.Bounds;
 import com.cburch.logisim.data.Direction;
@@ -33,11 +34,12 @@ public class Register extends InstanceFactory {
 		super("Register", Strings.getter("registerComponent"));
 		setAttributes(new Attribute[] { StdAttr.WIDTH, StdAttr.TRIGGER, StdAttr.LABEL, StdAttr.LABEL_FONT },
 				new Object[] { BitWidth.create(8), StdAttr.TRIG_RISING, "", StdAttr.DEFAULT_LABEL_FONT });
-		setKeyConfigurator(new BitWidthConfigurator(StdAttr.WIDTH));
+		setKeyConfigurator(new BitWidthConfigurator(StdAttr.WIDTH, 1, 64));
 		setOffsetBounds(Bounds.create(-30, -20, 30, 40));
 		setIconName("register.gif");
 		setInstancePoker(RegisterPoker.class);
 		setInstanceLogger(RegisterLogger.class);
+		setSnapshotAttributes(new Attribute<?>[] { StdAttr.WIDTH, StdAttr.TRIGGER });
 
 		Port[] ps = new Port[5];
 		ps[OUT] = new Port(0, 0, Port.OUTPUT, StdAttr.WIDTH);
@@ -72,7 +74,7 @@ public class Register extends InstanceFactory {
 		String a;
 		String b = null;
 		if (painter.getShowState()) {
-			int val = state == null ? 0 : state.value;
+			long val = state == null ? 0 : state.value;
 			String str = StringUtil.toHexString(width, val);
 			if (str.length() <= 4) {
 				a = str;
@@ -121,8 +123,9 @@ public class Register extends InstanceFactory {
 			state.setData(data);
 		}
 
-		BitWidth dataWidth = state.getAttributeValue(StdAttr.WIDTH);
-		Object triggerType = state.getAttributeValue(StdAttr.TRIGGER);
+		AttributeSnapshot attrs = state.getAttributeSnapshot();
+		BitWidth dataWidth = attrs.get(StdAttr.WIDTH);
+		Object triggerType = attrs.get(StdAttr.TRIGGER);
 		boolean triggered = data.updateClock(state.getPort(CK), triggerType);
 
 		if (state.getPort(CLR) == Value.TRUE) {
@@ -130,7 +133,7 @@ public class Register extends InstanceFactory {
 		} else if (triggered && state.getPort(EN) != Value.FALSE) {
 			Value in = state.getPort(IN);
 			if (in.isFullyDefined())
-				data.value = in.toIntValue();
+				data.value = in.toLongValue();
 		}
 
 		state.setPort(OUT, Value.createKnown(dataWidth, data.value), DELAY);
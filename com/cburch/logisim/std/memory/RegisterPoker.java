@@ -16,8 +16,8 @@ import com.cburch.logisim.instance.InstanceState;
 import com.cburch.logisim.instance.StdAttr;
 
 public class RegisterPoker extends InstancePoker {
-	private int initValue;
-	private int curValue;
+	private long initValue;
+	private long curValue;
 
 	@Override
 	public boolean init(InstanceState state, MouseEvent e) {
@@ -40,7 +40,7 @@ public class RegisterPoker extends InstancePoker {
 		BitWidth dataWidth = state.getAttributeValue(StdAttr.WIDTH);
 		if (dataWidth == null)
 			dataWidth = BitWidth.create(8);
-		curValue = (curValue * 16 + val) & dataWidth.getMask();
+		curValue = (curValue * 16 + val) & dataWidth.getLongMask();
 		RegisterData data = (RegisterData) state.getData();
 		data.value = curValue;
 
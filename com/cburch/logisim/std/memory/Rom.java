@@ -198,7 +198,7 @@ public class Rom extends Mem {
 	@Override
 	public void propagate(InstanceState state) {
 		MemState myState = getState(state);
-		BitWidth dataBits = state.getAttributeValue(DATA_ATTR);
+		BitWidth dataBits = state.getAttributeSnapshot().get(DATA_ATTR);
 
 		Value addrValue = state.getPort(ADDR);
 		boolean chipSelect = state.getPort(CS) != Value.FALSE;
@@ -212,10 +212,7 @@ public class Rom extends Mem {
 		int addr = addrValue.toIntValue();
 		if (!addrValue.isFullyDefined() || addr < 0)
 			return;
-		if (addr != myState.getCurrent()) {
-			myState.setCurrent(addr);
-			myState.scrollToShow(addr);
-		}
+		myState.setCurrent(addr);
 
 		int val = myState.getContents().get(addr);
 		state.setPort(DATA, Value.createKnown(dataBits, val), DELAY);
@@ -3,6 +3,9 @@
 
 package com.cburch.logisim.std.memory;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.Arrays;
 
 import com.cburch.logisim.data.BitWidth;
@@ -51,6 +54,19 @@ class ShiftRegisterData extends ClockState implements InstanceData {
 		vsPos = pos >= vs.length - 1 ? 0 : pos + 1;
 	}
 
+	@Override
+	public void readCheckpoint(DataInput in) throws IOException {
+		super.readCheckpoint(in);
+		// the stages are stored oldest first; any beyond the current length
+		// are dropped, and any missing are left as they are
+		int n = in.readInt();
+		for (int i = 0; i < n; i++) {
+			Value v = Value.read(in);
+			if (i < vs.length)
+				set(i, v.getWidth() == width.getWidth() ? v : v.extendWidth(width.getWidth(), Value.FALSE));
+		}
+	}
+
 	public void set(int index, Value val) {
 		int i = vsPos + index;
 		Value[] v = vs;
@@ -89,4 +105,13 @@ class ShiftRegisterData extends ClockState implements InstanceData {
 			width = newWidth;
 		}
 	}
-}
\ No newline at end of file
+
+	@Override
+	public void writeCheckpoint(DataOutput out) throws IOException {
+		super.writeCheckpoint(out);
+		out.writeInt(vs.length);
+		for (int i = 0; i < vs.length; i++) {
+			get(i).write(out);
+		}
+	}
+}
@@ -6,6 +6,9 @@ package com.cburch.logisim.std.wiring;
 import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.event.MouseEvent;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 import javax.swing.Icon;
 
@@ -14,10 +17,12 @@ import com.cburch.logisim.circuit.RadixOption;
 import com.cburch.logisim.comp.Component;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.AttributeSnapshot;
 import com.cburch.logisim.data.BitWidth;
 import com.cburch.logisim.data.Bounds;
 import com.cburch.logisim.data.Direction;
 import com.cburch.logisim.data.Value;
+import com.cburch.logisim.instance.Checkpointable;
 import com.cburch.logisim.instance.Instance;
 import com.cburch.logisim.instance.InstanceData;
 import com.cburch.logisim.instance.InstanceFactory;
@@ -69,7 +74,7 @@ public class Clock extends InstanceFactory {
 		}
 	}
 
-	private static class ClockState implements InstanceData, Cloneable {
+	private static class ClockState implements InstanceData, Cloneable, Checkpointable {
 		Value sending = Value.FALSE;
 		int clicks = 0;
 
@@ -81,6 +86,18 @@ public class Clock extends InstanceFactory {
 				return null;
 			}
 		}
+
+		@Override
+		public void readCheckpoint(DataInput in) throws IOException {
+			sending = Value.read(in);
+			clicks = in.readInt();
+		}
+
+		@Override
+		public void writeCheckpoint(DataOutput out) throws IOException {
+			sending.write(out);
+			out.writeInt(clicks);
+		}
 	}
 
 	public static final Attribute<Integer> ATTR_HIGH = new DurationAttribute("highDuration",
@@ -106,18 +123,28 @@ public class Clock extends InstanceFactory {
 	// package methods
 	//
 	public static boolean tick(CircuitState circState, int ticks, Component comp) {
-		AttributeSet attrs = comp.getAttributeSet();
-		int durationHigh = attrs.getValue(ATTR_HIGH).intValue();
-		int durationLow = attrs.getValue(ATTR_LOW).intValue();
+		AttributeSnapshot attrs = Instance.getInstanceFor(comp).getAttributeSnapshot();
+		int durationHigh = attrs.getInt(ATTR_HIGH);
+		int durationLow = attrs.getInt(ATTR_LOW);
+		return tick(circState, comp, ticks % (durationHigh + durationLow) >= durationLow);
+	}
+
+	/**
+	 * Sets the clock to the value for its phase, inverted if the user has
+	 * poked it an odd number of times, and returns true if it changed. The
+	 * caller computes the phase from the durations, so that clocks sharing
+	 * them can share the work.
+	 */
+	public static boolean tick(CircuitState circState, Component comp, boolean high) {
 		ClockState state = (ClockState) circState.getData(comp);
 		if (state == null) {
 			state = new ClockState();
 			circState.setData(comp, state);
 		}
-		boolean curValue = ticks % (durationHigh + durationLow) < durationLow;
+		boolean curValue = high;
 		if (state.clicks % 2 == 1)
 			curValue = !curValue;
-		Value desired = (curValue ? Value.FALSE : Value.TRUE);
+		Value desired = (curValue ? Value.TRUE : Value.FALSE);
 		if (!state.sending.equals(desired)) {
 			state.sending = desired;
 			Instance.getInstanceFor(comp).fireInvalidated();
@@ -137,6 +164,7 @@ public class Clock extends InstanceFactory {
 		setFacingAttribute(StdAttr.FACING);
 		setInstanceLogger(ClockLogger.class);
 		setInstancePoker(ClockPoker.class);
+		setSnapshotAttributes(new Attribute<?>[] { ATTR_HIGH, ATTR_LOW });
 	}
 
 	//
@@ -11,6 +11,7 @@ import java.util.Map;
 
 import com.cburch.logisim.analyze.model.Expression;
 import com.cburch.logisim.analyze.model.Expressions;
+import com.cburch.logisim.circuit.BitSliceEvaluator;
 import com.cburch.logisim.circuit.ExpressionComputer;
 import com.cburch.logisim.data.AbstractAttributeSet;
 import com.cburch.logisim.data.Attribute;
@@ -57,7 +58,7 @@ public class Constant extends InstanceFactory {
 			if (attr == StdAttr.WIDTH)
 				return (V) width;
 			if (attr == ATTR_VALUE)
-				return (V) Integer.valueOf(value.toIntValue());
+				return (V) Long.valueOf(value.toLongValue());
 			return null;
 		}
 
@@ -69,7 +70,7 @@ public class Constant extends InstanceFactory {
 				width = (BitWidth) value;
 				this.value = this.value.extendWidth(width.getWidth(), this.value.get(this.value.getWidth() - 1));
 			} else if (attr == ATTR_VALUE) {
-				int val = ((Integer) value).intValue();
+				long val = ((Long) value).longValue();
 				this.value = Value.createKnown(width, val);
 			} else {
 				throw new IllegalArgumentException("unknown attribute " + attr);
@@ -78,6 +79,25 @@ public class Constant extends InstanceFactory {
 		}
 	}
 
+	private static class ConstantBitSlice implements BitSliceEvaluator {
+		private Instance instance;
+
+		public ConstantBitSlice(Instance instance) {
+			this.instance = instance;
+		}
+
+		@Override
+		public void evaluate(Map<Location, long[]> values) {
+			long[] out = values.get(instance.getLocation());
+			if (out != null) {
+				long longValue = instance.getAttributeValue(ATTR_VALUE).longValue();
+				out[0] = (longValue & 1) != 0 ? -1L : 0;
+				out[1] = 0;
+				out[2] = 0;
+			}
+		}
+	}
+
 	private static class ConstantExpression implements ExpressionComputer {
 		private Instance instance;
 
@@ -94,7 +114,7 @@ public class Constant extends InstanceFactory {
 		}
 	}
 
-	public static final Attribute<Integer> ATTR_VALUE = Attributes.forHexInteger("value",
+	public static final Attribute<Long> ATTR_VALUE = Attributes.forHexLong("value",
 			Strings.getter("constantValueAttr"));
 
 	public static InstanceFactory FACTORY = new Constant();
@@ -108,7 +128,7 @@ public class Constant extends InstanceFactory {
 		super("Constant", Strings.getter("constantComponent"));
 		setFacingAttribute(StdAttr.FACING);
 		setKeyConfigurator(
-				JoinedConfigurator.create(new ConstantConfigurator(), new BitWidthConfigurator(StdAttr.WIDTH)));
+				JoinedConfigurator.create(new ConstantConfigurator(), new BitWidthConfigurator(StdAttr.WIDTH, 1, 64)));
 	}
 
 	@Override
@@ -126,6 +146,11 @@ public class Constant extends InstanceFactory {
 	protected Object getInstanceFeature(Instance instance, Object key) {
 		if (key == ExpressionComputer.class)
 			return new ConstantExpression(instance);
+		if (key == BitSliceEvaluator.class) {
+			if (instance.getAttributeValue(StdAttr.WIDTH).getWidth() != 1)
+				return null;
+			return new ConstantBitSlice(instance);
+		}
 		return super.getInstanceFeature(instance, key);
 	}
 
@@ -245,6 +270,19 @@ public class Constant extends InstanceFactory {
 				break;
 			}
 		}
+		if (ret == null && chars > 8) {
+			// wider values grow by the same ten pixels per digit
+			int w = 10 * chars - 4;
+			if (facing == Direction.EAST) {
+				ret = Bounds.create(-w, -8, w, 16);
+			} else if (facing == Direction.WEST) {
+				ret = Bounds.create(0, -8, w, 16);
+			} else if (facing == Direction.SOUTH) {
+				ret = Bounds.create(-w / 2, -16, w, 16);
+			} else if (facing == Direction.NORTH) {
+				ret = Bounds.create(-w / 2, 0, w, 16);
+			}
+		}
 		if (ret == null) {
 			throw new IllegalArgumentException("unrecognized arguments " + facing + " " + width);
 		}
@@ -265,8 +303,8 @@ public class Constant extends InstanceFactory {
 
 	@Override
 	public void paintGhost(InstancePainter painter) {
-		int v = painter.getAttributeValue(ATTR_VALUE).intValue();
-		String vStr = Integer.toHexString(v);
+		long v = painter.getAttributeValue(ATTR_VALUE).longValue();
+		String vStr = Long.toHexString(v);
 		Bounds bds = getOffsetBounds(painter.getAttributeSet());
 
 		Graphics g = painter.getGraphics();
@@ -316,8 +354,8 @@ public class Constant extends InstanceFactory {
 	public void paintInstance(InstancePainter painter) {
 		Bounds bds = painter.getOffsetBounds();
 		BitWidth width = painter.getAttributeValue(StdAttr.WIDTH);
-		int intValue = painter.getAttributeValue(ATTR_VALUE).intValue();
-		Value v = Value.createKnown(width, intValue);
+		long longValue = painter.getAttributeValue(ATTR_VALUE).longValue();
+		Value v = Value.createKnown(width, longValue);
 		Location loc = painter.getLocation();
 		int x = loc.getX();
 		int y = loc.getY();
@@ -343,7 +381,7 @@ public class Constant extends InstanceFactory {
 	@Override
 	public void propagate(InstanceState state) {
 		BitWidth width = state.getAttributeValue(StdAttr.WIDTH);
-		int value = state.getAttributeValue(ATTR_VALUE).intValue();
+		long value = state.getAttributeValue(ATTR_VALUE).longValue();
 		state.setPort(0, Value.createKnown(width, value), 1);
 	}
 
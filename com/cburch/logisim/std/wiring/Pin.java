@@ -8,6 +8,9 @@ import java.awt.Font;
 import java.awt.Graphics;
 import java.awt.event.InputEvent;
 import java.awt.event.MouseEvent;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 import javax.swing.Icon;
 import javax.swing.JOptionPane;
@@ -26,6 +29,7 @@ import com.cburch.logisim.data.Direction;
 import com.cburch.logisim.data.Location;
 import com.cburch.logisim.data.Value;
 import com.cburch.logisim.gui.main.Canvas;
+import com.cburch.logisim.instance.Checkpointable;
 import com.cburch.logisim.instance.Instance;
 import com.cburch.logisim.instance.InstanceData;
 import com.cburch.logisim.instance.InstanceFactory;
@@ -134,7 +138,7 @@ public class Pin extends InstanceFactory {
 		}
 	}
 
-	private static class PinState implements InstanceData, Cloneable {
+	private static class PinState implements InstanceData, Cloneable, Checkpointable {
 		Value sending;
 		Value receiving;
 
@@ -151,6 +155,18 @@ public class Pin extends InstanceFactory {
 				return null;
 			}
 		}
+
+		@Override
+		public void readCheckpoint(DataInput in) throws IOException {
+			sending = Value.read(in);
+			receiving = Value.read(in);
+		}
+
+		@Override
+		public void writeCheckpoint(DataOutput out) throws IOException {
+			sending.write(out);
+			receiving.write(out);
+		}
 	}
 
 	public static final Attribute<Boolean> ATTR_TRISTATE = Attributes.forBoolean("tristate",
@@ -35,6 +35,12 @@ public class Probe extends InstanceFactory {
 			return ret != null && !ret.equals("") ? ret : null;
 		}
 
+		@Override
+		public BitWidth getLogWidth(InstanceState state, Object option) {
+			// a probe has no width attribute but takes that of what it watches
+			return ((ProbeAttributes) state.getAttributeSet()).width;
+		}
+
 		@Override
 		public Value getLogValue(InstanceState state, Object option) {
 			return getValue(state);
@@ -401,6 +407,7 @@ public class Probe extends InstanceFactory {
 		setIconName("probe.gif");
 		setFacingAttribute(StdAttr.FACING);
 		setInstanceLogger(ProbeLogger.class);
+		setSerialPropagation(true); // propagate sets the width of the shared attributes
 	}
 
 	void configureLabel(Instance instance) {
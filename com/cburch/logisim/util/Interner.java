@@ -0,0 +1,102 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.util;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded, thread-safe table for interning immutable objects, so that equal
+ * objects created repeatedly share one instance. Each hash code selects a set
+ * of <code>WAYS</code> slots; when a set is full, storing a new object evicts
+ * one of the others. Callers that can compare an entry against a key more
+ * cheaply than by building the object probe the ways themselves with
+ * <code>get</code>, reporting a match with <code>hit</code> and storing the
+ * object they build otherwise with <code>put</code>.
+ */
+public class Interner<T> {
+	public static final int WAYS = 4;
+
+	private static final List<Interner<?>> interners = new CopyOnWriteArrayList<Interner<?>>();
+
+	public static List<Interner<?>> getInterners() {
+		return Collections.unmodifiableList(interners);
+	}
+
+	private final String name;
+	private final AtomicReferenceArray<T> data;
+	private final int shift;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	public Interner(String name, int logSets) {
+		this.name = name;
+		this.data = new AtomicReferenceArray<T>(WAYS << logSets);
+		this.shift = 32 - logSets;
+		interners.add(this);
+	}
+
+	public T get(int hashCode, int way) {
+		return data.get(getSet(hashCode) + way);
+	}
+
+	public int getCapacity() {
+		return data.length();
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	private int getSet(int hashCode) {
+		// spread the hash, since Location and Value hashes vary mostly in
+		// their low bits
+		return ((hashCode * 0x9E3779B9) >>> shift) * WAYS;
+	}
+
+	public void hit() {
+		hits.increment();
+	}
+
+	public T intern(T value) {
+		int hashCode = value.hashCode();
+		int set = getSet(hashCode);
+		for (int i = 0; i < WAYS; i++) {
+			T cur = data.get(set + i);
+			if (cur != null && cur.equals(value)) {
+				hits.increment();
+				return cur;
+			}
+		}
+		return put(hashCode, value);
+	}
+
+	public T put(int hashCode, T value) {
+		misses.increment();
+		int set = getSet(hashCode);
+		for (int i = 0; i < WAYS; i++) {
+			if (data.get(set + i) == null && data.compareAndSet(set + i, null, value))
+				return value;
+		}
+		data.set(set + ThreadLocalRandom.current().nextInt(WAYS), value);
+		return value;
+	}
+
+	@Override
+	public String toString() {
+		return name + ": " + getHits() + " hits, " + getMisses() + " misses, " + getCapacity() + " slots";
+	}
+}
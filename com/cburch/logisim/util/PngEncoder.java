@@ -0,0 +1,165 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.util;
+
+import java.awt.image.BufferedImage;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes a PNG image a band of rows at a time, so that an image far larger
+ * than memory allows can be drawn in strips and written as it goes. The rows
+ * are deflated as they arrive and written out in chunks of bounded size;
+ * nothing but the current row is kept.
+ */
+public class PngEncoder {
+	private static class ChunkOutputStream extends OutputStream {
+		private DataOutputStream out;
+		private byte[] buf = new byte[CHUNK_SIZE];
+		private int len = 0;
+
+		private ChunkOutputStream(DataOutputStream out) {
+			this.out = out;
+		}
+
+		@Override
+		public void close() throws IOException {
+			flush();
+		}
+
+		@Override
+		public void flush() throws IOException {
+			if (len > 0) {
+				writeChunk(out, "IDAT", buf, len);
+				len = 0;
+			}
+		}
+
+		@Override
+		public void write(byte[] b, int off, int n) throws IOException {
+			while (n > 0) {
+				int k = Math.min(n, buf.length - len);
+				System.arraycopy(b, off, buf, len, k);
+				len += k;
+				off += k;
+				n -= k;
+				if (len == buf.length)
+					flush();
+			}
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			buf[len++] = (byte) b;
+			if (len == buf.length)
+				flush();
+		}
+	}
+
+	private static final byte[] SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n' };
+
+	private static final int CHUNK_SIZE = 1 << 16;
+
+	private static void writeChunk(DataOutputStream out, String type, byte[] data, int len) throws IOException {
+		byte[] typeBytes = type.getBytes("US-ASCII");
+		CRC32 crc = new CRC32();
+		crc.update(typeBytes);
+		crc.update(data, 0, len);
+		out.writeInt(len);
+		out.write(typeBytes);
+		out.write(data, 0, len);
+		out.writeInt((int) crc.getValue());
+	}
+
+	private DataOutputStream out;
+	private Deflater deflater;
+	private DeflaterOutputStream data;
+	private int width;
+	private int height;
+	private boolean alpha;
+	private int rowsLeft;
+	private int[] pixels;
+	private byte[] row;
+
+	/**
+	 * Starts an image of the given size on the stream. The image holds red,
+	 * green and blue samples, and alpha samples too if requested.
+	 */
+	public PngEncoder(OutputStream out, int width, int height, boolean alpha) throws IOException {
+		this.out = new DataOutputStream(out);
+		this.width = width;
+		this.height = height;
+		this.alpha = alpha;
+		this.rowsLeft = height;
+		this.pixels = new int[width];
+		this.row = new byte[1 + width * (alpha ? 4 : 3)];
+
+		this.out.write(SIGNATURE);
+		byte[] header = new byte[13];
+		header[0] = (byte) (width >>> 24);
+		header[1] = (byte) (width >>> 16);
+		header[2] = (byte) (width >>> 8);
+		header[3] = (byte) width;
+		header[4] = (byte) (height >>> 24);
+		header[5] = (byte) (height >>> 16);
+		header[6] = (byte) (height >>> 8);
+		header[7] = (byte) height;
+		header[8] = 8; // bits per sample
+		header[9] = (byte) (alpha ? 6 : 2); // color type: RGBA or RGB
+		writeChunk(this.out, "IHDR", header, header.length);
+
+		deflater = new Deflater();
+		data = new DeflaterOutputStream(new ChunkOutputStream(this.out), deflater, CHUNK_SIZE);
+	}
+
+	/**
+	 * Finishes the image, which must have received all its rows, and flushes
+	 * the stream without closing it.
+	 */
+	public void finish() throws IOException {
+		if (rowsLeft != 0)
+			throw new IOException("image is missing " + rowsLeft + " rows");
+		data.close();
+		deflater.end();
+		writeChunk(out, "IEND", new byte[0], 0);
+		out.flush();
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	/** Writes all the rows of the image as the next rows of the PNG. */
+	public void writeRows(BufferedImage img) throws IOException {
+		writeRows(img, img.getHeight());
+	}
+
+	/** Writes the top rows of the image as the next rows of the PNG. */
+	public void writeRows(BufferedImage img, int rows) throws IOException {
+		if (img.getWidth() < width || rows > rowsLeft)
+			throw new IllegalArgumentException("rows do not fit the image");
+		for (int y = 0; y < rows; y++) {
+			img.getRGB(0, y, width, 1, pixels, 0, width);
+			int j = 1; // row[0] is the filter type, none
+			for (int x = 0; x < width; x++) {
+				int p = pixels[x];
+				row[j++] = (byte) (p >> 16);
+				row[j++] = (byte) (p >> 8);
+				row[j++] = (byte) p;
+				if (alpha)
+					row[j++] = (byte) (p >>> 24);
+			}
+			data.write(row, 0, row.length);
+		}
+		rowsLeft -= rows;
+	}
+}
@@ -0,0 +1,843 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.util;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Composite;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.Paint;
+import java.awt.Polygon;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.Stroke;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Arc2D;
+import java.awt.geom.Area;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Rectangle2D;
+import java.awt.geom.RoundRectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.BufferedImageOp;
+import java.awt.image.ColorModel;
+import java.awt.image.ImageObserver;
+import java.awt.image.RenderedImage;
+import java.awt.image.WritableRaster;
+import java.awt.image.renderable.RenderableImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.text.AttributedCharacterIterator;
+import java.util.Base64;
+import java.util.Map;
+
+/**
+ * A <code>Graphics2D</code> that writes what is drawn on it as an SVG
+ * document, so that circuits can be exported as vector drawings by the same
+ * code that paints them on the screen. Each shape is written as it is drawn,
+ * in the coordinates it was given, with the current transform as an
+ * attribute; nothing is rasterized except images, which are embedded as
+ * PNG data.
+ *
+ * Copies made with <code>create</code> write to the same document. The
+ * stream's exceptions are kept until <code>finish</code>, since the drawing
+ * methods cannot throw them. XOR mode and <code>copyArea</code> have no
+ * meaning in SVG and are ignored.
+ */
+public class SvgGraphics extends Graphics2D {
+	// a clip shared by copies until one changes it, so that it is written
+	// once for all of them
+	private static class Clip {
+		private final Shape shape; // in the document's coordinates
+		private String id = null; // once written
+
+		private Clip(Shape shape) {
+			this.shape = shape;
+		}
+	}
+
+	private static class Output {
+		private Writer out;
+		private Graphics2D scratch; // for font metrics
+		private int nextClipId = 0;
+		private String openClipId = null;
+		private IOException error = null;
+
+		private Output(Writer out) {
+			this.out = out;
+			this.scratch = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB).createGraphics();
+		}
+
+		// starts a group clipped as the element will be, closing the last one
+		// if it was clipped otherwise
+		private void startClip(String clipId) throws IOException {
+			if (clipId == null ? openClipId == null : clipId.equals(openClipId))
+				return;
+			if (openClipId != null)
+				out.write("</g>\n");
+			if (clipId != null)
+				out.write("<g clip-path=\"url(#" + clipId + ")\">\n");
+			openClipId = clipId;
+		}
+	}
+
+	private static void appendColor(StringBuilder buf, String attr, Color color) {
+		buf.append(' ').append(attr).append("=\"#");
+		String hex = Integer.toHexString(color.getRGB() & 0xffffff);
+		for (int i = hex.length(); i < 6; i++) {
+			buf.append('0');
+		}
+		buf.append(hex).append('"');
+		if (color.getAlpha() < 255) {
+			buf.append(' ').append(attr).append("-opacity=\"");
+			appendNumber(buf, color.getAlpha() / 255.0);
+			buf.append('"');
+		}
+	}
+
+	private static void appendEscaped(StringBuilder buf, String text) {
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == '<')
+				buf.append("&lt;");
+			else if (c == '>')
+				buf.append("&gt;");
+			else if (c == '&')
+				buf.append("&amp;");
+			else if (c == '"')
+				buf.append("&quot;");
+			else if (c < ' ')
+				buf.append(' ');
+			else
+				buf.append(c);
+		}
+	}
+
+	// numbers are written to a thousandth, without trailing zeroes
+	private static void appendNumber(StringBuilder buf, double value) {
+		long thousandths = Math.round(value * 1000);
+		if (thousandths < 0) {
+			buf.append('-');
+			thousandths = -thousandths;
+		}
+		buf.append(thousandths / 1000);
+		int frac = (int) (thousandths % 1000);
+		if (frac != 0) {
+			buf.append('.');
+			buf.append((char) ('0' + frac / 100));
+			frac %= 100;
+			if (frac != 0) {
+				buf.append((char) ('0' + frac / 10));
+				frac %= 10;
+				if (frac != 0)
+					buf.append((char) ('0' + frac));
+			}
+		}
+	}
+
+	private static String getFamily(Font font) {
+		String family = font.getFamily();
+		if (family.equals(Font.SANS_SERIF) || family.equals(Font.DIALOG) || family.equals(Font.DIALOG_INPUT))
+			return "sans-serif";
+		if (family.equals(Font.SERIF))
+			return "serif";
+		if (family.equals(Font.MONOSPACED))
+			return "monospace";
+		return family;
+	}
+
+	private Output output;
+	private AffineTransform transform;
+	private Color color;
+	private Paint paint;
+	private Color background;
+	private Stroke stroke;
+	private Font font;
+	private Composite composite;
+	private RenderingHints hints;
+	private Clip clip; // or null for none
+
+	/**
+	 * Starts a document of the given size on the writer, which is left open
+	 * by <code>finish</code>.
+	 */
+	public SvgGraphics(Writer out, int width, int height) {
+		this.output = new Output(out);
+		this.transform = new AffineTransform();
+		this.color = Color.BLACK;
+		this.paint = Color.BLACK;
+		this.background = Color.WHITE;
+		this.stroke = new BasicStroke();
+		this.font = output.scratch.getFont();
+		this.composite = output.scratch.getComposite();
+		this.hints = new RenderingHints(null);
+		this.clip = null;
+		write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" + "<svg xmlns=\"http://www.w3.org/2000/svg\""
+				+ " xmlns:xlink=\"http://www.w3.org/1999/xlink\" version=\"1.1\" width=\"" + width + "\" height=\""
+				+ height + "\" viewBox=\"0 0 " + width + " " + height + "\">\n");
+	}
+
+	private SvgGraphics(SvgGraphics base) {
+		this.output = base.output;
+		this.transform = new AffineTransform(base.transform);
+		this.color = base.color;
+		this.paint = base.paint;
+		this.background = base.background;
+		this.stroke = base.stroke;
+		this.font = base.font;
+		this.composite = base.composite;
+		this.hints = (RenderingHints) base.hints.clone();
+		this.clip = base.clip;
+	}
+
+	@Override
+	public void addRenderingHints(Map<?, ?> values) {
+		hints.putAll(values);
+	}
+
+	private void appendPath(StringBuilder buf, Shape shape) {
+		buf.append(" d=\"");
+		double[] coords = new double[6];
+		PathIterator it = shape.getPathIterator(null);
+		boolean first = true;
+		for (; !it.isDone(); it.next()) {
+			int type = it.currentSegment(coords);
+			int points;
+			if (!first)
+				buf.append(' ');
+			first = false;
+			switch (type) {
+			case PathIterator.SEG_MOVETO:
+				buf.append('M');
+				points = 1;
+				break;
+			case PathIterator.SEG_LINETO:
+				buf.append('L');
+				points = 1;
+				break;
+			case PathIterator.SEG_QUADTO:
+				buf.append('Q');
+				points = 2;
+				break;
+			case PathIterator.SEG_CUBICTO:
+				buf.append('C');
+				points = 3;
+				break;
+			default:
+				buf.append('Z');
+				points = 0;
+			}
+			for (int i = 0; i < 2 * points; i++) {
+				if (i > 0)
+					buf.append(' ');
+				appendNumber(buf, coords[i]);
+			}
+		}
+		buf.append('"');
+		if (it.getWindingRule() == PathIterator.WIND_EVEN_ODD)
+			buf.append(" fill-rule=\"evenodd\"");
+	}
+
+	private void appendStroke(StringBuilder buf) {
+		buf.append(" fill=\"none\"");
+		appendColor(buf, "stroke", color);
+		if (!(stroke instanceof BasicStroke))
+			return;
+		BasicStroke s = (BasicStroke) stroke;
+		buf.append(" stroke-width=\"");
+		appendNumber(buf, s.getLineWidth() == 0 ? 1 : s.getLineWidth());
+		buf.append('"');
+		if (s.getEndCap() == BasicStroke.CAP_ROUND)
+			buf.append(" stroke-linecap=\"round\"");
+		else if (s.getEndCap() == BasicStroke.CAP_SQUARE)
+			buf.append(" stroke-linecap=\"square\"");
+		if (s.getLineJoin() == BasicStroke.JOIN_ROUND)
+			buf.append(" stroke-linejoin=\"round\"");
+		else if (s.getLineJoin() == BasicStroke.JOIN_BEVEL)
+			buf.append(" stroke-linejoin=\"bevel\"");
+		float[] dash = s.getDashArray();
+		if (dash != null && dash.length > 0) {
+			buf.append(" stroke-dasharray=\"");
+			for (int i = 0; i < dash.length; i++) {
+				if (i > 0)
+					buf.append(' ');
+				appendNumber(buf, dash[i]);
+			}
+			buf.append('"');
+			if (s.getDashPhase() != 0) {
+				buf.append(" stroke-dashoffset=\"");
+				appendNumber(buf, s.getDashPhase());
+				buf.append('"');
+			}
+		}
+	}
+
+	private void appendTransform(StringBuilder buf, AffineTransform xform) {
+		if (xform.isIdentity())
+			return;
+		buf.append(" transform=\"");
+		if (xform.getType() == AffineTransform.TYPE_TRANSLATION) {
+			buf.append("translate(");
+			appendNumber(buf, xform.getTranslateX());
+			buf.append(' ');
+			appendNumber(buf, xform.getTranslateY());
+		} else {
+			double[] m = new double[6];
+			xform.getMatrix(m);
+			buf.append("matrix(");
+			for (int i = 0; i < 6; i++) {
+				if (i > 0)
+					buf.append(' ');
+				appendNumber(buf, m[i]);
+			}
+		}
+		buf.append(")\"");
+	}
+
+	@Override
+	public void clearRect(int x, int y, int width, int height) {
+		Color old = color;
+		color = background;
+		fill(new Rectangle(x, y, width, height));
+		color = old;
+	}
+
+	@Override
+	public void clip(Shape s) {
+		Shape added = transform.createTransformedShape(s);
+		if (clip == null) {
+			clip = new Clip(added);
+		} else if (clip.shape instanceof Rectangle2D && added instanceof Rectangle2D) {
+			clip = new Clip(((Rectangle2D) clip.shape).createIntersection((Rectangle2D) added));
+		} else {
+			Area area = new Area(clip.shape);
+			area.intersect(new Area(added));
+			clip = new Clip(area);
+		}
+	}
+
+	@Override
+	public void clipRect(int x, int y, int width, int height) {
+		clip(new Rectangle(x, y, width, height));
+	}
+
+	@Override
+	public void copyArea(int x, int y, int width, int height, int dx, int dy) {
+	}
+
+	@Override
+	public Graphics create() {
+		return new SvgGraphics(this);
+	}
+
+	@Override
+	public void dispose() {
+	}
+
+	@Override
+	public void draw(Shape s) {
+		StringBuilder buf = new StringBuilder("<path");
+		appendPath(buf, s);
+		appendStroke(buf);
+		appendTransform(buf, transform);
+		buf.append("/>\n");
+		writeElement(buf);
+	}
+
+	@Override
+	public void drawArc(int x, int y, int width, int height, int startAngle, int arcAngle) {
+		draw(new Arc2D.Double(x, y, width, height, startAngle, arcAngle, Arc2D.OPEN));
+	}
+
+	@Override
+	public void drawGlyphVector(GlyphVector g, float x, float y) {
+		fill(g.getOutline(x, y));
+	}
+
+	@Override
+	public void drawImage(BufferedImage img, BufferedImageOp op, int x, int y) {
+		drawImage(op == null ? img : op.filter(img, null), x, y, null);
+	}
+
+	@Override
+	public boolean drawImage(Image img, AffineTransform xform, ImageObserver observer) {
+		int width = img.getWidth(observer);
+		int height = img.getHeight(observer);
+		if (width <= 0 || height <= 0)
+			return false;
+		BufferedImage buffered;
+		if (img instanceof BufferedImage) {
+			buffered = (BufferedImage) img;
+		} else {
+			buffered = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+			Graphics g = buffered.getGraphics();
+			g.drawImage(img, 0, 0, observer);
+			g.dispose();
+		}
+
+		ByteArrayOutputStream png = new ByteArrayOutputStream();
+		try {
+			PngEncoder encoder = new PngEncoder(png, width, height, true);
+			encoder.writeRows(buffered);
+			encoder.finish();
+		} catch (IOException e) {
+			return false; // not possible writing to memory
+		}
+		AffineTransform at = new AffineTransform(transform);
+		if (xform != null)
+			at.concatenate(xform);
+		StringBuilder buf = new StringBuilder("<image width=\"");
+		buf.append(width).append("\" height=\"").append(height).append('"');
+		appendTransform(buf, at);
+		buf.append(" preserveAspectRatio=\"none\" xlink:href=\"data:image/png;base64,");
+		buf.append(Base64.getEncoder().encodeToString(png.toByteArray()));
+		buf.append("\"/>\n");
+		writeElement(buf);
+		return true;
+	}
+
+	@Override
+	public boolean drawImage(Image img, int x, int y, Color bgcolor, ImageObserver observer) {
+		return drawImage(img, x, y, img.getWidth(observer), img.getHeight(observer), bgcolor, observer);
+	}
+
+	@Override
+	public boolean drawImage(Image img, int x, int y, ImageObserver observer) {
+		return drawImage(img, AffineTransform.getTranslateInstance(x, y), observer);
+	}
+
+	@Override
+	public boolean drawImage(Image img, int x, int y, int width, int height, Color bgcolor,
+			ImageObserver observer) {
+		if (bgcolor != null) {
+			Color old = color;
+			color = bgcolor;
+			fill(new Rectangle(x, y, width, height));
+			color = old;
+		}
+		return drawImage(img, x, y, width, height, observer);
+	}
+
+	@Override
+	public boolean drawImage(Image img, int x, int y, int width, int height, ImageObserver observer) {
+		int w = img.getWidth(observer);
+		int h = img.getHeight(observer);
+		if (w <= 0 || h <= 0)
+			return false;
+		AffineTransform xform = AffineTransform.getTranslateInstance(x, y);
+		xform.scale((double) width / w, (double) height / h);
+		return drawImage(img, xform, observer);
+	}
+
+	@Override
+	public boolean drawImage(Image img, int dx1, int dy1, int dx2, int dy2, int sx1, int sy1, int sx2, int sy2,
+			Color bgcolor, ImageObserver observer) {
+		if (bgcolor != null) {
+			Color old = color;
+			color = bgcolor;
+			fill(new Rectangle(Math.min(dx1, dx2), Math.min(dy1, dy2), Math.abs(dx2 - dx1), Math.abs(dy2 - dy1)));
+			color = old;
+		}
+		return drawImage(img, dx1, dy1, dx2, dy2, sx1, sy1, sx2, sy2, observer);
+	}
+
+	@Override
+	public boolean drawImage(Image img, int dx1, int dy1, int dx2, int dy2, int sx1, int sy1, int sx2, int sy2,
+			ImageObserver observer) {
+		int w = Math.abs(sx2 - sx1);
+		int h = Math.abs(sy2 - sy1);
+		if (w == 0 || h == 0)
+			return false;
+		BufferedImage part = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+		Graphics g = part.getGraphics();
+		g.drawImage(img, 0, 0, w, h, sx1, sy1, sx2, sy2, observer);
+		g.dispose();
+		AffineTransform xform = AffineTransform.getTranslateInstance(dx1, dy1);
+		xform.scale((double) (dx2 - dx1) / w, (double) (dy2 - dy1) / h);
+		return drawImage(part, xform, observer);
+	}
+
+	@Override
+	public void drawLine(int x1, int y1, int x2, int y2) {
+		draw(new Line2D.Float(x1, y1, x2, y2));
+	}
+
+	@Override
+	public void drawOval(int x, int y, int width, int height) {
+		draw(new Ellipse2D.Float(x, y, width, height));
+	}
+
+	@Override
+	public void drawPolygon(int[] xPoints, int[] yPoints, int nPoints) {
+		draw(new Polygon(xPoints, yPoints, nPoints));
+	}
+
+	@Override
+	public void drawPolyline(int[] xPoints, int[] yPoints, int nPoints) {
+		if (nPoints <= 0)
+			return;
+		Path2D.Float path = new Path2D.Float();
+		path.moveTo(xPoints[0], yPoints[0]);
+		for (int i = 1; i < nPoints; i++) {
+			path.lineTo(xPoints[i], yPoints[i]);
+		}
+		draw(path);
+	}
+
+	@Override
+	public void drawRect(int x, int y, int width, int height) {
+		draw(new Rectangle(x, y, width, height));
+	}
+
+	@Override
+	public void drawRenderableImage(RenderableImage img, AffineTransform xform) {
+		drawRenderedImage(img.createDefaultRendering(), xform);
+	}
+
+	@Override
+	public void drawRenderedImage(RenderedImage img, AffineTransform xform) {
+		if (img instanceof BufferedImage) {
+			drawImage((BufferedImage) img, xform, null);
+		} else {
+			ColorModel model = img.getColorModel();
+			WritableRaster raster = model.createCompatibleWritableRaster(img.getWidth(), img.getHeight());
+			img.copyData(raster);
+			drawImage(new BufferedImage(model, raster, model.isAlphaPremultiplied(), null), xform, null);
+		}
+	}
+
+	@Override
+	public void drawRoundRect(int x, int y, int width, int height, int arcWidth, int arcHeight) {
+		draw(new RoundRectangle2D.Float(x, y, width, height, arcWidth, arcHeight));
+	}
+
+	@Override
+	public void drawString(AttributedCharacterIterator iterator, float x, float y) {
+		StringBuilder text = new StringBuilder();
+		for (char c = iterator.first(); c != AttributedCharacterIterator.DONE; c = iterator.next()) {
+			text.append(c);
+		}
+		drawString(text.toString(), x, y);
+	}
+
+	@Override
+	public void drawString(AttributedCharacterIterator iterator, int x, int y) {
+		drawString(iterator, (float) x, (float) y);
+	}
+
+	@Override
+	public void drawString(String str, float x, float y) {
+		StringBuilder buf = new StringBuilder("<text x=\"");
+		appendNumber(buf, x);
+		buf.append("\" y=\"");
+		appendNumber(buf, y);
+		buf.append("\" font-family=\"");
+		appendEscaped(buf, getFamily(font));
+		buf.append("\" font-size=\"");
+		appendNumber(buf, font.getSize2D());
+		buf.append('"');
+		if (font.isBold())
+			buf.append(" font-weight=\"bold\"");
+		if (font.isItalic())
+			buf.append(" font-style=\"italic\"");
+		appendColor(buf, "fill", color);
+		appendTransform(buf, transform);
+		buf.append(" xml:space=\"preserve\">");
+		appendEscaped(buf, str);
+		buf.append("</text>\n");
+		writeElement(buf);
+	}
+
+	@Override
+	public void drawString(String str, int x, int y) {
+		drawString(str, (float) x, (float) y);
+	}
+
+	@Override
+	public void fill(Shape s) {
+		StringBuilder buf = new StringBuilder("<path");
+		appendPath(buf, s);
+		appendColor(buf, "fill", color);
+		appendTransform(buf, transform);
+		buf.append("/>\n");
+		writeElement(buf);
+	}
+
+	@Override
+	public void fillArc(int x, int y, int width, int height, int startAngle, int arcAngle) {
+		fill(new Arc2D.Double(x, y, width, height, startAngle, arcAngle, Arc2D.PIE));
+	}
+
+	@Override
+	public void fillOval(int x, int y, int width, int height) {
+		fill(new Ellipse2D.Float(x, y, width, height));
+	}
+
+	@Override
+	public void fillPolygon(int[] xPoints, int[] yPoints, int nPoints) {
+		fill(new Polygon(xPoints, yPoints, nPoints));
+	}
+
+	@Override
+	public void fillRect(int x, int y, int width, int height) {
+		fill(new Rectangle(x, y, width, height));
+	}
+
+	@Override
+	public void fillRoundRect(int x, int y, int width, int height, int arcWidth, int arcHeight) {
+		fill(new RoundRectangle2D.Float(x, y, width, height, arcWidth, arcHeight));
+	}
+
+	/**
+	 * Ends the document and flushes the writer, throwing the first exception
+	 * met in writing it, if any.
+	 */
+	public void finish() throws IOException {
+		write((output.openClipId != null ? "</g>\n" : "") + "</svg>\n");
+		output.openClipId = null;
+		if (output.error == null) {
+			try {
+				output.out.flush();
+			} catch (IOException e) {
+				output.error = e;
+			}
+		}
+		if (output.error != null)
+			throw output.error;
+	}
+
+	@Override
+	public Color getBackground() {
+		return background;
+	}
+
+	@Override
+	public Shape getClip() {
+		if (clip == null)
+			return null;
+		try {
+			return transform.createInverse().createTransformedShape(clip.shape);
+		} catch (NoninvertibleTransformException e) {
+			return null;
+		}
+	}
+
+	@Override
+	public Rectangle getClipBounds() {
+		Shape ret = getClip();
+		return ret == null ? null : ret.getBounds();
+	}
+
+	@Override
+	public Color getColor() {
+		return color;
+	}
+
+	@Override
+	public Composite getComposite() {
+		return composite;
+	}
+
+	@Override
+	public GraphicsConfiguration getDeviceConfiguration() {
+		return output.scratch.getDeviceConfiguration();
+	}
+
+	@Override
+	public Font getFont() {
+		return font;
+	}
+
+	@Override
+	public FontMetrics getFontMetrics(Font f) {
+		return output.scratch.getFontMetrics(f);
+	}
+
+	@Override
+	public FontRenderContext getFontRenderContext() {
+		return output.scratch.getFontRenderContext();
+	}
+
+	@Override
+	public Paint getPaint() {
+		return paint;
+	}
+
+	@Override
+	public Object getRenderingHint(RenderingHints.Key hintKey) {
+		return hints.get(hintKey);
+	}
+
+	@Override
+	public RenderingHints getRenderingHints() {
+		return (RenderingHints) hints.clone();
+	}
+
+	@Override
+	public Stroke getStroke() {
+		return stroke;
+	}
+
+	@Override
+	public AffineTransform getTransform() {
+		return new AffineTransform(transform);
+	}
+
+	@Override
+	public boolean hit(Rectangle rect, Shape s, boolean onStroke) {
+		if (onStroke)
+			s = stroke.createStrokedShape(s);
+		return transform.createTransformedShape(s).intersects(rect);
+	}
+
+	@Override
+	public void rotate(double theta) {
+		transform.rotate(theta);
+	}
+
+	@Override
+	public void rotate(double theta, double x, double y) {
+		transform.rotate(theta, x, y);
+	}
+
+	@Override
+	public void scale(double sx, double sy) {
+		transform.scale(sx, sy);
+	}
+
+	@Override
+	public void setBackground(Color value) {
+		background = value;
+	}
+
+	@Override
+	public void setClip(int x, int y, int width, int height) {
+		setClip(new Rectangle(x, y, width, height));
+	}
+
+	@Override
+	public void setClip(Shape value) {
+		clip = value == null ? null : new Clip(transform.createTransformedShape(value));
+	}
+
+	@Override
+	public void setColor(Color value) {
+		if (value != null) {
+			color = value;
+			paint = value;
+		}
+	}
+
+	@Override
+	public void setComposite(Composite value) {
+		composite = value;
+	}
+
+	@Override
+	public void setFont(Font value) {
+		if (value != null)
+			font = value;
+	}
+
+	// only colors are written; other paints are drawn in the last color
+	@Override
+	public void setPaint(Paint value) {
+		if (value instanceof Color)
+			setColor((Color) value);
+		else if (value != null)
+			paint = value;
+	}
+
+	@Override
+	public void setPaintMode() {
+	}
+
+	@Override
+	public void setRenderingHint(RenderingHints.Key hintKey, Object hintValue) {
+		hints.put(hintKey, hintValue);
+	}
+
+	@Override
+	public void setRenderingHints(Map<?, ?> values) {
+		hints.clear();
+		hints.putAll(values);
+	}
+
+	@Override
+	public void setStroke(Stroke value) {
+		stroke = value;
+	}
+
+	@Override
+	public void setTransform(AffineTransform value) {
+		transform = new AffineTransform(value);
+	}
+
+	@Override
+	public void setXORMode(Color c1) {
+	}
+
+	@Override
+	public void shear(double shx, double shy) {
+		transform.shear(shx, shy);
+	}
+
+	@Override
+	public void transform(AffineTransform xform) {
+		transform.concatenate(xform);
+	}
+
+	@Override
+	public void translate(double tx, double ty) {
+		transform.translate(tx, ty);
+	}
+
+	@Override
+	public void translate(int x, int y) {
+		transform.translate(x, y);
+	}
+
+	private void write(String text) {
+		if (output.error != null)
+			return;
+		try {
+			output.out.write(text);
+		} catch (IOException e) {
+			output.error = e;
+		}
+	}
+
+	// writes an element, first defining its clip if it has not been written
+	private void writeElement(StringBuilder element) {
+		if (output.error != null)
+			return;
+		try {
+			if (clip != null && clip.id == null) {
+				clip.id = "clip" + output.nextClipId;
+				output.nextClipId++;
+				StringBuilder def = new StringBuilder("<defs><clipPath id=\"");
+				def.append(clip.id).append("\"><path");
+				appendPath(def, clip.shape);
+				def.append("/></clipPath></defs>\n");
+				output.out.write(def.toString());
+			}
+			output.startClip(clip == null ? null : clip.id);
+			output.out.write(element.toString());
+		} catch (IOException e) {
+			output.error = e;
+		}
+	}
+}
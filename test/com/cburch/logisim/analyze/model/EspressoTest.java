@@ -0,0 +1,110 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.analyze.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class EspressoTest {
+	private static AnalyzerModel createModel(int inputs, PackedColumn column) {
+		ArrayList<String> inputNames = new ArrayList<String>();
+		for (int i = 0; i < inputs; i++) {
+			inputNames.add("x" + i);
+		}
+		ArrayList<String> outputNames = new ArrayList<String>();
+		outputNames.add("y");
+		AnalyzerModel model = new AnalyzerModel();
+		model.setVariables(inputNames, outputNames);
+		model.getTruthTable().setOutputColumn(0, column);
+		return model;
+	}
+
+	// a function of mostly wide cubes with some don't-cares, so that there
+	// is something to minimize
+	private static PackedColumn createFunction(Random rand, int inputs) {
+		int rows = 1 << inputs;
+		PackedColumn ret = new PackedColumn(rows, Entry.ZERO);
+		for (int cube = 0; cube < 6; cube++) {
+			int unknowns = 0;
+			for (int i = 0; i < inputs; i++) {
+				if (rand.nextInt(3) != 0)
+					unknowns |= 1 << i;
+			}
+			int values = rand.nextInt(rows) & ~unknowns;
+			for (int row = 0; row < rows; row++) {
+				if ((row & ~unknowns) == values)
+					ret.set(row, Entry.ONE);
+			}
+		}
+		for (int i = 0; i < rows / 16; i++) {
+			ret.set(rand.nextInt(rows), Entry.DONT_CARE);
+		}
+		return ret;
+	}
+
+	// checks that the cover takes in every desired row and none undesired
+	private static void checkCover(List<Implicant> cover, PackedColumn column, Entry desired) {
+		int rows = column.size();
+		boolean[] covered = new boolean[rows];
+		for (Implicant imp : cover) {
+			for (Implicant term : imp.getTerms()) {
+				covered[term.getRow()] = true;
+			}
+		}
+		for (int row = 0; row < rows; row++) {
+			Entry e = column.get(row);
+			if (e == desired)
+				assertTrue("row " + row + " not covered", covered[row]);
+			else if (e != Entry.DONT_CARE)
+				assertTrue("row " + row + " covered", !covered[row]);
+		}
+	}
+
+	@Test
+	public void testCoversMatchFunction() {
+		Random rand = new Random(14);
+		for (int inputs = 3; inputs <= 16; inputs++) {
+			PackedColumn column = createFunction(rand, inputs);
+			AnalyzerModel model = createModel(inputs, column);
+			List<Implicant> sop = Espresso.computeMinimal(AnalyzerModel.FORMAT_SUM_OF_PRODUCTS, model, "y");
+			assertNotNull(sop);
+			checkCover(sop, column, Entry.ONE);
+			List<Implicant> pos = Espresso.computeMinimal(AnalyzerModel.FORMAT_PRODUCT_OF_SUMS, model, "y");
+			assertNotNull(pos);
+			checkCover(pos, column, Entry.ZERO);
+		}
+	}
+
+	@Test
+	public void testNoLargerThanNeeded() {
+		Random rand = new Random(12);
+		for (int inputs = 3; inputs <= 10; inputs++) {
+			PackedColumn column = createFunction(rand, inputs);
+			AnalyzerModel model = createModel(inputs, column);
+			List<Implicant> heuristic = Espresso.computeMinimal(AnalyzerModel.FORMAT_SUM_OF_PRODUCTS, model, "y");
+			List<Implicant> exact = Implicant.computeMinimal(AnalyzerModel.FORMAT_SUM_OF_PRODUCTS, model, "y");
+			// the function was built from six cubes
+			assertTrue(heuristic.size() <= 6);
+			assertTrue(exact.size() <= 6);
+		}
+	}
+
+	@Test
+	public void testConstantFunctions() {
+		for (Entry fill : new Entry[] { Entry.ONE, Entry.ZERO }) {
+			PackedColumn column = new PackedColumn(1 << 14, fill);
+			AnalyzerModel model = createModel(14, column);
+			List<Implicant> sop = Espresso.computeMinimal(AnalyzerModel.FORMAT_SUM_OF_PRODUCTS, model, "y");
+			checkCover(sop, column, Entry.ONE);
+			assertEquals(fill == Entry.ONE ? 1 : 0, sop.size());
+		}
+	}
+}
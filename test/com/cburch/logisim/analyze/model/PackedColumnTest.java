@@ -0,0 +1,99 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.analyze.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class PackedColumnTest {
+	private static final Entry[] ENTRIES = { Entry.ZERO, Entry.ONE, Entry.DONT_CARE, Entry.BUS_ERROR,
+			Entry.OSCILLATE_ERROR };
+	private static final int[] SIZES = { 1, 31, 32, 33, 63, 64, 65, 100, 1 << 10 };
+
+	private static Entry[] random(Random rand, int size) {
+		Entry[] ret = new Entry[size];
+		for (int i = 0; i < size; i++) {
+			ret[i] = ENTRIES[rand.nextInt(ENTRIES.length)];
+		}
+		return ret;
+	}
+
+	private static boolean isDefined(Entry e) {
+		return e == Entry.ZERO || e == Entry.ONE;
+	}
+
+	@Test
+	public void testEntriesRoundTrip() {
+		Random rand = new Random(14);
+		for (int size : SIZES) {
+			Entry[] values = random(rand, size);
+			PackedColumn column = new PackedColumn(values);
+			assertEquals(size, column.size());
+			for (int i = 0; i < size; i++) {
+				assertSame("row " + i, values[i], column.get(i));
+			}
+
+			// changes to a copy leave the original alone
+			PackedColumn copy = column.copy();
+			for (int i = 0; i < size; i++) {
+				copy.set(i, ENTRIES[(rand.nextInt(ENTRIES.length))]);
+			}
+			for (int i = 0; i < size; i++) {
+				assertSame(values[i], column.get(i));
+			}
+
+			for (Entry fill : ENTRIES) {
+				PackedColumn filled = new PackedColumn(size, fill);
+				for (int i = 0; i < size; i++) {
+					assertSame(fill, filled.get(i));
+				}
+				assertEquals(!isDefined(fill), filled.isAllUndefined());
+			}
+		}
+	}
+
+	@Test
+	public void testRowsAndAgreement() {
+		Random rand = new Random(20);
+		for (int size : SIZES) {
+			Entry[] a = random(rand, size);
+			Entry[] b = random(rand, size);
+			PackedColumn column = new PackedColumn(a);
+			for (Entry want : new Entry[] { Entry.ZERO, Entry.ONE, Entry.DONT_CARE, Entry.BUS_ERROR }) {
+				long[] rows = column.getRows(want);
+				assertEquals((size + 63) / 64, rows.length);
+				for (int i = 0; i < rows.length * 64; i++) {
+					boolean expected = i < size
+							&& (a[i] == want || want == Entry.BUS_ERROR && a[i] == Entry.OSCILLATE_ERROR);
+					assertEquals(want + " row " + i, expected, (rows[i >> 6] >>> i & 1) != 0);
+				}
+			}
+
+			boolean agrees = true;
+			boolean defined = false;
+			for (int i = 0; i < size; i++) {
+				if (isDefined(a[i]) && isDefined(b[i]) && a[i] != b[i])
+					agrees = false;
+				defined |= isDefined(a[i]);
+			}
+			assertEquals(agrees, column.agrees(new PackedColumn(b)));
+			assertEquals(true, column.agrees(column.copy()));
+			assertEquals(!defined, column.isAllUndefined());
+
+			// agreeing ignores the rows where either is undefined
+			Entry[] c = a.clone();
+			for (int i = 0; i < size; i++) {
+				if (!isDefined(c[i]))
+					c[i] = Entry.ONE;
+				else if (rand.nextBoolean())
+					c[i] = Entry.DONT_CARE;
+			}
+			assertEquals(true, column.agrees(new PackedColumn(c)));
+		}
+	}
+}
@@ -0,0 +1,27 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.bench;
+
+/**
+ * A single measured operation. <code>BenchmarkRunner</code> calls
+ * <code>setUp</code> once for each size, then calls <code>run</code>
+ * repeatedly while timing it. Each call to <code>run</code> should perform
+ * one operation and return a value derived from its result, so that the work
+ * cannot be optimized away.
+ */
+abstract class Benchmark {
+	private String name;
+
+	Benchmark(String name) {
+		this.name = name;
+	}
+
+	String getName() {
+		return name;
+	}
+
+	abstract long run();
+
+	abstract void setUp(int size);
+}
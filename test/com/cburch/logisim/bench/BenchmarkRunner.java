@@ -0,0 +1,208 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.bench;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Measures the throughput of the simulation core on generated circuits and
+ * writes the results as JSON or CSV, so that they can be compared between
+ * builds. The benchmarks are kept with the tests, out of the shipped jar;
+ * compile them along with the tests and run them as
+ *
+ * <pre>
+ * java -cp logisim.jar:test-classes com.cburch.logisim.bench.BenchmarkRunner [options]
+ * </pre>
+ *
+ * with these options:
+ *
+ * <ul>
+ * <li><code>-size n1,n2,...</code>: the sizes to run each benchmark at
+ * (default 16,256)</li>
+ * <li><code>-only regex</code>: run only benchmarks whose names match</li>
+ * <li><code>-warmup n</code>: untimed iterations before measuring (default
+ * 3)</li>
+ * <li><code>-iterations n</code>: timed iterations (default 5)</li>
+ * <li><code>-time ms</code>: length of each iteration (default 1000)</li>
+ * <li><code>-format json|csv</code>: output format (default json)</li>
+ * <li><code>-out file</code>: write results to file rather than standard
+ * output</li>
+ * </ul>
+ *
+ * Each result gives the mean number of operations per second over the timed
+ * iterations, with their standard deviation as the error.
+ */
+public class BenchmarkRunner {
+	private static class Result {
+		private String name;
+		private int size;
+		private double[] scores;
+		private double mean;
+		private double error;
+
+		private Result(String name, int size, double[] scores) {
+			this.name = name;
+			this.size = size;
+			this.scores = scores;
+			double sum = 0;
+			for (double s : scores)
+				sum += s;
+			mean = sum / scores.length;
+			double var = 0;
+			for (double s : scores)
+				var += (s - mean) * (s - mean);
+			error = scores.length > 1 ? Math.sqrt(var / (scores.length - 1)) : 0;
+		}
+	}
+
+	private static final int BATCH = 16;
+
+	// Keeps the JIT from discarding the benchmarks' results.
+	static volatile long sink;
+
+	public static void main(String[] args) throws IOException {
+		if (System.getProperty("java.awt.headless") == null)
+			System.setProperty("java.awt.headless", "true");
+
+		int[] sizes = { 16, 256 };
+		Pattern only = null;
+		int warmup = 3;
+		int iterations = 5;
+		long time = 1000;
+		boolean csv = false;
+		String outFile = null;
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			if (i + 1 >= args.length) {
+				usage();
+			} else if (arg.equals("-size")) {
+				String[] parts = args[++i].split(",");
+				sizes = new int[parts.length];
+				for (int j = 0; j < parts.length; j++)
+					sizes[j] = Integer.parseInt(parts[j].trim());
+			} else if (arg.equals("-only")) {
+				only = Pattern.compile(args[++i]);
+			} else if (arg.equals("-warmup")) {
+				warmup = Integer.parseInt(args[++i]);
+			} else if (arg.equals("-iterations")) {
+				iterations = Math.max(1, Integer.parseInt(args[++i]));
+			} else if (arg.equals("-time")) {
+				time = Long.parseLong(args[++i]);
+			} else if (arg.equals("-format")) {
+				String fmt = args[++i];
+				if (fmt.equals("csv"))
+					csv = true;
+				else if (!fmt.equals("json"))
+					usage();
+			} else if (arg.equals("-out")) {
+				outFile = args[++i];
+			} else {
+				usage();
+			}
+		}
+
+		List<Benchmark> benchmarks = new ArrayList<Benchmark>();
+		benchmarks.addAll(SimulationBenchmarks.create());
+		benchmarks.addAll(DataBenchmarks.create());
+
+		List<Result> results = new ArrayList<Result>();
+		try {
+			for (Benchmark bench : benchmarks) {
+				if (only != null && !only.matcher(bench.getName()).find())
+					continue;
+				for (int size : sizes) {
+					System.err.println(bench.getName() + " size=" + size); // OK
+					bench.setUp(size);
+					for (int i = 0; i < warmup; i++)
+						measure(bench, time);
+					double[] scores = new double[iterations];
+					for (int i = 0; i < iterations; i++)
+						scores[i] = measure(bench, time);
+					results.add(new Result(bench.getName(), size, scores));
+				}
+			}
+		} catch (Throwable t) {
+			// the simulator's threads would otherwise keep the VM alive
+			t.printStackTrace();
+			System.exit(-1);
+		}
+
+		PrintWriter out;
+		if (outFile == null) {
+			out = new PrintWriter(new OutputStreamWriter(System.out));
+		} else {
+			out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(outFile), "UTF-8"));
+		}
+		if (csv)
+			writeCsv(out, results);
+		else
+			writeJson(out, results);
+		out.close();
+		System.exit(0);
+	}
+
+	// Returns the operations per second achieved in one iteration.
+	private static double measure(Benchmark bench, long millis) {
+		long ops = 0;
+		long acc = 0;
+		long start = System.nanoTime();
+		long end = start + millis * 1000000L;
+		long now;
+		do {
+			for (int i = 0; i < BATCH; i++)
+				acc += bench.run();
+			ops += BATCH;
+			now = System.nanoTime();
+		} while (now < end);
+		sink = acc;
+		return ops * 1e9 / (now - start);
+	}
+
+	private static void usage() {
+		System.err.println("usage: java " + BenchmarkRunner.class.getName() // OK
+				+ " [-size n1,n2,...] [-only regex] [-warmup n] [-iterations n]"
+				+ " [-time ms] [-format json|csv] [-out file]");
+		System.exit(-1);
+	}
+
+	private static void writeCsv(PrintWriter out, List<Result> results) {
+		out.println("\"Benchmark\",\"Size\",\"Samples\",\"Score\",\"Score Error\",\"Unit\"");
+		for (Result r : results) {
+			out.println(String.format(Locale.US, "\"%s\",%d,%d,%.3f,%.3f,\"ops/s\"", r.name, r.size, r.scores.length,
+					r.mean, r.error));
+		}
+	}
+
+	private static void writeJson(PrintWriter out, List<Result> results) {
+		out.println("[");
+		for (int i = 0; i < results.size(); i++) {
+			Result r = results.get(i);
+			StringBuilder raw = new StringBuilder();
+			for (int j = 0; j < r.scores.length; j++) {
+				if (j > 0)
+					raw.append(", ");
+				raw.append(String.format(Locale.US, "%.3f", r.scores[j]));
+			}
+			out.println("  {");
+			out.println("    \"benchmark\": \"" + r.name + "\",");
+			out.println("    \"mode\": \"thrpt\",");
+			out.println("    \"params\": { \"size\": \"" + r.size + "\" },");
+			out.println("    \"primaryMetric\": {");
+			out.println(String.format(Locale.US, "      \"score\": %.3f,", r.mean));
+			out.println(String.format(Locale.US, "      \"scoreError\": %.3f,", r.error));
+			out.println("      \"scoreUnit\": \"ops/s\",");
+			out.println("      \"rawData\": [[" + raw + "]]");
+			out.println("    }");
+			out.println(i + 1 < results.size() ? "  }," : "  }");
+		}
+		out.println("]");
+	}
+}
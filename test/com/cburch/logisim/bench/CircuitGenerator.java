@@ -0,0 +1,206 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.circuit.CircuitMutation;
+import com.cburch.logisim.circuit.CircuitState;
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.ComponentFactory;
+import com.cburch.logisim.data.Attribute;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.arith.Adder;
+import com.cburch.logisim.std.memory.Ram;
+import com.cburch.logisim.std.memory.Register;
+import com.cburch.logisim.std.wiring.Clock;
+import com.cburch.logisim.std.wiring.Constant;
+import com.cburch.logisim.std.wiring.Pin;
+import com.cburch.logisim.std.wiring.Tunnel;
+import com.cburch.logisim.tools.AddTool;
+import com.cburch.logisim.tools.Library;
+
+/**
+ * Builds circuits of a requested size for the benchmarks. Each generator
+ * places its components in the main circuit of a new file and records the
+ * input and output pins it creates, so that a benchmark can drive and
+ * observe the circuit through a <code>CircuitState</code>.
+ */
+class CircuitGenerator {
+	/**
+	 * Returns a chain of <code>size</code> NOT gates between one input pin and
+	 * one output pin.
+	 */
+	static CircuitGenerator createGateChain(int size) {
+		CircuitGenerator ret = new CircuitGenerator();
+		ComponentFactory not = ret.getFactory("Gates", "NOT Gate");
+		Component sample = not.createComponent(Location.create(0, 0), not.createAttributeSet());
+		int dx = sample.getEnd(0).getLocation().getX() - sample.getEnd(1).getLocation().getX();
+
+		int x = 100;
+		ret.addInput(x - dx, 100, BitWidth.ONE);
+		for (int i = 0; i < size; i++) {
+			ret.place(not, x + i * dx, 100);
+		}
+		ret.addOutput(x + (size - 1) * dx, 100, BitWidth.ONE);
+		return ret.finish();
+	}
+
+	/**
+	 * Returns <code>size</code> CPU-like cores sharing a clock. Each core has
+	 * an accumulator register and a RAM addressed by the register's value; on
+	 * each clock edge the RAM stores the sum of the accumulator and the word
+	 * it currently reads, and the register loads the same sum.
+	 */
+	static CircuitGenerator createRamCpu(int size) {
+		CircuitGenerator ret = new CircuitGenerator();
+		BitWidth width = BitWidth.create(8);
+		// the RAM defaults to eight address and eight data bits
+		Ram ram = new Ram();
+		AttributeSet ramAttrs = ram.createAttributeSet();
+		setParsed(ramAttrs, "bus", "separate");
+		Register register = new Register();
+		Adder adder = new Adder();
+		Component clock = ret.place(Clock.FACTORY, 20, 20);
+		ret.tunnel(clock, 0, "clk", BitWidth.ONE);
+		for (int i = 0; i < size; i++) {
+			int y = 100 + 120 * i;
+			Component mem = ret.place(ram, 300, y, (AttributeSet) ramAttrs.clone());
+			Component sum = ret.place(adder, 450, y, StdAttr.WIDTH, width);
+			Component acc = ret.place(register, 500, y, StdAttr.WIDTH, width);
+			Component one = ret.place(Constant.FACTORY, 400, y + 60, StdAttr.WIDTH, BitWidth.ONE);
+
+			// the RAM's ports are: data out, address, chip select, output
+			// enable, clear, clock, write enable, data in
+			String core = "c" + i + ".";
+			ret.tunnel(mem, 0, core + "mem", width);
+			ret.tunnel(sum, 0, core + "mem", width);
+			ret.tunnel(acc, 0, core + "acc", width);
+			ret.tunnel(sum, 1, core + "acc", width);
+			ret.tunnel(mem, 1, core + "acc", width);
+			ret.tunnel(sum, 2, core + "sum", width);
+			ret.tunnel(acc, 1, core + "sum", width);
+			ret.tunnel(mem, 7, core + "sum", width);
+			ret.tunnel(one, 0, core + "we", BitWidth.ONE);
+			ret.tunnel(mem, 6, core + "we", BitWidth.ONE);
+			ret.tunnel(mem, 5, "clk", BitWidth.ONE);
+			ret.tunnel(acc, 2, "clk", BitWidth.ONE);
+			ret.addOutput(500, y, width);
+		}
+		return ret.finish();
+	}
+
+	/**
+	 * Returns a ripple-carry adder of <code>size</code> one-bit full adders,
+	 * with input pins for each bit of both operands and output pins for each
+	 * bit of the sum. The inputs are ordered a0, b0, a1, b1, and so on.
+	 */
+	static CircuitGenerator createRippleAdder(int size) {
+		CircuitGenerator ret = new CircuitGenerator();
+		Adder adder = new Adder();
+		for (int i = 0; i < size; i++) {
+			// each adder's carry out lies on the next adder's carry in
+			Component add = ret.place(adder, 200, 100 + 40 * i, StdAttr.WIDTH, BitWidth.ONE);
+			Location a = add.getEnd(0).getLocation();
+			Location b = add.getEnd(1).getLocation();
+			ret.addInput(a.getX(), a.getY(), BitWidth.ONE);
+			ret.addInput(b.getX(), b.getY(), BitWidth.ONE);
+			ret.addOutput(200, 100 + 40 * i, BitWidth.ONE);
+		}
+		return ret.finish();
+	}
+
+	private static void setParsed(AttributeSet attrs, String name, String value) {
+		@SuppressWarnings("unchecked")
+		Attribute<Object> attr = (Attribute<Object>) attrs.getAttribute(name);
+		attrs.setValue(attr, attr.parse(value));
+	}
+
+	private LogisimFile file;
+	private Circuit circuit;
+	private CircuitMutation mutation;
+	private CircuitState state;
+	private List<Component> inputs = new ArrayList<Component>();
+	private List<Component> outputs = new ArrayList<Component>();
+
+	private CircuitGenerator() {
+		file = LogisimFile.createNew(new Loader(null));
+		circuit = file.getMainCircuit();
+		mutation = new CircuitMutation(circuit);
+	}
+
+	private Component addInput(int x, int y, BitWidth width) {
+		Component ret = place(Pin.FACTORY, x, y, StdAttr.WIDTH, width, Pin.ATTR_TYPE, Boolean.FALSE, StdAttr.LABEL,
+				"in" + inputs.size());
+		inputs.add(ret);
+		return ret;
+	}
+
+	private Component addOutput(int x, int y, BitWidth width) {
+		Component ret = place(Pin.FACTORY, x, y, StdAttr.WIDTH, width, Pin.ATTR_TYPE, Boolean.TRUE, StdAttr.LABEL,
+				"out" + outputs.size());
+		outputs.add(ret);
+		return ret;
+	}
+
+	private CircuitGenerator finish() {
+		mutation.execute();
+		mutation = null;
+		state = new CircuitState(new Project(file), circuit);
+		state.getPropagator().propagate();
+		return this;
+	}
+
+	Circuit getCircuit() {
+		return circuit;
+	}
+
+	private ComponentFactory getFactory(String libName, String toolName) {
+		Library lib = file.getLoader().getBuiltin().getLibrary(libName);
+		return ((AddTool) lib.getTool(toolName)).getFactory();
+	}
+
+	List<Component> getInputs() {
+		return inputs;
+	}
+
+	List<Component> getOutputs() {
+		return outputs;
+	}
+
+	CircuitState getState() {
+		return state;
+	}
+
+	private Component place(ComponentFactory factory, int x, int y, AttributeSet attrs) {
+		Component ret = factory.createComponent(Location.create(x, y), attrs);
+		mutation.add(ret);
+		return ret;
+	}
+
+	private Component place(ComponentFactory factory, int x, int y, Object... attrValues) {
+		AttributeSet attrs = factory.createAttributeSet();
+		for (int i = 0; i < attrValues.length; i += 2) {
+			@SuppressWarnings("unchecked")
+			Attribute<Object> attr = (Attribute<Object>) attrValues[i];
+			attrs.setValue(attr, attrValues[i + 1]);
+		}
+		return place(factory, x, y, attrs);
+	}
+
+	// Tunnels carry every connection, so that the generators need not route
+	// wires around the components they place.
+	private void tunnel(Component comp, int end, String label, BitWidth width) {
+		Location loc = comp.getEnd(end).getLocation();
+		place(Tunnel.FACTORY, loc.getX(), loc.getY(), StdAttr.LABEL, label, StdAttr.WIDTH, width);
+	}
+}
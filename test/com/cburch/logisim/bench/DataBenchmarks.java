@@ -0,0 +1,108 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.std.memory.MemContents;
+
+class DataBenchmarks {
+	// Reads or writes random addresses of a memory with size words.
+	private static class Memory extends Benchmark {
+		private boolean write;
+		private MemContents contents;
+		private long[] addrs;
+		private int index;
+
+		Memory(String name, boolean write) {
+			super(name);
+			this.write = write;
+		}
+
+		@Override
+		long run() {
+			long addr = addrs[index++ & (SAMPLES - 1)];
+			if (write) {
+				contents.set(addr, index);
+				return addr;
+			} else {
+				return contents.get(addr);
+			}
+		}
+
+		@Override
+		void setUp(int size) {
+			int addrBits = 1;
+			while (addrBits < 24 && (1 << addrBits) < size) {
+				addrBits++;
+			}
+			contents = MemContents.create(addrBits, 32);
+			Random rand = new Random(SEED);
+			addrs = new long[SAMPLES];
+			for (int i = 0; i < SAMPLES; i++) {
+				addrs[i] = rand.nextInt(1 << addrBits);
+				contents.set(addrs[i], rand.nextInt());
+			}
+			index = 0;
+		}
+	}
+
+	// Builds values of size bits from their individual bits, or combines
+	// pairs of partly unknown values of that width.
+	private static class Values extends Benchmark {
+		private boolean combine;
+		private Value[][] bits;
+		private Value[] values;
+		private int index;
+
+		Values(String name, boolean combine) {
+			super(name);
+			this.combine = combine;
+		}
+
+		@Override
+		long run() {
+			int i = index++ & (SAMPLES - 1);
+			if (combine) {
+				return values[i].combine(values[(i + 1) & (SAMPLES - 1)]).hashCode();
+			} else {
+				return Value.create(bits[i]).hashCode();
+			}
+		}
+
+		@Override
+		void setUp(int size) {
+			int width = Math.max(1, Math.min(size, Value.MAX_WIDTH));
+			Random rand = new Random(SEED);
+			bits = new Value[SAMPLES][width];
+			values = new Value[SAMPLES];
+			for (int i = 0; i < SAMPLES; i++) {
+				for (int j = 0; j < width; j++) {
+					int r = rand.nextInt(8);
+					bits[i][j] = r == 0 ? Value.UNKNOWN : (r & 1) != 0 ? Value.TRUE : Value.FALSE;
+				}
+				values[i] = Value.create(bits[i]);
+			}
+			index = 0;
+		}
+	}
+
+	private static final int SAMPLES = 1024;
+	private static final long SEED = 0x4C4F47495349L;
+
+	static List<Benchmark> create() {
+		List<Benchmark> ret = new ArrayList<Benchmark>();
+		ret.add(new Values("value.create", false));
+		ret.add(new Values("value.combine", true));
+		ret.add(new Memory("memContents.get", false));
+		ret.add(new Memory("memContents.set", true));
+		return ret;
+	}
+
+	private DataBenchmarks() {
+	}
+}
@@ -0,0 +1,183 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.bench;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import com.cburch.logisim.circuit.BundleMapRebuild;
+import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.circuit.CircuitMutation;
+import com.cburch.logisim.circuit.CircuitState;
+import com.cburch.logisim.circuit.Propagator;
+import com.cburch.logisim.circuit.WidthIncompatibilityData;
+import com.cburch.logisim.circuit.Wire;
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.instance.InstanceState;
+import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.std.wiring.Pin;
+import com.cburch.logisim.std.wiring.Tunnel;
+
+class SimulationBenchmarks {
+	// Rebuilds the bundle map from scratch by renaming a tunnel, which
+	// invalidates the whole map.
+	private static class BundleMapFull extends Benchmark {
+		private Circuit circuit;
+		private Component tunnel;
+		private boolean renamed;
+
+		BundleMapFull() {
+			super("bundleMap.full");
+		}
+
+		@Override
+		long run() {
+			renamed = !renamed;
+			tunnel.getAttributeSet().setValue(StdAttr.LABEL, renamed ? "clk2" : "clk");
+			return countIncompatibilities(circuit);
+		}
+
+		@Override
+		void setUp(int size) {
+			CircuitGenerator gen = CircuitGenerator.createRamCpu(size);
+			circuit = gen.getCircuit();
+			for (Component comp : circuit.getNonWires()) {
+				if (comp.getFactory() instanceof Tunnel && "clk".equals(comp.getAttributeSet().getValue(StdAttr.LABEL))) {
+					tunnel = comp;
+				}
+			}
+			renamed = false;
+		}
+	}
+
+	// Rebuilds the bundles around a wire stub, as the first map built after
+	// adding it would, apart from the rest of the edit's work.
+	private static class BundleMapIncremental extends Benchmark {
+		private BundleMapRebuild rebuild;
+
+		BundleMapIncremental() {
+			super("bundleMap.incremental");
+		}
+
+		@Override
+		long run() {
+			return rebuild.rebuild();
+		}
+
+		@Override
+		void setUp(int size) {
+			CircuitGenerator gen = CircuitGenerator.createRamCpu(size);
+			Circuit circuit = gen.getCircuit();
+			Location loc = gen.getOutputs().get(0).getLocation();
+			Wire stub = Wire.create(loc, loc.translate(20, 0));
+			CircuitMutation xn = new CircuitMutation(circuit);
+			xn.add(stub);
+			xn.execute();
+			rebuild = new BundleMapRebuild(circuit, Arrays.asList(stub.getEnd0(), stub.getEnd1()));
+		}
+	}
+
+	// Runs clock ticks as TtyInterface does.
+	private static class Clocked extends Benchmark {
+		private CircuitState state;
+		private Component output;
+
+		Clocked() {
+			super("clocked.ramCpu");
+		}
+
+		@Override
+		long run() {
+			Propagator prop = state.getPropagator();
+			prop.tick();
+			prop.propagate();
+			return Pin.FACTORY.getValue(state.getInstanceState(output)).hashCode();
+		}
+
+		@Override
+		void setUp(int size) {
+			CircuitGenerator gen = CircuitGenerator.createRamCpu(size);
+			state = gen.getState();
+			output = gen.getOutputs().get(0);
+		}
+	}
+
+	// Drives new values into the input pins and propagates them, either all
+	// at once or one time step at a time.
+	private static class Propagate extends Benchmark {
+		private boolean adder;
+		private boolean stepped;
+		private CircuitState state;
+		private List<Component> inputs;
+		private Component output;
+		private int count;
+
+		Propagate(String name, boolean adder, boolean stepped) {
+			super(name);
+			this.adder = adder;
+			this.stepped = stepped;
+		}
+
+		@Override
+		long run() {
+			count++;
+			for (int i = 0; i < inputs.size(); i++) {
+				// for the adder, a0 is alternately 0 and 1, so that a carry
+				// ripples through all of the bits half of the time
+				Value val = (count >> (i == 0 ? 0 : 1) & 1) != 0 ? Value.TRUE : Value.FALSE;
+				InstanceState pinState = state.getInstanceState(inputs.get(i));
+				Pin.FACTORY.setValue(pinState, val);
+				pinState.fireInvalidated();
+			}
+			Propagator prop = state.getPropagator();
+			long ret = 0;
+			if (stepped) {
+				while (prop.step()) {
+					ret++;
+				}
+			} else {
+				prop.propagate();
+			}
+			return ret + Pin.FACTORY.getValue(state.getInstanceState(output)).hashCode();
+		}
+
+		@Override
+		void setUp(int size) {
+			CircuitGenerator gen;
+			if (adder) {
+				gen = CircuitGenerator.createRippleAdder(size);
+			} else {
+				gen = CircuitGenerator.createGateChain(size);
+			}
+			state = gen.getState();
+			inputs = gen.getInputs();
+			output = gen.getOutputs().get(gen.getOutputs().size() - 1);
+			count = 0;
+		}
+	}
+
+	// Asking for the width errors forces the circuit to compute its bundles.
+	private static int countIncompatibilities(Circuit circuit) {
+		Set<WidthIncompatibilityData> errors = circuit.getWidthIncompatibilityData();
+		return errors == null ? 0 : errors.size();
+	}
+
+	static List<Benchmark> create() {
+		List<Benchmark> ret = new ArrayList<Benchmark>();
+		ret.add(new Propagate("propagate.gateChain", false, false));
+		ret.add(new Propagate("propagate.rippleAdder", true, false));
+		ret.add(new Propagate("step.gateChain", false, true));
+		ret.add(new BundleMapFull());
+		ret.add(new BundleMapIncremental());
+		ret.add(new Clocked());
+		return ret;
+	}
+
+	private SimulationBenchmarks() {
+	}
+}
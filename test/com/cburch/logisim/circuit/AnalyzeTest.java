@@ -0,0 +1,141 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.circuit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+import com.cburch.logisim.analyze.model.Entry;
+import com.cburch.logisim.analyze.model.PackedColumn;
+import com.cburch.logisim.analyze.model.TruthTable;
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.ComponentFactory;
+import com.cburch.logisim.data.Attribute;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.instance.Instance;
+import com.cburch.logisim.instance.InstanceState;
+import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.wiring.Pin;
+
+public class AnalyzeTest {
+	private static final String[] GATES = { "AND Gate", "OR Gate", "NAND Gate", "NOR Gate", "XOR Gate", "XNOR Gate",
+			"Odd Parity", "Even Parity" };
+	private static final int INPUTS = 7; // two batches of 64 rows
+
+	private Project proj;
+	private Circuit circuit;
+	private ArrayList<Instance> inputPins = new ArrayList<Instance>();
+	private ArrayList<Instance> outputPins = new ArrayList<Instance>();
+	private int nextOutput = 0;
+
+	private Component addOutput(CircuitMutation xn, Location from) {
+		Component pin = TestCircuits.add(xn, Pin.FACTORY, 1000, 50 + 50 * nextOutput, Pin.ATTR_TYPE, Boolean.TRUE,
+				StdAttr.LABEL, "y" + nextOutput);
+		nextOutput++;
+		TestCircuits.connect(xn, from, TestCircuits.end(pin, 0), BitWidth.ONE);
+		outputPins.add(Instance.getInstanceFor(pin));
+		return pin;
+	}
+
+	// gates of every kind over three of the inputs, some with an input left
+	// floating, feeding NOT gates, buffers and a gate combining them
+	private void build() {
+		proj = TestCircuits.createProject();
+		circuit = proj.getLogisimFile().getMainCircuit();
+		CircuitMutation xn = new CircuitMutation(circuit);
+		Location[] inputs = new Location[INPUTS];
+		for (int i = 0; i < INPUTS; i++) {
+			Component pin = TestCircuits.add(xn, Pin.FACTORY, 50, 50 + 50 * i, StdAttr.LABEL, "x" + i);
+			inputs[i] = TestCircuits.end(pin, 0);
+			inputPins.add(Instance.getInstanceFor(pin));
+		}
+		ComponentFactory not = TestCircuits.getFactory(proj, "Gates", "NOT Gate");
+		ComponentFactory buffer = TestCircuits.getFactory(proj, "Gates", "Buffer");
+		ComponentFactory constant = TestCircuits.getFactory(proj, "Wiring", "Constant");
+		ArrayList<Location> outs = new ArrayList<Location>();
+		for (int g = 0; g < GATES.length; g++) {
+			ComponentFactory factory = TestCircuits.getFactory(proj, "Gates", GATES[g]);
+			Component gate = TestCircuits.add(xn, factory, 400, 100 + 150 * g, inputCount(factory),
+					Integer.valueOf(3));
+			int floating = g % 4 == 3 ? 2 : -1;
+			for (int k = 0; k < 3; k++) {
+				if (k != floating)
+					TestCircuits.connect(xn, inputs[(g + 2 * k) % INPUTS], TestCircuits.end(gate, 1 + k),
+							BitWidth.ONE);
+			}
+			outs.add(TestCircuits.end(gate, 0));
+			addOutput(xn, TestCircuits.end(gate, 0));
+		}
+
+		// a gate with a single input connected passes it through
+		Component lone = TestCircuits.add(xn, TestCircuits.getFactory(proj, "Gates", "AND Gate"), 400, 1400);
+		TestCircuits.connect(xn, inputs[6], TestCircuits.end(lone, 1), BitWidth.ONE);
+		addOutput(xn, TestCircuits.end(lone, 0));
+
+		// inverted and buffered outputs of the gates, combined with a constant
+		ComponentFactory xor = TestCircuits.getFactory(proj, "Gates", "XOR Gate");
+		Component second = TestCircuits.add(xn, xor, 800, 1600, inputCount(xor), Integer.valueOf(3));
+		Component inv = TestCircuits.add(xn, not, 600, 1500);
+		TestCircuits.connect(xn, outs.get(0), TestCircuits.end(inv, 1), BitWidth.ONE);
+		TestCircuits.connect(xn, TestCircuits.end(inv, 0), TestCircuits.end(second, 1), BitWidth.ONE);
+		Component buf = TestCircuits.add(xn, buffer, 600, 1700);
+		TestCircuits.connect(xn, outs.get(4), TestCircuits.end(buf, 1), BitWidth.ONE);
+		TestCircuits.connect(xn, TestCircuits.end(buf, 0), TestCircuits.end(second, 2), BitWidth.ONE);
+		Component one = TestCircuits.add(xn, constant, 600, 1800);
+		TestCircuits.connect(xn, TestCircuits.end(one, 0), TestCircuits.end(second, 3), BitWidth.ONE);
+		addOutput(xn, TestCircuits.end(second, 0));
+		xn.execute();
+	}
+
+	private static Attribute<?> inputCount(ComponentFactory gate) {
+		return gate.createAttributeSet().getAttribute("inputs");
+	}
+
+	// the table found by simulating each row in a fresh state
+	private Entry[][] simulate() {
+		int rows = 1 << INPUTS;
+		Entry[][] ret = new Entry[outputPins.size()][rows];
+		for (int i = 0; i < rows; i++) {
+			CircuitState state = new CircuitState(proj, circuit);
+			for (int j = 0; j < INPUTS; j++) {
+				InstanceState pinState = state.getInstanceState(inputPins.get(j));
+				Pin.FACTORY.setValue(pinState, TruthTable.isInputSet(i, j, INPUTS) ? Value.TRUE : Value.FALSE);
+			}
+			state.getPropagator().propagate();
+			for (int j = 0; j < outputPins.size(); j++) {
+				Value out = Pin.FACTORY.getValue(state.getInstanceState(outputPins.get(j))).get(0);
+				if (out == Value.TRUE)
+					ret[j][i] = Entry.ONE;
+				else if (out == Value.FALSE)
+					ret[j][i] = Entry.ZERO;
+				else if (out == Value.ERROR)
+					ret[j][i] = Entry.BUS_ERROR;
+				else
+					ret[j][i] = Entry.DONT_CARE;
+			}
+		}
+		return ret;
+	}
+
+	@Test
+	public void testBitSlicedTableMatchesSimulation() {
+		build();
+		PackedColumn[] columns = Analyze.computeTableBitSliced(proj, circuit, inputPins, outputPins);
+		assertNotNull(columns);
+		Entry[][] expected = simulate();
+		assertEquals(outputPins.size(), columns.length);
+		for (int j = 0; j < columns.length; j++) {
+			for (int i = 0; i < expected[j].length; i++) {
+				assertEquals("output " + j + " row " + i, expected[j][i], columns[j].get(i));
+			}
+		}
+	}
+}
@@ -0,0 +1,36 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.circuit;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.cburch.logisim.data.Location;
+
+/**
+ * Rebuilds the bundles around a few points of a circuit over its current
+ * bundle map, as the first map built after an edit touching those points
+ * would be, without the rest of the edit's work. The current map is left as
+ * it is, so the rebuild can be repeated, as the benchmarks do.
+ */
+public class BundleMapRebuild {
+	private CircuitWires wires;
+	private CircuitWires.BundleMap base;
+	private List<Location> touched;
+
+	public BundleMapRebuild(Circuit circuit, List<Location> touched) {
+		this.wires = circuit.wires;
+		this.base = wires.getBundleMap();
+		this.touched = new ArrayList<Location>(touched);
+	}
+
+	/**
+	 * Returns the number of points whose bundles were rebuilt, or -1 if the
+	 * region was too large and a full rebuild would be made instead.
+	 */
+	public int rebuild() {
+		CircuitWires.BundleMap ret = wires.computeBundleMapIncrementally(base, touched);
+		return ret == null ? -1 : ret.region.size();
+	}
+}
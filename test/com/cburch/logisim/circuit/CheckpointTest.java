@@ -0,0 +1,156 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.circuit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.ComponentFactory;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.prefs.AppPreferences;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.wiring.Clock;
+import com.cburch.logisim.std.wiring.Pin;
+
+public class CheckpointTest {
+	private static final int INSTANCES = 4;
+	private static final int BEFORE = 23; // ticks run before the checkpoint
+	private static final int AFTER = 40; // ticks compared after it
+
+	private Project proj;
+	private Circuit circuit;
+	private ArrayList<Component> pins;
+
+	private Component addOutput(CircuitMutation xn, Location from, BitWidth width) {
+		Component pin = TestCircuits.add(xn, Pin.FACTORY, 1500, 50 + 50 * pins.size(), Pin.ATTR_TYPE, Boolean.TRUE,
+				StdAttr.WIDTH, width);
+		TestCircuits.connect(xn, from, TestCircuits.end(pin, 0), width);
+		pins.add(pin);
+		return pin;
+	}
+
+	// counters, a random source, a shift register and instances of a
+	// subcircuit toggling a flip-flop, all driven by one clock
+	private void build() {
+		proj = TestCircuits.createProject();
+		pins = new ArrayList<Component>();
+		circuit = proj.getLogisimFile().getMainCircuit();
+		ComponentFactory counter = TestCircuits.getFactory(proj, "Memory", "Counter");
+		ComponentFactory random = TestCircuits.getFactory(proj, "Memory", "Random");
+		ComponentFactory shift = TestCircuits.getFactory(proj, "Memory", "Shift Register");
+		ComponentFactory flipFlop = TestCircuits.getFactory(proj, "Memory", "D Flip-Flop");
+		BitWidth four = BitWidth.create(4);
+
+		Circuit sub = new Circuit("toggler");
+		proj.getLogisimFile().addCircuit(sub);
+		CircuitMutation xn = new CircuitMutation(sub);
+		Component in = TestCircuits.add(xn, Pin.FACTORY, 100, 100);
+		Component out = TestCircuits.add(xn, Pin.FACTORY, 500, 100, Pin.ATTR_TYPE, Boolean.TRUE);
+		Component ff = TestCircuits.add(xn, flipFlop, 300, 100);
+		TestCircuits.connect(xn, TestCircuits.end(in, 0), TestCircuits.end(ff, 5), BitWidth.ONE);
+		TestCircuits.connect(xn, TestCircuits.end(ff, 2), TestCircuits.end(ff, 0), BitWidth.ONE);
+		TestCircuits.connect(xn, TestCircuits.end(ff, 1), TestCircuits.end(out, 0), BitWidth.ONE);
+		xn.execute();
+
+		xn = new CircuitMutation(circuit);
+		Component clock = TestCircuits.add(xn, Clock.FACTORY, 50, 50);
+		Location ck = TestCircuits.end(clock, 0);
+		Component count = TestCircuits.add(xn, counter, 300, 100, StdAttr.WIDTH, BitWidth.create(8));
+		TestCircuits.connect(xn, ck, TestCircuits.end(count, 2), BitWidth.ONE);
+		addOutput(xn, TestCircuits.end(count, 0), BitWidth.create(8));
+		Component rand = TestCircuits.add(xn, random, 300, 300, StdAttr.WIDTH, four,
+				random.createAttributeSet().getAttribute("seed"), Integer.valueOf(7));
+		TestCircuits.connect(xn, ck, TestCircuits.end(rand, 1), BitWidth.ONE);
+		addOutput(xn, TestCircuits.end(rand, 0), four);
+		Component reg = TestCircuits.add(xn, shift, 300, 500, StdAttr.WIDTH, four);
+		TestCircuits.connect(xn, ck, TestCircuits.end(reg, 2), BitWidth.ONE);
+		TestCircuits.connect(xn, TestCircuits.end(rand, 0), TestCircuits.end(reg, 0), four);
+		addOutput(xn, TestCircuits.end(reg, 4), four);
+		for (int i = 0; i < INSTANCES; i++) {
+			Component inst = TestCircuits.add(xn, sub.getSubcircuitFactory(), 300 + 200 * i, 800);
+			for (int j = 0; j < inst.getEnds().size(); j++) {
+				if (inst.getEnd(j).isInput())
+					TestCircuits.connect(xn, ck, TestCircuits.end(inst, j), BitWidth.ONE);
+				else
+					addOutput(xn, TestCircuits.end(inst, j), BitWidth.ONE);
+			}
+		}
+		xn.execute();
+	}
+
+	private static byte[] checkpoint(CircuitState state) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		Checkpoint.write(state, out);
+		return out.toByteArray();
+	}
+
+	private static void restore(CircuitState state, byte[] checkpoint) throws IOException {
+		Checkpoint.read(state, new ByteArrayInputStream(checkpoint));
+	}
+
+	@After
+	public void restorePreferences() {
+		TestCircuits.restorePreferences();
+	}
+
+	// runs the ticks, returning the pins' values after each
+	private String run(CircuitState state, int ticks) {
+		Propagator prop = state.getPropagator();
+		StringBuilder ret = new StringBuilder();
+		for (int i = 0; i < ticks; i++) {
+			prop.tick();
+			prop.propagate();
+			for (Component pin : pins) {
+				ret.append(state.getValue(pin.getLocation())).append(',');
+			}
+			ret.append('\n');
+		}
+		return ret.toString();
+	}
+
+	// checks that the ticks after restoring a checkpoint, into a fresh state
+	// or into the same state later on, repeat those after taking it
+	private String simulate(boolean compiled, boolean parallel) throws IOException {
+		TestCircuits.setPreference(AppPreferences.SIM_COMPILED_NETS, Boolean.valueOf(compiled));
+		TestCircuits.setPreference(AppPreferences.SIM_PARALLEL, Boolean.valueOf(parallel));
+		build();
+		CircuitState state = new CircuitState(proj, circuit);
+		state.getPropagator().propagate();
+		run(state, BEFORE);
+		byte[] saved = checkpoint(state);
+		String expected = run(state, AFTER);
+
+		CircuitState fresh = new CircuitState(proj, circuit);
+		restore(fresh, saved);
+		assertEquals("fresh state", expected, run(fresh, AFTER));
+
+		restore(state, saved);
+		assertEquals("same state", expected, run(state, AFTER));
+		return expected;
+	}
+
+	@Test
+	public void testRestoredRunMatchesInEveryMode() throws IOException {
+		String plain = simulate(false, false);
+		String compiled = simulate(true, false);
+		String parallel = simulate(true, true);
+		assertEquals(plain, compiled);
+		assertEquals(plain, parallel);
+		// the outputs change with each cycle of the clock, two ticks long
+		String[] ticks = plain.split("\n");
+		assertTrue(!ticks[0].equals(ticks[2]) && !ticks[2].equals(ticks[4]));
+		assertTrue(plain.indexOf('x') < 0 && plain.indexOf('E') < 0);
+	}
+}
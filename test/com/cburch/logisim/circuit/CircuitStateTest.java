@@ -0,0 +1,129 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.circuit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.ComponentFactory;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.prefs.AppPreferences;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.wiring.Clock;
+import com.cburch.logisim.std.wiring.Pin;
+
+public class CircuitStateTest {
+	private static final int CHAIN = 6;
+
+	private Project proj;
+	private Circuit circuit;
+	private ArrayList<Component> pins;
+	private Component removable;
+
+	private void build() {
+		proj = TestCircuits.createProject();
+		pins = new ArrayList<Component>();
+		circuit = proj.getLogisimFile().getMainCircuit();
+		ComponentFactory not = TestCircuits.getFactory(proj, "Gates", "NOT Gate");
+
+		// a clock driving a chain of inverters, each wired to a pin
+		CircuitMutation xn = new CircuitMutation(circuit);
+		Component clock = TestCircuits.add(xn, Clock.FACTORY, 50, 50);
+		Component prev = clock;
+		for (int i = 0; i < CHAIN; i++) {
+			Component gate = TestCircuits.add(xn, not, 200 + 100 * i, 200);
+			TestCircuits.connect(xn, TestCircuits.end(prev, 0), TestCircuits.end(gate, 1), BitWidth.ONE);
+			Location out = TestCircuits.end(gate, 0);
+			Location below = out.translate(0, 100);
+			xn.add(Wire.create(out, below));
+			pins.add(TestCircuits.add(xn, Pin.FACTORY, below.getX(), below.getY(), Pin.ATTR_TYPE, Boolean.TRUE));
+			if (i == CHAIN / 2)
+				removable = gate;
+			prev = gate;
+		}
+		xn.execute();
+	}
+
+	@After
+	public void restorePreferences() {
+		TestCircuits.restorePreferences();
+	}
+
+	// runs the circuit, removing a gate partway through and putting it back
+	private String simulate(boolean compiled) {
+		TestCircuits.setPreference(AppPreferences.SIM_COMPILED_NETS, Boolean.valueOf(compiled));
+		build();
+		CircuitState state = new CircuitState(proj, circuit);
+		Propagator prop = state.getPropagator();
+		prop.propagate();
+		StringBuilder ret = new StringBuilder();
+		for (int i = 0; i < 30; i++) {
+			if (i == 10 || i == 20) {
+				CircuitMutation xn = new CircuitMutation(circuit);
+				if (i == 10)
+					xn.remove(removable);
+				else
+					xn.add(removable);
+				xn.execute();
+			}
+			prop.tick();
+			prop.propagate();
+			for (Component pin : pins) {
+				ret.append(state.getValue(pin.getLocation()));
+			}
+			ret.append(' ');
+		}
+		return ret.toString();
+	}
+
+	@Test
+	public void testRemovedComponentsReleaseTheirNumbers() {
+		build();
+		CircuitState state = new CircuitState(proj, circuit);
+		Object data = new Object();
+		int size = circuit.componentIndex.size();
+
+		// a replacement takes over the data of the component it replaces
+		Component pin = pins.get(0);
+		Component repl = Pin.FACTORY.createComponent(pin.getLocation(), (AttributeSet) pin.getAttributeSet().clone());
+		state.setData(pin, data);
+		CircuitMutation xn = new CircuitMutation(circuit);
+		xn.replace(pin, repl);
+		xn.execute();
+		assertEquals(-1, circuit.componentIndex.get(pin));
+		assertSame(data, state.getData(repl));
+
+		// a new component takes a released number, without the old data
+		for (int i = 0; i < 100; i++) {
+			Component other = Pin.FACTORY.createComponent(Location.create(1000, 1000 + 10 * i),
+					Pin.FACTORY.createAttributeSet());
+			xn = new CircuitMutation(circuit);
+			xn.add(other);
+			xn.execute();
+			assertNull(state.getData(other));
+			state.setData(other, data);
+			xn = new CircuitMutation(circuit);
+			xn.remove(other);
+			xn.execute();
+			assertNull(state.getData(other));
+		}
+		assertEquals(size + 1, circuit.componentIndex.size());
+	}
+
+	@Test
+	public void testCompiledMatchesPlain() {
+		String plain = simulate(false);
+		String compiled = simulate(true);
+		assertEquals(plain, compiled);
+	}
+}
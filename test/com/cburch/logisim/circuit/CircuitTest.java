@@ -0,0 +1,42 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.circuit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+
+import org.junit.Test;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.Bounds;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.wiring.Pin;
+
+public class CircuitTest {
+	@Test
+	public void testGrowingLabelIsFound() {
+		Project proj = TestCircuits.createProject();
+		Circuit circuit = proj.getLogisimFile().getMainCircuit();
+		CircuitMutation xn = new CircuitMutation(circuit);
+		Component pin = TestCircuits.add(xn, Pin.FACTORY, 100, 100, StdAttr.LABEL, "a");
+		xn.execute();
+		Graphics g = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB).getGraphics();
+		Bounds small = pin.getBounds(g);
+		assertFalse(circuit.getAllContaining(Location.create(small.getX() - 100, 100), g).contains(pin));
+
+		// the label now reaches far to the west of the pin
+		pin.getAttributeSet().setValue(StdAttr.LABEL, "a label long enough to reach well beyond the pin");
+		Bounds big = pin.getBounds(g);
+		Location far = Location.create(big.getX() + 4, big.getY() + big.getHeight() / 2);
+		assertTrue(big.getWidth() > small.getWidth() + 100);
+		assertTrue(pin.contains(far, g));
+		assertTrue(circuit.getAllContaining(far, g).contains(pin));
+		assertTrue(circuit.getAllWithin(big.expand(1), g).contains(pin));
+	}
+}
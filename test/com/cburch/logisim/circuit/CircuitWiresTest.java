@@ -0,0 +1,191 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.circuit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.wiring.Pin;
+import com.cburch.logisim.std.wiring.PullResistor;
+import com.cburch.logisim.std.wiring.Tunnel;
+
+public class CircuitWiresTest {
+	private static final int SIZE = 20;
+
+	private static String describe(CircuitWires wires, Set<Location> pts) {
+		StringBuilder ret = new StringBuilder();
+		for (Location p : pts) {
+			WireBundle b = wires.getWireBundle(p);
+			ret.append(p).append(':');
+			if (b == null) {
+				ret.append(" none\n");
+				continue;
+			}
+			ret.append(' ').append(getName(b));
+			ret.append(" w=").append(b.getWidth());
+			ret.append(" pull=").append(b.getPullValue());
+			if (!b.isValid()) {
+				ret.append(" invalid");
+			} else if (b.threads != null) {
+				for (WireThread t : b.threads) {
+					ret.append(' ').append(getName(t));
+				}
+			}
+			ret.append('\n');
+		}
+		Set<WidthIncompatibilityData> errors = wires.getWidthIncompatibilityData();
+		ret.append("errors: ").append(errors == null ? 0 : errors.size());
+		return ret.toString();
+	}
+
+	// names a bundle by its least point, so that equal maps name it alike
+	private static String getName(WireBundle b) {
+		return new TreeSet<Location>(b.points).first().toString();
+	}
+
+	private static String getName(WireThread t) {
+		TreeSet<String> names = new TreeSet<String>();
+		for (CircuitWires.ThreadBundle tb : t.getBundles()) {
+			names.add(getName(tb.b) + "/" + tb.loc);
+		}
+		return names.first();
+	}
+
+	// checks the circuit's map against one built from scratch, returning
+	// whether the circuit's was built incrementally
+	private static boolean matchesFullRebuild(Circuit circuit, String message) {
+		CircuitWires full = new CircuitWires();
+		for (Component comp : circuit.getNonWires()) {
+			full.add(comp);
+		}
+		for (Wire w : circuit.getWires()) {
+			full.add(w);
+		}
+		TreeSet<Location> pts = new TreeSet<Location>(full.points.getSplitLocations());
+		pts.addAll(circuit.wires.points.getSplitLocations());
+		String expected = describe(full, pts);
+		assertEquals(message, expected, describe(circuit.wires, pts));
+		return circuit.wires.getBundleMap().under != null;
+	}
+
+	private static Location point(int x, int y) {
+		return Location.create(100 + 20 * x, 100 + 20 * y);
+	}
+
+	@Test
+	public void testIncrementalMapsMatchFullRebuild() {
+		Project proj = TestCircuits.createProject();
+		Circuit circuit = proj.getLogisimFile().getMainCircuit();
+		Random rand = new Random(42);
+
+		// a grid of wires, with pins of two widths, splitters, tunnels, and
+		// pulls
+		CircuitMutation xn = new CircuitMutation(circuit);
+		ArrayList<Wire> wires = new ArrayList<Wire>();
+		for (int x = 0; x < SIZE; x++) {
+			for (int y = 0; y < SIZE; y++) {
+				if (x + 1 < SIZE && rand.nextInt(3) == 0)
+					wires.add(Wire.create(point(x, y), point(x + 1, y)));
+				if (y + 1 < SIZE && rand.nextInt(5) == 0)
+					wires.add(Wire.create(point(x, y), point(x, y + 1)));
+			}
+		}
+		xn.addAll(wires);
+		for (int i = 0; i < 8; i++) {
+			Location loc = point(rand.nextInt(SIZE), rand.nextInt(SIZE));
+			BitWidth width = BitWidth.create(i % 3 == 0 ? 2 : 1);
+			TestCircuits.add(xn, Pin.FACTORY, loc.getX(), loc.getY(), StdAttr.WIDTH, width);
+		}
+		for (int i = 0; i < 4; i++) {
+			Location loc = point(rand.nextInt(SIZE), rand.nextInt(SIZE));
+			TestCircuits.add(xn, SplitterFactory.instance, loc.getX(), loc.getY(), SplitterAttributes.ATTR_FANOUT,
+					Integer.valueOf(2), SplitterAttributes.ATTR_WIDTH, BitWidth.create(2));
+		}
+		for (int i = 0; i < 6; i++) {
+			Location loc = point(rand.nextInt(SIZE), rand.nextInt(SIZE));
+			TestCircuits.add(xn, Tunnel.FACTORY, loc.getX(), loc.getY(), StdAttr.LABEL, "t" + (i % 3));
+		}
+		for (int i = 0; i < 2; i++) {
+			Location loc = point(rand.nextInt(SIZE), rand.nextInt(SIZE));
+			TestCircuits.add(xn, PullResistor.FACTORY, loc.getX(), loc.getY());
+		}
+		xn.execute();
+		circuit.wires.ensureComputed();
+
+		// edit wires one at a time, checking the map after each edit
+		int incremental = 0;
+		for (int i = 0; i < 60; i++) {
+			xn = new CircuitMutation(circuit);
+			if (rand.nextBoolean() && !wires.isEmpty()) {
+				xn.remove(wires.remove(rand.nextInt(wires.size())));
+			} else {
+				int x = rand.nextInt(SIZE - 1);
+				int y = rand.nextInt(SIZE - 1);
+				Wire w = rand.nextBoolean() ? Wire.create(point(x, y), point(x + 1, y))
+						: Wire.create(point(x, y), point(x, y + 1));
+				if (!circuit.getWires().contains(w)) {
+					wires.add(w);
+					xn.add(w);
+				}
+			}
+			xn.execute();
+			if (matchesFullRebuild(circuit, "after edit " + i))
+				incremental++;
+		}
+		assertTrue("maps were built incrementally", incremental > 10);
+	}
+
+	@Test
+	public void testTunnelEditsMatchFullRebuild() {
+		Project proj = TestCircuits.createProject();
+		Circuit circuit = proj.getLogisimFile().getMainCircuit();
+		Random rand = new Random(7);
+
+		// short wires, each with a tunnel at one end
+		CircuitMutation xn = new CircuitMutation(circuit);
+		ArrayList<Component> tunnels = new ArrayList<Component>();
+		for (int x = 0; x < SIZE; x += 2) {
+			for (int y = 0; y < SIZE; y += 2) {
+				xn.add(Wire.create(point(x, y), point(x + 1, y)));
+				Location loc = point(x, y);
+				tunnels.add(TestCircuits.add(xn, Tunnel.FACTORY, loc.getX(), loc.getY(), StdAttr.LABEL,
+						"t" + rand.nextInt(8)));
+			}
+		}
+		xn.execute();
+		circuit.wires.ensureComputed();
+
+		// remove, add back and relabel tunnels one at a time
+		int incremental = 0;
+		for (int i = 0; i < 60; i++) {
+			Component tunnel = tunnels.get(rand.nextInt(tunnels.size()));
+			int edit = rand.nextInt(5);
+			if (edit == 0) {
+				tunnel.getAttributeSet().setValue(StdAttr.LABEL, "t" + rand.nextInt(8));
+			} else {
+				xn = new CircuitMutation(circuit);
+				if (circuit.contains(tunnel))
+					xn.remove(tunnel);
+				else
+					xn.add(tunnel);
+				xn.execute();
+			}
+			if (matchesFullRebuild(circuit, "after edit " + i))
+				incremental++;
+		}
+		assertTrue("maps were built incrementally", incremental > 10);
+	}
+}
@@ -0,0 +1,65 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.circuit;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.wiring.Clock;
+
+public class ClockRegistryTest {
+	private static void checkTicks(String message, Propagator prop, CircuitState state, Component[] clocks,
+			int[][] durations, int from, int to) {
+		for (int t = from; t <= to; t++) {
+			prop.tick();
+			prop.propagate();
+			for (int i = 0; i < clocks.length; i++) {
+				int high = durations[i][0];
+				int low = durations[i][1];
+				Value expected = t % (high + low) >= low ? Value.TRUE : Value.FALSE;
+				assertEquals(message + " clock " + i + " tick " + t, expected,
+						state.getValue(TestCircuits.end(clocks[i], 0)));
+			}
+		}
+	}
+
+	@Test
+	public void testDomainsFollowDurations() {
+		Project proj = TestCircuits.createProject();
+		Circuit circuit = proj.getLogisimFile().getMainCircuit();
+		int[][] durations = { { 1, 1 }, { 2, 3 }, { 2, 3 } };
+		Component[] clocks = new Component[durations.length];
+		CircuitMutation xn = new CircuitMutation(circuit);
+		for (int i = 0; i < clocks.length; i++) {
+			clocks[i] = TestCircuits.add(xn, Clock.FACTORY, 50, 50 + 50 * i, Clock.ATTR_HIGH,
+					Integer.valueOf(durations[i][0]), Clock.ATTR_LOW, Integer.valueOf(durations[i][1]));
+		}
+		xn.execute();
+
+		CircuitState state = new CircuitState(proj, circuit);
+		Propagator prop = state.getPropagator();
+		prop.propagate();
+		checkTicks("initial", prop, state, clocks, durations, 1, 30);
+
+		// one of the clocks sharing a domain moves to a domain of its own
+		xn = new CircuitMutation(circuit);
+		xn.set(clocks[2], Clock.ATTR_HIGH, Integer.valueOf(4));
+		xn.execute();
+		durations[2][0] = 4;
+		checkTicks("after change", prop, state, clocks, durations, 31, 60);
+
+		// and a clock added is ticked with the rest
+		xn = new CircuitMutation(circuit);
+		Component added = TestCircuits.add(xn, Clock.FACTORY, 50, 300, Clock.ATTR_HIGH, Integer.valueOf(3),
+				Clock.ATTR_LOW, Integer.valueOf(1));
+		xn.execute();
+		Component[] all = { clocks[0], clocks[1], clocks[2], added };
+		int[][] allDurations = { durations[0], durations[1], durations[2], { 3, 1 } };
+		checkTicks("after add", prop, state, all, allDurations, 61, 90);
+	}
+}
@@ -0,0 +1,121 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.circuit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.ComponentFactory;
+import com.cburch.logisim.comp.EndData;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.prefs.AppPreferences;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.wiring.Clock;
+import com.cburch.logisim.std.wiring.Pin;
+import com.cburch.logisim.std.wiring.Probe;
+
+public class ParallelPropagationTest {
+	private static final int INSTANCES = 4;
+
+	private Project proj;
+	private Circuit circuit;
+	private ArrayList<Component> pins;
+
+	private void build() {
+		proj = TestCircuits.createProject();
+		pins = new ArrayList<Component>();
+		circuit = proj.getLogisimFile().getMainCircuit();
+		ComponentFactory not = TestCircuits.getFactory(proj, "Gates", "NOT Gate");
+
+		// a subcircuit inverting its input twice over, with a pin between
+		Circuit sub = new Circuit("sub");
+		proj.getLogisimFile().addCircuit(sub);
+		CircuitMutation xn = new CircuitMutation(sub);
+		Component in = TestCircuits.add(xn, Pin.FACTORY, 100, 100);
+		Component mid = TestCircuits.add(xn, Pin.FACTORY, 300, 200, Pin.ATTR_TYPE, Boolean.TRUE);
+		Component out = TestCircuits.add(xn, Pin.FACTORY, 500, 100, Pin.ATTR_TYPE, Boolean.TRUE);
+		Component first = TestCircuits.add(xn, not, 200, 100);
+		Component second = TestCircuits.add(xn, not, 400, 100);
+		TestCircuits.connect(xn, TestCircuits.end(in, 0), TestCircuits.end(first, 1), BitWidth.ONE);
+		TestCircuits.connect(xn, TestCircuits.end(first, 0), TestCircuits.end(second, 1), BitWidth.ONE);
+		TestCircuits.connect(xn, TestCircuits.end(first, 0), TestCircuits.end(mid, 0), BitWidth.ONE);
+		TestCircuits.connect(xn, TestCircuits.end(second, 0), TestCircuits.end(out, 0), BitWidth.ONE);
+		xn.execute();
+
+		// a clock feeding a chain of its instances, each output on a pin
+		xn = new CircuitMutation(circuit);
+		Component clock = TestCircuits.add(xn, Clock.FACTORY, 50, 50);
+		Location prev = TestCircuits.end(clock, 0);
+		for (int i = 0; i < INSTANCES; i++) {
+			Component inst = TestCircuits.add(xn, sub.getSubcircuitFactory(), 200 + 200 * i, 300);
+			for (EndData end : inst.getEnds()) {
+				Location loc = end.getLocation();
+				if (end.isInput()) {
+					TestCircuits.connect(xn, prev, loc, BitWidth.ONE);
+				} else {
+					Component pin = TestCircuits.add(xn, Pin.FACTORY, loc.getX(), loc.getY() + 300 + 50 * pins.size(),
+							Pin.ATTR_TYPE, Boolean.TRUE);
+					TestCircuits.connect(xn, loc, TestCircuits.end(pin, 0), BitWidth.ONE);
+					pins.add(pin);
+					prev = loc;
+				}
+			}
+		}
+		xn.execute();
+	}
+
+	@After
+	public void restorePreferences() {
+		TestCircuits.restorePreferences();
+	}
+
+	private String simulate(boolean parallel) {
+		TestCircuits.setPreference(AppPreferences.SIM_PARALLEL, Boolean.valueOf(parallel));
+		build();
+		CircuitState state = new CircuitState(proj, circuit);
+		Propagator prop = state.getPropagator();
+		prop.propagate();
+		StringBuilder ret = new StringBuilder();
+		for (int i = 0; i < 40; i++) {
+			prop.tick();
+			prop.propagate();
+			for (Component pin : pins) {
+				ret.append(state.getValue(pin.getLocation()));
+			}
+			ret.append(' ');
+		}
+		return ret.toString();
+	}
+
+	@Test
+	public void testParallelMatchesSerial() {
+		String serial = simulate(false);
+		String parallel = simulate(true);
+		assertEquals(serial, parallel);
+	}
+
+	@Test
+	public void testDeclaredFactoriesAreHazards() {
+		build();
+		CircuitMutation xn = new CircuitMutation(circuit);
+		Component probe = TestCircuits.add(xn, Probe.FACTORY, 600, 50);
+		xn.execute();
+		CircuitState state = new CircuitState(proj, circuit);
+		state.getPropagator().propagate();
+		assertFalse(state.hasParallelHazard());
+
+		state.markComponentAsDirty(pins.get(0));
+		assertFalse(state.hasParallelHazard());
+		state.markComponentAsDirty(probe);
+		assertTrue(state.hasParallelHazard());
+	}
+}
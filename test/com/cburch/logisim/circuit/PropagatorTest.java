@@ -0,0 +1,115 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.circuit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.ComponentFactory;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.prefs.AppPreferences;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.wiring.Clock;
+import com.cburch.logisim.std.wiring.Pin;
+
+public class PropagatorTest {
+	private static final int CHAIN = 7;
+
+	private Project proj;
+	private Circuit circuit;
+	private ArrayList<Component> pins;
+	private Component removable;
+
+	private void build() {
+		proj = TestCircuits.createProject();
+		pins = new ArrayList<Component>();
+		circuit = proj.getLogisimFile().getMainCircuit();
+		ComponentFactory not = TestCircuits.getFactory(proj, "Gates", "NOT Gate");
+
+		// a clock driving a chain of inverters, with a pin on every other one
+		CircuitMutation xn = new CircuitMutation(circuit);
+		Component clock = TestCircuits.add(xn, Clock.FACTORY, 50, 50);
+		Component prev = clock;
+		for (int i = 0; i < CHAIN; i++) {
+			Component gate = TestCircuits.add(xn, not, 200 + 100 * i, 200);
+			TestCircuits.connect(xn, TestCircuits.end(prev, 0), TestCircuits.end(gate, 1), BitWidth.ONE);
+			if (i % 2 == 0) {
+				Component pin = TestCircuits.add(xn, Pin.FACTORY, 200 + 100 * i, 400, Pin.ATTR_TYPE, Boolean.TRUE);
+				TestCircuits.connect(xn, TestCircuits.end(gate, 0), TestCircuits.end(pin, 0), BitWidth.ONE);
+				pins.add(pin);
+			}
+			if (i == CHAIN / 2)
+				removable = gate;
+			prev = gate;
+		}
+		xn.execute();
+	}
+
+	@After
+	public void restorePreferences() {
+		TestCircuits.restorePreferences();
+	}
+
+	// runs the circuit under the queue, removing a gate partway through
+	private String simulate(String queue, boolean checkPool) {
+		TestCircuits.setPreference(AppPreferences.SIM_EVENT_QUEUE, queue);
+		build();
+		CircuitState state = new CircuitState(proj, circuit);
+		Propagator prop = state.getPropagator();
+		prop.propagate();
+		StringBuilder ret = new StringBuilder();
+		for (int i = 0; i < 40; i++) {
+			if (i == 20) {
+				int pooled = prop.getPoolSize();
+				CircuitMutation xn = new CircuitMutation(circuit);
+				xn.remove(removable);
+				xn.execute();
+				if (checkPool)
+					assertEquals("entries pooled by an edit", pooled, prop.getPoolSize());
+			}
+			prop.tick();
+			prop.propagate();
+			for (Component pin : pins) {
+				ret.append(state.getValue(pin.getLocation()));
+			}
+			ret.append(' ');
+		}
+		if (checkPool)
+			assertTrue("events were recycled", prop.getPoolSize() > 0);
+		return ret.toString();
+	}
+
+	@Test
+	public void testPooledEventsMatchLegacyQueue() {
+		String legacy = simulate(AppPreferences.SIM_QUEUE_LEGACY, false);
+		String wheel = simulate(AppPreferences.SIM_QUEUE_WHEEL, true);
+		assertEquals(legacy, wheel);
+	}
+
+	@Test
+	public void testPoolIsBounded() {
+		TestCircuits.setPreference(AppPreferences.SIM_EVENT_QUEUE, AppPreferences.SIM_QUEUE_WHEEL);
+		build();
+		CircuitState state = new CircuitState(proj, circuit);
+		Propagator prop = state.getPropagator();
+		prop.propagate();
+		for (int i = 0; i < 10; i++) {
+			prop.tick();
+			prop.propagate();
+		}
+		int size = prop.getPoolSize();
+		for (int i = 0; i < 1000; i++) {
+			prop.tick();
+			prop.propagate();
+		}
+		// each tick needs as many events as the last, so the pool stays put
+		assertEquals(size, prop.getPoolSize());
+	}
+}
@@ -0,0 +1,133 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.circuit;
+
+import java.util.HashMap;
+import java.util.prefs.BackingStoreException;
+import java.util.prefs.Preferences;
+
+import com.cburch.logisim.Main;
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.ComponentFactory;
+import com.cburch.logisim.data.Attribute;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.prefs.PrefMonitor;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.wiring.Tunnel;
+import com.cburch.logisim.tools.AddTool;
+import com.cburch.logisim.tools.Library;
+
+/**
+ * Builds small circuits for the tests. Components are placed where asked and
+ * connected by pairs of tunnels, so that the tests need not route wires.
+ */
+public class TestCircuits {
+	// a preference as it was before the tests changed it
+	private static class SavedPreference<E> {
+		private final PrefMonitor<E> pref;
+		private final E value;
+		private final String stored; // null if nothing was stored
+
+		SavedPreference(PrefMonitor<E> pref, String stored) {
+			this.pref = pref;
+			this.value = pref.get();
+			this.stored = stored;
+		}
+
+		void restore(Preferences node) {
+			if (stored == null)
+				node.remove(pref.getIdentifier());
+			else
+				node.put(pref.getIdentifier(), stored);
+			waitFor(pref, value);
+		}
+	}
+
+	private static int nextLabel = 0;
+	private static HashMap<String, SavedPreference<?>> savedPreferences = new HashMap<String, SavedPreference<?>>();
+
+	public static Component add(CircuitMutation xn, ComponentFactory factory, int x, int y, Object... attrs) {
+		AttributeSet set = factory.createAttributeSet();
+		for (int i = 0; i < attrs.length; i += 2) {
+			@SuppressWarnings("unchecked")
+			Attribute<Object> attr = (Attribute<Object>) attrs[i];
+			set.setValue(attr, attrs[i + 1]);
+		}
+		Component ret = factory.createComponent(Location.create(x, y), set);
+		xn.add(ret);
+		return ret;
+	}
+
+	public static void connect(CircuitMutation xn, Location a, Location b, BitWidth width) {
+		String label = "t" + nextLabel++;
+		add(xn, Tunnel.FACTORY, a.getX(), a.getY(), StdAttr.LABEL, label, StdAttr.WIDTH, width);
+		add(xn, Tunnel.FACTORY, b.getX(), b.getY(), StdAttr.LABEL, label, StdAttr.WIDTH, width);
+	}
+
+	public static Project createProject() {
+		return new Project(LogisimFile.createNew(new Loader(null)));
+	}
+
+	public static Location end(Component comp, int index) {
+		return comp.getEnd(index).getLocation();
+	}
+
+	public static ComponentFactory getFactory(Project proj, String library, String name) {
+		Library lib = proj.getLogisimFile().getLoader().getBuiltin().getLibrary(library);
+		return ((AddTool) lib.getTool(name)).getFactory();
+	}
+
+	/**
+	 * Puts back every preference changed by <code>setPreference</code> as it
+	 * was stored before, removing those that were not stored at all, so that
+	 * the tests leave the user's preferences as they found them. Tests
+	 * changing preferences call this when done.
+	 */
+	public static void restorePreferences() {
+		Preferences node = Preferences.userNodeForPackage(Main.class);
+		for (SavedPreference<?> saved : savedPreferences.values()) {
+			saved.restore(node);
+		}
+		savedPreferences.clear();
+		try {
+			node.flush();
+		} catch (BackingStoreException e) {
+		}
+	}
+
+	/**
+	 * Sets a preference and waits for the change to reach the monitor, which
+	 * hears of it from the preferences' own thread. What was stored before is
+	 * kept for <code>restorePreferences</code>.
+	 */
+	public static <E> void setPreference(PrefMonitor<E> pref, E value) {
+		if (!savedPreferences.containsKey(pref.getIdentifier())) {
+			Preferences node = Preferences.userNodeForPackage(Main.class);
+			savedPreferences.put(pref.getIdentifier(),
+					new SavedPreference<E>(pref, node.get(pref.getIdentifier(), null)));
+		}
+		pref.set(value);
+		waitFor(pref, value);
+	}
+
+	private static <E> void waitFor(PrefMonitor<E> pref, E value) {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!value.equals(pref.get())) {
+			if (System.currentTimeMillis() > deadline)
+				throw new IllegalStateException("preference " + pref.getIdentifier() + " not changed");
+			try {
+				Thread.sleep(5);
+			} catch (InterruptedException e) {
+			}
+		}
+	}
+
+	private TestCircuits() {
+	}
+}
@@ -0,0 +1,87 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.instance.Instance;
+import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.std.memory.Register;
+
+public class AttributeSnapshotTest {
+	private static final Attribute<Integer> COUNT = Attributes.forInteger("count");
+
+	// a set whose first read of a value is followed by a change to it, as if
+	// the user edited it while a simulator thread was taking a snapshot
+	private static class RacingSet extends AbstractAttributeSet {
+		private AttributeSnapshot.Cache cache;
+		private Integer count = Integer.valueOf(1);
+		private boolean raced = false;
+
+		@Override
+		protected void copyInto(AbstractAttributeSet dest) {
+			((RacingSet) dest).count = count;
+		}
+
+		@Override
+		public List<Attribute<?>> getAttributes() {
+			return Arrays.<Attribute<?>> asList(COUNT);
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public <V> V getValue(Attribute<V> attr) {
+			V ret = (V) count;
+			if (!raced) {
+				raced = true;
+				setValue(COUNT, Integer.valueOf(2));
+			}
+			return ret;
+		}
+
+		@Override
+		public <V> void setValue(Attribute<V> attr, V value) {
+			count = (Integer) value;
+			cache.invalidate();
+		}
+	}
+
+	@Test
+	public void testChangeDuringSnapshotIsNotLost() {
+		RacingSet attrs = new RacingSet();
+		attrs.cache = new AttributeSnapshot.Cache();
+		Attribute<?>[] keys = { COUNT };
+
+		// the snapshot taken before the change is returned once, not kept
+		assertEquals(Integer.valueOf(1), attrs.cache.get(attrs, keys).get(COUNT));
+		AttributeSnapshot snap = attrs.cache.get(attrs, keys);
+		assertEquals(Integer.valueOf(2), snap.get(COUNT));
+		assertEquals(2, snap.getInt(COUNT));
+		assertSame(snap, attrs.cache.get(attrs, keys));
+	}
+
+	@Test
+	public void testComponentSnapshotFollowsChanges() {
+		Register factory = new Register();
+		AttributeSet attrs = factory.createAttributeSet();
+		Component comp = factory.createComponent(Location.create(0, 0), attrs);
+		Instance instance = Instance.getInstanceFor(comp);
+
+		AttributeSnapshot snap = instance.getAttributeSnapshot();
+		assertEquals(BitWidth.create(8), snap.get(StdAttr.WIDTH));
+		assertSame(snap, instance.getAttributeSnapshot());
+
+		attrs.setValue(StdAttr.WIDTH, BitWidth.create(16));
+		assertEquals(BitWidth.create(16), instance.getAttributeSnapshot().get(StdAttr.WIDTH));
+		assertEquals(16, instance.getAttributeSnapshot().getInt(StdAttr.WIDTH));
+		assertSame(snap.get(StdAttr.TRIGGER), instance.getAttributeSnapshot().get(StdAttr.TRIGGER));
+	}
+}
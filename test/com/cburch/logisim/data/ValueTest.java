@@ -0,0 +1,108 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class ValueTest {
+	private static final Value[] BITS = { Value.FALSE, Value.TRUE, Value.UNKNOWN, Value.ERROR };
+	private static final int[] WIDTHS = { 1, 7, 63, 64, 65, 100, 127, 128 };
+
+	// a value of the width whose bits are each drawn from the one-bit values;
+	// fully defined if defined is set
+	private static Value random(Random rand, int width, boolean defined) {
+		Value[] bits = new Value[width];
+		for (int i = 0; i < width; i++) {
+			bits[i] = BITS[rand.nextInt(defined ? 2 : BITS.length)];
+		}
+		return Value.create(bits);
+	}
+
+	private static Value roundTrip(Value v) throws IOException {
+		ByteArrayOutputStream buf = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(buf);
+		v.write(out);
+		out.flush();
+		return Value.read(new DataInputStream(new ByteArrayInputStream(buf.toByteArray())));
+	}
+
+	@Test
+	public void testKnownValuesMatchBigInteger() {
+		Random rand = new Random(5);
+		for (int width : WIDTHS) {
+			BitWidth bits = BitWidth.create(width);
+			for (int trial = 0; trial < 50; trial++) {
+				BigInteger n = new BigInteger(width, rand);
+				Value v = Value.createKnown(bits, n);
+				assertEquals(width, v.getWidth());
+				assertTrue(v.isFullyDefined());
+				assertEquals(n, v.toBigInteger());
+				assertEquals(n.longValue(), v.toLongValue());
+				for (int i = 0; i < width; i++) {
+					assertSame("bit " + i + " of " + n, n.testBit(i) ? Value.TRUE : Value.FALSE, v.get(i));
+				}
+				assertEquals(n.toString(16), new BigInteger(v.toHexString(), 16).toString(16));
+				assertSame(v, Value.create(v.getAll()));
+			}
+		}
+	}
+
+	@Test
+	public void testWideOperationsMatchBitByBit() {
+		Random rand = new Random(128);
+		for (int width : WIDTHS) {
+			for (int trial = 0; trial < 50; trial++) {
+				Value a = random(rand, width, trial % 2 == 0);
+				Value b = random(rand, width, trial % 3 == 0);
+				Value and = a.and(b);
+				Value or = a.or(b);
+				Value xor = a.xor(b);
+				Value not = a.not();
+				Value combine = a.combine(b);
+				for (int i = 0; i < width; i++) {
+					String where = "width " + width + " bit " + i;
+					assertSame(where, a.get(i).and(b.get(i)), and.get(i));
+					assertSame(where, a.get(i).or(b.get(i)), or.get(i));
+					assertSame(where, a.get(i).xor(b.get(i)), xor.get(i));
+					assertSame(where, a.get(i).not(), not.get(i));
+					assertSame(where, a.get(i).combine(b.get(i)), combine.get(i));
+				}
+				assertEquals(width, not.getWidth());
+				if (a.isFullyDefined())
+					assertEquals(a, not.not());
+			}
+		}
+	}
+
+	@Test
+	public void testExtendAndSerialize() throws IOException {
+		Random rand = new Random(64);
+		for (int width : WIDTHS) {
+			for (int trial = 0; trial < 20; trial++) {
+				Value v = random(rand, width, trial % 2 == 0);
+				assertEquals(v, roundTrip(v));
+				for (Value others : BITS) {
+					Value wide = v.extendWidth(128, others);
+					assertEquals(128, wide.getWidth());
+					for (int i = 0; i < 128; i++) {
+						assertSame(i < width ? v.get(i) : others, wide.get(i));
+					}
+					assertEquals(wide, roundTrip(wide));
+				}
+			}
+		}
+	}
+}
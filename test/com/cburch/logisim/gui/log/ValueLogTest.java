@@ -0,0 +1,85 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.gui.log;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Value;
+
+public class ValueLogTest {
+	// a file that takes only so many chunks before refusing the rest
+	private static class FailingFile extends HistoryFile {
+		private int appendsLeft;
+		private int appended = 0;
+
+		FailingFile(int appendsLeft) {
+			this.appendsLeft = appendsLeft;
+		}
+
+		@Override
+		synchronized long append(byte[] bytes) throws IOException {
+			if (appendsLeft-- <= 0)
+				throw new IOException("disk full");
+			appended++;
+			return super.append(bytes);
+		}
+	}
+
+	private static final BitWidth WIDTH = BitWidth.create(32);
+	private static final int ROWS = 200000;
+
+	// every row differs from the last, so each is a run of its own
+	private static Value valueAt(int row) {
+		return row % 1000 == 0 ? null : Value.createKnown(WIDTH, row * 7);
+	}
+
+	private static void checkRows(ValueLog log) {
+		assertEquals(ROWS, log.size());
+		for (int i = 0; i < ROWS; i++) {
+			assertEquals("row " + i, valueAt(i), log.get(i));
+		}
+		// and again from the end, so that each chunk is decoded afresh
+		for (int i = ROWS - 1; i >= 0; i -= 997) {
+			assertEquals("row " + i, valueAt(i), log.get(i));
+		}
+	}
+
+	@Test
+	public void testSpilledRowsRoundTrip() {
+		FailingFile file = new FailingFile(Integer.MAX_VALUE);
+		try {
+			ValueLog log = new ValueLog(file);
+			for (int i = 0; i < ROWS; i++) {
+				log.append(valueAt(i));
+			}
+			assertTrue(file.appended > 0);
+			checkRows(log);
+			assertNull(log.get(ROWS));
+		} finally {
+			file.close();
+		}
+	}
+
+	@Test
+	public void testSpilledRowsSurviveFailedSpill() {
+		FailingFile file = new FailingFile(3);
+		try {
+			ValueLog log = new ValueLog(file);
+			for (int i = 0; i < ROWS; i++) {
+				log.append(valueAt(i));
+			}
+			assertEquals(3, file.appended);
+			checkRows(log);
+		} finally {
+			file.close();
+		}
+	}
+}
@@ -0,0 +1,97 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.gui.log;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.circuit.CircuitMutation;
+import com.cburch.logisim.circuit.CircuitState;
+import com.cburch.logisim.circuit.Propagator;
+import com.cburch.logisim.circuit.TestCircuits;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.memory.Register;
+import com.cburch.logisim.std.wiring.Clock;
+import com.cburch.logisim.std.wiring.Probe;
+
+public class VcdWriterTest {
+	private static ArrayList<String> readLines(File file) throws IOException {
+		ArrayList<String> ret = new ArrayList<String>();
+		BufferedReader in = new BufferedReader(new FileReader(file));
+		try {
+			for (String line = in.readLine(); line != null; line = in.readLine()) {
+				ret.add(line);
+			}
+		} finally {
+			in.close();
+		}
+		return ret;
+	}
+
+	@Test
+	public void testWidthsAndTimesAcrossReset() throws IOException {
+		Project proj = TestCircuits.createProject();
+		Circuit circuit = proj.getLogisimFile().getMainCircuit();
+		CircuitMutation xn = new CircuitMutation(circuit);
+		TestCircuits.add(xn, Clock.FACTORY, 50, 50, StdAttr.LABEL, "clk");
+		TestCircuits.add(xn, new Register(), 200, 100, StdAttr.LABEL, "reg", StdAttr.WIDTH, BitWidth.create(8));
+		TestCircuits.add(xn, Probe.FACTORY, 300, 200, StdAttr.LABEL, "probe");
+		xn.execute();
+
+		File file = File.createTempFile("logisim", ".vcd");
+		file.deleteOnExit();
+		VcdWriter writer = new VcdWriter(file);
+		CircuitState state = new CircuitState(proj, circuit);
+		writer.addCircuit(state);
+		Propagator prop = state.getPropagator();
+		prop.propagate();
+		writer.sample(state);
+		for (int i = 0; i < 3; i++) {
+			prop.tick();
+			prop.propagate();
+			writer.sample(state);
+		}
+
+		// a reset starts over with a propagator whose clock is back near zero
+		CircuitState fresh = new CircuitState(proj, circuit);
+		fresh.getPropagator().propagate();
+		assertTrue(fresh.getPropagator().getClock() < prop.getClock());
+		writer.sample(fresh);
+		writer.close();
+
+		ArrayList<String> stamps = new ArrayList<String>();
+		boolean regDeclared = false;
+		boolean probeDeclared = false;
+		for (String line : readLines(file)) {
+			if (line.startsWith("#"))
+				stamps.add(line);
+			else if (line.startsWith("$var wire 8 ") && line.endsWith(" reg [7:0] $end"))
+				regDeclared = true;
+			else if (line.startsWith("$var wire 1 ") && line.endsWith(" probe $end"))
+				probeDeclared = true;
+		}
+		assertTrue(regDeclared);
+		// a probe watching nothing has no value but is declared all the same
+		assertTrue(probeDeclared);
+
+		// the first sample, each tick and the reset each have a time of their own
+		assertEquals(5, stamps.size());
+		for (int i = 1; i < stamps.size(); i++) {
+			int prev = Integer.parseInt(stamps.get(i - 1).substring(1));
+			int cur = Integer.parseInt(stamps.get(i).substring(1));
+			assertTrue(stamps.toString(), cur > prev);
+		}
+	}
+}
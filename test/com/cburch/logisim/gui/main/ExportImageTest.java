@@ -0,0 +1,113 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.gui.main;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Test;
+
+import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.circuit.CircuitMutation;
+import com.cburch.logisim.circuit.TestCircuits;
+import com.cburch.logisim.circuit.Wire;
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.ComponentDrawContext;
+import com.cburch.logisim.comp.ComponentFactory;
+import com.cburch.logisim.data.Bounds;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.wiring.Pin;
+
+public class ExportImageTest {
+	private static final double SCALE = 3.0;
+
+	// columns of labeled inverters, each joined to the next by a wire long
+	// enough to cross several strips, with junctions where the wires branch
+	private static Circuit build(Project proj) {
+		Circuit circuit = proj.getLogisimFile().getMainCircuit();
+		ComponentFactory not = TestCircuits.getFactory(proj, "Gates", "NOT Gate");
+		CircuitMutation xn = new CircuitMutation(circuit);
+		for (int i = 0; i < 6; i++) {
+			int x = 100 + 150 * i;
+			Component in = TestCircuits.add(xn, Pin.FACTORY, x - 60, 100, StdAttr.LABEL, "in" + i);
+			Component gate = TestCircuits.add(xn, not, x, 100, StdAttr.LABEL, "gate " + i);
+			xn.add(Wire.create(TestCircuits.end(in, 0), TestCircuits.end(gate, 1)));
+			Location out = TestCircuits.end(gate, 0);
+			Location bottom = out.translate(0, 800);
+			xn.add(Wire.create(out, out.translate(0, 400)));
+			xn.add(Wire.create(out.translate(0, 400), bottom));
+			xn.add(Wire.create(out.translate(0, 400), out.translate(40, 400)));
+			TestCircuits.add(xn, Pin.FACTORY, bottom.getX(), bottom.getY(), Pin.ATTR_TYPE, Boolean.TRUE,
+					StdAttr.LABEL, "out" + i);
+		}
+		xn.execute();
+		return circuit;
+	}
+
+	// the circuit drawn as a single image, as the export would if not in strips
+	private static BufferedImage drawWhole(Project proj, Circuit circuit) {
+		Graphics measure = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB).getGraphics();
+		Bounds bds = circuit.getBounds(measure).expand(5);
+		measure.dispose();
+		int width = (int) Math.round(bds.getWidth() * SCALE);
+		int height = (int) Math.round(bds.getHeight() * SCALE);
+		BufferedImage ret = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		Graphics base = ret.getGraphics();
+		Graphics2D g = (Graphics2D) base.create();
+		g.setColor(Color.white);
+		g.fillRect(0, 0, width, height);
+		g.setColor(Color.black);
+		g.scale(SCALE, SCALE);
+		g.translate(-bds.getX(), -bds.getY());
+		circuit.getDrawing().draw(
+				new ComponentDrawContext(null, circuit, proj.getCircuitState(circuit), base, g, false));
+		g.dispose();
+		base.dispose();
+		return ret;
+	}
+
+	@Test
+	public void testPngInStripsMatchesWholeImage() throws IOException {
+		Project proj = TestCircuits.createProject();
+		Circuit circuit = build(proj);
+		File dir = File.createTempFile("logisim", "");
+		dir.delete();
+		dir.mkdir();
+		File file = new File(dir, circuit.getName() + ".png");
+		try {
+			Map<Circuit, String> failed = ExportImage.exportCircuits(proj, Collections.singletonList(circuit), dir,
+					"png", SCALE, false);
+			assertTrue(failed.toString(), failed.isEmpty());
+			BufferedImage png = ImageIO.read(file);
+			BufferedImage whole = drawWhole(proj, circuit);
+			assertEquals(whole.getWidth(), png.getWidth());
+			assertEquals(whole.getHeight(), png.getHeight());
+			// big enough that the export drew it in several strips
+			assertTrue(png.getWidth() * png.getHeight() > 2 * (1 << 21));
+			for (int y = 0; y < whole.getHeight(); y++) {
+				for (int x = 0; x < whole.getWidth(); x++) {
+					if (whole.getRGB(x, y) != png.getRGB(x, y))
+						fail("pixel " + x + "," + y + " differs");
+				}
+			}
+		} finally {
+			file.delete();
+			dir.delete();
+		}
+	}
+}
@@ -0,0 +1,171 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.std.memory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+import com.cburch.hex.HexModel;
+import com.cburch.hex.HexModelListener;
+import com.cburch.logisim.gui.hex.HexFile;
+
+public class MemContentsTest {
+	private static final int PAGE = 4096;
+
+	// notes each range announced as "start-end", end exclusive
+	private static class RangeListener implements HexModelListener {
+		private ArrayList<String> ranges = new ArrayList<String>();
+
+		@Override
+		public void bytesChanged(HexModel source, long start, long numBytes, int[] oldValues) {
+			assertNull(oldValues);
+			ranges.add(start + "-" + (start + numBytes));
+		}
+
+		@Override
+		public void metainfoChanged(HexModel source) {
+		}
+
+		String take() {
+			String ret = ranges.toString();
+			ranges.clear();
+			return ret;
+		}
+	}
+
+	private static void assertContents(String message, int[] expected, MemContents contents) {
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(message + " at " + i, expected[i], contents.get(i));
+		}
+	}
+
+	private static MemContents load(int width, int bytesPerWord, int[] bytes) throws IOException {
+		File file = File.createTempFile("logisim", ".bin");
+		try {
+			FileOutputStream out = new FileOutputStream(file);
+			try {
+				out.write(("v2.0 bin " + bytesPerWord + "\n").getBytes(StandardCharsets.ISO_8859_1));
+				for (int b : bytes) {
+					out.write(b);
+				}
+			} finally {
+				out.close();
+			}
+			MemContents ret = MemContents.create(8, width);
+			HexFile.open(ret, file);
+			return ret;
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testBinaryBytesAreUnsigned() throws IOException {
+		int[] bytes = { 0x80, 0x7f, 0xff };
+		for (int width : new int[] { 16, 32 }) {
+			MemContents contents = load(width, 1, bytes);
+			for (int i = 0; i < bytes.length; i++) {
+				assertEquals(width + "-bit word " + i, bytes[i], contents.get(i));
+			}
+		}
+	}
+
+	@Test
+	public void testBinaryShortsAreUnsigned() throws IOException {
+		// little-endian words 0x8000 and 0xffff
+		MemContents contents = load(32, 2, new int[] { 0x00, 0x80, 0xff, 0xff });
+		assertEquals(0x8000, contents.get(0));
+		assertEquals(0xffff, contents.get(1));
+	}
+
+	@Test
+	public void testClonesDoNotSeeEachOthersWrites() {
+		// words of 8, 16 and 32 bits are kept in different kinds of page
+		for (int width : new int[] { 8, 16, 32 }) {
+			int mask = width == 32 ? -1 : (1 << width) - 1;
+			MemContents orig = MemContents.create(14, width);
+			int[] values = new int[3 * PAGE];
+			for (int i = 0; i < values.length; i++) {
+				values[i] = (i * 0x9e3779b1) & mask;
+			}
+			orig.set(0, values);
+			int[] before = values.clone();
+
+			// each kind of write, by either side, leaves the other side alone
+			MemContents copy = orig.clone();
+			copy.set(5, 1);
+			copy.setFromSimulation(PAGE + 5, 2);
+			copy.fill(2 * PAGE - 10, 20, 3);
+			values[5] = 1;
+			values[PAGE + 5] = 2;
+			for (int i = 2 * PAGE - 10; i < 2 * PAGE + 10; i++) {
+				values[i] = 3;
+			}
+			assertContents(width + "-bit copy", values, copy);
+			assertContents(width + "-bit original", before, orig);
+
+			orig.set(PAGE - 2, new int[] { 4, 4, 4, 4 });
+			before[PAGE - 2] = before[PAGE - 1] = before[PAGE] = before[PAGE + 1] = 4;
+			assertContents(width + "-bit original after writing", before, orig);
+			assertContents(width + "-bit copy after original writes", values, copy);
+
+			// a clone of a clone, and contents cleared or resized under it
+			MemContents again = copy.clone();
+			copy.clear();
+			orig.setDimensions(14, width == 8 ? 16 : 8);
+			assertContents(width + "-bit clone of copy", values, again);
+			assertEquals(0, copy.get(5));
+			assertEquals(before[PAGE + 1] & 0xff, orig.get(PAGE + 1) & 0xff);
+		}
+	}
+
+	@Test
+	public void testTrackedWritesAreAnnouncedInBlocks() {
+		MemContents contents = MemContents.create(12, 8);
+		contents.set(2000, 9);
+		RangeListener listener = new RangeListener();
+		contents.addHexModelListener(listener);
+
+		// untracked writes are never announced
+		contents.setFromSimulation(3, 1);
+		contents.fireTrackedChanges();
+		assertEquals("[]", listener.take());
+
+		// blocks of 16 addresses, neighbouring blocks announced together,
+		// including those either side of a word of the tracked bits
+		contents.setTrackingChanges(true);
+		int[] addrs = { 3, 17, 100, 1015, 1030, 4095 };
+		for (int addr : addrs) {
+			contents.setFromSimulation(addr, 7);
+		}
+		contents.setFromSimulation(2000, 9); // unchanged, so not tracked
+		assertEquals("[]", listener.take());
+		contents.fireTrackedChanges();
+		assertEquals("[0-32, 96-112, 1008-1040, 4080-4096]", listener.take());
+		for (int addr : addrs) {
+			assertEquals(7, contents.get(addr));
+		}
+
+		// each write is announced once
+		contents.fireTrackedChanges();
+		assertEquals("[]", listener.take());
+		contents.setFromSimulation(100, 8);
+		contents.fireTrackedChanges();
+		assertEquals("[96-112]", listener.take());
+
+		contents.setTrackingChanges(false);
+		contents.setFromSimulation(100, 9);
+		contents.fireTrackedChanges();
+		assertEquals("[]", listener.take());
+		assertEquals(9, contents.get(100));
+	}
+}
@@ -0,0 +1,88 @@
+/* Copyright (c) 2010, Carl Burch. License information is located in the
+ * com.cburch.logisim.Main source code and at www.cburch.com/logisim/. */
+
+package com.cburch.logisim.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Test;
+
+public class PngEncoderTest {
+	// noise, so that the deflated rows fill several chunks
+	private static BufferedImage createImage(int width, int height, boolean alpha) {
+		BufferedImage ret = new BufferedImage(width, height,
+				alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+		Random rand = new Random(width * 31 + height);
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				ret.setRGB(x, y, rand.nextInt());
+			}
+		}
+		return ret;
+	}
+
+	// writes the image in strips of the given height, the last one short
+	private static byte[] encode(BufferedImage img, int stripHeight, boolean alpha) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		PngEncoder encoder = new PngEncoder(out, img.getWidth(), img.getHeight(), alpha);
+		int width = img.getWidth();
+		BufferedImage strip = new BufferedImage(width, stripHeight, img.getType());
+		int[] pixels = new int[width * stripHeight];
+		for (int y = 0; y < img.getHeight(); y += stripHeight) {
+			int rows = Math.min(stripHeight, img.getHeight() - y);
+			img.getRGB(0, y, width, rows, pixels, 0, width);
+			strip.setRGB(0, 0, width, rows, pixels, 0, width);
+			encoder.writeRows(strip, rows);
+		}
+		encoder.finish();
+		return out.toByteArray();
+	}
+
+	@Test
+	public void testMissingRowsAreRefused() throws IOException {
+		PngEncoder encoder = new PngEncoder(new ByteArrayOutputStream(), 10, 10, false);
+		encoder.writeRows(createImage(10, 4, false));
+		try {
+			encoder.finish();
+			fail("finished with rows missing");
+		} catch (IOException e) {
+		}
+		try {
+			encoder.writeRows(createImage(10, 7, false));
+			fail("wrote more rows than the image has");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	@Test
+	public void testStripsDecodeToTheImage() throws IOException {
+		for (boolean alpha : new boolean[] { false, true }) {
+			BufferedImage img = createImage(301, 257, alpha);
+			for (int stripHeight : new int[] { 1, 50, 257 }) {
+				byte[] png = encode(img, stripHeight, alpha);
+				BufferedImage read = ImageIO.read(new ByteArrayInputStream(png));
+				String message = (alpha ? "RGBA" : "RGB") + " in strips of " + stripHeight;
+				assertEquals(message, img.getWidth(), read.getWidth());
+				assertEquals(message, img.getHeight(), read.getHeight());
+				for (int y = 0; y < img.getHeight(); y++) {
+					for (int x = 0; x < img.getWidth(); x++) {
+						int expected = img.getRGB(x, y);
+						if (!alpha)
+							expected |= 0xff000000;
+						if (expected != read.getRGB(x, y))
+							fail(message + ": pixel " + x + "," + y + " differs");
+					}
+				}
+			}
+		}
+	}
+}